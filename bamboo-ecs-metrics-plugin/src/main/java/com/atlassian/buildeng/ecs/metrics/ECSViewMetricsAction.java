@@ -19,16 +19,45 @@ package com.atlassian.buildeng.ecs.metrics;
 import com.atlassian.bamboo.artifact.Artifact;
 import com.atlassian.bamboo.build.artifact.ArtifactFileData;
 import com.atlassian.bamboo.build.artifact.ArtifactLinkDataProvider;
+import com.atlassian.bamboo.build.artifact.ArtifactManager;
+import com.atlassian.bamboo.build.artifact.handlers.ArtifactHandlersService;
+import com.atlassian.bamboo.build.logger.NullBuildLogger;
+import com.atlassian.bamboo.plan.artifact.ArtifactDefinitionContextImpl;
 import com.atlassian.buildeng.metrics.shared.MetricsBuildProcessor;
 import com.atlassian.buildeng.metrics.shared.ViewMetricsAction;
 import com.google.common.base.Splitter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ECSViewMetricsAction extends ViewMetricsAction {
+    private static final Logger logger = LoggerFactory.getLogger(ECSViewMetricsAction.class);
+
+    // results from builds that rendered the graphs on the agent.
     static final String ARTIFACT_BUILD_DATA_KEY = "ecs_metrics_artifacts";
+    static final String RRD_ARTIFACT_BUILD_DATA_KEY = "ecs_metrics_rrd_artifacts";
+
+    // a graph is some 20kB, enough for the recently viewed results without holding on to much heap.
+    private static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+    private static final RenderedGraphCache CACHE = new RenderedGraphCache(MAX_CACHED_BYTES);
 
     private List<String> urls = new ArrayList<>();
+    private ArtifactManager artifactManager;
+    private ArtifactHandlersService artifactHandlersService;
+
+    public void setArtifactManager(ArtifactManager artifactManager) {
+        this.artifactManager = artifactManager;
+    }
+
+    public void setArtifactHandlersService(ArtifactHandlersService artifactHandlersService) {
+        this.artifactHandlersService = artifactHandlersService;
+    }
 
     public List<String> getBambooAgentUrls() {
         return urls;
@@ -39,22 +68,115 @@ public class ECSViewMetricsAction extends ViewMetricsAction {
         String artifactNames = resultsSummary.getCustomBuildData().get(ARTIFACT_BUILD_DATA_KEY);
         if (artifactNames != null) {
             Splitter.on(",").splitToList(artifactNames).forEach((String t) -> {
-                Artifact artifact = createArtifact(
-                        t,
-                        resultsSummary.getPlanResultKey(),
-                        resultsSummary.getCustomBuildData().get(MetricsBuildProcessor.ARTIFACT_TYPE_BUILD_DATA_KEY));
-                ArtifactLinkDataProvider artifactLinkDataProvider =
-                        artifactLinkManager.getArtifactLinkDataProvider(artifact);
-                if (artifactLinkDataProvider == null) {
-                    addActionError("Unable to find artifact link data provider for artifact link");
-                    return;
-                }
-                Iterable<ArtifactFileData> artifactFiles = artifactLinkDataProvider.listObjects("");
-                ArtifactFileData single = getSingleDownloadableFile(artifactFiles);
+                ArtifactFileData single = findArtifactFile(t);
                 if (single != null) {
                     urls.add(single.getUrl());
                 }
             });
         }
+        String rrdContainers = resultsSummary.getCustomBuildData().get(RRD_ARTIFACT_BUILD_DATA_KEY);
+        if (rrdContainers != null) {
+            for (RrdContainer container : parseRrdContainers(rrdContainers)) {
+                for (MetricsGraphRenderer.Type type : MetricsGraphRenderer.Type.values()) {
+                    String graph = renderGraph(container.name, type, container.startTime, container.endTime);
+                    if (graph != null) {
+                        urls.add(graph);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the comma separated name:startTime:endTime entries, malformed ones are skipped.
+     */
+    static List<RrdContainer> parseRrdContainers(String value) {
+        List<RrdContainer> containers = new ArrayList<>();
+        for (String container : Splitter.on(",").omitEmptyStrings().splitToList(value)) {
+            List<String> parts = Splitter.on(":").splitToList(container);
+            if (parts.size() != 3 || parts.get(0).isEmpty()) {
+                logger.warn("Skipping malformed metrics entry '{}'", container);
+                continue;
+            }
+            try {
+                containers.add(new RrdContainer(
+                        parts.get(0), Long.parseLong(parts.get(1)), Long.parseLong(parts.get(2))));
+            } catch (NumberFormatException e) {
+                logger.warn("Skipping metrics entry '{}' with malformed times", container);
+            }
+        }
+        return containers;
+    }
+
+    /**
+     * Render the graph out of the published rrd4j artifact unless already cached.
+     * The image is inlined as data URI, there's no url to point to.
+     */
+    private String renderGraph(String containerName, MetricsGraphRenderer.Type type, long startTime, long endTime) {
+        String name = containerName + type.getSuffix();
+        try {
+            byte[] png = CACHE.get(resultsSummary.getPlanResultKey() + "-" + name, (File target) -> {
+                File directory = Files.createTempDirectory("pbc-ecs-metrics").toFile();
+                try {
+                    File rrd = retrieveArtifact(name, directory);
+                    MetricsGraphRenderer.render(type, containerName, startTime, endTime, rrd, target);
+                } finally {
+                    FileUtils.deleteQuietly(directory);
+                }
+            });
+            return "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to render graph " + name + " for " + resultsSummary.getPlanResultKey(), e);
+            addActionError("Unable to render metrics graph for " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copy the rrd4j artifact into the directory straight from the artifact storage of the server.
+     */
+    private File retrieveArtifact(String name, File directory) throws IOException {
+        ArtifactDefinitionContextImpl artifact =
+                new ArtifactDefinitionContextImpl(MetricsBuildProcessor.ARTIFACT_PREFIX + name, false, null);
+        artifact.setCopyPattern(name + ECSMetricsBuildProcessor.RRD_EXTENSION);
+        boolean retrieved = artifactManager.retrieve(
+                new NullBuildLogger(),
+                resultsSummary.getPlanResultKey(),
+                artifact,
+                "",
+                directory,
+                artifactHandlersService.getRuntimeConfiguration(),
+                true);
+        File rrd = new File(directory, name + ECSMetricsBuildProcessor.RRD_EXTENSION);
+        if (!retrieved || !rrd.isFile()) {
+            throw new IOException("Artifact " + artifact.getName() + " not found");
+        }
+        return rrd;
+    }
+
+    private ArtifactFileData findArtifactFile(String artifactName) {
+        Artifact artifact = createArtifact(
+                artifactName,
+                resultsSummary.getPlanResultKey(),
+                resultsSummary.getCustomBuildData().get(MetricsBuildProcessor.ARTIFACT_TYPE_BUILD_DATA_KEY));
+        ArtifactLinkDataProvider artifactLinkDataProvider = artifactLinkManager.getArtifactLinkDataProvider(artifact);
+        if (artifactLinkDataProvider == null) {
+            addActionError("Unable to find artifact link data provider for artifact link");
+            return null;
+        }
+        Iterable<ArtifactFileData> artifactFiles = artifactLinkDataProvider.listObjects("");
+        return getSingleDownloadableFile(artifactFiles);
+    }
+
+    static final class RrdContainer {
+        final String name;
+        final long startTime;
+        final long endTime;
+
+        RrdContainer(String name, long startTime, long endTime) {
+            this.name = name;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
     }
 }
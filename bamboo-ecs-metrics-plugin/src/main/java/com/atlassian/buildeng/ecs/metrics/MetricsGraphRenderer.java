@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.metrics;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.graph.RrdGraph;
+import org.rrd4j.graph.RrdGraphDef;
+
+/**
+ * Renders the CPU and memory PNG graphs out of the rrd4j files published by {@link ECSMetricsBuildProcessor}.
+ * Runs on the server when the metrics of a job are first viewed.
+ */
+final class MetricsGraphRenderer {
+    static final Color COLOR_GREEN = Color.decode("0x29C30B");
+    static final Color COLOR_RED = Color.decode("0xF71C31");
+    static final Color COLOR_YELLOW = Color.decode("0xDBDE00");
+    static final Color COLOR_ORANGE = Color.decode("0xF7B71C");
+    static final Color COLOR_BLUE = Color.decode("0x0B80C3");
+
+    enum Type {
+        CPU("-cpu", " CPU Usage", "CPU Cores"),
+        MEMORY("-memory", " Memory Usage", "Memory Usage");
+
+        private final String suffix;
+        private final String title;
+        private final String verticalLabel;
+
+        Type(String suffix, String title, String verticalLabel) {
+            this.suffix = suffix;
+            this.title = title;
+            this.verticalLabel = verticalLabel;
+        }
+
+        String getSuffix() {
+            return suffix;
+        }
+    }
+
+    private MetricsGraphRenderer() {}
+
+    static void render(Type type, String containerName, long startTime, long endTime, File rrdFile, File target)
+            throws IOException {
+        RrdGraphDef gDef = createGraphDef(startTime, endTime, containerName + type.title, type.verticalLabel, target);
+        if (type == Type.CPU) {
+            generateCpuPng(gDef, rrdFile);
+        } else {
+            generateMemoryPng(gDef, rrdFile);
+        }
+    }
+
+    private static void generateCpuPng(RrdGraphDef gDef, File rrdFile) throws IOException {
+        gDef.datasource("user", rrdFile.getAbsolutePath(), "user", ConsolFun.AVERAGE);
+        gDef.datasource("system", rrdFile.getAbsolutePath(), "system", ConsolFun.AVERAGE);
+        gDef.datasource("throttled", rrdFile.getAbsolutePath(), "throttled", ConsolFun.AVERAGE);
+        gDef.datasource("user_sec", "user,100,/"); // 10-millisecond --> seconds
+        gDef.datasource("system_sec", "system,100,/");
+        gDef.datasource("throttled_sec", "throttled,100,/");
+        gDef.datasource("user_min", "user_sec", ConsolFun.MIN.getVariable());
+        gDef.datasource("user_avg", "user_sec", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("user_max", "user_sec", ConsolFun.MAX.getVariable());
+        gDef.datasource("system_min", "system_sec", ConsolFun.MIN.getVariable());
+        gDef.datasource("system_avg", "system_sec", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("system_max", "system_sec", ConsolFun.MAX.getVariable());
+        gDef.datasource("throttled_min", "throttled_sec", ConsolFun.MIN.getVariable());
+        gDef.datasource("throttled_avg", "throttled_sec", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("throttled_max", "throttled_sec", ConsolFun.MAX.getVariable());
+
+        gDef.area("user_sec", COLOR_GREEN, "CPU user", false);
+        gDef.gprint("user_min", "Min: %10.2lf%Ss");
+        gDef.gprint("user_avg", "Avg: %10.2lf%Ss");
+        gDef.gprint("user_max", "Max: %10.2lf%Ss\\l");
+        gDef.area("system_sec", COLOR_BLUE, "CPU system", true);
+        gDef.gprint("system_min", "Min: %10.2lf%Ss");
+        gDef.gprint("system_avg", "Avg: %10.2lf%Ss");
+        gDef.gprint("system_max", "Max: %10.2lf%Ss\\l");
+        gDef.area("throttled_sec", COLOR_RED, "CPU throttled", true);
+        gDef.gprint("throttled_min", "Min: %10.2lf%Ss");
+        gDef.gprint("throttled_avg", "Avg: %10.2lf%Ss");
+        gDef.gprint("throttled_max", "Max: %10.2lf%Ss\\l");
+        new RrdGraph(gDef);
+    }
+
+    private static RrdGraphDef createGraphDef(
+            long startTime, long endTime, String title, String vertLabel, File target) {
+        RrdGraphDef gDef = new RrdGraphDef();
+        gDef.setImageFormat("png");
+        gDef.setWidth(800);
+        gDef.setHeight(200);
+        gDef.setAltAutoscaleMax(true);
+        gDef.setTitle(title);
+        gDef.setVerticalLabel(vertLabel);
+        gDef.setStartTime(startTime);
+        gDef.setEndTime(endTime);
+        gDef.setFilename(target.getAbsolutePath());
+        return gDef;
+    }
+
+    private static void generateMemoryPng(RrdGraphDef gDef, File rrdFile) throws IOException {
+        gDef.datasource("cache", rrdFile.getAbsolutePath(), "cache", ConsolFun.AVERAGE);
+        gDef.datasource("rss", rrdFile.getAbsolutePath(), "rss", ConsolFun.AVERAGE);
+        gDef.datasource("swap", rrdFile.getAbsolutePath(), "swap", ConsolFun.AVERAGE);
+        gDef.datasource("total", rrdFile.getAbsolutePath(), "total", ConsolFun.AVERAGE);
+        gDef.datasource("limit", rrdFile.getAbsolutePath(), "limit", ConsolFun.AVERAGE);
+
+        gDef.datasource("cache_min", "cache", ConsolFun.MIN.getVariable());
+        gDef.datasource("cache_avg", "cache", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("cache_max", "cache", ConsolFun.MAX.getVariable());
+        gDef.datasource("rss_min", "rss", ConsolFun.MIN.getVariable());
+        gDef.datasource("rss_avg", "rss", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("rss_max", "rss", ConsolFun.MAX.getVariable());
+        gDef.datasource("swap_min", "swap", ConsolFun.MIN.getVariable());
+        gDef.datasource("swap_avg", "swap", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("swap_max", "swap", ConsolFun.MAX.getVariable());
+        gDef.datasource("total_min", "total", ConsolFun.MIN.getVariable());
+        gDef.datasource("total_avg", "total", ConsolFun.AVERAGE.getVariable());
+        gDef.datasource("total_max", "total", ConsolFun.MAX.getVariable());
+        gDef.datasource("limit_bla", "total", ConsolFun.MAX.getVariable());
+
+        gDef.area("cache", COLOR_BLUE, "Cache", false);
+        gDef.gprint("cache_min", "Min: %10.2lf%SB");
+        gDef.gprint("cache_avg", "Avg: %10.2lf%SB");
+        gDef.gprint("cache_max", "Max: %10.2lf%SB\\l");
+        gDef.area("rss", COLOR_GREEN, "Rss", true);
+        gDef.gprint("rss_min", "Min: %10.2lf%SB");
+        gDef.gprint("rss_avg", "Avg: %10.2lf%SB");
+        gDef.gprint("rss_max", "Max: %10.2lf%SB\\l");
+        gDef.area("swap", COLOR_ORANGE, "Swap", true);
+        gDef.gprint("swap_min", "Min: %10.2lf%SB");
+        gDef.gprint("swap_avg", "Avg: %10.2lf%SB");
+        gDef.gprint("swap_max", "Max: %10.2lf%SB\\l");
+        gDef.comment("Total     ");
+        gDef.gprint("total_min", "Min: %10.2lf%SB");
+        gDef.gprint("total_avg", "Avg: %10.2lf%SB");
+        gDef.gprint("total_max", "Max: %10.2lf%SB\\l");
+        gDef.comment("\n");
+        gDef.line("limit", COLOR_RED);
+        gDef.gprint("limit_bla", "%10.2lf%SB\\l");
+
+        new RrdGraph(gDef);
+    }
+}
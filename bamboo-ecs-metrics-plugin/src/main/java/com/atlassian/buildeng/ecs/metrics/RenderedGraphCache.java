@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.metrics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * In-memory least recently used cache of rendered graphs, bounded by the total size of the images.
+ * Concurrent requests for the same graph wait for a single rendering, different graphs render in parallel.
+ */
+class RenderedGraphCache {
+
+    interface Renderer {
+        void render(File target) throws IOException;
+    }
+
+    private final Cache<String, byte[]> cache;
+
+    RenderedGraphCache(long maxBytes) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, byte[] png) -> png.length)
+                .build();
+    }
+
+    /**
+     * Return the cached image for the key, rendering it first if not present.
+     */
+    byte[] get(String key, Renderer renderer) throws IOException {
+        try {
+            return cache.get(key, () -> render(renderer));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to render graph " + key, e.getCause());
+        }
+    }
+
+    private static byte[] render(Renderer renderer) throws IOException {
+        File target = File.createTempFile("pbc-ecs-metrics-graph", ".png");
+        try {
+            renderer.render(target);
+            return Files.readAllBytes(target.toPath());
+        } finally {
+            target.delete();
+        }
+    }
+}
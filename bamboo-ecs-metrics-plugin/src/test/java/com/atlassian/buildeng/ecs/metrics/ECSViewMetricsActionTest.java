@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ECSViewMetricsActionTest {
+
+    @Test
+    public void parseContainers() {
+        List<ECSViewMetricsAction.RrdContainer> containers = ECSViewMetricsAction.parseRrdContainers(
+                "bamboo-agent:1600000000:1600000600,docker:1600000010:1600000500");
+        assertEquals(2, containers.size());
+        assertEquals("bamboo-agent", containers.get(0).name);
+        assertEquals(1600000000L, containers.get(0).startTime);
+        assertEquals(1600000600L, containers.get(0).endTime);
+        assertEquals("docker", containers.get(1).name);
+    }
+
+    @Test
+    public void malformedEntriesSkipped() {
+        List<ECSViewMetricsAction.RrdContainer> containers = ECSViewMetricsAction.parseRrdContainers(
+                "bamboo-agent,docker:soon:1600000500,:1:2,extra:1:2:3,,db:1600000010:1600000500");
+        assertEquals(1, containers.size());
+        assertEquals("db", containers.get(0).name);
+    }
+
+    @Test
+    public void emptyValue() {
+        assertTrue(ECSViewMetricsAction.parseRrdContainers("").isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class RenderedGraphCacheTest {
+
+    private final RenderedGraphCache cache = new RenderedGraphCache(1024 * 1024);
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    public void renderedOnceWhenCached() throws Exception {
+        byte[] first = cache.get("PROJ-PLAN-JOB1-1-agent-memory", renderer("memory"));
+        byte[] second = cache.get("PROJ-PLAN-JOB1-1-agent-memory", renderer("other"));
+        assertArrayEquals("memory".getBytes(StandardCharsets.UTF_8), first);
+        assertArrayEquals(first, second);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    public void renderedForEachKey() throws Exception {
+        assertArrayEquals(
+                "memory".getBytes(StandardCharsets.UTF_8),
+                cache.get("PROJ-PLAN-JOB1-1-agent-memory", renderer("memory")));
+        assertArrayEquals(
+                "cpu".getBytes(StandardCharsets.UTF_8), cache.get("PROJ-PLAN-JOB1-1-agent-cpu", renderer("cpu")));
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    public void concurrentRequestsRenderOnce() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RenderedGraphCache.Renderer slow = (File target) -> {
+            rendering.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            renderer("memory").render(target);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.get("PROJ-PLAN-JOB1-1-agent-memory", slow)));
+            }
+            rendering.await(5, TimeUnit.SECONDS);
+            // give the other requests the time to queue up behind the rendering one.
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<byte[]> result : results) {
+                assertArrayEquals("memory".getBytes(StandardCharsets.UTF_8), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    public void failedRenderingNotCached() throws Exception {
+        assertThrows(IOException.class, () -> cache.get("PROJ-PLAN-JOB1-1-agent-memory", (File target) -> {
+            throw new IOException("artifact not found");
+        }));
+        assertArrayEquals(
+                "memory".getBytes(StandardCharsets.UTF_8),
+                cache.get("PROJ-PLAN-JOB1-1-agent-memory", renderer("memory")));
+    }
+
+    private RenderedGraphCache.Renderer renderer(String content) {
+        return (File target) -> {
+            renders.incrementAndGet();
+            Files.write(target.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+}
@@ -21,18 +21,29 @@ import com.atlassian.bamboo.buildqueue.LocalAgentDefinition;
 import com.atlassian.bamboo.buildqueue.PipelineDefinitionVisitor;
 import com.atlassian.bamboo.buildqueue.RemoteAgentDefinition;
 import com.atlassian.bamboo.event.agent.AgentRegisteredEvent;
+import com.atlassian.bamboo.v2.build.CommonContext;
+import com.atlassian.bamboo.v2.build.agent.capability.Capability;
 import com.atlassian.bamboo.v2.build.agent.capability.CapabilitySet;
+import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.buildeng.isolated.docker.jmx.JMXAgentsService;
+import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.event.api.EventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class AgentRegisteredListener {
+    private static final Logger logger = LoggerFactory.getLogger(AgentRegisteredListener.class);
 
     private final UnmetRequirements unmetRequirements;
     private final JMXAgentsService jmx;
+    private final BuildQueueManager buildQueueManager;
 
-    public AgentRegisteredListener(UnmetRequirements unmetRequirements, JMXAgentsService jmx) {
+    public AgentRegisteredListener(
+            UnmetRequirements unmetRequirements, JMXAgentsService jmx, BuildQueueManager buildQueueManager) {
         this.unmetRequirements = unmetRequirements;
         this.jmx = jmx;
+        this.buildQueueManager = buildQueueManager;
     }
 
     @EventListener
@@ -47,11 +58,29 @@ public class AgentRegisteredListener {
             @Override
             public void visitRemote(RemoteAgentDefinition pipelineDefinition) {
                 CapabilitySet cs = pipelineDefinition.getCapabilitySet();
-                if (cs != null && cs.getCapability(Constants.CAPABILITY_RESULT) != null) {
+                Capability cap = cs != null ? cs.getCapability(Constants.CAPABILITY_RESULT) : null;
+                if (cap != null) {
                     jmx.incrementActive();
+                    recordQueueToAgent(cap.getValue());
                 }
                 unmetRequirements.markAndStopTheBuild(pipelineDefinition);
             }
         });
     }
+
+    // each agent registers once and only ever runs the one job it was started for.
+    private void recordQueueToAgent(String resultKey) {
+        DockerAgentBuildQueue.currentlyQueued(buildQueueManager)
+                .filter((CommonContext t) -> resultKey.equals(t.getResultKey().getKey()))
+                .findFirst()
+                .map((CommonContext t) -> t.getCurrentResult().getCustomBuildData().get(Constants.QUEUE_TIMESTAMP))
+                .ifPresent((String queued) -> {
+                    try {
+                        long waited = System.currentTimeMillis() - Long.parseLong(queued);
+                        PbcMetrics.queueToAgent().observe(waited / 1000.0);
+                    } catch (NumberFormatException ex) {
+                        logger.debug("Malformed queue timestamp {} for {}", queued, resultKey);
+                    }
+                });
+    }
 }
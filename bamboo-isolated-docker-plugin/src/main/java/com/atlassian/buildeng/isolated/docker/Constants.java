@@ -27,6 +27,11 @@ public interface Constants {
      */
     String RESULT_AGENT_KILLED_ITSELF = "custom.isolated.docker.stopped";
 
+    /**
+     * custom data piece holding the time in millis when the job was queued.
+     */
+    String QUEUE_TIMESTAMP = "pbcJobQueueTime";
+
     String CAPABILITY_RESULT = Capability.SYSTEM_PREFIX + ".isolated.docker.for";
     /**
      * prefix for custom data passed from the api implementation.
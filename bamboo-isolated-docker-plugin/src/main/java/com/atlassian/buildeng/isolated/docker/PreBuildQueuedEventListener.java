@@ -47,6 +47,7 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.event.api.EventListener;
 import com.atlassian.event.api.EventPublisher;
 import com.google.common.base.Joiner;
@@ -78,7 +79,6 @@ public class PreBuildQueuedEventListener {
     private final GlobalConfiguration globalConfiguration;
     private final AgentSecurityTokenService agentSecurityTokenService;
 
-    private static final String QUEUE_TIMESTAMP = "pbcJobQueueTime";
 
     @Inject
     private PreBuildQueuedEventListener(
@@ -190,6 +190,7 @@ public class PreBuildQueuedEventListener {
                         event.getContext().getResultKey());
                 // retry infinitely
                 rescheduler.reschedule(event);
+                PbcMetrics.agentStartRescheduled("creationLimit").inc();
                 agentsThrottled.add(eventKey);
                 jmx.recalculateThrottle(agentsThrottled);
                 return;
@@ -220,6 +221,7 @@ public class PreBuildQueuedEventListener {
                             eventKey,
                             Joiner.on("\n").join(result.getErrors()));
                     if (rescheduler.reschedule(new RetryAgentStartupEvent(event))) {
+                        PbcMetrics.agentStartRescheduled("recoverable").inc();
                         return;
                     }
                     jmx.incrementTimedOut();
@@ -243,6 +245,7 @@ public class PreBuildQueuedEventListener {
                             event.getContext().getEntityKey(), "Build was not queued due to error:" + error);
                 } else {
                     jmx.incrementScheduled();
+                    PbcMetrics.agentStartRetries().observe(event.getRetryCount());
                     logger.info(
                             "Scheduled {} with custom data: {}",
                             event.getContext().getResultKey(),
@@ -377,7 +380,7 @@ public class PreBuildQueuedEventListener {
     }
 
     private long getQueueTimestamp(CommonContext context) {
-        String val = context.getCurrentResult().getCustomBuildData().get(QUEUE_TIMESTAMP);
+        String val = context.getCurrentResult().getCustomBuildData().get(Constants.QUEUE_TIMESTAMP);
         if (val != null) {
             return Long.parseLong(val);
         }
@@ -385,7 +388,9 @@ public class PreBuildQueuedEventListener {
     }
 
     private void setQueueTimestamp(CommonContext context) {
-        context.getCurrentResult().getCustomBuildData().put(QUEUE_TIMESTAMP, "" + System.currentTimeMillis());
+        context.getCurrentResult()
+                .getCustomBuildData()
+                .put(Constants.QUEUE_TIMESTAMP, "" + System.currentTimeMillis());
     }
 
     // BUILDENG-12837 a fairly complicated issue lurking here.
@@ -30,6 +30,7 @@ import com.atlassian.buildeng.kubernetes.serialization.ResponseMapper;
 import com.atlassian.buildeng.kubernetes.serialization.StringResponseMapper;
 import com.atlassian.buildeng.kubernetes.shell.ShellException;
 import com.atlassian.buildeng.kubernetes.shell.ShellExecutor;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.google.common.base.Charsets;
 import com.google.common.collect.Lists;
 import io.fabric8.kubernetes.api.model.HasMetadata;
@@ -89,14 +90,29 @@ public class KubernetesClient {
             kubectlArgs.addAll(Arrays.asList("--context", contextSupplier.getValue()));
         }
         logger.debug("Executing " + kubectlArgs);
+        long start = System.nanoTime();
         try {
             return shellExecutor.exec(kubectlArgs, responseMapper);
         } catch (ShellException e) {
             logger.debug("mapping shell exception");
             throw kubernetesExceptionParser.map(ERROR_MESSAGE_PREFIX, e);
+        } finally {
+            PbcMetrics.kubectl(verb(args)).observeSince(start);
         }
     }
 
+    // first argument that is not an option, eg. get, create or delete.
+    private static String verb(String... args) {
+        for (int i = 0; i < args.length; i++) {
+            if ("-o".equals(args[i])) {
+                i++; // skip the output format
+            } else if (!args[i].startsWith("-")) {
+                return args[i];
+            }
+        }
+        return "unknown";
+    }
+
     public String executeKubectl(ContextSupplier contextSupplier, String... args) throws KubectlException {
         return executeKubectlWithResponseMapper(contextSupplier, defaultResponseMapper, args);
     }
@@ -28,6 +28,7 @@ import com.atlassian.buildeng.kubernetes.exception.KubectlException;
 import com.atlassian.buildeng.kubernetes.jmx.JmxJob;
 import com.atlassian.buildeng.kubernetes.jmx.KubeJmxService;
 import com.atlassian.buildeng.kubernetes.shell.JavaShellExecutor;
+import com.atlassian.buildeng.kubernetes.shell.ShellExecutor;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedAgentService;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
@@ -96,6 +97,7 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
     private final Scheduler scheduler;
     private final ExecutorService executor;
     private final SubjectIdService subjectIdService;
+    private final ShellExecutor shellExecutor;
 
     private final KubernetesPodSpecList podSpecList;
 
@@ -106,11 +108,26 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
             KubeJmxService kubeJmxService,
             SubjectIdService subjectIdService,
             KubernetesPodSpecList podSpecList) {
+        this(globalConfiguration, scheduler, kubeJmxService, subjectIdService, podSpecList, new JavaShellExecutor());
+    }
+
+    /**
+     * The shell executor is used for all kubectl invocations of this service and the watchdog.
+     */
+    @VisibleForTesting
+    KubernetesIsolatedDockerImpl(
+            GlobalConfiguration globalConfiguration,
+            Scheduler scheduler,
+            KubeJmxService kubeJmxService,
+            SubjectIdService subjectIdService,
+            KubernetesPodSpecList podSpecList,
+            ShellExecutor shellExecutor) {
         this.scheduler = scheduler;
         this.globalConfiguration = globalConfiguration;
         this.kubeJmxService = kubeJmxService;
         this.subjectIdService = subjectIdService;
         this.podSpecList = podSpecList;
+        this.shellExecutor = shellExecutor;
 
         ThreadPoolExecutor tpe = new ThreadPoolExecutor(5, 5, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
         tpe.allowCoreThreadTimeOut(true);
@@ -125,7 +142,7 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
     }
 
     private Pod createPod(File podFile) throws KubectlException {
-        return new KubernetesClient(globalConfiguration, new JavaShellExecutor()).createPod(podFile);
+        return new KubernetesClient(globalConfiguration, shellExecutor).createPod(podFile);
     }
 
     private void handleCallback(IsolatedDockerRequestCallback callback, Pod pod, String name) {
@@ -149,6 +166,7 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
                     servedIn,
                     name);
             podSpecList.cleanUp(podFile);
+            kubeJmxService.enqueued(request.getResultKey(), request.getQueueTimestamp());
             handleCallback(callback, pod, name);
         } catch (ClusterRegistryKubectlException e) {
             IsolatedDockerAgentResult result = new IsolatedDockerAgentResult();
@@ -223,6 +241,7 @@ public class KubernetesIsolatedDockerImpl implements IsolatedAgentService, Lifec
         config.put("globalConfiguration", globalConfiguration);
         config.put("isolatedAgentService", this);
         config.put("kubeJmxService", kubeJmxService);
+        config.put("shellExecutor", shellExecutor);
 
         JobDetail watchdogJob = jobDetail(KubernetesWatchdog.class, PLUGIN_JOB_KEY, config);
         JobDetail pluginJmxJob = jobDetail(JmxJob.class, PLUGIN_JOB_JMX_KEY, config);
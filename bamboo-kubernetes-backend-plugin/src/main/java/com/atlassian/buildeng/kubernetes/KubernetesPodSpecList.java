@@ -20,6 +20,7 @@ import static com.atlassian.buildeng.isolated.docker.Constants.DEFAULT_ARCHITECT
 
 import com.atlassian.bandana.BandanaManager;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import com.atlassian.sal.api.features.DarkFeatureManager;
 import com.google.common.annotations.VisibleForTesting;
@@ -60,14 +61,20 @@ public class KubernetesPodSpecList {
     }
 
     public File generate(IsolatedDockerAgentRequest request, String subjectId) throws IOException {
-        return createPodFile(createPodSpecList(request, subjectId));
+        long start = System.nanoTime();
+        try {
+            return createPodFile(createPodSpecList(request, subjectId));
+        } finally {
+            PbcMetrics.podSpecGeneration().observeSince(start);
+        }
     }
 
     public void cleanUp(File podFile) {
         this.deletePodFile(podFile);
     }
 
-    private List<Map<String, Object>> createPodSpecList(IsolatedDockerAgentRequest request, String subjectId) {
+    @VisibleForTesting
+    List<Map<String, Object>> createPodSpecList(IsolatedDockerAgentRequest request, String subjectId) {
         Map<String, Object> template = loadTemplatePod();
         Map<String, Object> podDefinition = PodCreator.create(request, globalConfiguration);
         Map<String, Object> podWithoutArchOverrides = mergeMap(template, podDefinition);
@@ -227,6 +234,15 @@ public class KubernetesPodSpecList {
     }
 
     private void writeSpecToFile(List<Map<String, Object>> document, File f) throws IOException {
+        String yaml = toYaml(document);
+        logger.debug("YAML----------");
+        logger.debug(yaml);
+        logger.debug("YAMLEND----------");
+        FileUtils.write(f, yaml, "UTF-8", false);
+    }
+
+    @VisibleForTesting
+    static String toYaml(List<Map<String, Object>> document) {
         DumperOptions options = new DumperOptions();
         options.setExplicitStart(true);
         options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
@@ -234,11 +250,7 @@ public class KubernetesPodSpecList {
         options.setIndent(4);
         options.setCanonical(false);
         Yaml yaml = new Yaml(options);
-
-        logger.debug("YAML----------");
-        logger.debug(yaml.dumpAll(document.iterator()));
-        logger.debug("YAMLEND----------");
-        FileUtils.write(f, yaml.dumpAll(document.iterator()), "UTF-8", false);
+        return yaml.dumpAll(document.iterator());
     }
 
     @SuppressWarnings("unchecked")
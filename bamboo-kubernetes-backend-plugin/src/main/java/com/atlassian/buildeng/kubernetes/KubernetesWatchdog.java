@@ -26,7 +26,8 @@ import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.buildeng.isolated.docker.events.DockerAgentKubeFailEvent;
 import com.atlassian.buildeng.isolated.docker.events.DockerAgentKubeRestartEvent;
 import com.atlassian.buildeng.kubernetes.exception.KubectlException;
-import com.atlassian.buildeng.kubernetes.shell.JavaShellExecutor;
+import com.atlassian.buildeng.kubernetes.jmx.KubeJmxService;
+import com.atlassian.buildeng.kubernetes.shell.ShellExecutor;
 import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
 import com.atlassian.buildeng.spi.isolated.docker.AgentCreationRescheduler;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
@@ -34,6 +35,7 @@ import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedAgentService;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
 import com.atlassian.buildeng.spi.isolated.docker.WatchdogJob;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.event.api.EventPublisher;
 import com.atlassian.plugin.PluginAccessor;
 import com.atlassian.plugin.module.ContainerManagedPlugin;
@@ -119,7 +121,9 @@ public class KubernetesWatchdog extends WatchdogJob {
             // throwing something here will stop rescheduling the job forever (until next redeploy)
             logger.error("Exception caught and swallowed to preserve rescheduling of the task", t);
         }
-        logger.debug("Time overall {}", Duration.ofMillis(System.currentTimeMillis() - start));
+        Duration overall = Duration.ofMillis(System.currentTimeMillis() - start);
+        PbcMetrics.watchdogCycle("kubernetes").observe(overall);
+        logger.debug("Time overall {}", overall);
     }
 
     private void executeImpl(Map<String, Object> jobDataMap)
@@ -135,6 +139,8 @@ public class KubernetesWatchdog extends WatchdogJob {
                 getService(DeploymentResultService.class, "deploymentResultService");
         final IsolatedAgentService isolatedAgentService =
                 getService(IsolatedAgentService.class, "isolatedAgentService", jobDataMap);
+        final KubeJmxService kubeJmxService = getService(KubeJmxService.class, "kubeJmxService", jobDataMap);
+        final ShellExecutor shellExecutor = getService(ShellExecutor.class, "shellExecutor", jobDataMap);
 
         // AgentCreationRescheduler - this component cannot be injected by Spring, as it introduces cycles in Spring
         // injection between plugins. It is always instantiated by the required bamboo-isolated-docker-plugin, so we
@@ -150,7 +156,7 @@ public class KubernetesWatchdog extends WatchdogJob {
                 .orElseThrow(() -> new IllegalStateException("Cannot find component "
                         + "com.atlassian.buildeng.bamboo-isolated-docker-plugin:agentCreationRescheduler"));
 
-        KubernetesClient client = new KubernetesClient(globalConfiguration, new JavaShellExecutor());
+        KubernetesClient client = new KubernetesClient(globalConfiguration, shellExecutor);
         long clusterStateQueryTime = System.currentTimeMillis();
         List<String> terminatingPodNames = new LinkedList<>();
         String label = globalConfiguration.getBambooBaseUrlAskKubeLabel();
@@ -352,6 +358,7 @@ public class KubernetesWatchdog extends WatchdogJob {
                                         buildQueueManager,
                                         context,
                                         current);
+                                kubeJmxService.removed(context.getResultKey().getKey());
                             } else {
                                 errorMessage = "Termination reason unknown, pod deleted by Kubernetes infrastructure.";
                                 if (grace.toMinutes() > MISSING_POD_RETRY_AFTER_PERIOD_MINUTES) {
@@ -396,6 +403,7 @@ public class KubernetesWatchdog extends WatchdogJob {
                                 buildQueueManager,
                                 context,
                                 current);
+                        kubeJmxService.removed(context.getResultKey().getKey());
 
                         Optional<TerminationReason> deleted = deletePod(client, pod, errorMessage, false);
                         if (deleted.isPresent()) {
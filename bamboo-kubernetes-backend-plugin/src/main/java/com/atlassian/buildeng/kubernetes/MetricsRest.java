@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import com.atlassian.bamboo.security.BambooPermissionManager;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsEndpoint;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.MetricsRegistry;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Response;
+
+/**
+ * Exposes the PBC internal metrics in the Prometheus text format to Bamboo administrators.
+ */
+@Path("/metrics")
+public class MetricsRest {
+
+    private final MetricsEndpoint endpoint;
+
+    @Inject
+    public MetricsRest(BambooPermissionManager bambooPermissionManager) {
+        this.endpoint = new MetricsEndpoint(bambooPermissionManager);
+    }
+
+    /**
+     * GET metrics in the Prometheus text exposition format.
+     */
+    @GET
+    public Response getMetrics() {
+        if (!endpoint.isPermitted()) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        return Response.ok(endpoint.scrape(), MetricsRegistry.CONTENT_TYPE).build();
+    }
+}
@@ -16,7 +16,6 @@
 
 package com.atlassian.buildeng.kubernetes.jmx;
 
-import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
 import com.atlassian.buildeng.spi.isolated.docker.WatchdogJob;
 import org.quartz.DisallowConcurrentExecution;
 import org.quartz.JobExecutionContext;
@@ -31,12 +30,11 @@ public class JmxJob extends WatchdogJob {
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
         try {
-            BuildQueueManager buildQueueManager = getService(BuildQueueManager.class, "buildQueueManager");
             KubeJmxService jmxService = getService(
                     KubeJmxService.class,
                     "kubeJmxService",
                     context.getJobDetail().getJobDataMap());
-            jmxService.recalculate(buildQueueManager);
+            jmxService.rotate();
         } catch (Throwable t) {
             // this is throwable because of NoClassDefFoundError and alike.
             // These are not Exception subclasses and actually
@@ -16,53 +16,49 @@
 
 package com.atlassian.buildeng.kubernetes.jmx;
 
-import java.util.concurrent.atomic.AtomicLong;
-
 /**
  * Object holding the queued agent gauges.
  */
 public class KubeAgents implements KubeAgentsMBean {
 
-    final AtomicLong total = new AtomicLong(0);
-    final AtomicLong minute5 = new AtomicLong(0);
-    final AtomicLong minute10 = new AtomicLong(0);
-    final AtomicLong minute15 = new AtomicLong(0);
-    final AtomicLong minute20 = new AtomicLong(0);
-    final AtomicLong minute25 = new AtomicLong(0);
-    final AtomicLong minute30 = new AtomicLong(0);
+    private final KubeJmxService service;
+
+    KubeAgents(KubeJmxService service) {
+        this.service = service;
+    }
 
     @Override
     public long getQueuedTotalGauge() {
-        return total.get();
+        return service.getWaitingCount();
     }
 
     @Override
-    public long getQueuedFor5MinutesGauge() {
-        return minute5.get();
+    public long getQueuedOldestMillisGauge() {
+        return service.getOldestWaitingMillis();
     }
 
     @Override
-    public long getQueuedFor10MinutesGauge() {
-        return minute10.get();
+    public long getQueueTimeCount() {
+        return service.getQueueTimeCount();
     }
 
     @Override
-    public long getQueuedFor15MinutesGauge() {
-        return minute15.get();
+    public long getQueueTimeP50Millis() {
+        return service.getQueueTimeAtQuantile(0.5);
     }
 
     @Override
-    public long getQueuedFor20MinutesGauge() {
-        return minute20.get();
+    public long getQueueTimeP90Millis() {
+        return service.getQueueTimeAtQuantile(0.9);
     }
 
     @Override
-    public long getQueuedFor25MinutesGauge() {
-        return minute25.get();
+    public long getQueueTimeP99Millis() {
+        return service.getQueueTimeAtQuantile(0.99);
     }
 
     @Override
-    public long getQueuedFor30MinutesGauge() {
-        return minute30.get();
+    public long getQueueTimeMaxMillis() {
+        return service.getQueueTimeAtQuantile(1);
     }
 }
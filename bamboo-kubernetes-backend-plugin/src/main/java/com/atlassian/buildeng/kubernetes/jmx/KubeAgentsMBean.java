@@ -18,20 +18,22 @@ package com.atlassian.buildeng.kubernetes.jmx;
 
 /**
  * JMX bean to record queue gauges.
+ * Percentiles are in milliseconds and cover the agents that started within the last one or two windows
+ * of {@link KubeJmxService#WINDOW_MILLIS}.
  */
 public interface KubeAgentsMBean {
 
     long getQueuedTotalGauge();
 
-    long getQueuedFor5MinutesGauge();
+    long getQueuedOldestMillisGauge();
 
-    long getQueuedFor10MinutesGauge();
+    long getQueueTimeCount();
 
-    long getQueuedFor15MinutesGauge();
+    long getQueueTimeP50Millis();
 
-    long getQueuedFor20MinutesGauge();
+    long getQueueTimeP90Millis();
 
-    long getQueuedFor25MinutesGauge();
+    long getQueueTimeP99Millis();
 
-    long getQueuedFor30MinutesGauge();
+    long getQueueTimeMaxMillis();
 }
@@ -16,28 +16,37 @@
 
 package com.atlassian.buildeng.kubernetes.jmx;
 
-import com.atlassian.bamboo.v2.build.CommonContext;
-import com.atlassian.bamboo.v2.build.CurrentResult;
-import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
-import com.atlassian.buildeng.kubernetes.KubernetesIsolatedDockerImpl;
-import com.atlassian.buildeng.kubernetes.KubernetesWatchdog;
-import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
 import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
 import java.lang.management.ManagementFactory;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
-import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 
+/**
+ * Tracks queue times of kubernetes agents as they happen.
+ * A result is waiting from the moment its pod was created until the agent registers,
+ * the build is cancelled or killed by the watchdog.
+ * Waits of started agents are recorded into histograms that get rotated every {@link #WINDOW_MILLIS}.
+ */
 @BambooComponent
 public class KubeJmxService implements DisposableBean, InitializingBean {
     private static final Logger logger = LoggerFactory.getLogger(KubeJmxService.class);
 
-    private KubeAgents agentsCount;
+    static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // the watchdog kills builds queued for an hour, anything older is a missed dequeue.
+    static final long MAX_WAITING_MILLIS = TimeUnit.MINUTES.toMillis(90);
+
+    private final ConcurrentMap<String, Long> waiting = new ConcurrentHashMap<>();
+    private volatile QueueTimeHistogram current = new QueueTimeHistogram();
+    private volatile QueueTimeHistogram previous = new QueueTimeHistogram();
+    private long windowStart = System.currentTimeMillis();
+
     private ObjectName name;
 
     @Override
@@ -49,70 +58,75 @@ public class KubeJmxService implements DisposableBean, InitializingBean {
     @Override
     public void afterPropertiesSet() throws Exception {
         MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-        agentsCount = new KubeAgents();
         name = new ObjectName("com.atlassian.buildeng.kubernetes:type=KubeAgents");
-        mbs.registerMBean(agentsCount, name);
+        mbs.registerMBean(new KubeAgents(this), name);
+    }
+
+    /**
+     * The pod for the result was created, the result waits for its agent from the queue timestamp on.
+     */
+    public void enqueued(String resultKey, long queueTimestamp) {
+        waiting.put(resultKey, queueTimestamp);
+    }
+
+    /**
+     * The agent for the result registered, records how long the result waited.
+     */
+    public void agentStarted(String resultKey) {
+        Long queueTimestamp = waiting.remove(resultKey);
+        if (queueTimestamp != null) {
+            current.record(System.currentTimeMillis() - queueTimestamp);
+        }
+    }
+
+    /**
+     * The result left the queue without an agent, its wait is not recorded.
+     */
+    public void removed(String resultKey) {
+        waiting.remove(resultKey);
     }
 
     /**
-     * recalculate the numbers of agents queued.
-     *
-     * @param buildQueueManager service
+     * Rotate the histogram window when due and drop waiting results that were missed when leaving the queue.
+     * Called periodically from {@link JmxJob}.
      */
-    public void recalculate(BuildQueueManager buildQueueManager) {
+    public synchronized void rotate() {
+        long now = System.currentTimeMillis();
+        waiting.values().removeIf((Long queued) -> now - queued > MAX_WAITING_MILLIS);
+        if (now - windowStart >= WINDOW_MILLIS) {
+            QueueTimeHistogram recycled = previous;
+            recycled.reset();
+            previous = current;
+            current = recycled;
+            windowStart = now;
+            logger.debug(
+                    "queue time window: count={} p50={} p90={} p99={} max={} waiting={}",
+                    previous.getCount(),
+                    QueueTimeHistogram.valueAtQuantile(0.5, previous),
+                    QueueTimeHistogram.valueAtQuantile(0.9, previous),
+                    QueueTimeHistogram.valueAtQuantile(0.99, previous),
+                    previous.getMax(),
+                    waiting.size());
+        }
+    }
+
+    long getWaitingCount() {
+        return waiting.size();
+    }
+
+    long getOldestWaitingMillis() {
         long now = System.currentTimeMillis();
-        AtomicLong total = new AtomicLong(0);
-        AtomicLong minutes5 = new AtomicLong(0);
-        AtomicLong minutes10 = new AtomicLong(0);
-        AtomicLong minutes15 = new AtomicLong(0);
-        AtomicLong minutes20 = new AtomicLong(0);
-        AtomicLong minutes25 = new AtomicLong(0);
-        AtomicLong minutes30 = new AtomicLong(0);
-        DockerAgentBuildQueue.currentlyQueued(buildQueueManager).forEach((CommonContext context) -> {
-            CurrentResult current = context.getCurrentResult();
-            String podName = current.getCustomBuildData()
-                    .get(KubernetesIsolatedDockerImpl.RESULT_PREFIX + KubernetesIsolatedDockerImpl.NAME);
-            // kube pbc only
-            if (podName != null) {
-                long queueTime = Long.parseLong(current.getCustomBuildData().get(KubernetesWatchdog.QUEUE_TIMESTAMP));
-                long minutes = Duration.millis(now - queueTime).getStandardMinutes();
-
-                total.getAndIncrement();
-                if (minutes >= 5) {
-                    minutes5.getAndIncrement();
-                }
-                if (minutes >= 10) {
-                    minutes10.getAndIncrement();
-                }
-                if (minutes >= 15) {
-                    minutes15.getAndIncrement();
-                }
-                if (minutes >= 20) {
-                    minutes20.getAndIncrement();
-                }
-                if (minutes >= 25) {
-                    minutes25.getAndIncrement();
-                }
-                if (minutes >= 30) {
-                    minutes30.getAndIncrement();
-                }
-            }
-        });
-        agentsCount.total.getAndSet(total.get());
-        agentsCount.minute5.getAndSet(minutes5.get());
-        agentsCount.minute10.getAndSet(minutes10.get());
-        agentsCount.minute15.getAndSet(minutes15.get());
-        agentsCount.minute20.getAndSet(minutes20.get());
-        agentsCount.minute25.getAndSet(minutes25.get());
-        agentsCount.minute30.getAndSet(minutes30.get());
-        logger.debug(
-                "total:{} 5min={} 10min={} 15min={} 20min={} 25min={} 30min={}",
-                total,
-                minutes5,
-                minutes10,
-                minutes15,
-                minutes20,
-                minutes25,
-                minutes30);
+        return waiting.values().stream()
+                .mapToLong((Long queued) -> now - queued)
+                .max()
+                .orElse(0);
+    }
+
+    long getQueueTimeCount() {
+        return current.getCount() + previous.getCount();
+    }
+
+    long getQueueTimeAtQuantile(double quantile) {
+        return QueueTimeHistogram.valueAtQuantile(quantile, current, previous);
     }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of millisecond values in the style of HdrHistogram.
+ * Values below {@link #SUB_BUCKETS} are counted exactly, larger values land in one of
+ * {@link #SUB_BUCKETS}/2 linear sub buckets per power of two, keeping the relative error under 1/64.
+ * Recording is lock free, so it can be called from the event threads directly.
+ */
+class QueueTimeHistogram {
+    static final int SUB_BUCKETS = 128;
+    private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+    private static final int HALF = SUB_BUCKETS / 2;
+    // one day in milliseconds, longer waits are clamped.
+    static final long HIGHEST_TRACKABLE = 24L * 60 * 60 * 1000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(HIGHEST_TRACKABLE) + 1);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long millis) {
+        long value = Math.max(0, Math.min(millis, HIGHEST_TRACKABLE));
+        counts.incrementAndGet(indexOf(value));
+        total.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    long getCount() {
+        return total.get();
+    }
+
+    long getMax() {
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Value at the given quantile across this and the other histograms, 0 if there are no values.
+     * The result is the highest value equivalent to the matching bucket, capped by the recorded maximum.
+     */
+    static long valueAtQuantile(double quantile, QueueTimeHistogram... histograms) {
+        long count = 0;
+        long maximum = 0;
+        for (QueueTimeHistogram h : histograms) {
+            count += h.getCount();
+            maximum = Math.max(maximum, h.getMax());
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        int length = histograms[0].counts.length();
+        for (int i = 0; i < length; i++) {
+            for (QueueTimeHistogram h : histograms) {
+                seen += h.counts.get(i);
+            }
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), maximum);
+            }
+        }
+        return maximum;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // the shift that brings the value into the [HALF, SUB_BUCKETS) range
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >> shift) - HALF);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.jmx;
+
+import com.atlassian.bamboo.buildqueue.ElasticAgentDefinition;
+import com.atlassian.bamboo.buildqueue.LocalAgentDefinition;
+import com.atlassian.bamboo.buildqueue.PipelineDefinitionVisitor;
+import com.atlassian.bamboo.buildqueue.RemoteAgentDefinition;
+import com.atlassian.bamboo.event.BuildCanceledEvent;
+import com.atlassian.bamboo.event.agent.AgentRegisteredEvent;
+import com.atlassian.bamboo.v2.build.agent.capability.Capability;
+import com.atlassian.bamboo.v2.build.agent.capability.CapabilitySet;
+import com.atlassian.buildeng.isolated.docker.Constants;
+import com.atlassian.event.api.EventListener;
+
+/**
+ * Dequeues results from {@link KubeJmxService} when their agent registers or the build gets cancelled.
+ */
+public class QueueTimeListener {
+
+    private final KubeJmxService kubeJmxService;
+
+    public QueueTimeListener(KubeJmxService kubeJmxService) {
+        this.kubeJmxService = kubeJmxService;
+    }
+
+    @EventListener
+    public void agentRegistered(AgentRegisteredEvent event) {
+        event.getAgent().accept(new PipelineDefinitionVisitor() {
+            @Override
+            public void visitElastic(ElasticAgentDefinition pipelineDefinition) {}
+
+            @Override
+            public void visitLocal(LocalAgentDefinition pipelineDefinition) {}
+
+            @Override
+            public void visitRemote(RemoteAgentDefinition pipelineDefinition) {
+                CapabilitySet cs = pipelineDefinition.getCapabilitySet();
+                Capability cap = cs != null ? cs.getCapability(Constants.CAPABILITY_RESULT) : null;
+                if (cap != null) {
+                    kubeJmxService.agentStarted(cap.getValue());
+                }
+            }
+        });
+    }
+
+    @EventListener
+    public void buildCancelled(BuildCanceledEvent event) {
+        kubeJmxService.removed(event.getPlanResultKey().getKey());
+    }
+}
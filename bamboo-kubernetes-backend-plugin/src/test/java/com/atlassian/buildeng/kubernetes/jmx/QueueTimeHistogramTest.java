@@ -0,0 +1,68 @@
+package com.atlassian.buildeng.kubernetes.jmx;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class QueueTimeHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        QueueTimeHistogram histogram = new QueueTimeHistogram();
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, QueueTimeHistogram.valueAtQuantile(0.5, histogram));
+        assertEquals(90, QueueTimeHistogram.valueAtQuantile(0.9, histogram));
+        assertEquals(99, QueueTimeHistogram.valueAtQuantile(0.99, histogram));
+        assertEquals(100, QueueTimeHistogram.valueAtQuantile(1, histogram));
+    }
+
+    @Test
+    public void largeValuesKeepRelativePrecision() {
+        QueueTimeHistogram histogram = new QueueTimeHistogram();
+        long[] values = {45_000, 61_000, 299_000, 3_600_000};
+        for (long value : values) {
+            histogram.record(value);
+        }
+        for (int i = 0; i < values.length; i++) {
+            long reported = QueueTimeHistogram.valueAtQuantile((i + 1) / (double) values.length, histogram);
+            assertTrue(reported >= values[i], "reported " + reported + " for " + values[i]);
+            assertTrue(reported - values[i] <= values[i] / 64, "reported " + reported + " for " + values[i]);
+        }
+        assertEquals(3_600_000, histogram.getMax());
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = QueueTimeHistogram.indexOf(value);
+            assertTrue(QueueTimeHistogram.highestEquivalentValue(index) >= value);
+            assertTrue(index == 0 || QueueTimeHistogram.highestEquivalentValue(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void quantilesMergeHistograms() {
+        QueueTimeHistogram first = new QueueTimeHistogram();
+        QueueTimeHistogram second = new QueueTimeHistogram();
+        first.record(10);
+        second.record(20);
+        assertEquals(10, QueueTimeHistogram.valueAtQuantile(0.5, first, second));
+        assertEquals(20, QueueTimeHistogram.valueAtQuantile(1, first, second));
+        first.reset();
+        assertEquals(20, QueueTimeHistogram.valueAtQuantile(0.5, first, second));
+        assertEquals(0, QueueTimeHistogram.valueAtQuantile(0.5, new QueueTimeHistogram()));
+    }
+
+    @Test
+    public void valuesAreClamped() {
+        QueueTimeHistogram histogram = new QueueTimeHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, QueueTimeHistogram.valueAtQuantile(0.5, histogram));
+        assertEquals(QueueTimeHistogram.HIGHEST_TRACKABLE, QueueTimeHistogram.valueAtQuantile(1, histogram));
+    }
+}
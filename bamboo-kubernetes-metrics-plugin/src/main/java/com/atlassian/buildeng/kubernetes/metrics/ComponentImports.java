@@ -16,6 +16,7 @@
 
 package com.atlassian.buildeng.kubernetes.metrics;
 
+import com.atlassian.bamboo.build.BuildDefinitionManager;
 import com.atlassian.bamboo.build.BuildLoggerManager;
 import com.atlassian.bamboo.build.artifact.ArtifactLinkManager;
 import com.atlassian.bamboo.build.artifact.ArtifactManager;
@@ -23,15 +24,19 @@ import com.atlassian.bamboo.chains.BuildContextFactory;
 import com.atlassian.bamboo.jsonator.Jsonator;
 import com.atlassian.bamboo.persister.AuditLogService;
 import com.atlassian.bamboo.plan.PlanExecutionManager;
+import com.atlassian.bamboo.plan.PlanManager;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
 import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
 import com.atlassian.bamboo.security.BambooPermissionManager;
 import com.atlassian.bamboo.user.BambooAuthenticationContext;
 import com.atlassian.bamboo.utils.i18n.DocumentationLinkProvider;
 import com.atlassian.bamboo.vcs.configuration.service.VcsRepositoryConfigurationService;
 import com.atlassian.bandana.BandanaManager;
+import com.atlassian.buildeng.spi.isolated.docker.ContainerSizeDescriptor;
 import com.atlassian.plugin.spring.scanner.annotation.imports.BambooImport;
 import com.atlassian.plugin.spring.scanner.annotation.imports.ComponentImport;
 import com.atlassian.plugin.web.WebInterfaceManager;
+import com.atlassian.sal.api.features.DarkFeatureManager;
 
 public class ComponentImports {
     @BambooImport
@@ -75,4 +80,19 @@ public class ComponentImports {
 
     @BambooImport
     public DocumentationLinkProvider documentationLinkProvider;
+
+    @BambooImport
+    public ContainerSizeDescriptor containerSizeDescriptor;
+
+    @BambooImport
+    public CachedPlanManager cachedPlanManager;
+
+    @BambooImport
+    public PlanManager planManager;
+
+    @BambooImport
+    public BuildDefinitionManager buildDefinitionManager;
+
+    @BambooImport
+    public DarkFeatureManager darkFeatureManager;
 }
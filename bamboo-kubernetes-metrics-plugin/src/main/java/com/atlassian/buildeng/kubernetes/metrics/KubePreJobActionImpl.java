@@ -17,10 +17,14 @@
 package com.atlassian.buildeng.kubernetes.metrics;
 
 import com.atlassian.bamboo.chains.StageExecution;
+import com.atlassian.bamboo.chains.plugins.PreJobAction;
 import com.atlassian.bamboo.v2.build.BuildContext;
-import com.atlassian.buildeng.metrics.shared.PreJobActionImpl;
 
-public class KubePreJobActionImpl extends PreJobActionImpl {
+/**
+ * Records the Prometheus server for the agent. Unlike the ECS metrics no token is handed to the agent,
+ * artifacts are published by {@link PrometheusMetricsCollector} on the server.
+ */
+public class KubePreJobActionImpl implements PreJobAction {
 
     private final GlobalConfiguration globalConfiguration;
 
@@ -30,7 +34,6 @@ public class KubePreJobActionImpl extends PreJobActionImpl {
 
     @Override
     public void execute(StageExecution stageExecution, BuildContext buildContext) {
-        super.execute(stageExecution, buildContext);
         buildContext
                 .getBuildResult()
                 .getCustomBuildData()
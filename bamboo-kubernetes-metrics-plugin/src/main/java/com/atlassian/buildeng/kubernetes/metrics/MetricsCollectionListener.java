@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import com.atlassian.bamboo.event.PostBuildCompletedEvent;
+import com.atlassian.event.api.EventListener;
+import javax.inject.Inject;
+
+/**
+ * Hands finished jobs over to {@link PrometheusMetricsCollector} once their result was stored.
+ */
+public class MetricsCollectionListener {
+    private final PrometheusMetricsCollector collector;
+
+    @Inject
+    public MetricsCollectionListener(PrometheusMetricsCollector collector) {
+        this.collector = collector;
+    }
+
+    @EventListener
+    public void onPostBuildCompleted(PostBuildCompletedEvent event) {
+        collector.schedule(event.getContext());
+    }
+}
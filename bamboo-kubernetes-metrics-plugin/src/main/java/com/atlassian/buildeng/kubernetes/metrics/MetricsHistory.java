@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import com.atlassian.bamboo.bandana.PlanAwareBandanaContext;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bandana.BandanaManager;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact per job history of container resource usage, one line per container and build,
+ * so that sizing can be evaluated across many builds without loading the metrics artifacts.
+ */
+@BambooComponent
+public class MetricsHistory {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHistory.class);
+
+    static final String BANDANA_HISTORY_PREFIX = "com.atlassian.buildeng.pbc.kubernetes.metrics.history.";
+    static final int MAX_BUILDS_PER_CONTAINER = 50;
+
+    private final BandanaManager bandanaManager;
+
+    @Inject
+    public MetricsHistory(BandanaManager bandanaManager) {
+        this.bandanaManager = bandanaManager;
+    }
+
+    /**
+     * Append usage of a single build, dropping the oldest entries of each container over the limit.
+     */
+    public synchronized void record(PlanKey jobKey, List<ContainerUsage> usages) {
+        if (usages.isEmpty()) {
+            return;
+        }
+        List<ContainerUsage> history = new ArrayList<>(getHistory(jobKey));
+        history.addAll(usages);
+        // walk from the newest entry, keeping at most MAX_BUILDS_PER_CONTAINER per container.
+        Map<String, Integer> kept = new HashMap<>();
+        List<ContainerUsage> retained = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            ContainerUsage usage = history.get(i);
+            if (kept.merge(usage.getContainer(), 1, Integer::sum) <= MAX_BUILDS_PER_CONTAINER) {
+                retained.add(usage);
+            }
+        }
+        Collections.reverse(retained);
+        bandanaManager.setValue(
+                PlanAwareBandanaContext.GLOBAL_CONTEXT,
+                BANDANA_HISTORY_PREFIX + jobKey.getKey(),
+                retained.stream().map(ContainerUsage::encode).collect(Collectors.joining("\n")));
+    }
+
+    /**
+     * Usage history of the job, oldest first.
+     */
+    public List<ContainerUsage> getHistory(PlanKey jobKey) {
+        String value = (String) bandanaManager.getValue(
+                PlanAwareBandanaContext.GLOBAL_CONTEXT, BANDANA_HISTORY_PREFIX + jobKey.getKey());
+        if (StringUtils.isBlank(value)) {
+            return Collections.emptyList();
+        }
+        List<ContainerUsage> toRet = new ArrayList<>();
+        for (String line : value.split("\n")) {
+            ContainerUsage usage = ContainerUsage.parse(line);
+            if (usage != null) {
+                toRet.add(usage);
+            } else {
+                logger.debug("Ignoring unparseable metrics history line '{}' of {}", line, jobKey);
+            }
+        }
+        return toRet;
+    }
+
+    /**
+     * Resource usage of a single container in a single build. Memory is in bytes,
+     * cpu in the 1024 per core units of the container reservations, -1 when not known.
+     */
+    public static class ContainerUsage {
+        private final String container;
+        private final int buildNumber;
+        private final long memoryMax;
+        private final long memoryP95;
+        private final long memoryP99;
+        private final long cpuMax;
+        private final long cpuP95;
+
+        public ContainerUsage(
+                String container,
+                int buildNumber,
+                long memoryMax,
+                long memoryP95,
+                long memoryP99,
+                long cpuMax,
+                long cpuP95) {
+            this.container = container;
+            this.buildNumber = buildNumber;
+            this.memoryMax = memoryMax;
+            this.memoryP95 = memoryP95;
+            this.memoryP99 = memoryP99;
+            this.cpuMax = cpuMax;
+            this.cpuP95 = cpuP95;
+        }
+
+        public String getContainer() {
+            return container;
+        }
+
+        public int getBuildNumber() {
+            return buildNumber;
+        }
+
+        public long getMemoryMax() {
+            return memoryMax;
+        }
+
+        public long getMemoryP95() {
+            return memoryP95;
+        }
+
+        public long getMemoryP99() {
+            return memoryP99;
+        }
+
+        public long getCpuMax() {
+            return cpuMax;
+        }
+
+        public long getCpuP95() {
+            return cpuP95;
+        }
+
+        String encode() {
+            return container + "," + buildNumber + "," + memoryMax + "," + memoryP95 + "," + memoryP99 + "," + cpuMax
+                    + "," + cpuP95;
+        }
+
+        static ContainerUsage parse(String line) {
+            String[] parts = line.split(",");
+            if (parts.length != 7) {
+                return null;
+            }
+            try {
+                return new ContainerUsage(
+                        parts[0],
+                        Integer.parseInt(parts[1]),
+                        Long.parseLong(parts[2]),
+                        Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]),
+                        Long.parseLong(parts[5]),
+                        Long.parseLong(parts[6]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
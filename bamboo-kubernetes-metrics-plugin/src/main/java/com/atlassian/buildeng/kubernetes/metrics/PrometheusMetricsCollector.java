@@ -0,0 +1,713 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import com.atlassian.bamboo.build.BuildLoggerManager;
+import com.atlassian.bamboo.build.artifact.ArtifactManager;
+import com.atlassian.bamboo.build.logger.BuildLogger;
+import com.atlassian.bamboo.executor.NamedExecutors;
+import com.atlassian.bamboo.plan.PlanResultKey;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
+import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
+import com.atlassian.bamboo.security.SecureToken;
+import com.atlassian.bamboo.v2.build.BuildContext;
+import com.atlassian.bamboo.v2.build.BuildContextHelper;
+import com.atlassian.buildeng.metrics.shared.MetricsArtifactPublisher;
+import com.atlassian.buildeng.metrics.shared.MetricsBuildProcessor;
+import com.atlassian.buildeng.metrics.shared.PreJobActionImpl;
+import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.atlassian.plugin.spring.scanner.annotation.export.ExportAsService;
+import com.atlassian.sal.api.lifecycle.LifecycleAware;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Server side collection of container metrics from Prometheus. The agent only records the pod name
+ * and the time window of the job (see {@link KubernetesMetricsBuildProcessor}), the actual queries,
+ * artifact publishing and memory advice happen here once the job result was stored,
+ * so that the agent and its pod are not kept alive by slow Prometheus queries.
+ * Collections run on a bounded pool and failed ones are retried a few times with a delay.
+ * The results are only published once all queries of an attempt succeeded.
+ */
+@BambooComponent
+@ExportAsService({PrometheusMetricsCollector.class, LifecycleAware.class})
+public class PrometheusMetricsCollector implements LifecycleAware {
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusMetricsCollector.class);
+
+    private static final String PROMETHEUS_MEMORY_METRIC = "container_memory_usage_bytes";
+    private static final String PROMETHEUS_MEMORY_RSS_METRIC = "container_memory_rss";
+    private static final String PROMETHEUS_MEMORY_CACHE_METRIC = "container_memory_cache";
+    private static final String PROMETHEUS_MEMORY_SWAP_METRIC = "container_memory_swap";
+    private static final String PROMETHEUS_CPU_METRIC = "container_cpu_usage_seconds_total";
+    private static final String PROMETHEUS_CPU_USER_METRIC = "container_cpu_user_seconds_total";
+    private static final String PROMETHEUS_CPU_SYSTEM_METRIC = "container_cpu_system_seconds_total";
+    private static final String PROMETHEUS_FS_WRITE = "container_fs_writes_bytes_total";
+    private static final String PROMETHEUS_FS_READ = "container_fs_reads_bytes_total";
+    private static final String PROMETHEUS_NET_READ = "container_network_receive_bytes_total";
+    private static final String PROMETHEUS_NET_WRITE = "container_network_transmit_bytes_total";
+
+    private static final String STEP_PERIOD = "15s";
+    private static final String LEGACY_SECURE_TOKEN = "secureToken";
+
+    /**
+     * Result custom data prefix, followed by container name, with the max, p95 and p99 memory usage in bytes.
+     */
+    public static final String MEMORY_USAGE_BUILD_DATA_PREFIX = "pbc.kube.metrics.memory.";
+
+    static final int MAX_CONCURRENT_COLLECTIONS = 4;
+    static final int MAX_PENDING_COLLECTIONS = 500;
+    static final int MAX_ATTEMPTS = 4;
+    // give prometheus a chance to scrape the last datapoints of the pod before querying.
+    static final Duration INITIAL_DELAY = Duration.ofSeconds(30);
+    static final Duration RETRY_DELAY = Duration.ofSeconds(60);
+
+    private final BuildLoggerManager buildLoggerManager;
+    private final ArtifactManager artifactManager;
+    private final ResultsSummaryManager resultsSummaryManager;
+    private final GlobalConfiguration globalConfiguration;
+    private final MetricsHistory metricsHistory;
+    private final SizingRecommendations sizingRecommendations;
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @Inject
+    public PrometheusMetricsCollector(
+            BuildLoggerManager buildLoggerManager,
+            ArtifactManager artifactManager,
+            ResultsSummaryManager resultsSummaryManager,
+            GlobalConfiguration globalConfiguration,
+            MetricsHistory metricsHistory,
+            SizingRecommendations sizingRecommendations) {
+        this(
+                buildLoggerManager,
+                artifactManager,
+                resultsSummaryManager,
+                globalConfiguration,
+                metricsHistory,
+                sizingRecommendations,
+                NamedExecutors.newScheduledThreadPool(MAX_CONCURRENT_COLLECTIONS, "PBC Kubernetes Metrics Collector"));
+    }
+
+    PrometheusMetricsCollector(
+            BuildLoggerManager buildLoggerManager,
+            ArtifactManager artifactManager,
+            ResultsSummaryManager resultsSummaryManager,
+            GlobalConfiguration globalConfiguration,
+            MetricsHistory metricsHistory,
+            SizingRecommendations sizingRecommendations,
+            ScheduledExecutorService executor) {
+        this.executor = executor;
+        this.buildLoggerManager = buildLoggerManager;
+        this.artifactManager = artifactManager;
+        this.resultsSummaryManager = resultsSummaryManager;
+        this.globalConfiguration = globalConfiguration;
+        this.metricsHistory = metricsHistory;
+        this.sizingRecommendations = sizingRecommendations;
+    }
+
+    /**
+     * Queue metrics collection for a finished job. Only jobs whose agent recorded the pod details are considered.
+     */
+    public void schedule(BuildContext context) {
+        Map<String, String> customData = context.getCurrentResult().getCustomBuildData();
+        if (removeSecureTokens(customData)) {
+            // results of agents from before the collection moved to the server were stored with the token.
+            ResultsSummary summary = resultsSummaryManager.getResultsSummary(context.getPlanResultKey());
+            if (summary != null && removeSecureTokens(summary.getCustomBuildData())) {
+                resultsSummaryManager.saveResultsSummary(summary);
+            }
+        }
+        String podName = customData.get(KubernetesMetricsBuildProcessor.POD_NAME_KEY);
+        if (podName == null) {
+            return;
+        }
+        Configuration config = AccessConfiguration.forContext(context);
+        String prometheusUrl = globalConfiguration.getPrometheusUrl();
+        String submitTimestamp = customData.get(KubernetesMetricsBuildProcessor.SUBMIT_TIMESTAMP_KEY);
+        String endTimestamp = customData.get(KubernetesMetricsBuildProcessor.END_TIMESTAMP_KEY);
+        if (!config.isEnabled()
+                || StringUtils.isBlank(prometheusUrl)
+                || submitTimestamp == null
+                || endTimestamp == null) {
+            logger.debug("Not collecting metrics for {}", context.getPlanResultKey());
+            return;
+        }
+        long startTime;
+        long endTime;
+        try {
+            startTime = Long.parseLong(submitTimestamp) / 1000;
+            endTime = Long.parseLong(endTimestamp) / 1000;
+        } catch (NumberFormatException ex) {
+            logger.warn("Malformed job timestamps, not collecting metrics for {}", context.getPlanResultKey());
+            return;
+        }
+        List<ReservationSize> containers = Stream.concat(
+                        Stream.of(createReservationSize("bamboo-agent", context)),
+                        config.getExtraContainers().stream()
+                                .map((Configuration.ExtraContainer e) -> createReservationSize(e.getName(), context)))
+                .collect(Collectors.toList());
+        if (pending.incrementAndGet() > MAX_PENDING_COLLECTIONS) {
+            pending.decrementAndGet();
+            logger.warn("Too many pending metrics collections, dropping metrics for {}", context.getPlanResultKey());
+            return;
+        }
+        try {
+            // tokens handed out before the job started are invalidated once it completed,
+            // the one used for publishing is generated afterwards and never leaves this request.
+            CollectionRequest request = new CollectionRequest(
+                    context.getPlanResultKey(),
+                    podName,
+                    startTime,
+                    endTime,
+                    prometheusUrl,
+                    generateSecureToken(context),
+                    new HashMap<>(BuildContextHelper.getArtifactHandlerConfiguration(context)),
+                    containers);
+            submit(request, INITIAL_DELAY);
+        } catch (RuntimeException ex) {
+            // nothing was queued, give the slot back.
+            pending.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    // overridden in tests, the token service is only available from the container.
+    SecureToken generateSecureToken(BuildContext context) {
+        return PreJobActionImpl.generateSecureToken(context);
+    }
+
+    private static boolean removeSecureTokens(Map<String, String> customData) {
+        boolean removed = customData.remove(PreJobActionImpl.SECURE_TOKEN) != null;
+        // TODO eventually remove, only here for agents from before the constant was renamed.
+        return customData.remove(LEGACY_SECURE_TOKEN) != null || removed;
+    }
+
+    private void submit(CollectionRequest request, Duration delay) {
+        executor.schedule(() -> attempt(request), delay.getSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queries all metrics into a fresh directory first. Nothing is published or logged to the build
+     * until every query succeeded, so a failed attempt can be retried as a whole without duplicates.
+     */
+    private void attempt(CollectionRequest request) {
+        request.attempts++;
+        Path workingDirectory = null;
+        try {
+            workingDirectory = Files.createTempDirectory("pbc-metrics");
+            Files.createDirectories(workingDirectory.resolve(MetricsBuildProcessor.METRICS_FOLDER));
+            StagedMetrics staged = query(request, workingDirectory);
+            pending.decrementAndGet();
+            publish(request, staged, workingDirectory);
+        } catch (URISyntaxException | IOException | RuntimeException ex) {
+            if (request.attempts < MAX_ATTEMPTS) {
+                logger.info(
+                        "Metrics collection for {} failed (attempt {}), retrying: {}",
+                        request.planResultKey,
+                        request.attempts,
+                        ex.getMessage());
+                submit(request, RETRY_DELAY);
+            } else {
+                pending.decrementAndGet();
+                logger.warn(String.format(
+                        "Error when querying Prometheus server, metrics for %s won't be published:"
+                                + " %s. Response %s",
+                        request.planResultKey,
+                        request.prometheusUrl,
+                        ex.getClass().getName() + " " + ex.getMessage()));
+            }
+        } finally {
+            if (workingDirectory != null) {
+                FileUtils.deleteQuietly(workingDirectory.toFile());
+            }
+        }
+    }
+
+    private StagedMetrics query(CollectionRequest request, Path workingDirectory)
+            throws URISyntaxException, IOException {
+        StagedMetrics staged = new StagedMetrics();
+        // not specific to container
+        queryMetric(
+                PROMETHEUS_NET_WRITE,
+                "net-write",
+                "sum(irate(%s{pod=\"%s\"}[1m]))",
+                "",
+                request,
+                staged,
+                workingDirectory);
+        queryMetric(
+                PROMETHEUS_NET_READ,
+                "net-read",
+                "sum(irate(%s{pod=\"%s\"}[1m]))",
+                "",
+                request,
+                staged,
+                workingDirectory);
+
+        for (ReservationSize containerPair : request.containers) {
+            String container = containerPair.name;
+
+            final StreamingStatistics memAll = queryMemoryMetric(
+                    PROMETHEUS_MEMORY_METRIC,
+                    "-memory",
+                    container,
+                    new StreamingStatistics(),
+                    request,
+                    staged,
+                    workingDirectory);
+            final StreamingStatistics memCache = queryMemoryMetric(
+                    PROMETHEUS_MEMORY_CACHE_METRIC,
+                    "-memory-cache",
+                    container,
+                    new StreamingStatistics(),
+                    request,
+                    staged,
+                    workingDirectory);
+            // rss at the time of the overall maximum decides whether the container is undersized.
+            final StreamingStatistics memRss = queryMemoryMetric(
+                    PROMETHEUS_MEMORY_RSS_METRIC,
+                    "-memory-rss",
+                    container,
+                    StreamingStatistics.watching(memAll.getMaxTimestamp()),
+                    request,
+                    staged,
+                    workingDirectory);
+            final StreamingStatistics memSwap = queryMemoryMetric(
+                    PROMETHEUS_MEMORY_SWAP_METRIC,
+                    "-memory-swap",
+                    container,
+                    new StreamingStatistics(),
+                    request,
+                    staged,
+                    workingDirectory);
+
+            final StreamingStatistics cpu =
+                    queryCpuMetric(PROMETHEUS_CPU_METRIC, "-cpu", container, request, staged, workingDirectory);
+            queryCpuMetric(PROMETHEUS_CPU_USER_METRIC, "-cpu-user", container, request, staged, workingDirectory);
+            queryCpuMetric(
+                    PROMETHEUS_CPU_SYSTEM_METRIC, "-cpu-system", container, request, staged, workingDirectory);
+            queryMetric(
+                    PROMETHEUS_FS_WRITE,
+                    "-fs-write",
+                    "sum(irate(%s{pod=\"%s\",container=\"%s\"}[1m]))",
+                    container,
+                    request,
+                    staged,
+                    workingDirectory);
+            queryMetric(
+                    PROMETHEUS_FS_READ,
+                    "-fs-read",
+                    "sum(irate(%s{pod=\"%s\",container=\"%s\"}[1m]))",
+                    container,
+                    request,
+                    staged,
+                    workingDirectory);
+
+            staged.containers.add(new ContainerStatistics(containerPair, memAll, memRss, memCache, memSwap, cpu));
+        }
+        return staged;
+    }
+
+    /**
+     * Runs only once per job, failures are logged and not retried as part of the results may be published already.
+     */
+    private void publish(CollectionRequest request, StagedMetrics staged, Path workingDirectory) {
+        BuildLogger buildLogger = buildLoggerManager.getLogger(request.planResultKey);
+        try {
+            String artifactType = null;
+            for (String fileName : staged.files) {
+                artifactType = MetricsArtifactPublisher.publish(
+                        artifactManager,
+                        fileName,
+                        ".json",
+                        request.secureToken,
+                        buildLogger,
+                        workingDirectory.toFile(),
+                        request.artifactHandlerConfiguration,
+                        request.planResultKey);
+            }
+            staged.buildLog.forEach(buildLogger::addBuildLogEntry);
+
+            JSONArray artifactsJsonDetails = new JSONArray();
+            List<MetricsHistory.ContainerUsage> usages = new ArrayList<>();
+            for (ContainerStatistics container : staged.containers) {
+                artifactsJsonDetails.put(generateArtifactDetailsJson(container.reservation));
+                logValues(
+                        container.memAll,
+                        container.memRss,
+                        container.memCache,
+                        container.memSwap,
+                        container.reservation,
+                        request.podName,
+                        buildLogger);
+                if (container.memAll.getCount() > 0) {
+                    usages.add(new MetricsHistory.ContainerUsage(
+                            container.reservation.name,
+                            request.planResultKey.getBuildNumber(),
+                            (long) container.memAll.getMax(),
+                            (long) container.memAll.getQuantile(0.95),
+                            (long) container.memAll.getQuantile(0.99),
+                            container.cpu.getCount() > 0 ? toCpuUnits(container.cpu.getMax()) : -1,
+                            container.cpu.getCount() > 0 ? toCpuUnits(container.cpu.getQuantile(0.95)) : -1));
+                }
+            }
+
+            ResultsSummary summary = resultsSummaryManager.getResultsSummary(request.planResultKey);
+            if (summary == null) {
+                logger.warn("No result found for {}, metrics won't be shown.", request.planResultKey);
+                return;
+            }
+            Map<String, String> customData = summary.getCustomBuildData();
+            customData.put(KubernetesViewMetricsAction.ARTIFACT_BUILD_DATA_KEY, artifactsJsonDetails.toString());
+            if (artifactType != null) {
+                customData.put(MetricsBuildProcessor.ARTIFACT_TYPE_BUILD_DATA_KEY, artifactType);
+            }
+            for (MetricsHistory.ContainerUsage usage : usages) {
+                customData.put(
+                        MEMORY_USAGE_BUILD_DATA_PREFIX + usage.getContainer(),
+                        usage.getMemoryMax() + "," + usage.getMemoryP95() + "," + usage.getMemoryP99());
+            }
+            resultsSummaryManager.saveResultsSummary(summary);
+            metricsHistory.record(request.planResultKey.getPlanKey(), usages);
+            sizingRecommendations.autoApply(request.planResultKey.getPlanKey());
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to publish metrics for " + request.planResultKey, ex);
+        } finally {
+            buildLoggerManager.freeLogger(request.planResultKey);
+        }
+    }
+
+    private StreamingStatistics queryCpuMetric(
+            String metricName,
+            String suffix,
+            String container,
+            CollectionRequest request,
+            StagedMetrics staged,
+            Path workingDirectory)
+            throws URISyntaxException, IOException {
+        return queryMetric(
+                metricName,
+                suffix,
+                "sum(irate(%s{pod=\"%s\",container=\"%s\"}[1m]))",
+                container,
+                request,
+                staged,
+                workingDirectory);
+    }
+
+    private StreamingStatistics queryMetric(
+            String metricName,
+            String suffix,
+            String query,
+            String container,
+            CollectionRequest request,
+            StagedMetrics staged,
+            Path workingDirectory)
+            throws URISyntaxException, IOException {
+        return stage(
+                container + suffix,
+                String.format(query, metricName, request.podName, container),
+                container,
+                new StreamingStatistics(),
+                request,
+                staged,
+                workingDirectory);
+    }
+
+    private StreamingStatistics queryMemoryMetric(
+            String metricName,
+            String suffix,
+            String container,
+            StreamingStatistics statistics,
+            CollectionRequest request,
+            StagedMetrics staged,
+            Path workingDirectory)
+            throws URISyntaxException, IOException {
+        return stage(
+                container + suffix,
+                String.format("%s{pod=\"%s\",container=\"%s\"}", metricName, request.podName, container),
+                container,
+                statistics,
+                request,
+                staged,
+                workingDirectory);
+    }
+
+    private StreamingStatistics stage(
+            String fileName,
+            String query,
+            String container,
+            StreamingStatistics statistics,
+            CollectionRequest request,
+            StagedMetrics staged,
+            Path workingDirectory)
+            throws URISyntaxException, IOException {
+        Path location = workingDirectory.resolve(MetricsBuildProcessor.METRICS_FOLDER).resolve(fileName + ".json");
+        if (generateMetricsFile(location, query, container, statistics, request, staged)) {
+            staged.files.add(fileName);
+        }
+        return statistics;
+    }
+
+    /**
+     * Create a JSON file containing the metrics in the format that Rickshaw.js expects, streaming the Prometheus
+     * response straight into the file and the statistics without holding the series in memory.
+     * Prometheus HTTP API: https://prometheus.io/docs/querying/api/
+     * Failures to reach Prometheus are propagated so that the whole collection can be retried.
+     *
+     * @return true if the file was written
+     */
+    private boolean generateMetricsFile(
+            Path location,
+            String query,
+            String containerName,
+            StreamingStatistics statistics,
+            CollectionRequest request,
+            StagedMetrics staged)
+            throws URISyntaxException, IOException {
+        int count;
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(location, StandardCharsets.UTF_8))) {
+            writer.beginArray();
+            count = QueryPrometheus.queryValues(
+                    request.prometheusUrl,
+                    query,
+                    STEP_PERIOD,
+                    request.startTime,
+                    request.endTime,
+                    (long timestamp, double value) -> {
+                        statistics.add(timestamp, value);
+                        writer.beginObject();
+                        writer.name("x").value(timestamp);
+                        writer.name("y").value(value);
+                        writer.endObject();
+                    });
+            writer.endArray();
+        }
+        if (count == 0) {
+            Files.deleteIfExists(location);
+            staged.buildLog.add(String.format(
+                    "No metrics found for the container '%s' found."
+                            + " This can occur when the build time is too short for metrics to appear in Prometheus.",
+                    containerName));
+            return false;
+        }
+        return true;
+    }
+
+    private void logValues(
+            StreamingStatistics memAll,
+            StreamingStatistics memRss,
+            StreamingStatistics memCache,
+            StreamingStatistics memSwap,
+            ReservationSize container,
+            String podName,
+            BuildLogger buildLogger) {
+        double maxRss = memRss.getCount() > 0 ? memRss.getMax() : -1;
+        double maxCache = memCache.getCount() > 0 ? memCache.getMax() : -1;
+        double maxSwap = memSwap.getCount() > 0 ? memSwap.getMax() : -1;
+
+        logger.info("max_swap:" + (long) maxSwap + " container:" + container.name + " pod:" + podName);
+        logger.info("max_cache:" + (long) maxCache + " container:" + container.name + " pod:" + podName);
+        logger.info("max_rss:" + (long) maxRss + " container:" + container.name + " pod:" + podName);
+        if (memAll.getCount() > 0) {
+            double maxoverall = memAll.getMax();
+            logger.info("max_total:" + (long) maxoverall + " container:" + container.name + " pod:" + podName);
+            buildLogger.addBuildLogEntry(String.format(
+                    "Memory usage of container %s: max %d MB, p99 %d MB, p95 %d MB, reserved %d MB.",
+                    container.name,
+                    toMegabytes(maxoverall),
+                    toMegabytes(memAll.getQuantile(0.99)),
+                    toMegabytes(memAll.getQuantile(0.95)),
+                    container.memory));
+            double rss = Double.isNaN(memRss.getWatchedValue()) ? -1 : memRss.getWatchedValue();
+            if (maxoverall > container.memoryInBytes) {
+                if (rss > container.memoryInBytes) {
+                    buildLogger.addBuildLogEntry("Warning: The container " + container.name
+                            + " is using more memory than it reserved."
+                            + " Please adjust the size of the container.");
+                }
+            }
+            if (maxoverall < container.memoryInBytes / 4) {
+                buildLogger.addBuildLogEntry("The container " + container.name
+                        + " is using less than quarter of the memory reserved."
+                        + " Please adjust the size of the container.");
+            }
+            logAdditionalChecks(
+                    container.name,
+                    container.memoryInBytes,
+                    (long) maxoverall,
+                    (long) rss,
+                    Math.max(0, (long) maxSwap));
+        }
+    }
+
+    private static long toMegabytes(double bytes) {
+        return (long) (bytes / 1000000);
+    }
+
+    // cores as returned by prometheus to the units used in container reservations.
+    private static long toCpuUnits(double cores) {
+        return (long) (cores * 1024);
+    }
+
+    private ReservationSize createReservationSize(String name, BuildContext context) {
+        Map<String, String> cc = context.getBuildResult().getCustomBuildData();
+        String cpuReq = cc.getOrDefault(Configuration.DOCKER_IMAGE_DETAIL + "." + name + ".cpu", "0");
+        String memReq = cc.getOrDefault(Configuration.DOCKER_IMAGE_DETAIL + "." + name + ".memory", "0");
+        String memLimitReq = cc.getOrDefault(Configuration.DOCKER_IMAGE_DETAIL + "." + name + ".memoryLimit", "0");
+        int cpuRequest = Integer.parseInt(cpuReq);
+        int memoryRequest = Integer.parseInt(memReq);
+        int memoryLimit = Integer.parseInt(memLimitReq);
+        return new ReservationSize(name, cpuRequest, memoryRequest, memoryLimit);
+    }
+
+    private JSONObject generateArtifactDetailsJson(ReservationSize reservation) {
+        JSONObject artifactDetails = new JSONObject();
+        artifactDetails.put("name", reservation.name);
+        artifactDetails.put("cpuRequest", reservation.cpu);
+        artifactDetails.put("memoryRequest", reservation.memory);
+        artifactDetails.put("memoryLimit", reservation.memoryLimit);
+        return artifactDetails;
+    }
+
+    protected void logAdditionalChecks(
+            String containerName, long reservedMemoryInBytes, long usedMaximum, long usedMaxRss, long usedMaxSwap) {
+        // do nothing intentionally.
+        logger.debug("in logAdditonalChecks");
+    }
+
+    @Override
+    public void onStart() {}
+
+    @Override
+    public void onStop() {
+        logger.info("Destroying metrics collector executor on plugin stop");
+        try {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            logger.debug(ex.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class CollectionRequest {
+        private final PlanResultKey planResultKey;
+        private final String podName;
+        private final long startTime;
+        private final long endTime;
+        private final String prometheusUrl;
+        private final SecureToken secureToken;
+        private final Map<String, String> artifactHandlerConfiguration;
+        private final List<ReservationSize> containers;
+        private int attempts;
+
+        CollectionRequest(
+                PlanResultKey planResultKey,
+                String podName,
+                long startTime,
+                long endTime,
+                String prometheusUrl,
+                SecureToken secureToken,
+                Map<String, String> artifactHandlerConfiguration,
+                List<ReservationSize> containers) {
+            this.planResultKey = planResultKey;
+            this.podName = podName;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.prometheusUrl = prometheusUrl;
+            this.secureToken = secureToken;
+            this.artifactHandlerConfiguration = artifactHandlerConfiguration;
+            this.containers = containers;
+        }
+    }
+
+    /**
+     * Results of all queries of one attempt, waiting to be published.
+     */
+    private static final class StagedMetrics {
+        private final List<String> files = new ArrayList<>();
+        private final List<String> buildLog = new ArrayList<>();
+        private final List<ContainerStatistics> containers = new ArrayList<>();
+    }
+
+    private static final class ContainerStatistics {
+        private final ReservationSize reservation;
+        private final StreamingStatistics memAll;
+        private final StreamingStatistics memRss;
+        private final StreamingStatistics memCache;
+        private final StreamingStatistics memSwap;
+        private final StreamingStatistics cpu;
+
+        ContainerStatistics(
+                ReservationSize reservation,
+                StreamingStatistics memAll,
+                StreamingStatistics memRss,
+                StreamingStatistics memCache,
+                StreamingStatistics memSwap,
+                StreamingStatistics cpu) {
+            this.reservation = reservation;
+            this.memAll = memAll;
+            this.memRss = memRss;
+            this.memCache = memCache;
+            this.memSwap = memSwap;
+            this.cpu = cpu;
+        }
+    }
+
+    public static class ReservationSize {
+        private final String name;
+        private final int cpu;
+        private final int memory;
+        private final long memoryInBytes;
+        private final int memoryLimit;
+        private final long memoryLimitInBytes;
+
+        ReservationSize(String name, int cpu, int memory, int memoryLimit) {
+            this.name = name;
+            this.cpu = cpu;
+            this.memory = memory;
+            this.memoryInBytes = (long) memory * 1000000;
+            this.memoryLimit = memoryLimit;
+            this.memoryLimitInBytes = (long) memoryLimit * 1000000;
+        }
+    }
+}
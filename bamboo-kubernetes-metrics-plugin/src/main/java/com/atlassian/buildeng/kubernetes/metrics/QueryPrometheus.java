@@ -1,9 +1,12 @@
 package com.atlassian.buildeng.kubernetes.metrics;
 
+import com.google.gson.stream.JsonReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.IOUtils;
@@ -14,21 +17,60 @@ public class QueryPrometheus {
     private static final Integer MAX_RETRIES = 3;
     private static final Integer RETRY_DELAY_SECONDS = 1;
 
+    /**
+     * Receives the datapoints of a range query as they are parsed.
+     */
+    public interface DatapointConsumer {
+        void accept(long timestamp, double value) throws IOException;
+    }
+
     /**
      * Static method to query prometheus.
      */
     public static JSONObject query(String prometheusUrl, String query, String stepPeriod, Long start, Long end)
             throws URISyntaxException, IOException {
-        URI uri = new URIBuilder(prometheusUrl)
+        HttpURLConnection connection = connect(createUri(prometheusUrl, query, stepPeriod, start, end));
+        try {
+            return new JSONObject(IOUtils.toString(connection.getInputStream(), "UTF-8"));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Range query that streams the values of the first returned series to the consumer
+     * without keeping the response in memory.
+     *
+     * @return number of datapoints passed to the consumer, 0 when no series was returned
+     */
+    public static int queryValues(
+            String prometheusUrl, String query, String stepPeriod, long start, long end, DatapointConsumer consumer)
+            throws URISyntaxException, IOException {
+        HttpURLConnection connection = connect(createUri(prometheusUrl, query, stepPeriod, start, end));
+        try (JsonReader reader =
+                new JsonReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            return readFirstSeries(reader, consumer);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static URI createUri(String prometheusUrl, String query, String stepPeriod, long start, long end)
+            throws URISyntaxException {
+        return new URIBuilder(prometheusUrl)
                 .setPath("api/v1/query_range")
                 .setParameter("query", query)
                 .setParameter("step", stepPeriod)
                 .setParameter("start", Long.toString(start))
                 .setParameter("end", Long.toString(end))
                 .build();
+    }
 
-        String response = "";
-        for (int retryCount = 0; retryCount < MAX_RETRIES; retryCount++) {
+    /**
+     * Open connection to the uri, retrying when the request fails.
+     */
+    private static HttpURLConnection connect(URI uri) throws IOException {
+        for (int retryCount = 0; ; retryCount++) {
             HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
             connection.setRequestProperty("Accept", "application/json");
             connection.setRequestProperty("Accept-Charset", "UTF-8");
@@ -36,23 +78,71 @@ public class QueryPrometheus {
             connection.setReadTimeout((int) Duration.ofSeconds(60).toMillis());
 
             try {
-                response = IOUtils.toString(connection.getInputStream(), "UTF-8");
+                connection.getInputStream();
+                return connection;
             } catch (IOException e) {
+                connection.disconnect();
+                // If request fails on the last try, throw the exception
+                if (retryCount >= MAX_RETRIES - 1) {
+                    throw e;
+                }
                 // Wait 1s before retrying
-                if (retryCount < MAX_RETRIES - 1) {
-                    try {
-                        TimeUnit.SECONDS.sleep(RETRY_DELAY_SECONDS);
-                    } catch (InterruptedException ex) {
-                        continue;
-                    }
-                } else {
-                    // If request fails on the last try, throw the exception
+                try {
+                    TimeUnit.SECONDS.sleep(RETRY_DELAY_SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
                     throw e;
                 }
-            } finally {
-                connection.disconnect();
             }
         }
-        return new JSONObject(response);
+    }
+
+    /**
+     * Walks {"data":{"result":[{"values":[[ts,"value"],..]},..]}} passing the values of the first series along.
+     */
+    private static int readFirstSeries(JsonReader reader, DatapointConsumer consumer) throws IOException {
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!"data".equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"result".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (!"values".equals(reader.nextName())) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.beginArray();
+                            long timestamp = (long) reader.nextDouble();
+                            double value = Double.parseDouble(reader.nextString());
+                            reader.endArray();
+                            consumer.accept(timestamp, value);
+                            count++;
+                        }
+                        reader.endArray();
+                    }
+                    reader.endObject();
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        reader.endObject();
+        return count;
     }
 }
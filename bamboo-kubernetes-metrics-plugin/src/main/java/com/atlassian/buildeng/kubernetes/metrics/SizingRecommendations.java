@@ -0,0 +1,356 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import com.atlassian.bamboo.build.BuildDefinition;
+import com.atlassian.bamboo.build.BuildDefinitionManager;
+import com.atlassian.bamboo.build.Job;
+import com.atlassian.bamboo.persistence.HibernateRunner;
+import com.atlassian.bamboo.persister.AuditLogEntry;
+import com.atlassian.bamboo.persister.AuditLogMessage;
+import com.atlassian.bamboo.persister.AuditLogService;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.PlanManager;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
+import com.atlassian.bamboo.plan.cache.ImmutableJob;
+import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationPersistence;
+import com.atlassian.buildeng.spi.isolated.docker.ContainerSizeDescriptor;
+import com.atlassian.plugin.spring.scanner.annotation.component.BambooComponent;
+import com.atlassian.sal.api.features.DarkFeatureManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recommends container sizes of a job from the usage recorded in {@link MetricsHistory}.
+ * Memory requests are sized to cover the 95th percentile of the per build peaks with some headroom,
+ * while the largest peak seen still has to fit under the hard limit of the size as configured in the backend.
+ * Cpu is compressible, so only the 95th percentile of the per build cpu p95 is considered.
+ * When the {@link #AUTO_APPLY_DARK_FEATURE} dark feature is on, recommendations are also written
+ * back into the job configuration after each collection.
+ */
+@BambooComponent
+public class SizingRecommendations {
+    private static final Logger logger = LoggerFactory.getLogger(SizingRecommendations.class);
+
+    static final String AUTO_APPLY_DARK_FEATURE = "pbc.sizing.autoapply";
+    static final String AGENT_CONTAINER = "bamboo-agent";
+    static final int MIN_BUILDS = 5;
+    static final double MEMORY_HEADROOM = 1.1;
+
+    private final MetricsHistory metricsHistory;
+    private final ContainerSizeDescriptor sizeDescriptor;
+    private final CachedPlanManager cachedPlanManager;
+    private final PlanManager planManager;
+    private final BuildDefinitionManager buildDefinitionManager;
+    private final DarkFeatureManager darkFeatureManager;
+    private final AuditLogService auditLogService;
+
+    @Inject
+    public SizingRecommendations(
+            MetricsHistory metricsHistory,
+            ContainerSizeDescriptor sizeDescriptor,
+            CachedPlanManager cachedPlanManager,
+            PlanManager planManager,
+            BuildDefinitionManager buildDefinitionManager,
+            DarkFeatureManager darkFeatureManager,
+            AuditLogService auditLogService) {
+        this.metricsHistory = metricsHistory;
+        this.sizeDescriptor = sizeDescriptor;
+        this.cachedPlanManager = cachedPlanManager;
+        this.planManager = planManager;
+        this.buildDefinitionManager = buildDefinitionManager;
+        this.darkFeatureManager = darkFeatureManager;
+        this.auditLogService = auditLogService;
+    }
+
+    /**
+     * Recommendations for all containers of the job that have enough history, empty if the job is not PBC enabled.
+     */
+    public List<Recommendation> recommend(PlanKey jobKey) {
+        ImmutableJob job = cachedPlanManager.getPlanByKey(jobKey, ImmutableJob.class);
+        if (job == null) {
+            return new ArrayList<>();
+        }
+        Configuration config = AccessConfiguration.forJob(job);
+        if (!config.isEnabled()) {
+            return new ArrayList<>();
+        }
+        Map<String, List<MetricsHistory.ContainerUsage>> history = metricsHistory.getHistory(jobKey).stream()
+                .collect(Collectors.groupingBy(MetricsHistory.ContainerUsage::getContainer));
+        List<Recommendation> toRet = new ArrayList<>();
+        List<MetricsHistory.ContainerUsage> agentUsage = history.get(AGENT_CONTAINER);
+        if (agentUsage != null && agentUsage.size() >= MIN_BUILDS) {
+            Configuration.ContainerSize size = pick(
+                    Configuration.ContainerSize.values(),
+                    sizeDescriptor::getMemory,
+                    sizeDescriptor::getMemoryLimit,
+                    sizeDescriptor::getCpu,
+                    agentUsage);
+            toRet.add(new Recommendation(
+                    AGENT_CONTAINER,
+                    config.getSize().name(),
+                    size.name(),
+                    sizeDescriptor.getMemory(config.getSize()),
+                    sizeDescriptor.getMemory(size),
+                    agentUsage));
+        }
+        for (Configuration.ExtraContainer extra : config.getExtraContainers()) {
+            List<MetricsHistory.ContainerUsage> usage = history.get(extra.getName());
+            if (usage != null && usage.size() >= MIN_BUILDS) {
+                Configuration.ExtraContainerSize size = pick(
+                        Configuration.ExtraContainerSize.values(),
+                        sizeDescriptor::getMemory,
+                        sizeDescriptor::getMemoryLimit,
+                        sizeDescriptor::getCpu,
+                        usage);
+                toRet.add(new Recommendation(
+                        extra.getName(),
+                        extra.getExtraSize().name(),
+                        size.name(),
+                        sizeDescriptor.getMemory(extra.getExtraSize()),
+                        sizeDescriptor.getMemory(size),
+                        usage));
+            }
+        }
+        return toRet;
+    }
+
+    /**
+     * Write the recommended sizes into the job configuration if the dark feature is enabled.
+     * Branch jobs are left alone, they follow the configuration of their master.
+     * Every applied change is recorded in the audit log, there is no user behind it to attribute it to.
+     */
+    public void autoApply(PlanKey jobKey) {
+        if (!darkFeatureManager.isEnabledForAllUsers(AUTO_APPLY_DARK_FEATURE).orElse(false)) {
+            return;
+        }
+        List<Recommendation> changes = recommend(jobKey).stream()
+                .filter(Recommendation::isChange)
+                .collect(Collectors.toList());
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            HibernateRunner.runWithHibernateSession(() -> {
+                Job job = planManager.getPlanByKeyIfOfType(jobKey, Job.class);
+                if (job != null && !job.hasMaster()) {
+                    BuildDefinition definition = buildDefinitionManager.getUnmergedBuildDefinition(jobKey);
+                    apply(definition.getCustomConfiguration(), changes);
+                    buildDefinitionManager.savePlanAndDefinition(job, definition);
+                    changes.forEach((Recommendation r) -> auditLogEntry(jobKey, r));
+                    logger.info("Applied container size recommendations to {}: {}", jobKey, changes);
+                }
+                return this;
+            });
+        } catch (Exception ex) {
+            logger.error("Failed to apply container size recommendations to " + jobKey, ex);
+        }
+    }
+
+    private void auditLogEntry(PlanKey jobKey, Recommendation change) {
+        AuditLogEntry ent = new AuditLogMessage(
+                null,
+                new Date(),
+                null,
+                null,
+                null,
+                null,
+                AuditLogEntry.TYPE_FIELD_CHANGE,
+                "PBC Container Size of " + change.getContainer() + " in " + jobKey,
+                change.getCurrentSize(),
+                change.getRecommendedSize());
+        auditLogService.log(ent);
+    }
+
+    private static void apply(Map<String, String> customConfiguration, List<Recommendation> changes) {
+        List<Configuration.ExtraContainer> extras = ConfigurationPersistence.fromJsonStringToExtraContainers(
+                customConfiguration.getOrDefault(Configuration.DOCKER_EXTRA_CONTAINERS, "[]"));
+        List<Configuration.ExtraContainer> resized = new ArrayList<>();
+        for (Configuration.ExtraContainer extra : extras) {
+            Recommendation change = changes.stream()
+                    .filter((Recommendation r) -> r.getContainer().equals(extra.getName()))
+                    .findFirst()
+                    .orElse(null);
+            if (change == null) {
+                resized.add(extra);
+            } else {
+                Configuration.ExtraContainer copy = new Configuration.ExtraContainer(
+                        extra.getName(),
+                        extra.getImage(),
+                        Configuration.ExtraContainerSize.valueOf(change.getRecommendedSize()));
+                copy.setCommands(extra.getCommands());
+                copy.setEnvVariables(extra.getEnvVariables());
+                resized.add(copy);
+            }
+        }
+        customConfiguration.put(
+                Configuration.DOCKER_EXTRA_CONTAINERS,
+                ConfigurationPersistence.toJson(resized).toString());
+        changes.stream()
+                .filter((Recommendation r) -> AGENT_CONTAINER.equals(r.getContainer()))
+                .findFirst()
+                .ifPresent((Recommendation r) ->
+                        customConfiguration.put(Configuration.DOCKER_IMAGE_SIZE, r.getRecommendedSize()));
+    }
+
+    /**
+     * Smallest size that satisfies the memory and cpu needs and whose hard limit fits the largest peak,
+     * the largest one when none does.
+     */
+    static <T> T pick(
+            T[] sizes,
+            ToIntFunction<T> memory,
+            ToIntFunction<T> memoryLimit,
+            ToIntFunction<T> cpu,
+            List<MetricsHistory.ContainerUsage> usage) {
+        long requiredMemory = requiredMemory(usage);
+        long peakMemory = peakMemory(usage);
+        long requiredCpu = requiredCpu(usage);
+        List<T> ordered = Arrays.stream(sizes)
+                .sorted(Comparator.comparingInt(memory).thenComparingInt(cpu))
+                .collect(Collectors.toList());
+        return ordered.stream()
+                .filter((T s) -> memory.applyAsInt(s) >= requiredMemory
+                        && memoryLimit.applyAsInt(s) >= peakMemory
+                        && cpu.applyAsInt(s) >= requiredCpu)
+                .findFirst()
+                .orElse(ordered.get(ordered.size() - 1));
+    }
+
+    /**
+     * Memory request in megabytes that covers the typical build.
+     */
+    static long requiredMemory(List<MetricsHistory.ContainerUsage> usage) {
+        long[] peaks = usage.stream()
+                .mapToLong(MetricsHistory.ContainerUsage::getMemoryMax)
+                .sorted()
+                .toArray();
+        return (long) Math.ceil(percentile(peaks, 0.95) * MEMORY_HEADROOM / 1000000);
+    }
+
+    /**
+     * The largest memory peak in megabytes, it has to stay under the hard limit.
+     */
+    static long peakMemory(List<MetricsHistory.ContainerUsage> usage) {
+        long peak = usage.stream()
+                .mapToLong(MetricsHistory.ContainerUsage::getMemoryMax)
+                .max()
+                .orElse(0);
+        return (long) Math.ceil(peak / 1000000.0);
+    }
+
+    /**
+     * Cpu request in reservation units, 0 if no cpu usage was recorded.
+     */
+    static long requiredCpu(List<MetricsHistory.ContainerUsage> usage) {
+        long[] cpu = usage.stream()
+                .mapToLong(MetricsHistory.ContainerUsage::getCpuP95)
+                .filter((long value) -> value >= 0)
+                .sorted()
+                .toArray();
+        return cpu.length == 0 ? 0 : (long) Math.ceil(percentile(cpu, 0.95));
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Recommended size of a single container.
+     */
+    public static class Recommendation {
+        private final String container;
+        private final String currentSize;
+        private final String recommendedSize;
+        private final int currentMemory;
+        private final int recommendedMemory;
+        private final long requiredMemory;
+        private final long requiredCpu;
+        private final int builds;
+
+        Recommendation(
+                String container,
+                String currentSize,
+                String recommendedSize,
+                int currentMemory,
+                int recommendedMemory,
+                List<MetricsHistory.ContainerUsage> usage) {
+            this.container = container;
+            this.currentSize = currentSize;
+            this.recommendedSize = recommendedSize;
+            this.currentMemory = currentMemory;
+            this.recommendedMemory = recommendedMemory;
+            this.requiredMemory = requiredMemory(usage);
+            this.requiredCpu = requiredCpu(usage);
+            this.builds = usage.size();
+        }
+
+        public String getContainer() {
+            return container;
+        }
+
+        public String getCurrentSize() {
+            return currentSize;
+        }
+
+        public String getRecommendedSize() {
+            return recommendedSize;
+        }
+
+        public int getCurrentMemory() {
+            return currentMemory;
+        }
+
+        public int getRecommendedMemory() {
+            return recommendedMemory;
+        }
+
+        public long getRequiredMemory() {
+            return requiredMemory;
+        }
+
+        public long getRequiredCpu() {
+            return requiredCpu;
+        }
+
+        public int getBuilds() {
+            return builds;
+        }
+
+        public boolean isChange() {
+            return !Objects.equals(currentSize, recommendedSize);
+        }
+
+        @Override
+        public String toString() {
+            return container + ":" + currentSize + "->" + recommendedSize;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.PlanKeys;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
+import com.atlassian.bamboo.plan.cache.ImmutableChain;
+import com.atlassian.bamboo.plan.cache.ImmutableJob;
+import com.atlassian.bamboo.security.BambooPermissionManager;
+import com.atlassian.bamboo.security.acegi.acls.BambooPermission;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Container size recommendations based on the metrics history of jobs.
+ */
+@Path("/sizing")
+public class SizingRest {
+
+    private final SizingRecommendations recommendations;
+    private final CachedPlanManager cachedPlanManager;
+    private final BambooPermissionManager bambooPermissionManager;
+
+    @Inject
+    public SizingRest(
+            SizingRecommendations recommendations,
+            CachedPlanManager cachedPlanManager,
+            BambooPermissionManager bambooPermissionManager) {
+        this.recommendations = recommendations;
+        this.cachedPlanManager = cachedPlanManager;
+        this.bambooPermissionManager = bambooPermissionManager;
+    }
+
+    /**
+     * GET recommendations for all jobs of a plan, keyed by job key.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/plan/{planKey}")
+    public Response getPlanRecommendations(@PathParam("planKey") String planKey) {
+        PlanKey pk;
+        try {
+            pk = PlanKeys.getPlanKey(planKey);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        }
+        ImmutableChain chain = cachedPlanManager.getPlanByKey(pk, ImmutableChain.class);
+        if (chain == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Can not found build plan with key: " + planKey)
+                    .build();
+        }
+        if (!bambooPermissionManager.hasPlanPermission(BambooPermission.READ, pk)) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity("You need at least View permission on this plan: " + planKey)
+                    .build();
+        }
+        Map<String, List<SizingRecommendations.Recommendation>> toRet = new LinkedHashMap<>();
+        for (ImmutableJob job : chain.getAllJobs()) {
+            List<SizingRecommendations.Recommendation> forJob = recommendations.recommend(job.getPlanKey());
+            if (!forJob.isEmpty()) {
+                toRet.put(job.getPlanKey().getKey(), forJob);
+            }
+        }
+        return Response.ok(toRet).build();
+    }
+
+    /**
+     * GET recommendations for the containers of a single job.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("/job/{jobKey}")
+    public Response getJobRecommendations(@PathParam("jobKey") String jobKey) {
+        PlanKey pk;
+        try {
+            pk = PlanKeys.getPlanKey(jobKey);
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(e.getMessage())
+                    .build();
+        }
+        ImmutableJob job = cachedPlanManager.getPlanByKey(pk, ImmutableJob.class);
+        if (job == null) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity("Can not found job with key: " + jobKey)
+                    .build();
+        }
+        if (!bambooPermissionManager.hasPlanPermission(BambooPermission.READ, job.getParent().getPlanKey())) {
+            return Response.status(Response.Status.FORBIDDEN)
+                    .entity("You need at least View permission on this plan: " + job.getParent().getKey())
+                    .build();
+        }
+        return Response.ok(recommendations.recommend(pk)).build();
+    }
+}
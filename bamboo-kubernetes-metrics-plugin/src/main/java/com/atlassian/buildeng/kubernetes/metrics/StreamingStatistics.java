@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Incremental statistics of a metric series, updated one datapoint at a time.
+ * Quantiles come from a log-bucketed sketch with 1% relative accuracy, so memory stays
+ * bounded by the value range and not by the length of the series.
+ * Optionally remembers the value at a given timestamp, to correlate with another series.
+ */
+public class StreamingStatistics {
+    static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private final long watchedTimestamp;
+    private long zeroCount;
+    private long count;
+    private double max = Double.NaN;
+    private long maxTimestamp;
+    private double watchedValue = Double.NaN;
+
+    public StreamingStatistics() {
+        this(-1);
+    }
+
+    private StreamingStatistics(long watchedTimestamp) {
+        this.watchedTimestamp = watchedTimestamp;
+    }
+
+    /**
+     * Statistics that also remember the value at the given timestamp.
+     */
+    public static StreamingStatistics watching(long timestamp) {
+        return new StreamingStatistics(timestamp);
+    }
+
+    /**
+     * Add a single datapoint, NaN values are ignored.
+     */
+    public void add(long timestamp, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        if (Double.isNaN(max) || value > max) {
+            max = value;
+            maxTimestamp = timestamp;
+        }
+        if (timestamp == watchedTimestamp) {
+            watchedValue = value;
+        }
+        if (value <= 0) {
+            zeroCount++;
+        } else {
+            buckets.merge((int) Math.ceil(Math.log(value) / LOG_GAMMA), 1L, Long::sum);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Maximum value seen, NaN if no datapoints were added.
+     */
+    public double getMax() {
+        return max;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * Value at the watched timestamp, NaN if not seen.
+     */
+    public double getWatchedValue() {
+        return watchedValue;
+    }
+
+    /**
+     * Estimate of the quantile (0..1) within the relative accuracy, NaN if no datapoints were added.
+     */
+    public double getQuantile(double quantile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = zeroCount;
+        if (seen >= rank) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                // the middle of the bucket is within the relative accuracy from any value in it.
+                return Math.min(max, 2 * Math.pow(GAMMA, bucket.getKey()) / (GAMMA + 1));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.PlanKeys;
+import com.atlassian.bandana.BandanaManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class MetricsHistoryTest {
+    private static final PlanKey JOB = PlanKeys.getPlanKey("PROJ-PLAN-JOB1");
+
+    @Mock
+    private BandanaManager bandanaManager;
+
+    private final Map<String, Object> stored = new HashMap<>();
+    private MetricsHistory history;
+
+    @BeforeEach
+    public void setUp() {
+        Mockito.lenient()
+                .doAnswer(invocation -> stored.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(bandanaManager)
+                .setValue(any(), anyString(), any());
+        Mockito.lenient()
+                .when(bandanaManager.getValue(any(), anyString()))
+                .thenAnswer(invocation -> stored.get(invocation.<String>getArgument(1)));
+        history = new MetricsHistory(bandanaManager);
+    }
+
+    @Test
+    public void encodeAndParse() {
+        MetricsHistory.ContainerUsage usage =
+                new MetricsHistory.ContainerUsage("bamboo-agent", 12, 3000, 2000, 2500, 900, 512);
+        MetricsHistory.ContainerUsage parsed = MetricsHistory.ContainerUsage.parse(usage.encode());
+        assertEquals("bamboo-agent", parsed.getContainer());
+        assertEquals(12, parsed.getBuildNumber());
+        assertEquals(3000, parsed.getMemoryMax());
+        assertEquals(2000, parsed.getMemoryP95());
+        assertEquals(2500, parsed.getMemoryP99());
+        assertEquals(900, parsed.getCpuMax());
+        assertEquals(512, parsed.getCpuP95());
+    }
+
+    @Test
+    public void parseGarbage() {
+        assertNull(MetricsHistory.ContainerUsage.parse(""));
+        assertNull(MetricsHistory.ContainerUsage.parse("docker,3,100"));
+        assertNull(MetricsHistory.ContainerUsage.parse("docker,3,100,80,90"));
+        assertNull(MetricsHistory.ContainerUsage.parse("docker,three,100,80,90,10,5"));
+    }
+
+    @Test
+    public void recordAppends() {
+        history.record(JOB, Collections.singletonList(usage("bamboo-agent", 1)));
+        history.record(JOB, Arrays.asList(usage("bamboo-agent", 2), usage("docker", 2)));
+        List<MetricsHistory.ContainerUsage> recorded = history.getHistory(JOB);
+        assertEquals(3, recorded.size());
+        assertEquals("bamboo-agent", recorded.get(0).getContainer());
+        assertEquals(1, recorded.get(0).getBuildNumber());
+        assertEquals("docker", recorded.get(2).getContainer());
+        assertTrue(history.getHistory(PlanKeys.getPlanKey("PROJ-PLAN-JOB2")).isEmpty());
+    }
+
+    @Test
+    public void recordTrimsEachContainerToLimit() {
+        int builds = MetricsHistory.MAX_BUILDS_PER_CONTAINER + 5;
+        for (int build = 1; build <= builds; build++) {
+            history.record(JOB, Collections.singletonList(usage("bamboo-agent", build)));
+            if (build % 10 == 0) {
+                history.record(JOB, Collections.singletonList(usage("docker", build)));
+            }
+        }
+        List<MetricsHistory.ContainerUsage> recorded = history.getHistory(JOB);
+        List<Integer> agentBuilds = buildNumbers(recorded, "bamboo-agent");
+        assertEquals(MetricsHistory.MAX_BUILDS_PER_CONTAINER, agentBuilds.size());
+        // the oldest are dropped, the newest kept in order.
+        assertEquals(6, (int) agentBuilds.get(0));
+        assertEquals(builds, (int) agentBuilds.get(agentBuilds.size() - 1));
+        assertEquals(Arrays.asList(10, 20, 30, 40, 50), buildNumbers(recorded, "docker"));
+    }
+
+    @Test
+    public void unparseableLinesIgnored() {
+        stored.put(
+                MetricsHistory.BANDANA_HISTORY_PREFIX + JOB.getKey(),
+                usage("bamboo-agent", 1).encode() + "\nbroken\n" + usage("bamboo-agent", 2).encode());
+        assertEquals(Arrays.asList(1, 2), buildNumbers(history.getHistory(JOB), "bamboo-agent"));
+    }
+
+    private static List<Integer> buildNumbers(List<MetricsHistory.ContainerUsage> usages, String container) {
+        return usages.stream()
+                .filter((MetricsHistory.ContainerUsage t) -> container.equals(t.getContainer()))
+                .map(MetricsHistory.ContainerUsage::getBuildNumber)
+                .collect(Collectors.toList());
+    }
+
+    private static MetricsHistory.ContainerUsage usage(String container, int build) {
+        return new MetricsHistory.ContainerUsage(container, build, 1000L * build, 900, 950, 1024, 512);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.bamboo.build.BuildLoggerManager;
+import com.atlassian.bamboo.build.artifact.ArtifactManager;
+import com.atlassian.bamboo.build.logger.BuildLogger;
+import com.atlassian.bamboo.plan.PlanKeys;
+import com.atlassian.bamboo.plan.PlanResultKey;
+import com.atlassian.bamboo.plan.artifact.ArtifactDefinitionContext;
+import com.atlassian.bamboo.plan.artifact.ArtifactPublishingResult;
+import com.atlassian.bamboo.resultsummary.ResultsSummary;
+import com.atlassian.bamboo.resultsummary.ResultsSummaryManager;
+import com.atlassian.bamboo.security.SecureToken;
+import com.atlassian.bamboo.v2.build.BuildContext;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PrometheusMetricsCollectorTest {
+    private static final PlanResultKey RESULT = PlanKeys.getPlanResultKey("PROJ-PLAN-JOB1", 5);
+    private static final String SERIES = "{\"status\":\"success\",\"data\":{\"resultType\":\"matrix\",\"result\":["
+            + "{\"metric\":{},\"values\":[[1600000000,\"100000000\"],[1600000015,\"200000000\"]]}]}}";
+
+    // stands in for the Prometheus query_range api, answering all queries the same.
+    private HttpServer server;
+    private volatile String response = SERIES;
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private final BuildLoggerManager buildLoggerManager = mock(BuildLoggerManager.class);
+    private final ArtifactManager artifactManager = mock(ArtifactManager.class);
+    private final ResultsSummaryManager resultsSummaryManager = mock(ResultsSummaryManager.class);
+    private final GlobalConfiguration globalConfiguration = mock(GlobalConfiguration.class);
+    private final MetricsHistory metricsHistory = mock(MetricsHistory.class);
+    private final SizingRecommendations sizingRecommendations = mock(SizingRecommendations.class);
+    private final Map<String, String> summaryData = new HashMap<>();
+    private volatile RuntimeException tokenFailure;
+    private PrometheusMetricsCollector collector;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v1/query_range", this::handle);
+        server.start();
+        when(globalConfiguration.getPrometheusUrl())
+                .thenReturn("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        when(buildLoggerManager.getLogger(RESULT)).thenReturn(mock(BuildLogger.class));
+        when(artifactManager.publish(
+                        any(BuildLogger.class),
+                        any(PlanResultKey.class),
+                        any(File.class),
+                        any(ArtifactDefinitionContext.class),
+                        anyMap(),
+                        anyInt()))
+                .thenReturn(mock(ArtifactPublishingResult.class));
+        ResultsSummary summary = mock(ResultsSummary.class);
+        when(summary.getCustomBuildData()).thenReturn(summaryData);
+        when(resultsSummaryManager.getResultsSummary(RESULT)).thenReturn(summary);
+
+        // runs the collections right away instead of after the delay.
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(0, Runnable.class).run();
+                    return null;
+                });
+        collector = new PrometheusMetricsCollector(
+                buildLoggerManager,
+                artifactManager,
+                resultsSummaryManager,
+                globalConfiguration,
+                metricsHistory,
+                sizingRecommendations,
+                executor) {
+            @Override
+            SecureToken generateSecureToken(BuildContext context) {
+                if (tokenFailure != null) {
+                    throw tokenFailure;
+                }
+                return null;
+            }
+        };
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void collectedMetricsPublished() {
+        collector.schedule(context("1600000000000", "1600000600000"));
+
+        verify(artifactManager, atLeastOnce())
+                .publish(
+                        any(BuildLogger.class),
+                        eq(RESULT),
+                        any(File.class),
+                        any(ArtifactDefinitionContext.class),
+                        anyMap(),
+                        anyInt());
+        assertTrue(summaryData.containsKey(KubernetesViewMetricsAction.ARTIFACT_BUILD_DATA_KEY));
+        assertTrue(summaryData
+                .get(PrometheusMetricsCollector.MEMORY_USAGE_BUILD_DATA_PREFIX + "bamboo-agent")
+                .startsWith("200000000,"));
+        verify(resultsSummaryManager).saveResultsSummary(any(ResultsSummary.class));
+        verify(metricsHistory).record(eq(RESULT.getPlanKey()), anyList());
+        verify(buildLoggerManager).freeLogger(RESULT);
+    }
+
+    @Test
+    public void malformedTimestampsNotCollected() {
+        collector.schedule(context("soon", "1600000600000"));
+
+        assertEquals(0, queries.get());
+        verifyNoInteractions(artifactManager);
+    }
+
+    @Test
+    public void failedRequestsDoNotTakePendingSlots() {
+        tokenFailure = new IllegalStateException("no token service");
+        for (int i = 0; i <= PrometheusMetricsCollector.MAX_PENDING_COLLECTIONS; i++) {
+            assertThrows(
+                    IllegalStateException.class, () -> collector.schedule(context("1600000000000", "1600000600000")));
+        }
+        tokenFailure = null;
+
+        collector.schedule(context("1600000000000", "1600000600000"));
+        verify(metricsHistory).record(eq(RESULT.getPlanKey()), anyList());
+    }
+
+    @Test
+    public void failedQueriesRetriedAndNothingPublished() {
+        response = "{\"data\":{\"result\":[{\"values\":[[1600000000,\"100\"],[16000";
+        collector.schedule(context("1600000000000", "1600000600000"));
+
+        // every attempt stops at the first failed query.
+        assertEquals(PrometheusMetricsCollector.MAX_ATTEMPTS, queries.get());
+        verifyNoInteractions(artifactManager);
+        verify(resultsSummaryManager, never()).saveResultsSummary(any(ResultsSummary.class));
+
+        response = SERIES;
+        collector.schedule(context("1600000000000", "1600000600000"));
+        verify(metricsHistory).record(eq(RESULT.getPlanKey()), anyList());
+    }
+
+    private BuildContext context(String submitTimestamp, String endTimestamp) {
+        Map<String, String> customData = new HashMap<>();
+        customData.put(KubernetesMetricsBuildProcessor.POD_NAME_KEY, "pod");
+        customData.put(KubernetesMetricsBuildProcessor.SUBMIT_TIMESTAMP_KEY, submitTimestamp);
+        customData.put(KubernetesMetricsBuildProcessor.END_TIMESTAMP_KEY, endTimestamp);
+        customData.put(Configuration.DOCKER_IMAGE_DETAIL + ".bamboo-agent.memory", "1000");
+        Map<String, String> customConfiguration = new HashMap<>();
+        customConfiguration.put(Configuration.ENABLED_FOR_JOB, "true");
+        customConfiguration.put(Configuration.DOCKER_IMAGE, "ubuntu");
+        BuildContext context = mock(BuildContext.class, RETURNS_DEEP_STUBS);
+        when(context.getPlanResultKey()).thenReturn(RESULT);
+        when(context.getCurrentResult().getCustomBuildData()).thenReturn(customData);
+        when(context.getBuildResult().getCustomBuildData()).thenReturn(customData);
+        when(context.getBuildDefinition().getCustomConfiguration()).thenReturn(customConfiguration);
+        return context;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        queries.incrementAndGet();
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class QueryPrometheusTest {
+
+    // stands in for the Prometheus query_range api.
+    private HttpServer server;
+    private volatile String response;
+    private volatile String requestQuery;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v1/query_range", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void emptyResult() throws Exception {
+        response = "{\"status\":\"success\",\"data\":{\"resultType\":\"matrix\",\"result\":[]}}";
+        List<double[]> values = new ArrayList<>();
+        assertEquals(0, query(values));
+        assertTrue(values.isEmpty());
+    }
+
+    @Test
+    public void firstSeriesStreamed() throws Exception {
+        response = "{\"status\":\"success\",\"data\":{\"resultType\":\"matrix\",\"result\":["
+                + "{\"metric\":{\"container\":\"bamboo-agent\"},"
+                + "\"values\":[[1600000000,\"100\"],[1600000015.5,\"1e3\"]]},"
+                + "{\"metric\":{\"container\":\"other\"},\"values\":[[1600000000,\"7\"]]}"
+                + "]},\"warnings\":[\"ignored\"]}";
+        List<double[]> values = new ArrayList<>();
+        assertEquals(2, query(values));
+        assertEquals(2, values.size());
+        assertTrue(Arrays.equals(new double[] {1600000000, 100}, values.get(0)));
+        assertTrue(Arrays.equals(new double[] {1600000015, 1000}, values.get(1)));
+        assertTrue(requestQuery.contains("step=15s"));
+        assertTrue(requestQuery.contains("start=1600000000"));
+    }
+
+    @Test
+    public void seriesWithoutValues() throws Exception {
+        response = "{\"data\":{\"result\":[{\"metric\":{}}]}}";
+        assertEquals(0, query(new ArrayList<>()));
+    }
+
+    @Test
+    public void truncatedResponseFails() {
+        response = "{\"data\":{\"result\":[{\"values\":[[1600000000,\"100\"],[16000";
+        assertThrows(IOException.class, () -> query(new ArrayList<>()));
+    }
+
+    @Test
+    public void malformedValueFails() {
+        response = "{\"data\":{\"result\":[{\"values\":[[1600000000,\"lots\"]]}]}}";
+        assertThrows(NumberFormatException.class, () -> query(new ArrayList<>()));
+    }
+
+    @Test
+    public void unexpectedStructureFails() {
+        response = "{\"data\":{\"result\":{\"values\":[]}}}";
+        assertThrows(IllegalStateException.class, () -> query(new ArrayList<>()));
+    }
+
+    private int query(List<double[]> values) throws Exception {
+        return QueryPrometheus.queryValues(
+                "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort(),
+                "container_memory_usage_bytes{pod=\"pod\"}",
+                "15s",
+                1600000000,
+                1600000600,
+                (long timestamp, double value) -> values.add(new double[] {timestamp, value}));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestQuery = exchange.getRequestURI().getRawQuery();
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
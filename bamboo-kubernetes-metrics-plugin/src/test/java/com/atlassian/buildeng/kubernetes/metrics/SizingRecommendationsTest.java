@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.atlassian.bamboo.build.BuildDefinition;
+import com.atlassian.bamboo.build.BuildDefinitionManager;
+import com.atlassian.bamboo.persister.AuditLogService;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.plan.PlanKeys;
+import com.atlassian.bamboo.plan.PlanManager;
+import com.atlassian.bamboo.plan.cache.CachedPlanManager;
+import com.atlassian.bamboo.plan.cache.ImmutableJob;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationPersistence;
+import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import com.atlassian.sal.api.features.DarkFeatureManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SizingRecommendationsTest {
+    private static final PlanKey JOB = PlanKeys.getPlanKey("PROJ-PLAN-JOB1");
+    private static final long MB = 1000000;
+
+    private final DefaultContainerSizeDescriptor sizeDescriptor = new DefaultContainerSizeDescriptor();
+
+    @Mock
+    private MetricsHistory metricsHistory;
+
+    @Mock
+    private CachedPlanManager cachedPlanManager;
+
+    @Mock
+    private ImmutableJob job;
+
+    @Mock
+    private BuildDefinition buildDefinition;
+
+    private SizingRecommendations recommendations;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, String> customConfiguration = new HashMap<>();
+        customConfiguration.put(Configuration.ENABLED_FOR_JOB, "true");
+        customConfiguration.put(Configuration.DOCKER_IMAGE, "ubuntu");
+        customConfiguration.put(Configuration.DOCKER_IMAGE_SIZE, Configuration.ContainerSize.REGULAR.name());
+        customConfiguration.put(
+                Configuration.DOCKER_EXTRA_CONTAINERS,
+                ConfigurationPersistence.toJson(Collections.singletonList(new Configuration.ExtraContainer(
+                                "docker", "docker:dind", Configuration.ExtraContainerSize.SMALL)))
+                        .toString());
+        Mockito.lenient().when(buildDefinition.getCustomConfiguration()).thenReturn(customConfiguration);
+        Mockito.lenient().when(job.getBuildDefinition()).thenReturn(buildDefinition);
+        Mockito.lenient()
+                .when(cachedPlanManager.getPlanByKey(JOB, ImmutableJob.class))
+                .thenReturn(job);
+        recommendations = new SizingRecommendations(
+                metricsHistory,
+                sizeDescriptor,
+                cachedPlanManager,
+                Mockito.mock(PlanManager.class),
+                Mockito.mock(BuildDefinitionManager.class),
+                Mockito.mock(DarkFeatureManager.class),
+                Mockito.mock(AuditLogService.class));
+    }
+
+    @Test
+    public void requiredMemoryAddsHeadroomToPercentile() {
+        List<MetricsHistory.ContainerUsage> usage = usage("docker", 20, 1000 * MB, -1);
+        assertEquals(1100, SizingRecommendations.requiredMemory(usage));
+    }
+
+    @Test
+    public void requiredMemoryIgnoresSmallOutlier() {
+        List<MetricsHistory.ContainerUsage> usage = usage("docker", 19, 1000 * MB, -1);
+        usage.add(new MetricsHistory.ContainerUsage("docker", 20, 1200 * MB, 0, 0, 0, -1));
+        assertEquals(1100, SizingRecommendations.requiredMemory(usage));
+    }
+
+    @Test
+    public void peakMemoryIsLargestBuild() {
+        List<MetricsHistory.ContainerUsage> usage = usage("docker", 19, 1000 * MB, -1);
+        usage.add(new MetricsHistory.ContainerUsage("docker", 20, 3000 * MB, 0, 0, 0, -1));
+        assertEquals(1100, SizingRecommendations.requiredMemory(usage));
+        assertEquals(3000, SizingRecommendations.peakMemory(usage));
+    }
+
+    @Test
+    public void requiredCpuUsesPercentile() {
+        List<MetricsHistory.ContainerUsage> usage = new ArrayList<>();
+        IntStream.rangeClosed(1, 20)
+                .forEach(i -> usage.add(new MetricsHistory.ContainerUsage("docker", i, MB, 0, 0, 0, i * 100)));
+        assertEquals(1900, SizingRecommendations.requiredCpu(usage));
+    }
+
+    @Test
+    public void requiredCpuWithoutCpuHistory() {
+        assertEquals(0, SizingRecommendations.requiredCpu(usage("docker", 5, MB, -1)));
+    }
+
+    @Test
+    public void pickSmallestSizeThatFitsMemory() {
+        Configuration.ExtraContainerSize size = SizingRecommendations.pick(
+                Configuration.ExtraContainerSize.values(),
+                sizeDescriptor::getMemory,
+                sizeDescriptor::getMemoryLimit,
+                sizeDescriptor::getCpu,
+                usage("docker", 5, 1000 * MB, 100));
+        assertEquals(Configuration.ExtraContainerSize.REGULAR, size);
+    }
+
+    @Test
+    public void pickLargerSizeForCpu() {
+        Configuration.ExtraContainerSize size = SizingRecommendations.pick(
+                Configuration.ExtraContainerSize.values(),
+                sizeDescriptor::getMemory,
+                sizeDescriptor::getMemoryLimit,
+                sizeDescriptor::getCpu,
+                usage("docker", 5, 1000 * MB, 600));
+        assertEquals(Configuration.ExtraContainerSize.LARGE, size);
+    }
+
+    @Test
+    public void pickSizeWithPeakUnderDefaultLimit() {
+        List<MetricsHistory.ContainerUsage> usage = usage("docker", 19, 1000 * MB, 100);
+        usage.add(new MetricsHistory.ContainerUsage("docker", 20, 1900 * MB, 0, 0, 0, 100));
+        Configuration.ExtraContainerSize size = SizingRecommendations.pick(
+                Configuration.ExtraContainerSize.values(),
+                sizeDescriptor::getMemory,
+                sizeDescriptor::getMemoryLimit,
+                sizeDescriptor::getCpu,
+                usage);
+        assertEquals(Configuration.ExtraContainerSize.REGULAR, size);
+    }
+
+    @Test
+    public void pickLargerSizeWhenConfiguredLimitBelowPeak() {
+        Map<Configuration.ExtraContainerSize, Integer> limits = new HashMap<>();
+        limits.put(Configuration.ExtraContainerSize.REGULAR, 1800);
+        DefaultContainerSizeDescriptor configured = new DefaultContainerSizeDescriptor() {
+            @Override
+            public int getMemoryLimit(Configuration.ExtraContainerSize size) {
+                return limits.getOrDefault(size, super.getMemoryLimit(size));
+            }
+        };
+        List<MetricsHistory.ContainerUsage> usage = usage("docker", 19, 1000 * MB, 100);
+        usage.add(new MetricsHistory.ContainerUsage("docker", 20, 1900 * MB, 0, 0, 0, 100));
+        Configuration.ExtraContainerSize size = SizingRecommendations.pick(
+                Configuration.ExtraContainerSize.values(),
+                configured::getMemory,
+                configured::getMemoryLimit,
+                configured::getCpu,
+                usage);
+        assertEquals(Configuration.ExtraContainerSize.LARGE, size);
+    }
+
+    @Test
+    public void pickLargestSizeWhenNothingFits() {
+        Configuration.ContainerSize size = SizingRecommendations.pick(
+                Configuration.ContainerSize.values(),
+                sizeDescriptor::getMemory,
+                sizeDescriptor::getMemoryLimit,
+                sizeDescriptor::getCpu,
+                usage("bamboo-agent", 5, 1000000 * MB, -1));
+        assertEquals(Configuration.ContainerSize.LARGE_8X, size);
+    }
+
+    @Test
+    public void recommendOnlyContainersWithEnoughBuilds() {
+        List<MetricsHistory.ContainerUsage> history =
+                usage(SizingRecommendations.AGENT_CONTAINER, SizingRecommendations.MIN_BUILDS - 1, 1000 * MB, -1);
+        history.addAll(usage("docker", SizingRecommendations.MIN_BUILDS, 1000 * MB, -1));
+        Mockito.when(metricsHistory.getHistory(JOB)).thenReturn(history);
+
+        List<SizingRecommendations.Recommendation> result = recommendations.recommend(JOB);
+
+        assertEquals(1, result.size());
+        SizingRecommendations.Recommendation docker = result.get(0);
+        assertEquals("docker", docker.getContainer());
+        assertEquals("SMALL", docker.getCurrentSize());
+        assertEquals("REGULAR", docker.getRecommendedSize());
+        assertEquals(1100, docker.getRequiredMemory());
+        assertEquals(SizingRecommendations.MIN_BUILDS, docker.getBuilds());
+        assertTrue(docker.isChange());
+    }
+
+    @Test
+    public void recommendAgentSize() {
+        Mockito.when(metricsHistory.getHistory(JOB))
+                .thenReturn(usage(SizingRecommendations.AGENT_CONTAINER, 10, 9000 * MB, 1000));
+
+        List<SizingRecommendations.Recommendation> result = recommendations.recommend(JOB);
+
+        assertEquals(1, result.size());
+        assertEquals("LARGE", result.get(0).getRecommendedSize());
+        assertTrue(result.get(0).isChange());
+    }
+
+    @Test
+    public void recommendNothingForDisabledJob() {
+        buildDefinition.getCustomConfiguration().put(Configuration.ENABLED_FOR_JOB, "false");
+        Mockito.lenient()
+                .when(metricsHistory.getHistory(JOB))
+                .thenReturn(usage(SizingRecommendations.AGENT_CONTAINER, 10, 9000 * MB, 1000));
+
+        assertTrue(recommendations.recommend(JOB).isEmpty());
+    }
+
+    @Test
+    public void unchangedSizeIsNoChange() {
+        Mockito.when(metricsHistory.getHistory(JOB)).thenReturn(usage("docker", 5, 500 * MB, 100));
+
+        List<SizingRecommendations.Recommendation> result = recommendations.recommend(JOB);
+
+        assertEquals("SMALL", result.get(0).getRecommendedSize());
+        assertFalse(result.get(0).isChange());
+    }
+
+    private static List<MetricsHistory.ContainerUsage> usage(String container, int builds, long memory, long cpu) {
+        List<MetricsHistory.ContainerUsage> toRet = new ArrayList<>();
+        IntStream.rangeClosed(1, builds)
+                .forEach(i -> toRet.add(new MetricsHistory.ContainerUsage(container, i, memory, 0, 0, 0, cpu)));
+        return toRet;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class StreamingStatisticsTest {
+
+    @Test
+    public void quantilesWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[10000];
+        StreamingStatistics statistics = new StreamingStatistics();
+        for (int i = 0; i < values.length; i++) {
+            // memory usage like values spanning a few orders of magnitude.
+            values[i] = Math.exp(16 + 4 * random.nextDouble());
+            statistics.add(i * 15L, values[i]);
+        }
+        Arrays.sort(values);
+        for (double quantile : new double[] {0.01, 0.5, 0.9, 0.95, 0.99, 1}) {
+            double exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            double estimate = statistics.getQuantile(quantile);
+            assertTrue(
+                    Math.abs(estimate - exact) <= exact * StreamingStatistics.RELATIVE_ACCURACY,
+                    "quantile " + quantile + " estimated " + estimate + ", exact " + exact);
+        }
+        assertEquals(values[values.length - 1], statistics.getMax());
+        assertEquals(values.length, statistics.getCount());
+    }
+
+    @Test
+    public void zerosAndNaN() {
+        StreamingStatistics statistics = new StreamingStatistics();
+        statistics.add(0, 0);
+        statistics.add(15, Double.NaN);
+        statistics.add(30, 0);
+        statistics.add(45, 100);
+        assertEquals(3, statistics.getCount());
+        assertEquals(0, statistics.getQuantile(0.5));
+        assertEquals(100, statistics.getQuantile(1), 100 * StreamingStatistics.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void emptyStatistics() {
+        StreamingStatistics statistics = new StreamingStatistics();
+        assertEquals(0, statistics.getCount());
+        assertTrue(Double.isNaN(statistics.getMax()));
+        assertTrue(Double.isNaN(statistics.getQuantile(0.95)));
+        assertTrue(Double.isNaN(statistics.getWatchedValue()));
+    }
+
+    @Test
+    public void maxTimestampTracked() {
+        StreamingStatistics statistics = new StreamingStatistics();
+        statistics.add(15, 10);
+        statistics.add(30, 50);
+        statistics.add(45, 20);
+        // the first occurrence of the maximum is kept.
+        statistics.add(60, 50);
+        assertEquals(50, statistics.getMax());
+        assertEquals(30, statistics.getMaxTimestamp());
+    }
+
+    @Test
+    public void watchedValueAtTimestamp() {
+        StreamingStatistics memory = new StreamingStatistics();
+        memory.add(15, 100);
+        memory.add(30, 300);
+        memory.add(45, 200);
+        StreamingStatistics rss = StreamingStatistics.watching(memory.getMaxTimestamp());
+        rss.add(15, 90);
+        rss.add(30, 250);
+        rss.add(45, 260);
+        assertEquals(250, rss.getWatchedValue());
+        assertEquals(260, rss.getMax());
+    }
+
+    @Test
+    public void watchedTimestampNotSeen() {
+        StreamingStatistics rss = StreamingStatistics.watching(100);
+        rss.add(15, 90);
+        rss.add(30, Double.NaN);
+        assertTrue(Double.isNaN(rss.getWatchedValue()));
+    }
+}
@@ -30,30 +30,30 @@ import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.plugin.PluginAccessor;
 import com.atlassian.sal.api.lifecycle.LifecycleAware;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
-import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.AsyncWebResource;
 import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.api.client.config.DefaultClientConfig;
-import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.client.async.TypeListener;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.ws.rs.core.MediaType;
 import org.apache.http.client.utils.URIBuilder;
-import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
@@ -87,22 +87,43 @@ public class ECSIsolatedAgentServiceImpl implements IsolatedAgentService, Lifecy
 
     @Override
     public void startAgent(IsolatedDockerAgentRequest request, IsolatedDockerRequestCallback callback) {
-        Client client = createClient();
-
-        final WebResource resource = client.resource(globalConfiguration.getCurrentServer() + "/rest/scheduler");
-        // resource.addFilter(new HTTPBasicAuthFilter(username, password));
-
+        long start = System.nanoTime();
         try {
-            IsolatedDockerAgentResult result = resource.accept(MediaType.APPLICATION_JSON_TYPE)
+            AsyncWebResource resource =
+                    SchedulerClient.get().asyncResource(globalConfiguration.getCurrentServer() + "/rest/scheduler");
+            // resource.addFilter(new HTTPBasicAuthFilter(username, password));
+            resource.accept(MediaType.APPLICATION_JSON_TYPE)
                     .type(MediaType.APPLICATION_JSON_TYPE)
-                    .post(IsolatedDockerAgentResult.class, createBody(request, globalConfiguration));
-            logger.info("result:" + result.isRetryRecoverable()
-                    + " "
-                    + result.getErrors()
-                    + " "
-                    + result.getCustomResultData());
-            callback.handle(result);
-        } catch (UniformInterfaceException e) {
+                    .post(
+                            new TypeListener<IsolatedDockerAgentResult>(IsolatedDockerAgentResult.class) {
+                                @Override
+                                public void onComplete(Future<IsolatedDockerAgentResult> f)
+                                        throws InterruptedException {
+                                    IsolatedDockerAgentResult result;
+                                    try {
+                                        result = f.get();
+                                    } catch (ExecutionException e) {
+                                        handleFailure(e.getCause(), callback);
+                                        return;
+                                    }
+                                    PbcMetrics.ecsScheduling().observeSince(start);
+                                    logger.info("result:" + result.isRetryRecoverable()
+                                            + " "
+                                            + result.getErrors()
+                                            + " "
+                                            + result.getCustomResultData());
+                                    callback.handle(result);
+                                }
+                            },
+                            createBody(request, globalConfiguration));
+        } catch (Exception t) {
+            handleFailure(t, callback);
+        }
+    }
+
+    private static void handleFailure(Throwable t, IsolatedDockerRequestCallback callback) {
+        if (t instanceof UniformInterfaceException) {
+            UniformInterfaceException e = (UniformInterfaceException) t;
             int code = e.getResponse().getStatusInfo().getStatusCode();
             String s = "";
             if (e.getResponse().hasEntity()) {
@@ -114,25 +135,15 @@ public class ECSIsolatedAgentServiceImpl implements IsolatedAgentService, Lifecy
             } else {
                 callback.handle(new IsolatedDockerAgentException(e));
             }
-        } catch (ClientHandlerException che) {
-            logger.error("Error connecting to ECS:", che);
-            callback.handle(new IsolatedDockerAgentResult().withRetryRecoverable(che.getMessage()));
-        } catch (Exception t) {
+        } else if (t instanceof ClientHandlerException) {
+            logger.error("Error connecting to ECS:", t);
+            callback.handle(new IsolatedDockerAgentResult().withRetryRecoverable(t.getMessage()));
+        } else {
             logger.error("unknown error", t);
             callback.handle(new IsolatedDockerAgentException(t));
         }
     }
 
-    static Client createClient() {
-
-        final ClientConfig clientConfig = new DefaultClientConfig();
-        clientConfig.getClasses().add(JacksonJsonProvider.class);
-        clientConfig.getProperties().put(ClientConfig.PROPERTY_FOLLOW_REDIRECTS, true);
-        clientConfig.getProperties().put(JSONConfiguration.FEATURE_POJO_MAPPING, true);
-        Client client = Client.create(clientConfig);
-        return client;
-    }
-
     @Override
     public Map<String, URL> getContainerLogs(Configuration configuration, Map<String, String> customData) {
         String taskArn = customData.get(RESULT_PREFIX + RESULT_PART_TASKARN);
@@ -164,9 +175,8 @@ public class ECSIsolatedAgentServiceImpl implements IsolatedAgentService, Lifecy
     public void reserveCapacity(
             Key buildKey, List<String> jobResultKeys, long excessMemoryCapacity, long excessCpuCapacity) {
         if (globalConfiguration.isPreemptiveScaling()) {
-            Client client = createClient();
             final WebResource resource =
-                    client.resource(globalConfiguration.getCurrentServer() + "/rest/scheduler/future");
+                    SchedulerClient.get().resource(globalConfiguration.getCurrentServer() + "/rest/scheduler/future");
             try {
                 resource.type(MediaType.APPLICATION_JSON_TYPE)
                         .post(createFutureReqBody(buildKey, jobResultKeys, excessMemoryCapacity, excessCpuCapacity));
@@ -209,6 +219,7 @@ public class ECSIsolatedAgentServiceImpl implements IsolatedAgentService, Lifecy
 
     @Override
     public void onStop() {
+        SchedulerClient.destroy();
         try {
             boolean watchdogJobDeletion = scheduler.deleteJob(JobKey.jobKey(PLUGIN_JOB_KEY));
             if (!watchdogJobDeletion) {
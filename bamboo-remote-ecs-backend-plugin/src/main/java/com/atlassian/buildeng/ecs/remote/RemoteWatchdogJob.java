@@ -16,13 +16,14 @@
 
 package com.atlassian.buildeng.ecs.remote;
 
-import static com.atlassian.buildeng.ecs.remote.ECSIsolatedAgentServiceImpl.createClient;
-
 import com.atlassian.buildeng.ecs.remote.rest.ArnStoppedState;
 import com.atlassian.buildeng.ecs.shared.AbstractWatchdogJob;
 import com.atlassian.buildeng.ecs.shared.StoppedState;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonPrimitive;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.GenericType;
+import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
 import java.util.ArrayList;
 import java.util.List;
@@ -44,7 +45,12 @@ public class RemoteWatchdogJob extends AbstractWatchdogJob {
     protected List<StoppedState> retrieveStoppedTasksByArn(List<String> arns, Map<String, Object> jobDataMap)
             throws Exception {
         GlobalConfiguration globalConfig = getService(GlobalConfiguration.class, "globalConfiguration", jobDataMap);
-        Client client = createClient();
+        Client client = SchedulerClient.get();
+
+        List<StoppedState> posted = postStoppedTasksByArn(globalConfig, client, arns);
+        if (posted != null) {
+            return posted;
+        }
 
         List<StoppedState> tasks = new ArrayList<>();
 
@@ -60,6 +66,30 @@ public class RemoteWatchdogJob extends AbstractWatchdogJob {
         return tasks;
     }
 
+    /**
+     * all the arns in a single request body.
+     *
+     * @return null when the scheduler service is too old to accept it.
+     */
+    protected List<StoppedState> postStoppedTasksByArn(
+            GlobalConfiguration globalConfig, Client client, List<String> arns) {
+        WebResource resource = client.resource(globalConfig.getCurrentServer() + "/rest/scheduler/stopped");
+        JsonArray body = new JsonArray();
+        arns.forEach((String t) -> body.add(new JsonPrimitive(t)));
+        try {
+            return toStoppedStates(resource.accept(MediaType.APPLICATION_JSON_TYPE)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .post(new GenericType<List<ArnStoppedState>>() {}, body.toString()));
+        } catch (UniformInterfaceException e) {
+            int code = e.getResponse().getStatusInfo().getStatusCode();
+            if (code == 405 || code == 404) {
+                logger.debug("Scheduler service does not accept stopped tasks in a body, querying with parameters.");
+                return null;
+            }
+            throw e;
+        }
+    }
+
     protected List<StoppedState> queryStoppedTasksByArn(
             GlobalConfiguration globalConfig, Client client, List<String> arns) {
         WebResource resource = client.resource(globalConfig.getCurrentServer() + "/rest/scheduler/stopped");
@@ -67,9 +97,12 @@ public class RemoteWatchdogJob extends AbstractWatchdogJob {
             // !! each call to resource returning WebResource is returning new instance
             resource = resource.queryParam("arn", arn);
         }
-        List<ArnStoppedState> result = resource.accept(MediaType.APPLICATION_JSON_TYPE)
+        return toStoppedStates(resource.accept(MediaType.APPLICATION_JSON_TYPE)
                 .type(MediaType.APPLICATION_JSON_TYPE)
-                .get(new GenericType<List<ArnStoppedState>>() {});
+                .get(new GenericType<List<ArnStoppedState>>() {}));
+    }
+
+    private static List<StoppedState> toStoppedStates(List<ArnStoppedState> result) {
         return result.stream()
                 .map((ArnStoppedState t) -> new StoppedState(t.getArn(), t.getContainerArn(), t.getReason()))
                 .collect(Collectors.toList());
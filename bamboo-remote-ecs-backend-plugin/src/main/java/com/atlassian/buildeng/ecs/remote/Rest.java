@@ -16,8 +16,6 @@
 
 package com.atlassian.buildeng.ecs.remote;
 
-import static com.atlassian.buildeng.ecs.remote.ECSIsolatedAgentServiceImpl.createClient;
-
 import com.atlassian.buildeng.ecs.remote.rest.Config;
 import com.atlassian.sal.api.websudo.WebSudoRequired;
 import com.sun.jersey.api.client.Client;
@@ -96,7 +94,7 @@ public class Rest {
                     .entity("remote pbc server not defined in global settings.")
                     .build();
         }
-        Client client = createClient();
+        Client client = SchedulerClient.get();
         try {
             URIBuilder uriBuilder = new URIBuilder(configuration.getCurrentServer() + "/rest/logs")
                     .addParameter(Rest.PARAM_CONTAINER, containerName)
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.remote;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.json.JSONConfiguration;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.codehaus.jackson.jaxrs.JacksonJsonProvider;
+
+/**
+ * The Jersey client for all calls to the scheduler service. The client is thread safe and expensive to create,
+ * so a single instance is shared until the plugin stops. Its connections are kept alive and reused
+ * by the JDK http handler, asynchronous requests run on a bounded pool.
+ * Timeouts in milliseconds can be changed with the pbc.ecs.remote.connect.timeout
+ * and pbc.ecs.remote.read.timeout system properties.
+ */
+final class SchedulerClient {
+    static final String PROPERTY_CONNECT_TIMEOUT = "pbc.ecs.remote.connect.timeout";
+    static final String PROPERTY_READ_TIMEOUT = "pbc.ecs.remote.read.timeout";
+    static final int DEFAULT_CONNECT_TIMEOUT = 10_000;
+    // the scheduler service only responds once the agent was placed on an instance.
+    static final int DEFAULT_READ_TIMEOUT = 300_000;
+    private static final int ASYNC_THREADS = 10;
+
+    private static Client client;
+    private static ThreadPoolExecutor executor;
+
+    private SchedulerClient() {}
+
+    static synchronized Client get() {
+        if (client == null) {
+            ClientConfig clientConfig = new DefaultClientConfig();
+            clientConfig.getClasses().add(JacksonJsonProvider.class);
+            clientConfig.getProperties().put(ClientConfig.PROPERTY_FOLLOW_REDIRECTS, true);
+            clientConfig.getProperties().put(JSONConfiguration.FEATURE_POJO_MAPPING, true);
+            clientConfig
+                    .getProperties()
+                    .put(
+                            ClientConfig.PROPERTY_CONNECT_TIMEOUT,
+                            Integer.getInteger(PROPERTY_CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT));
+            clientConfig
+                    .getProperties()
+                    .put(
+                            ClientConfig.PROPERTY_READ_TIMEOUT,
+                            Integer.getInteger(PROPERTY_READ_TIMEOUT, DEFAULT_READ_TIMEOUT));
+            executor = new ThreadPoolExecutor(
+                    ASYNC_THREADS, ASYNC_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            client = Client.create(clientConfig);
+            client.setExecutorService(executor);
+        }
+        return client;
+    }
+
+    /**
+     * release the client and its threads, a later call to get() creates a new one.
+     */
+    static synchronized void destroy() {
+        if (client != null) {
+            client.destroy();
+            executor.shutdown();
+            client = null;
+            executor = null;
+        }
+    }
+}
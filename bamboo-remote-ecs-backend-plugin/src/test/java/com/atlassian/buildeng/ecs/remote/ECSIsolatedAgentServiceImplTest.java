@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.remote;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.plugin.PluginAccessor;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.Scheduler;
+
+public class ECSIsolatedAgentServiceImplTest {
+
+    // stands in for the scheduler service.
+    private HttpServer server;
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private volatile int status;
+    private volatile String response;
+    private ECSIsolatedAgentServiceImpl service;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/rest/scheduler", this::handle);
+        server.start();
+        GlobalConfiguration globalConfiguration = mock(GlobalConfiguration.class);
+        when(globalConfiguration.getCurrentServer())
+                .thenReturn("http://localhost:" + server.getAddress().getPort());
+        service = new ECSIsolatedAgentServiceImpl(
+                globalConfiguration, mock(Scheduler.class), mock(PluginAccessor.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        gate.countDown();
+        server.stop(0);
+        SchedulerClient.destroy();
+    }
+
+    @Test
+    public void resultHandedToCallbackAsynchronously() throws Exception {
+        status = 200;
+        response = "{\"customResultData\":{\"TaskARN\":\"arn:task\"}}";
+        CompletableFuture<Object> handled = startAgent();
+        // the scheduler service did not respond yet.
+        assertFalse(handled.isDone());
+        gate.countDown();
+
+        IsolatedDockerAgentResult result = (IsolatedDockerAgentResult) handled.get(10, TimeUnit.SECONDS);
+        assertFalse(result.hasErrors());
+        assertEquals(Collections.singletonMap("TaskARN", "arn:task"), result.getCustomResultData());
+    }
+
+    @Test
+    public void unavailableServiceRetried() throws Exception {
+        status = 503;
+        response = "overloaded";
+        gate.countDown();
+
+        IsolatedDockerAgentResult result = (IsolatedDockerAgentResult) startAgent().get(10, TimeUnit.SECONDS);
+        assertTrue(result.isRetryRecoverable());
+        assertEquals(Collections.singletonList("overloaded"), result.getErrors());
+    }
+
+    @Test
+    public void serverErrorFailsRequest() throws Exception {
+        status = 500;
+        response = "broken";
+        gate.countDown();
+
+        assertTrue(startAgent().get(10, TimeUnit.SECONDS) instanceof IsolatedDockerAgentException);
+    }
+
+    private CompletableFuture<Object> startAgent() {
+        CompletableFuture<Object> handled = new CompletableFuture<>();
+        service.startAgent(
+                new IsolatedDockerAgentRequest(
+                        ConfigurationBuilder.create("image").build(),
+                        "PROJ-PLAN-JOB1-1",
+                        UUID.randomUUID(),
+                        0,
+                        "PROJ-PLAN-JOB1",
+                        0,
+                        true),
+                new IsolatedDockerRequestCallback() {
+                    @Override
+                    public void handle(IsolatedDockerAgentResult result) {
+                        handled.complete(result);
+                    }
+
+                    @Override
+                    public void handle(IsolatedDockerAgentException exception) {
+                        handled.complete(exception);
+                    }
+                });
+        return handled;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            gate.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", status == 200 ? "application/json" : "text/plain");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
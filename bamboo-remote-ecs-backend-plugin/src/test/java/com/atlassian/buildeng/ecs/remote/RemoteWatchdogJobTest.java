@@ -43,8 +43,36 @@ public class RemoteWatchdogJobTest {
         assertEquals(10, tasks.size());
     }
 
+    @Test
+    public void testRetrieveStoppedTasksInSingleRequest() throws Exception {
+        RemoteWatchdogJob watchdogJob = new RemoteWatchdogJobMock() {
+            @Override
+            protected List<StoppedState> postStoppedTasksByArn(
+                    GlobalConfiguration globalConfig, Client client, List<String> arns) {
+                return arns.stream().map(arn -> new StoppedState(arn, "", "")).collect(toList());
+            }
+
+            @Override
+            protected List<StoppedState> queryStoppedTasksByArn(
+                    GlobalConfiguration globalConfig, Client client, List<String> arns) {
+                throw new AssertionError("not expected to query in batches");
+            }
+        };
+        HashMap jobData = new HashMap();
+        jobData.put("globalConfiguration", mock(GlobalConfiguration.class));
+
+        assertEquals(1000, watchdogJob.retrieveStoppedTasksByArn(Collections.nCopies(1000, ""), jobData).size());
+    }
+
     public static class RemoteWatchdogJobMock extends RemoteWatchdogJob {
 
+        @Override
+        protected List<StoppedState> postStoppedTasksByArn(
+                GlobalConfiguration globalConfig, Client client, List<String> arns) {
+            // an older scheduler service
+            return null;
+        }
+
         @Override
         protected List<StoppedState> queryStoppedTasksByArn(
                 GlobalConfiguration globalConfig, Client client, List<String> arns) {
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import com.atlassian.event.api.EventPublisher;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The work the ECS scheduler does for every scheduling batch, on synthetic clusters of m4.4xlarge instances.
+ * Hosts have random load, launch times spread over the last 10 days (so some are stale and all billing cycle
+ * positions are present), a few of them have their agent disconnected or are draining.
+ * The scheduler backend is a stub, only the decision making is measured.
+ * Run with {@code -prof gc} to get the allocation rate next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EcsSchedulingBenchmark {
+
+    @Param({"10", "100", "500", "2000"})
+    public int hostCount;
+
+    private List<DockerHost> allHosts;
+    private DockerHosts hosts;
+    private HostIndex index;
+    private AutoScalingGroup asg;
+    private DefaultModelUpdater modelUpdater;
+    private ModelUpdater.State overloaded;
+    private ModelUpdater.State idle;
+    private int requiredMemory;
+    private int requiredCpu;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        allHosts = generateCluster(hostCount, new Random(hostCount));
+        asg = new AutoScalingGroup()
+                .withAutoScalingGroupName("bamboo-asg")
+                .withMinSize(1)
+                .withMaxSize(hostCount * 2)
+                .withDesiredCapacity(hostCount);
+        hosts = new DockerHosts(allHosts, AwsPullModelLoader.DEFAULT_STALE_PERIOD, asg, "bamboo-cluster");
+        index = new HostIndex(hosts.fresh());
+        modelUpdater = new DefaultModelUpdater(
+                mock(SchedulerBackend.class, withSettings().stubOnly()),
+                mock(EventPublisher.class, withSettings().stubOnly()));
+        // REGULAR agent with an extra container
+        requiredMemory = 8000;
+        requiredCpu = 2048;
+        overloaded = new ModelUpdater.State(20 * 1024, 40000, true, 30000, 10 * 1024);
+        idle = new ModelUpdater.State(0, 0);
+    }
+
+    static List<DockerHost> generateCluster(int count, Random random) {
+        ECSInstance type = ECSInstance.DEFAULT_INSTANCE;
+        long now = System.currentTimeMillis();
+        List<DockerHost> toRet = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // a third of the hosts is idle, the rest between empty and full
+            boolean idle = random.nextInt(3) == 0;
+            int remainingMemory = idle ? type.getMemory() : random.nextInt(type.getMemory() + 1);
+            int remainingCpu = idle ? type.getCpu() : random.nextInt(type.getCpu() + 1);
+            Date launchTime = new Date(now - (long) (random.nextDouble() * Duration.ofDays(10).toMillis()));
+            int statusRoll = random.nextInt(100);
+            String status = statusRoll < 2
+                    ? ContainerInstanceStatus.DRAINING.toString()
+                    : ContainerInstanceStatus.ACTIVE.toString();
+            boolean agentConnected = statusRoll < 2 || statusRoll >= 4;
+            toRet.add(new DockerHost(
+                    remainingMemory,
+                    remainingCpu,
+                    type.getMemory(),
+                    type.getCpu(),
+                    "arn:aws:ecs:us-east-1:123456789012:container-instance/" + i,
+                    "i-" + Integer.toHexString(0x10000000 + i),
+                    status,
+                    launchTime,
+                    agentConnected,
+                    type.getName()));
+        }
+        return toRet;
+    }
+
+    @Benchmark
+    public Optional<DockerHost> selectHost() {
+        return CyclingECSScheduler.selectHost(hosts.fresh(), requiredMemory, requiredCpu, false);
+    }
+
+    @Benchmark
+    public Optional<DockerHost> selectHostDemandOverflowing() {
+        return CyclingECSScheduler.selectHost(hosts.fresh(), requiredMemory, requiredCpu, true);
+    }
+
+    /**
+     * Per request cost within a scheduling batch, the index is built once per batch.
+     */
+    @Benchmark
+    public Optional<DockerHost> hostIndexBestFit() {
+        return index.bestFit(requiredMemory, requiredCpu);
+    }
+
+    @Benchmark
+    public Optional<DockerHost> hostIndexWorstFit() {
+        return index.worstFit(requiredMemory, requiredCpu);
+    }
+
+    @Benchmark
+    public HostIndex hostIndexBuild() {
+        return new HostIndex(hosts.fresh());
+    }
+
+    /**
+     * What the model loader does after fetching the instances, and the partitions the model updater asks for.
+     */
+    @Benchmark
+    public int partitionHosts() {
+        DockerHosts model = new DockerHosts(allHosts, AwsPullModelLoader.DEFAULT_STALE_PERIOD, asg, "bamboo-cluster");
+        return model.unusedStale().size()
+                + model.unusedFresh().size()
+                + model.usedFresh().size()
+                + model.agentDisconnected().size();
+    }
+
+    @Benchmark
+    public void updateModelOverloaded() {
+        modelUpdater.updateModel(hosts, overloaded);
+    }
+
+    @Benchmark
+    public void updateModelIdle() {
+        modelUpdater.updateModel(hosts, idle);
+    }
+
+    /**
+     * The scale down decision made every minute, without the termination calls.
+     */
+    @Benchmark
+    public List<DockerHost> selectToTerminate() {
+        return modelUpdater.selectToTerminate(hosts, idle);
+    }
+}
@@ -0,0 +1,469 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.atlassian.buildeng.ecs.exceptions.InstancesSmallerThanAgentException;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import com.atlassian.event.api.EventPublisher;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Offline simulation of the ECS scheduler, {@link CyclingECSScheduler} and {@link DefaultModelUpdater}
+ * running against {@link SimulatedCluster} on a virtual clock.
+ * Builds come from a recorded trace or from a synthetic diurnal arrival pattern. Every tick the builds due
+ * are handed to the scheduler, requests rejected for lack of capacity are retried with the delays of the
+ * agent creation rescheduler. When no requests arrive for {@link Constants#POLLING_INTERVAL} minutes the
+ * scale down check runs, like the scheduler's own polling loop does after that long without work.
+ *
+ * <p>Reports queue wait, scale up latency (from the first rejection of a build to its placement),
+ * bin packing efficiency as reserved share of paid instance time, idle and billed instance hours.
+ *
+ * <p>Settings are passed as {@code name=value} arguments, see {@link Settings} for names and defaults, eg.
+ * {@code java -cp benchmarks.jar com.atlassian.buildeng.ecs.scheduling.EcsSchedulingSimulation hours=48}
+ * A trace is a csv file with {@code offsetSeconds,resultKey,cpu,memory,durationSeconds} lines,
+ * lines starting with {@code #} are ignored.
+ */
+public final class EcsSchedulingSimulation {
+
+    /**
+     * Synthetic arrivals follow a daily cycle between {@code baseBuildsPerMinute} at midnight and
+     * {@code peakBuildsPerMinute} at noon, build durations are exponentially distributed around
+     * {@code meanBuildMinutes}. They use one of {@code images} agent images, the traced builds all use the same.
+     * {@code hostScoring} is the name of the {@link HostScoring} the scheduler uses.
+     */
+    public static final class Settings {
+        public String trace = "";
+        public int hours = 24;
+        public double baseBuildsPerMinute = 1;
+        public double peakBuildsPerMinute = 20;
+        public double meanBuildMinutes = 15;
+        public String instanceType = ECSInstance.DEFAULT_INSTANCE.getName();
+        public int launchDelaySeconds = 180;
+        public int minSize = 1;
+        public int maxSize = 200;
+        public int initialSize = 2;
+        public int tickSeconds = 10;
+        public int maxRetries = 10;
+        public int hoursToDrain = 12;
+        public long seed = 1;
+        public int images = 1;
+        public String hostScoring = HostScoring.BEST_FIT_MEMORY.name();
+
+        static Settings parse(String... args) throws IllegalAccessException {
+            Settings settings = new Settings();
+            for (String arg : args) {
+                String[] nameValue = arg.split("=", 2);
+                Field field;
+                try {
+                    field = Settings.class.getField(nameValue[0]);
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalArgumentException("Unknown setting " + nameValue[0] + ", known settings: "
+                            + Arrays.stream(Settings.class.getFields())
+                                    .map(Field::getName)
+                                    .collect(Collectors.joining(", ")));
+                }
+                if (nameValue.length != 2) {
+                    throw new IllegalArgumentException("Expected " + nameValue[0] + "=<value>");
+                }
+                if (field.getType() == int.class) {
+                    field.setInt(settings, Integer.parseInt(nameValue[1]));
+                } else if (field.getType() == long.class) {
+                    field.setLong(settings, Long.parseLong(nameValue[1]));
+                } else if (field.getType() == double.class) {
+                    field.setDouble(settings, Double.parseDouble(nameValue[1]));
+                } else {
+                    field.set(settings, nameValue[1]);
+                }
+            }
+            return settings;
+        }
+    }
+
+    private static final class Build {
+        final UUID identifier = UUID.randomUUID();
+        final String resultKey;
+        final long arrival;
+        final int cpu;
+        final int memory;
+        final long durationMillis;
+        final Configuration configuration;
+        int attempts;
+        long nextAttempt;
+        long firstRejected = -1;
+        long placedAt = -1;
+        boolean failed;
+
+        Build(String resultKey, long arrival, int cpu, int memory, long durationMillis, Configuration configuration) {
+            this.resultKey = resultKey;
+            this.arrival = arrival;
+            this.cpu = cpu;
+            this.memory = memory;
+            this.durationMillis = durationMillis;
+            this.configuration = configuration;
+            this.nextAttempt = arrival;
+        }
+    }
+
+    private static final String CLUSTER = "bamboo-cluster";
+    private static final String ASG = "bamboo-asg";
+    private static final String IMAGE = "docker.example.com/buildeng/agent-baseagent";
+
+    private final Settings settings;
+    private final List<Build> builds;
+    private final Map<String, Build> byResultKey = new HashMap<>();
+    private final Object lock = new Object();
+    private SimulatedCluster cluster;
+    private ModelLoader modelLoader;
+    private ModelUpdater modelUpdater;
+    private CyclingECSScheduler scheduler;
+    // the virtual time the scheduler's demand forecast reads.
+    private volatile long virtualTime;
+    private int handled;
+    private int handledAtLastUpdate;
+    private int capacityRejections;
+    private int schedulingBatches;
+    private final StringBuilder timeline = new StringBuilder();
+
+    EcsSchedulingSimulation(Settings settings, List<Build> builds) {
+        this.settings = settings;
+        this.builds = builds;
+        builds.forEach((Build t) -> byResultKey.put(t.resultKey, t));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = Settings.parse(args);
+        List<Build> builds = settings.trace.isEmpty() ? synthetic(settings) : readTrace(settings.trace);
+        EcsSchedulingSimulation simulation = new EcsSchedulingSimulation(settings, builds);
+        simulation.run();
+        System.out.println(simulation.report());
+        // the scheduler thread only notices the shutdown when its poll times out.
+        System.exit(0);
+    }
+
+    static List<Build> readTrace(String file) throws IOException {
+        Configuration configuration = ConfigurationBuilder.create(IMAGE).build();
+        List<Build> toRet = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length != 5) {
+                throw new IllegalArgumentException(
+                        "Expected offsetSeconds,resultKey,cpu,memory,durationSeconds but got " + line);
+            }
+            toRet.add(new Build(
+                    parts[1].trim(),
+                    (long) (Double.parseDouble(parts[0].trim()) * 1000),
+                    Integer.parseInt(parts[2].trim()),
+                    Integer.parseInt(parts[3].trim()),
+                    (long) (Double.parseDouble(parts[4].trim()) * 1000),
+                    configuration));
+        }
+        toRet.sort((Build o1, Build o2) -> Long.compare(o1.arrival, o2.arrival));
+        return toRet;
+    }
+
+    static List<Build> synthetic(Settings settings) {
+        Random random = new Random(settings.seed);
+        DefaultContainerSizeDescriptor sizes = new DefaultContainerSizeDescriptor();
+        // rough mix of agent sizes, most builds use the default REGULAR size
+        Configuration.ContainerSize[] mix = {
+            Configuration.ContainerSize.SMALL,
+            Configuration.ContainerSize.SMALL,
+            Configuration.ContainerSize.REGULAR,
+            Configuration.ContainerSize.REGULAR,
+            Configuration.ContainerSize.REGULAR,
+            Configuration.ContainerSize.REGULAR,
+            Configuration.ContainerSize.REGULAR,
+            Configuration.ContainerSize.LARGE,
+            Configuration.ContainerSize.LARGE,
+            Configuration.ContainerSize.XLARGE
+        };
+        List<Build> toRet = new ArrayList<>();
+        double peakPerMilli = settings.peakBuildsPerMinute / Duration.ofMinutes(1).toMillis();
+        long day = Duration.ofDays(1).toMillis();
+        long end = Duration.ofHours(settings.hours).toMillis();
+        double time = 0;
+        // non homogeneous poisson process by thinning the peak rate
+        while (true) {
+            time += -Math.log(1 - random.nextDouble()) / peakPerMilli;
+            if (time >= end) {
+                return toRet;
+            }
+            double phase = 0.5 * (1 - Math.cos(2 * Math.PI * (time % day) / day));
+            double rate = settings.baseBuildsPerMinute
+                    + (settings.peakBuildsPerMinute - settings.baseBuildsPerMinute) * phase;
+            if (random.nextDouble() * settings.peakBuildsPerMinute < rate) {
+                Configuration.ContainerSize size = mix[random.nextInt(mix.length)];
+                String image = settings.images > 1 ? IMAGE + ":" + random.nextInt(settings.images) : IMAGE;
+                Configuration build = ConfigurationBuilder.create(image).withImageSize(size).build();
+                long duration = Math.max(
+                        Duration.ofMinutes(1).toMillis(),
+                        (long) (-Math.log(1 - random.nextDouble())
+                                * settings.meanBuildMinutes
+                                * Duration.ofMinutes(1).toMillis()));
+                toRet.add(new Build(
+                        "PLAN-JOB-" + toRet.size(),
+                        (long) time,
+                        build.getCPUTotal(sizes),
+                        build.getMemoryTotal(sizes),
+                        duration,
+                        build));
+            }
+        }
+    }
+
+    void run() throws Exception {
+        cluster = new SimulatedCluster(
+                ASG,
+                ECSInstance.fromName(settings.instanceType),
+                Duration.ofSeconds(settings.launchDelaySeconds).toMillis(),
+                settings.minSize,
+                settings.maxSize,
+                settings.initialSize,
+                (SchedulingRequest t) -> byResultKey.get(t.getResultId()).durationMillis);
+        ECSConfiguration ecsConfiguration = mock(ECSConfiguration.class, withSettings().stubOnly());
+        when(ecsConfiguration.getCurrentCluster()).thenReturn(CLUSTER);
+        when(ecsConfiguration.getCurrentASG()).thenReturn(ASG);
+        when(ecsConfiguration.getTaskDefinitionName()).thenReturn("staging-bamboo-generated");
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(ecsConfiguration.getHostScoring()).thenReturn(HostScoring.valueOf(settings.hostScoring));
+        modelLoader = new SimulatedModelLoader(cluster);
+        modelUpdater = new ObservedModelUpdater(
+                new DefaultModelUpdater(cluster, mock(EventPublisher.class, withSettings().stubOnly())));
+        scheduler = new CyclingECSScheduler(
+                cluster,
+                ecsConfiguration,
+                modelLoader,
+                modelUpdater,
+                new DemandForecast(() -> virtualTime, Duration.ofSeconds(settings.launchDelaySeconds)));
+
+        long tick = Duration.ofSeconds(settings.tickSeconds).toMillis();
+        long pollingInterval = Duration.ofMinutes(Constants.POLLING_INTERVAL).toMillis();
+        long lastEnd = builds.isEmpty() ? 0 : builds.get(builds.size() - 1).arrival;
+        long deadline = lastEnd + Duration.ofHours(settings.hoursToDrain).toMillis();
+        List<Build> waiting = new ArrayList<>();
+        int next = 0;
+        long lastActivity = 0;
+        long now = 0;
+        while (now <= deadline) {
+            virtualTime = now;
+            cluster.advanceTo(now);
+            while (next < builds.size() && builds.get(next).arrival <= now) {
+                waiting.add(builds.get(next++));
+            }
+            final long time = now;
+            List<Build> due = waiting.stream()
+                    .filter((Build t) -> t.nextAttempt <= time)
+                    .collect(Collectors.toList());
+            if (!due.isEmpty()) {
+                scheduleAndWait(due, now);
+                waiting.removeIf((Build t) -> t.placedAt >= 0 || t.failed);
+                lastActivity = now;
+            } else if (now - lastActivity >= pollingInterval) {
+                modelUpdater.scaleDown(modelLoader.load(CLUSTER, ASG), new ModelUpdater.State(0, 0));
+                lastActivity = now;
+            }
+            if (now % Duration.ofHours(1).toMillis() < tick) {
+                timeline.append(String.format(
+                        "  %4dh  arrived %6d  waiting %5d  running %5d  desired %4d%n",
+                        now / Duration.ofHours(1).toMillis(),
+                        next,
+                        waiting.size(),
+                        cluster.runningTasks(),
+                        cluster.desiredCapacity()));
+            }
+            if (next == builds.size() && waiting.isEmpty() && cluster.runningTasks() == 0) {
+                break;
+            }
+            now += tick;
+        }
+        cluster.shutdown();
+        scheduler.destroy();
+    }
+
+    private void scheduleAndWait(List<Build> due, long now) throws InterruptedException {
+        int expected;
+        synchronized (lock) {
+            expected = handled + due.size();
+        }
+        for (Build build : due) {
+            build.attempts++;
+            scheduler.schedule(
+                    new SchedulingRequest(
+                            build.identifier,
+                            build.resultKey,
+                            build.attempts,
+                            build.cpu,
+                            build.memory,
+                            build.configuration,
+                            now,
+                            null),
+                    new Callback(build, now));
+        }
+        long timeout = System.currentTimeMillis() + Duration.ofMinutes(1).toMillis();
+        synchronized (lock) {
+            // the scheduler can split the requests into several batches, the model update follows the last one
+            while (handled < expected || handledAtLastUpdate < expected) {
+                long remaining = timeout - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Scheduler did not process " + due.size() + " requests");
+                }
+                lock.wait(remaining);
+            }
+        }
+        schedulingBatches++;
+    }
+
+    // same as AgentCreationReschedulerImpl
+    private static long retryDelayMillis(int retryCount) {
+        long seconds;
+        if (retryCount == 0 || retryCount == 1) {
+            seconds = 20;
+        } else if (retryCount <= 5) {
+            seconds = 20 * 2 * (retryCount - 1);
+        } else {
+            seconds = 300;
+        }
+        return Duration.ofSeconds(seconds).toMillis();
+    }
+
+    private final class Callback implements SchedulingCallback {
+        private final Build build;
+        private final long now;
+
+        Callback(Build build, long now) {
+            this.build = build;
+            this.now = now;
+        }
+
+        @Override
+        public void handle(SchedulingResult result) {
+            synchronized (lock) {
+                build.placedAt = now;
+                handled++;
+            }
+        }
+
+        @Override
+        public void handle(ECSException exception) {
+            synchronized (lock) {
+                if (exception.getCause() instanceof InstancesSmallerThanAgentException
+                        || build.attempts > settings.maxRetries) {
+                    build.failed = true;
+                } else {
+                    capacityRejections++;
+                    if (build.firstRejected < 0) {
+                        build.firstRejected = now;
+                    }
+                    build.nextAttempt = now + retryDelayMillis(build.attempts);
+                }
+                handled++;
+            }
+        }
+    }
+
+    private final class ObservedModelUpdater implements ModelUpdater {
+        private final ModelUpdater delegate;
+
+        ObservedModelUpdater(ModelUpdater delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void updateModel(DockerHosts hosts, State req) {
+            delegate.updateModel(hosts, req);
+            synchronized (lock) {
+                handledAtLastUpdate = handled;
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void scaleDown(DockerHosts hosts, State req) {
+            delegate.scaleDown(hosts, req);
+        }
+    }
+
+    String report() {
+        List<Long> queueWait = new ArrayList<>();
+        List<Long> scaleUpLatency = new ArrayList<>();
+        int placed = 0;
+        int failed = 0;
+        for (Build build : builds) {
+            if (build.placedAt >= 0) {
+                placed++;
+                queueWait.add(build.placedAt - build.arrival);
+                if (build.firstRejected >= 0) {
+                    scaleUpLatency.add(build.placedAt - build.firstRejected);
+                }
+            } else if (build.failed) {
+                failed++;
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(
+                "Simulated %d builds (%s)%n", builds.size(), settings.trace.isEmpty() ? "synthetic" : settings.trace));
+        sb.append(timeline);
+        sb.append(String.format(
+                "  placed %d, failed %d, never placed %d, scheduling batches %d, capacity rejections %d%n",
+                placed, failed, builds.size() - placed - failed, schedulingBatches, capacityRejections));
+        sb.append(cluster.report());
+        sb.append(percentiles("queue wait", queueWait));
+        sb.append(percentiles("scale up latency", scaleUpLatency));
+        return sb.toString();
+    }
+
+    private static String percentiles(String name, List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            return String.format("%-18s no samples%n", name);
+        }
+        return String.format(
+                "%-18s n=%d p50=%d p90=%d p99=%d max=%d s%n",
+                name,
+                sorted.size(),
+                sorted.get((int) Math.ceil(0.5 * sorted.size()) - 1) / 1000,
+                sorted.get((int) Math.ceil(0.9 * sorted.size()) - 1) / 1000,
+                sorted.get((int) Math.ceil(0.99 * sorted.size()) - 1) / 1000,
+                sorted.get(sorted.size() - 1) / 1000);
+    }
+}
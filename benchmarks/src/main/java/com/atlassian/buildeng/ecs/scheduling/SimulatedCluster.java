@@ -0,0 +1,414 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.autoscaling.model.SuspendedProcess;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ecs.model.ContainerInstance;
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import com.amazonaws.services.ecs.model.Resource;
+import com.amazonaws.services.ecs.model.StartTaskResult;
+import com.amazonaws.services.ecs.model.Task;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * In memory ECS cluster with a single autoscaling group, driven by a virtual clock.
+ * Instances join the ASG when the desired capacity grows and register with the cluster after a launch delay,
+ * tasks run for a duration given per request and release their resources when they finish.
+ * Launch times are reported shifted against the wall clock, so that {@link DockerHost#ageMillis()} and the
+ * billing cycle checks see the simulated age of the instances.
+ *
+ * <p>Besides the {@link SchedulerBackend} operations it integrates the cluster state over time for the
+ * simulation report: instance hours, idle instance hours, billed hours and reserved cpu and memory.
+ * It also counts the tasks started on an instance that ran the same image before.
+ */
+final class SimulatedCluster implements SchedulerBackend {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private final String asgName;
+    private final ECSInstance instanceType;
+    private final long launchDelayMillis;
+    private final int minSize;
+    private final int maxSize;
+    private final ToLongFunction<SchedulingRequest> taskDuration;
+
+    private final Map<String, SimulatedInstance> instances = new LinkedHashMap<>();
+    private final Map<String, SimulatedTask> tasks = new HashMap<>();
+    private final Set<String> suspendedProcesses = new HashSet<>();
+    private int desiredCapacity;
+    private long now;
+    private int instanceCounter;
+    private int taskCounter;
+
+    // statistics
+    private long instanceMillis;
+    private long idleInstanceMillis;
+    private long billedHours;
+    private double cpuReservedMillis;
+    private double memoryReservedMillis;
+    private int scaleToCalls;
+    private int launched;
+    private int terminated;
+    private int tasksKilled;
+    private int tasksStarted;
+    private int imageOnHost;
+    private int maxRegistered;
+
+    SimulatedCluster(
+            String asgName,
+            ECSInstance instanceType,
+            long launchDelayMillis,
+            int minSize,
+            int maxSize,
+            int initialSize,
+            ToLongFunction<SchedulingRequest> taskDuration) {
+        this.asgName = asgName;
+        this.instanceType = instanceType;
+        this.launchDelayMillis = launchDelayMillis;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.taskDuration = taskDuration;
+        desiredCapacity = initialSize;
+        reconcile();
+        // the initial instances are up already
+        instances.values().forEach((SimulatedInstance t) -> t.registeredAt = 0);
+    }
+
+    /**
+     * Moves the clock forward, accounting the interval with the state at its start, then finishes
+     * tasks, registers launched instances and replaces instances missing in the ASG.
+     */
+    synchronized void advanceTo(long time) {
+        long interval = time - now;
+        for (SimulatedInstance instance : instances.values()) {
+            if (instance.terminatedAt >= 0) {
+                continue;
+            }
+            instanceMillis += interval;
+            if (instance.isRegistered(now)) {
+                if (instance.tasks.isEmpty()) {
+                    idleInstanceMillis += interval;
+                }
+                cpuReservedMillis += (double) interval * instance.usedCpu / instanceType.getCpu();
+                memoryReservedMillis += (double) interval * instance.usedMemory / instanceType.getMemory();
+            } else {
+                // launching instances are paid for but can't take any work
+                idleInstanceMillis += interval;
+            }
+        }
+        now = time;
+        for (SimulatedTask task : tasks.values()) {
+            if (task.stopReason == null && task.endsAt <= now) {
+                task.stopReason = "Essential container in task exited";
+                task.instance.release(task);
+            }
+        }
+        reconcile();
+        maxRegistered = Math.max(
+                maxRegistered,
+                (int) instances.values().stream()
+                        .filter((SimulatedInstance t) -> t.terminatedAt < 0 && t.isRegistered(now))
+                        .count());
+    }
+
+    synchronized long now() {
+        return now;
+    }
+
+    private void reconcile() {
+        long inAsg = instances.values().stream()
+                .filter((SimulatedInstance t) -> t.inAsg)
+                .count();
+        for (long i = inAsg; i < desiredCapacity; i++) {
+            String id = String.format("i-%08x", instanceCounter++);
+            instances.put(id, new SimulatedInstance(id, now, now + launchDelayMillis));
+            launched++;
+        }
+    }
+
+    /**
+     * Wall clock time of the given simulated time.
+     */
+    private Date toDate(long time) {
+        return new Date(System.currentTimeMillis() - (now - time));
+    }
+
+    @Override
+    public synchronized List<ContainerInstance> getClusterContainerInstances(String cluster) {
+        return instances.values().stream()
+                .filter((SimulatedInstance t) -> t.terminatedAt < 0 && t.isRegistered(now))
+                .map((SimulatedInstance t) -> new ContainerInstance()
+                        .withContainerInstanceArn(t.containerArn)
+                        .withEc2InstanceId(t.id)
+                        .withStatus(t.status)
+                        .withAgentConnected(true)
+                        .withRunningTasksCount(t.tasks.size())
+                        .withRegisteredResources(
+                                resource("CPU", instanceType.getCpu()), resource("MEMORY", instanceType.getMemory()))
+                        .withRemainingResources(
+                                resource("CPU", instanceType.getCpu() - t.usedCpu),
+                                resource("MEMORY", instanceType.getMemory() - t.usedMemory)))
+                .collect(Collectors.toList());
+    }
+
+    private static Resource resource(String name, int value) {
+        return new Resource().withName(name).withType("INTEGER").withIntegerValue(value);
+    }
+
+    @Override
+    public synchronized List<Instance> getInstances(Collection<String> instanceIds) {
+        return instanceIds.stream()
+                .map(instances::get)
+                .filter((SimulatedInstance t) -> t != null && t.terminatedAt < 0)
+                .map((SimulatedInstance t) -> new Instance()
+                        .withInstanceId(t.id)
+                        .withInstanceType(instanceType.getName())
+                        .withLaunchTime(toDate(t.launchedAt)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized void scaleTo(int desiredCapacity, String autoScalingGroup) throws ECSException {
+        scaleToCalls++;
+        if (desiredCapacity > maxSize || desiredCapacity < minSize) {
+            throw new ECSException("New desired capacity " + desiredCapacity + " is outside of the ASG bounds "
+                    + minSize + "-" + maxSize);
+        }
+        this.desiredCapacity = desiredCapacity;
+        reconcile();
+    }
+
+    @Override
+    public synchronized void terminateAndDetachInstances(
+            List<DockerHost> dockerHosts, String autoScalingGroup, boolean decrementSize, String ecsClusterName)
+            throws ECSException {
+        int detached = 0;
+        for (DockerHost host : dockerHosts) {
+            SimulatedInstance instance = instances.get(host.getInstanceId());
+            if (instance != null && instance.inAsg) {
+                instance.inAsg = false;
+                detached++;
+            }
+            terminate(host.getInstanceId());
+        }
+        if (decrementSize) {
+            desiredCapacity = Math.max(minSize, desiredCapacity - detached);
+        }
+        reconcile();
+    }
+
+    @Override
+    public synchronized void terminateInstances(List<String> instanceIds) {
+        instanceIds.forEach(this::terminate);
+        reconcile();
+    }
+
+    private void terminate(String instanceId) {
+        SimulatedInstance instance = instances.get(instanceId);
+        if (instance == null || instance.terminatedAt >= 0) {
+            return;
+        }
+        // the ASG replaces terminated instances that were not detached
+        instance.inAsg = false;
+        instance.terminatedAt = now;
+        terminated++;
+        billedHours += Math.max(1, (now - instance.launchedAt + HOUR - 1) / HOUR);
+        for (SimulatedTask task : new ArrayList<>(instance.tasks)) {
+            task.stopReason = "Host EC2 (instance " + instanceId + ") terminated.";
+            instance.release(task);
+            tasksKilled++;
+        }
+    }
+
+    @Override
+    public synchronized void drainInstances(List<DockerHost> hosts, String clusterName) {
+        hosts.forEach((DockerHost t) -> {
+            SimulatedInstance instance = instances.get(t.getInstanceId());
+            if (instance != null) {
+                instance.status = ContainerInstanceStatus.DRAINING.toString();
+            }
+        });
+    }
+
+    @Override
+    public synchronized SchedulingResult schedule(
+            DockerHost dockerHost, String cluster, SchedulingRequest req, String taskDefinition)
+            throws ECSException {
+        SimulatedInstance instance = instances.get(dockerHost.getInstanceId());
+        if (instance == null || instance.terminatedAt >= 0 || !instance.isRegistered(now)) {
+            throw new ECSException("Container instance " + dockerHost.getContainerInstanceArn() + " not found");
+        }
+        if (instanceType.getCpu() - instance.usedCpu < req.getCpu()
+                || instanceType.getMemory() - instance.usedMemory < req.getMemory()) {
+            throw new ECSException("RESOURCE:MEMORY on " + dockerHost.getContainerInstanceArn());
+        }
+        String arn = "arn:aws:ecs:us-east-1:123456789012:task/" + taskCounter++;
+        SimulatedTask task = new SimulatedTask(instance, req, now + taskDuration.applyAsLong(req));
+        tasks.put(arn, task);
+        instance.tasks.add(task);
+        tasksStarted++;
+        if (req.getConfiguration() != null && !instance.images.add(req.getConfiguration().getDockerImage())) {
+            imageOnHost++;
+        }
+        instance.usedCpu += req.getCpu();
+        instance.usedMemory += req.getMemory();
+        return new SchedulingResult(
+                new StartTaskResult()
+                        .withTasks(new Task()
+                                .withTaskArn(arn)
+                                .withContainerInstanceArn(instance.containerArn)
+                                .withTaskDefinitionArn(taskDefinition)),
+                instance.containerArn,
+                instance.id);
+    }
+
+    @Override
+    public synchronized AutoScalingGroup describeAutoScalingGroup(String autoScalingGroup) {
+        return new AutoScalingGroup()
+                .withAutoScalingGroupName(asgName)
+                .withMinSize(minSize)
+                .withMaxSize(maxSize)
+                .withDesiredCapacity(desiredCapacity)
+                .withSuspendedProcesses(suspendedProcesses.stream()
+                        .map((String t) -> new SuspendedProcess().withProcessName(t))
+                        .collect(Collectors.toList()))
+                .withInstances(instances.values().stream()
+                        .filter((SimulatedInstance t) -> t.inAsg)
+                        .map((SimulatedInstance t) -> new com.amazonaws.services.autoscaling.model.Instance()
+                                .withInstanceId(t.id)
+                                .withLifecycleState(t.isRegistered(now) ? "InService" : "Pending"))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public synchronized Collection<ArnStoppedState> checkStoppedTasks(String cluster, List<String> taskArns) {
+        List<ArnStoppedState> toRet = new ArrayList<>();
+        for (String arn : taskArns) {
+            SimulatedTask task = tasks.get(arn);
+            if (task == null) {
+                toRet.add(new ArnStoppedState(arn, "unknown", "MISSING"));
+            } else if (task.stopReason != null) {
+                toRet.add(new ArnStoppedState(arn, task.instance.containerArn, task.stopReason));
+            }
+        }
+        return toRet;
+    }
+
+    @Override
+    public synchronized void suspendProcess(String autoScalingGroupName, String azRebalance) {
+        suspendedProcesses.add(azRebalance);
+    }
+
+    /**
+     * Terminates everything still running at the end of the simulation, so that billed hours are complete.
+     */
+    synchronized void shutdown() {
+        instances.keySet().forEach(this::terminate);
+    }
+
+    synchronized int desiredCapacity() {
+        return desiredCapacity;
+    }
+
+    synchronized int runningTasks() {
+        return (int) tasks.values().stream()
+                .filter((SimulatedTask t) -> t.stopReason == null)
+                .count();
+    }
+
+    synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(
+                "  instances launched %d, terminated %d, max registered %d, scaleTo calls %d, tasks killed %d%n",
+                launched, terminated, maxRegistered, scaleToCalls, tasksKilled));
+        sb.append(String.format(
+                "  instance hours %.1f, idle instance hours %.1f (%.1f%%), billed hours %d%n",
+                (double) instanceMillis / HOUR,
+                (double) idleInstanceMillis / HOUR,
+                instanceMillis == 0 ? 0 : 100.0 * idleInstanceMillis / instanceMillis,
+                billedHours));
+        sb.append(String.format(
+                "  bin packing efficiency: cpu %.1f%%, memory %.1f%% of paid instance time%n",
+                instanceMillis == 0 ? 0 : 100.0 * cpuReservedMillis / instanceMillis,
+                instanceMillis == 0 ? 0 : 100.0 * memoryReservedMillis / instanceMillis));
+        sb.append(String.format(
+                "  image pulled on the host already for %.1f%% of tasks%n",
+                tasksStarted == 0 ? 0 : 100.0 * imageOnHost / tasksStarted));
+        return sb.toString();
+    }
+
+    private static final class SimulatedInstance {
+        final String id;
+        final String containerArn;
+        final long launchedAt;
+        long registeredAt;
+        long terminatedAt = -1;
+        boolean inAsg = true;
+        String status = ContainerInstanceStatus.ACTIVE.toString();
+        int usedCpu;
+        int usedMemory;
+        final List<SimulatedTask> tasks = new ArrayList<>();
+        final Set<String> images = new HashSet<>();
+
+        SimulatedInstance(String id, long launchedAt, long registeredAt) {
+            this.id = id;
+            this.containerArn = "arn:aws:ecs:us-east-1:123456789012:container-instance/" + id;
+            this.launchedAt = launchedAt;
+            this.registeredAt = registeredAt;
+        }
+
+        boolean isRegistered(long time) {
+            return registeredAt <= time;
+        }
+
+        void release(SimulatedTask task) {
+            if (tasks.remove(task)) {
+                usedCpu -= task.cpu;
+                usedMemory -= task.memory;
+            }
+        }
+    }
+
+    private static final class SimulatedTask {
+        final SimulatedInstance instance;
+        final int cpu;
+        final int memory;
+        final long endsAt;
+        String stopReason;
+
+        SimulatedTask(SimulatedInstance instance, SchedulingRequest request, long endsAt) {
+            this.instance = instance;
+            this.cpu = request.getCpu();
+            this.memory = request.getMemory();
+            this.endsAt = endsAt;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ec2.model.Instance;
+import com.amazonaws.services.ecs.model.ContainerInstance;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the model the same way {@link AwsPullModelLoader#loadHosts} does, intersecting container instances
+ * with the ASG instances. The reporting and termination of ASG instances that never joined the cluster
+ * is left out, the simulated instances always register.
+ */
+final class SimulatedModelLoader implements ModelLoader {
+
+    private final SchedulerBackend schedulerBackend;
+
+    SimulatedModelLoader(SchedulerBackend schedulerBackend) {
+        this.schedulerBackend = schedulerBackend;
+    }
+
+    @Override
+    public DockerHosts load(String clusterName, String asgName) throws ECSException {
+        AutoScalingGroup asg = schedulerBackend.describeAutoScalingGroup(asgName);
+        List<ContainerInstance> containerInstances = schedulerBackend.getClusterContainerInstances(clusterName);
+        Set<String> asgInstances =
+                asg.getInstances().stream().map(x -> x.getInstanceId()).collect(Collectors.toSet());
+        Map<String, Instance> instances = schedulerBackend
+                .getInstances(containerInstances.stream()
+                        .map(ContainerInstance::getEc2InstanceId)
+                        .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Instance::getInstanceId, Function.identity()));
+        List<DockerHost> dockerHosts = new ArrayList<>();
+        for (ContainerInstance containerInstance : containerInstances) {
+            Instance ec2 = instances.get(containerInstance.getEc2InstanceId());
+            if (ec2 != null) {
+                dockerHosts.add(new DockerHost(
+                        containerInstance, ec2, asgInstances.contains(containerInstance.getEc2InstanceId())));
+            }
+        }
+        return new DockerHosts(dockerHosts, AwsPullModelLoader.DEFAULT_STALE_PERIOD, asg, clusterName);
+    }
+}
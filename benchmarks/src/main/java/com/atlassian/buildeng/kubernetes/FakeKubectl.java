@@ -0,0 +1,435 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import com.atlassian.buildeng.kubernetes.serialization.DeserializationException;
+import com.atlassian.buildeng.kubernetes.serialization.ResponseMapper;
+import com.atlassian.buildeng.kubernetes.shell.ShellException;
+import com.atlassian.buildeng.kubernetes.shell.ShellExecutor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.ContainerStatusBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+/**
+ * In memory stand-in for kubectl, simulating a cluster the kubernetes backend talks to.
+ * Every invocation takes the configured latency, at most {@code apiConcurrency} invocations are served at once.
+ * Created pods start after {@code podStartMillis}, run their build for {@code buildDurationMillis} and then
+ * the agent container terminates, the way it does in a real cluster, until the watchdog deletes the pod.
+ * A fraction of the pods never starts: they fail with OutOfcpu, or their agent container is stuck
+ * in ImagePullBackOff or CreateContainerError.
+ * Creating a pod above {@code capacity} fails with the pod-limit quota error.
+ */
+class FakeKubectl implements ShellExecutor {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    // options followed by a value, the value is not a positional argument.
+    private static final Set<String> OPTIONS_WITH_VALUE =
+            new HashSet<>(Arrays.asList("-o", "-f", "-l", "-c", "--selector", "--tail", "--context"));
+
+    enum Failure {
+        NONE,
+        OUT_OF_CPU,
+        IMAGE_PULL_BACK_OFF,
+        CREATE_CONTAINER_ERROR
+    }
+
+    /**
+     * Notified about the pod lifecycle, on the thread that advanced the cluster or deleted the pod.
+     */
+    interface Listener {
+        void agentStarted(String resultKey);
+
+        void podDeleted(String resultKey, boolean buildCompleted);
+    }
+
+    private final KubernetesLoadSimulation.Settings settings;
+    private final Random random;
+    private final Listener listener;
+    private final Semaphore api;
+    private final ConcurrentMap<String, FakePod> pods = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> invocations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> invocationNanos = new ConcurrentHashMap<>();
+
+    FakeKubectl(KubernetesLoadSimulation.Settings settings, Listener listener) {
+        this.settings = settings;
+        this.random = new Random(settings.seed);
+        this.listener = listener;
+        this.api = new Semaphore(settings.apiConcurrency, true);
+    }
+
+    @Override
+    public <T> T exec(List<String> args, ResponseMapper<T> responseMapper) {
+        List<String> positional = positional(args);
+        String verb = positional.isEmpty() ? "unknown" : positional.get(0);
+        long start = System.nanoTime();
+        try {
+            api.acquire();
+            try {
+                byte[] output = execImpl(verb, positional, args);
+                return responseMapper.map(output);
+            } finally {
+                api.release();
+            }
+        } catch (DeserializationException x) {
+            throw new ShellException("Unable to parse kubectl response", x.getMessage(), "", 0, args);
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new ShellException("" + x.getMessage(), x, args);
+        } finally {
+            invocations.computeIfAbsent(verb, (String v) -> new LongAdder()).increment();
+            invocationNanos.computeIfAbsent(verb, (String v) -> new LongAdder()).add(System.nanoTime() - start);
+        }
+    }
+
+    private byte[] execImpl(String verb, List<String> positional, List<String> args) throws InterruptedException {
+        switch (verb) {
+            case "create":
+                sleep(settings.createLatencyMillis);
+                return create(option(args, "-f"), args);
+            case "get":
+                sleep(settings.listLatencyMillis + pods.size() * settings.listLatencyPer1000PodsMillis / 1000);
+                return list(option(args, "--selector"));
+            case "delete":
+                sleep(settings.deleteLatencyMillis);
+                if ("pod".equals(positional.get(1))) {
+                    delete(positional.get(positional.size() - 1), args);
+                }
+                return new byte[0];
+            case "describe":
+                sleep(settings.otherLatencyMillis);
+                return ("Name: " + positional.get(positional.size() - 1) + "\nEvents: <none>\n")
+                        .getBytes(StandardCharsets.UTF_8);
+            case "logs":
+                sleep(settings.otherLatencyMillis);
+                return "Agent stopped\n".getBytes(StandardCharsets.UTF_8);
+            default:
+                throw new ShellException("Non-zero exit code", "", "error: unknown command \"" + verb + "\"", 1, args);
+        }
+    }
+
+    /**
+     * Moves pods that finished starting to running and notifies about the started agents.
+     */
+    void tick() {
+        long now = System.currentTimeMillis();
+        for (FakePod pod : pods.values()) {
+            if (pod.failure == Failure.NONE && !pod.started && now - pod.created >= settings.podStartMillis) {
+                pod.started = true;
+                listener.agentStarted(pod.resultKey);
+            }
+        }
+    }
+
+    int podCount() {
+        return pods.size();
+    }
+
+    /**
+     * Invocation counts and the cumulative time spent in each kubectl verb, including the wait for the api.
+     */
+    SortedMap<String, long[]> invocationStats() {
+        SortedMap<String, long[]> toRet = new TreeMap<>();
+        invocations.forEach((String verb, LongAdder count) -> toRet.put(verb, new long[] {
+            count.sum(), TimeUnit.NANOSECONDS.toMillis(invocationNanos.get(verb).sum())
+        }));
+        return toRet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] create(String file, List<String> args) {
+        Map<String, Object> podSpec = null;
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            for (Object document : new Yaml(new SafeConstructor()).loadAll(reader)) {
+                if (document instanceof Map && "Pod".equals(((Map<String, Object>) document).get("kind"))) {
+                    podSpec = (Map<String, Object>) document;
+                }
+            }
+        } catch (IOException e) {
+            throw new ShellException(
+                    "Non-zero exit code", "", "error: the path \"" + file + "\" does not exist", 1, args);
+        }
+        if (podSpec == null) {
+            throw new ShellException("Non-zero exit code", "", "error: no objects passed to create", 1, args);
+        }
+        Map<String, Object> metadata = (Map<String, Object>) podSpec.get("metadata");
+        String name = (String) metadata.get("name");
+        if (pods.size() >= settings.capacity) {
+            throw new ShellException(
+                    "Non-zero exit code",
+                    "Error from server (Forbidden): error when creating \"" + file + "\": pods \"" + name
+                            + "\" is forbidden: exceeded quota: pod-limit, requested: pods=1, used: pods="
+                            + pods.size() + ", limited: pods=" + settings.capacity,
+                    "",
+                    1,
+                    args);
+        }
+        if (chance(settings.quotaConflict)) {
+            throw new ShellException(
+                    "Non-zero exit code",
+                    "Error from server (Conflict): error when creating \"" + file + "\": Operation cannot be fulfilled"
+                            + " on resourcequotas \"pod-limit\": the object has been modified;"
+                            + " please apply your changes to the latest version and try again",
+                    "",
+                    1,
+                    args);
+        }
+        FakePod pod = new FakePod(
+                name,
+                (Map<String, String>) metadata.get("labels"),
+                (Map<String, String>) metadata.get("annotations"),
+                agentImage((Map<String, Object>) podSpec.get("spec")),
+                failure());
+        if (pods.putIfAbsent(name, pod) != null) {
+            throw new ShellException(
+                    "Non-zero exit code",
+                    "Error from server (AlreadyExists): error when creating \"" + file + "\": pods \"" + name
+                            + "\" already exists",
+                    "",
+                    1,
+                    args);
+        }
+        return json(pod.toPod(System.currentTimeMillis()));
+    }
+
+    private byte[] list(String selector) {
+        String[] label = selector.split("=", 2);
+        long now = System.currentTimeMillis();
+        List<HasMetadata> items = pods.values().stream()
+                .filter((FakePod t) -> label[1].equals(t.labels.get(label[0])))
+                .map((FakePod t) -> t.toPod(now))
+                .collect(Collectors.toList());
+        return json(new KubernetesListBuilder().withItems(items).build());
+    }
+
+    private void delete(String name, List<String> args) {
+        FakePod pod = pods.remove(name);
+        if (pod == null) {
+            throw new ShellException(
+                    "Non-zero exit code", "Error from server (NotFound): pods \"" + name + "\" not found", "", 1, args);
+        }
+        boolean completed = pod.started
+                && System.currentTimeMillis() - pod.created >= settings.podStartMillis + settings.buildDurationMillis;
+        listener.podDeleted(pod.resultKey, completed);
+    }
+
+    private Failure failure() {
+        double roll;
+        synchronized (random) {
+            roll = random.nextDouble();
+        }
+        if (roll < settings.outOfCpu) {
+            return Failure.OUT_OF_CPU;
+        }
+        roll -= settings.outOfCpu;
+        if (roll < settings.imagePullBackOff) {
+            return Failure.IMAGE_PULL_BACK_OFF;
+        }
+        roll -= settings.imagePullBackOff;
+        if (roll < settings.createContainerError) {
+            return Failure.CREATE_CONTAINER_ERROR;
+        }
+        return Failure.NONE;
+    }
+
+    private boolean chance(double probability) {
+        synchronized (random) {
+            return random.nextDouble() < probability;
+        }
+    }
+
+    // the latency varies by +-25%
+    private void sleep(long millis) throws InterruptedException {
+        double jitter;
+        synchronized (random) {
+            jitter = 0.75 + random.nextDouble() / 2;
+        }
+        Thread.sleep((long) (millis * jitter));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String agentImage(Map<String, Object> spec) {
+        for (Map<String, Object> container : (List<Map<String, Object>>) spec.get("containers")) {
+            if (PodCreator.CONTAINER_NAME_BAMBOOAGENT.equals(container.get("name"))) {
+                return (String) container.get("image");
+            }
+        }
+        return null;
+    }
+
+    private static byte[] json(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String option(List<String> args, String name) {
+        int index = args.indexOf(name);
+        return index >= 0 && index + 1 < args.size() ? args.get(index + 1) : null;
+    }
+
+    // verb, resource and name, skipping the executable, options and their values.
+    private static List<String> positional(List<String> args) {
+        List<String> toRet = new ArrayList<>();
+        for (int i = 1; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (OPTIONS_WITH_VALUE.contains(arg)) {
+                i++;
+            } else if (!arg.startsWith("-")) {
+                toRet.add(arg);
+            }
+        }
+        return toRet;
+    }
+
+    private final class FakePod {
+        private final String name;
+        private final String uid = UUID.randomUUID().toString();
+        private final String resultKey;
+        private final Map<String, String> labels;
+        private final Map<String, String> annotations;
+        private final String image;
+        private final Failure failure;
+        private final long created = System.currentTimeMillis();
+        private volatile boolean started;
+
+        FakePod(
+                String name,
+                Map<String, String> labels,
+                Map<String, String> annotations,
+                String image,
+                Failure failure) {
+            this.name = name;
+            this.labels = labels != null ? labels : new HashMap<>();
+            this.annotations = annotations != null ? annotations : new HashMap<>();
+            this.resultKey = this.annotations.get(PodCreator.ANN_RESULTID);
+            this.image = image;
+            this.failure = failure;
+        }
+
+        Pod toPod(long now) {
+            long age = now - created;
+            String phase = "Pending";
+            String reason = null;
+            List<ContainerStatus> statuses = Collections.emptyList();
+            if (age >= settings.podStartMillis) {
+                switch (failure) {
+                    case OUT_OF_CPU:
+                        phase = "Failed";
+                        reason = "OutOfcpu";
+                        break;
+                    case IMAGE_PULL_BACK_OFF:
+                        statuses = Collections.singletonList(agent()
+                                .withNewState()
+                                .withNewWaiting()
+                                .withReason("ImagePullBackOff")
+                                .withMessage("Back-off pulling image \"" + image + "\"")
+                                .endWaiting()
+                                .endState()
+                                .build());
+                        break;
+                    case CREATE_CONTAINER_ERROR:
+                        statuses = Collections.singletonList(agent()
+                                .withNewState()
+                                .withNewWaiting()
+                                .withReason("CreateContainerError")
+                                .withMessage("failed to generate container spec")
+                                .endWaiting()
+                                .endState()
+                                .build());
+                        break;
+                    default:
+                        String startedAt = Instant.ofEpochMilli(created + settings.podStartMillis)
+                                .toString();
+                        if (age < settings.podStartMillis + settings.buildDurationMillis) {
+                            phase = "Running";
+                            statuses = Collections.singletonList(agent()
+                                    .withNewState()
+                                    .withNewRunning()
+                                    .withStartedAt(startedAt)
+                                    .endRunning()
+                                    .endState()
+                                    .build());
+                        } else {
+                            phase = "Succeeded";
+                            statuses = Collections.singletonList(agent()
+                                    .withNewState()
+                                    .withNewTerminated()
+                                    .withExitCode(0)
+                                    .withReason("Completed")
+                                    .withStartedAt(startedAt)
+                                    .endTerminated()
+                                    .endState()
+                                    .build());
+                        }
+                }
+            }
+            return new PodBuilder()
+                    .withNewMetadata()
+                    .withName(name)
+                    .withUid(uid)
+                    .withLabels(labels)
+                    .withAnnotations(annotations)
+                    .withCreationTimestamp(Instant.ofEpochMilli(created).toString())
+                    .endMetadata()
+                    .withNewStatus()
+                    .withPhase(phase)
+                    .withReason(reason)
+                    .withContainerStatuses(statuses)
+                    .withInitContainerStatuses(Collections.emptyList())
+                    .endStatus()
+                    .build();
+        }
+
+        private ContainerStatusBuilder agent() {
+            return new ContainerStatusBuilder()
+                    .withName(PodCreator.CONTAINER_NAME_BAMBOOAGENT)
+                    .withImage(image);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.atlassian.bamboo.deployments.execution.service.DeploymentExecutionService;
+import com.atlassian.bamboo.deployments.results.service.DeploymentResultService;
+import com.atlassian.bamboo.logger.ErrorUpdateHandler;
+import com.atlassian.bamboo.plan.PlanKey;
+import com.atlassian.bamboo.v2.build.queue.BuildQueueManager;
+import com.atlassian.bandana.BandanaManager;
+import com.atlassian.buildeng.kubernetes.jmx.KubeJmxService;
+import com.atlassian.buildeng.spi.isolated.docker.AgentCreationRescheduler;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.plugin.PluginAccessor;
+import com.atlassian.plugin.module.ContainerAccessor;
+import com.atlassian.plugin.module.ContainerManagedPlugin;
+import com.atlassian.sal.api.features.DarkFeatureManager;
+import com.atlassian.spring.container.ContainerContext;
+import com.atlassian.spring.container.ContainerManager;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+
+/**
+ * Offline load simulation of the kubernetes backend against {@link FakeKubectl}.
+ * Queue bursts are fed into {@link KubernetesIsolatedDockerImpl#startAgent} the way
+ * PreBuildQueuedEventListener does, recoverable failures are retried with a delay the way
+ * the agent creation rescheduler does and {@link KubernetesWatchdog} runs periodically, cleaning up
+ * finished and failed pods. Pods that were deleted before their build completed get a new agent,
+ * like the watchdog's retry of pod creation.
+ * Prints throughput, latency percentiles and kubectl invocation counts.
+ *
+ * <p>Settings are passed as {@code name=value} arguments, see {@link Settings} for names and defaults, eg.
+ * {@code java -cp benchmarks.jar com.atlassian.buildeng.kubernetes.KubernetesLoadSimulation builds=5000 capacity=2000}
+ */
+public final class KubernetesLoadSimulation {
+
+    /**
+     * All durations in milliseconds, failure rates are probabilities per created pod.
+     */
+    public static final class Settings {
+        public int builds = 1000;
+        public int burstSize = 200;
+        public long burstIntervalMillis = 5000;
+        public int capacity = 5000;
+        public int apiConcurrency = 50;
+        public long createLatencyMillis = 150;
+        public long listLatencyMillis = 100;
+        public long listLatencyPer1000PodsMillis = 400;
+        public long deleteLatencyMillis = 100;
+        public long otherLatencyMillis = 50;
+        public long podStartMillis = 3000;
+        public long buildDurationMillis = 10000;
+        public double outOfCpu = 0.02;
+        public double imagePullBackOff = 0.01;
+        public double createContainerError = 0.01;
+        public double quotaConflict = 0.02;
+        public long watchdogIntervalMillis = 2000;
+        public long retryDelayMillis = 1000;
+        public int maxRetries = 10;
+        public long maxDurationMillis = 300000;
+        public long seed = 1;
+
+        static Settings parse(String... args) throws IllegalAccessException {
+            Settings settings = new Settings();
+            for (String arg : args) {
+                String[] nameValue = arg.split("=", 2);
+                Field field;
+                try {
+                    field = Settings.class.getField(nameValue[0]);
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalArgumentException("Unknown setting " + nameValue[0] + ", known settings: "
+                            + Arrays.stream(Settings.class.getFields())
+                                    .map(Field::getName)
+                                    .collect(Collectors.joining(", ")));
+                }
+                if (nameValue.length != 2) {
+                    throw new IllegalArgumentException("Expected " + nameValue[0] + "=<value>");
+                }
+                if (field.getType() == int.class) {
+                    field.setInt(settings, Integer.parseInt(nameValue[1]));
+                } else if (field.getType() == long.class) {
+                    field.setLong(settings, Long.parseLong(nameValue[1]));
+                } else {
+                    field.setDouble(settings, Double.parseDouble(nameValue[1]));
+                }
+            }
+            return settings;
+        }
+    }
+
+    private enum State {
+        QUEUED,
+        SCHEDULED,
+        STARTED,
+        COMPLETED,
+        FAILED
+    }
+
+    private static final class Build {
+        private final String resultKey;
+        private final long queueTimestamp = System.currentTimeMillis();
+        private final AtomicInteger retries = new AtomicInteger();
+        private volatile State state = State.QUEUED;
+
+        Build(String resultKey) {
+            this.resultKey = resultKey;
+        }
+    }
+
+    private final Settings settings;
+    private final ConcurrentMap<String, Build> builds = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> schedulingMillis = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> queueMillis = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> watchdogMillis = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger startAgentCalls = new AtomicInteger();
+    private final AtomicInteger recoverable = new AtomicInteger();
+    private final AtomicInteger podRetries = new AtomicInteger();
+    private final ScheduledExecutorService simulation = Executors.newScheduledThreadPool(2);
+    private final Configuration configuration = ConfigurationBuilder.create(
+                    "docker.example.com/buildeng/agent-baseagent")
+            .withImageSize(Configuration.ContainerSize.REGULAR)
+            .build();
+
+    private FakeKubectl kubectl;
+    private KubeJmxService kubeJmxService;
+    private KubernetesIsolatedDockerImpl isolatedDocker;
+    private long startMillis;
+    private long endMillis;
+
+    KubernetesLoadSimulation(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        KubernetesLoadSimulation simulation = new KubernetesLoadSimulation(Settings.parse(args));
+        simulation.run();
+        System.out.println(simulation.report());
+        // the backend and watchdog pools only time out their idle threads after a minute.
+        System.exit(0);
+    }
+
+    void run() throws Exception {
+        kubectl = new FakeKubectl(settings, new FakeKubectl.Listener() {
+            @Override
+            public void agentStarted(String resultKey) {
+                onAgentStarted(resultKey);
+            }
+
+            @Override
+            public void podDeleted(String resultKey, boolean buildCompleted) {
+                onPodDeleted(resultKey, buildCompleted);
+            }
+        });
+        kubeJmxService = new KubeJmxService();
+        GlobalConfiguration globalConfiguration = globalConfiguration();
+        Map<Class<?>, JobDetail> jobs = new HashMap<>();
+        Scheduler scheduler = mock(Scheduler.class, withSettings().stubOnly());
+        when(scheduler.scheduleJob(any(JobDetail.class), any(Trigger.class))).thenAnswer(invocation -> {
+            JobDetail job = invocation.getArgument(0);
+            jobs.put(job.getJobClass(), job);
+            return null;
+        });
+        SubjectIdService subjectIdService = mock(SubjectIdService.class, withSettings().stubOnly());
+        when(subjectIdService.getSubjectId(any(PlanKey.class))).thenReturn("subject-id");
+        DarkFeatureManager darkFeatureManager = mock(DarkFeatureManager.class, withSettings().stubOnly());
+        when(darkFeatureManager.isEnabledForAllUsers(anyString())).thenReturn(Optional.of(false));
+        isolatedDocker = new KubernetesIsolatedDockerImpl(
+                globalConfiguration,
+                scheduler,
+                kubeJmxService,
+                subjectIdService,
+                new KubernetesPodSpecList(
+                        globalConfiguration, mock(BandanaManager.class, withSettings().stubOnly()), darkFeatureManager),
+                kubectl);
+        setUpBambooServices();
+        // schedules the watchdog with the job data it gets in Bamboo.
+        isolatedDocker.onStart();
+        JobExecutionContext watchdogContext = mock(JobExecutionContext.class, withSettings().stubOnly());
+        when(watchdogContext.getJobDetail()).thenReturn(jobs.get(KubernetesWatchdog.class));
+        KubernetesWatchdog watchdog = new KubernetesWatchdog();
+
+        startMillis = System.currentTimeMillis();
+        simulation.scheduleWithFixedDelay(kubectl::tick, 100, 100, TimeUnit.MILLISECONDS);
+        simulation.scheduleWithFixedDelay(
+                () -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        watchdog.execute(watchdogContext);
+                    } catch (JobExecutionException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    watchdogMillis.add(System.currentTimeMillis() - start);
+                },
+                settings.watchdogIntervalMillis,
+                settings.watchdogIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        AtomicInteger queued = new AtomicInteger();
+        simulation.scheduleAtFixedRate(
+                () -> {
+                    for (int i = 0; i < settings.burstSize && queued.get() < settings.builds; i++) {
+                        int number = queued.incrementAndGet();
+                        Build build = new Build("LOAD-PLAN" + (number % 50) + "-JOB1-" + number);
+                        builds.put(build.resultKey, build);
+                        startAgent(build);
+                    }
+                },
+                0,
+                settings.burstIntervalMillis,
+                TimeUnit.MILLISECONDS);
+
+        while (System.currentTimeMillis() - startMillis < settings.maxDurationMillis
+                && (queued.get() < settings.builds || !allFinished())) {
+            Thread.sleep(100);
+        }
+        endMillis = System.currentTimeMillis();
+        simulation.shutdownNow();
+        isolatedDocker.onStop();
+    }
+
+    private boolean allFinished() {
+        return builds.values().stream()
+                .allMatch((Build t) -> t.state == State.COMPLETED || t.state == State.FAILED);
+    }
+
+    private void startAgent(Build build) {
+        startAgentCalls.incrementAndGet();
+        long submitted = System.currentTimeMillis();
+        IsolatedDockerAgentRequest request = new IsolatedDockerAgentRequest(
+                configuration,
+                build.resultKey,
+                UUID.randomUUID(),
+                build.queueTimestamp,
+                build.resultKey.substring(0, build.resultKey.lastIndexOf('-')),
+                build.retries.get(),
+                true);
+        isolatedDocker.startAgent(request, new IsolatedDockerRequestCallback() {
+            @Override
+            public void handle(IsolatedDockerAgentResult result) {
+                if (result.isRetryRecoverable()) {
+                    recoverable.incrementAndGet();
+                    retry(build);
+                } else if (result.hasErrors()) {
+                    build.state = State.FAILED;
+                } else {
+                    schedulingMillis.add(System.currentTimeMillis() - submitted);
+                    build.state = State.SCHEDULED;
+                }
+            }
+
+            @Override
+            public void handle(IsolatedDockerAgentException exception) {
+                build.state = State.FAILED;
+            }
+        });
+    }
+
+    private void retry(Build build) {
+        if (build.retries.incrementAndGet() > settings.maxRetries) {
+            build.state = State.FAILED;
+        } else {
+            build.state = State.QUEUED;
+            simulation.schedule(() -> startAgent(build), settings.retryDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onAgentStarted(String resultKey) {
+        Build build = builds.get(resultKey);
+        if (build != null) {
+            queueMillis.add(System.currentTimeMillis() - build.queueTimestamp);
+            build.state = State.STARTED;
+        }
+        kubeJmxService.agentStarted(resultKey);
+    }
+
+    private void onPodDeleted(String resultKey, boolean buildCompleted) {
+        Build build = builds.get(resultKey);
+        if (build == null) {
+            return;
+        }
+        if (buildCompleted) {
+            build.state = State.COMPLETED;
+        } else {
+            podRetries.incrementAndGet();
+            retry(build);
+        }
+    }
+
+    private GlobalConfiguration globalConfiguration() throws Exception {
+        GlobalConfiguration globalConfiguration = mock(GlobalConfiguration.class, withSettings().stubOnly());
+        when(globalConfiguration.getBambooBaseUrl()).thenReturn("https://bamboo.example.com");
+        when(globalConfiguration.getBambooBaseUrlAskKubeLabel()).thenReturn("bamboo.example.com");
+        when(globalConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(globalConfiguration.getCurrentSidekick()).thenReturn("docker.example.com/buildeng/bamboo-agent-sidekick");
+        when(globalConfiguration.getPodTemplateAsString()).thenReturn(PodSpecBenchmark.resource("podTemplate.yaml"));
+        when(globalConfiguration.getBandanaIamRequestTemplateAsString())
+                .thenReturn(PodSpecBenchmark.resource("iamRequestTemplate.yaml"));
+        when(globalConfiguration.getBandanaArchitecturePodConfig()).thenReturn("");
+        when(globalConfiguration.getArtifactoryCachePodSpecAsString()).thenReturn("");
+        when(globalConfiguration.getArtifactoryCacheAllowListAsString()).thenReturn("");
+        return globalConfiguration;
+    }
+
+    /**
+     * The watchdog looks up Bamboo services in the spring container.
+     * The build queue is empty, so only the pod cleanup part of the watchdog runs.
+     */
+    private void setUpBambooServices() throws Exception {
+        PluginAccessor pluginAccessor = mock(PluginAccessor.class, withSettings().stubOnly());
+        ContainerManagedPlugin plugin = mock(ContainerManagedPlugin.class, withSettings().stubOnly());
+        ContainerAccessor containerAccessor = mock(ContainerAccessor.class, withSettings().stubOnly());
+        when(pluginAccessor.getPlugin("com.atlassian.buildeng.bamboo-isolated-docker-plugin"))
+                .thenReturn(plugin);
+        when(plugin.getContainerAccessor()).thenReturn(containerAccessor);
+        when(containerAccessor.getBeansOfType(AgentCreationRescheduler.class))
+                .thenReturn(Collections.singletonList(mock(AgentCreationRescheduler.class, withSettings().stubOnly())));
+
+        Map<String, Object> services = new HashMap<>();
+        services.put("buildQueueManager", mock(BuildQueueManager.class, withSettings().stubOnly()));
+        services.put("errorUpdateHandler", mock(ErrorUpdateHandler.class, withSettings().stubOnly()));
+        services.put("eventPublisher", mock(EventPublisher.class, withSettings().stubOnly()));
+        services.put("deploymentExecutionService", mock(DeploymentExecutionService.class, withSettings().stubOnly()));
+        services.put("deploymentResultService", mock(DeploymentResultService.class, withSettings().stubOnly()));
+        services.put("pluginAccessor", pluginAccessor);
+        ContainerContext containerContext = mock(ContainerContext.class, withSettings().stubOnly());
+        when(containerContext.isSetup()).thenReturn(true);
+        when(containerContext.getComponent(any())).thenAnswer(invocation -> services.get(invocation.getArgument(0)));
+        ContainerManager.getInstance().setContainerContext(containerContext);
+    }
+
+    String report() {
+        Map<State, Long> states = builds.values().stream()
+                .collect(Collectors.groupingBy((Build t) -> t.state, Collectors.counting()));
+        double seconds = (endMillis - startMillis) / 1000.0;
+        long scheduled = schedulingMillis.size();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Simulated %d builds in %.1f s%n", builds.size(), seconds));
+        sb.append(String.format(
+                "  completed %d, failed %d, unfinished %d%n",
+                states.getOrDefault(State.COMPLETED, 0L),
+                states.getOrDefault(State.FAILED, 0L),
+                builds.size() - states.getOrDefault(State.COMPLETED, 0L) - states.getOrDefault(State.FAILED, 0L)));
+        sb.append(String.format(
+                "  startAgent calls %d, recoverable failures %d, pods deleted before completion %d%n",
+                startAgentCalls.get(), recoverable.get(), podRetries.get()));
+        sb.append(String.format(
+                "  pods created %.1f/s, pods left in cluster %d%n", scheduled / seconds, kubectl.podCount()));
+        sb.append(percentiles("startAgent to pod created", schedulingMillis));
+        sb.append(percentiles("queued to agent started", queueMillis));
+        sb.append(percentiles("watchdog cycle", watchdogMillis));
+        sb.append("kubectl invocations (count, mean ms):\n");
+        kubectl.invocationStats()
+                .forEach((String verb, long[] stats) -> sb.append(
+                        String.format("  %-10s %8d %8.1f%n", verb, stats[0], (double) stats[1] / stats[0])));
+        return sb.toString();
+    }
+
+    private static String percentiles(String name, ConcurrentLinkedQueue<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        if (sorted.isEmpty()) {
+            return String.format("%-26s no samples%n", name);
+        }
+        return String.format(
+                "%-26s n=%d p50=%d p90=%d p99=%d max=%d ms%n",
+                name,
+                sorted.size(),
+                sorted.get((int) Math.ceil(0.5 * sorted.size()) - 1),
+                sorted.get((int) Math.ceil(0.9 * sorted.size()) - 1),
+                sorted.get((int) Math.ceil(0.99 * sorted.size()) - 1),
+                sorted.get(sorted.size() - 1));
+    }
+}
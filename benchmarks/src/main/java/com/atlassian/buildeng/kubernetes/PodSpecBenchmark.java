@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.kubernetes;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.atlassian.bandana.BandanaManager;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentRequest;
+import com.atlassian.sal.api.features.DarkFeatureManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Scanner;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+/**
+ * Pod spec generation of the kubernetes backend, from {@link PodCreator#create} over the template merging
+ * to the yaml that is handed to kubectl.
+ * Run with {@code -prof gc} to get the allocation rate next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PodSpecBenchmark {
+
+    /**
+     * minimal: agent container only.
+     * extras: three extra containers with commands and environment variables.
+     * dind: a docker in docker sidecar.
+     * irsa: an AWS role, adding the IAMRequest document.
+     * arch: architecture overrides.
+     * cache: artifactory cache pod spec.
+     * all: everything above at once.
+     */
+    @Param({"minimal", "extras", "dind", "irsa", "arch", "cache", "all"})
+    public String scenario;
+
+    private GlobalConfiguration globalConfiguration;
+    private KubernetesPodSpecList podSpecList;
+    private IsolatedDockerAgentRequest request;
+    private Map<String, Object> template;
+    private Map<String, Object> podDefinition;
+    private List<Map<String, Object>> specs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        boolean all = "all".equals(scenario);
+        globalConfiguration = mock(GlobalConfiguration.class, withSettings().stubOnly());
+        when(globalConfiguration.getBambooBaseUrl()).thenReturn("https://bamboo.example.com");
+        when(globalConfiguration.getBambooBaseUrlAskKubeLabel()).thenReturn("bamboo.example.com");
+        when(globalConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(globalConfiguration.getCurrentSidekick()).thenReturn("docker.example.com/buildeng/bamboo-agent-sidekick");
+        when(globalConfiguration.getPodTemplateAsString()).thenReturn(resource("podTemplate.yaml"));
+        when(globalConfiguration.getBandanaIamRequestTemplateAsString())
+                .thenReturn(resource("iamRequestTemplate.yaml"));
+        when(globalConfiguration.getBandanaArchitecturePodConfig())
+                .thenReturn(all || "arch".equals(scenario) ? resource("architecturePodOverrides.yaml") : "");
+        when(globalConfiguration.getArtifactoryCachePodSpecAsString())
+                .thenReturn(resource("artifactoryCachePodSpec.yaml"));
+        when(globalConfiguration.getArtifactoryCacheAllowListAsString()).thenReturn("");
+
+        DarkFeatureManager darkFeatureManager = mock(DarkFeatureManager.class, withSettings().stubOnly());
+        when(darkFeatureManager.isEnabledForAllUsers(anyString())).thenReturn(Optional.of(true));
+        podSpecList = new KubernetesPodSpecList(
+                globalConfiguration, mock(BandanaManager.class, withSettings().stubOnly()), darkFeatureManager);
+
+        request = new IsolatedDockerAgentRequest(
+                configuration(scenario),
+                "BUILDENG-PBC-JOB1-123",
+                UUID.fromString("379ad7b0-b4f5-4fae-914b-070e9442c0a9"),
+                System.currentTimeMillis(),
+                "bk",
+                0,
+                true);
+        template = new Yaml(new SafeConstructor()).load(globalConfiguration.getPodTemplateAsString());
+        podDefinition = PodCreator.create(request, globalConfiguration);
+        specs = podSpecList.createPodSpecList(request, "subject-id");
+    }
+
+    static Configuration configuration(String scenario) {
+        boolean all = "all".equals(scenario);
+        ConfigurationBuilder builder = ConfigurationBuilder.create("docker.example.com/buildeng/agent-baseagent")
+                .withImageSize(Configuration.ContainerSize.REGULAR);
+        if (all || "extras".equals(scenario)) {
+            for (String name : Arrays.asList("postgres", "redis", "localstack")) {
+                Configuration.ExtraContainer extra = new Configuration.ExtraContainer(
+                        name, "docker.example.com/" + name + ":latest", Configuration.ExtraContainerSize.SMALL);
+                extra.setCommands(Arrays.asList("--port", "1234", "--verbose"));
+                extra.setEnvVariables(Arrays.asList(
+                        new Configuration.EnvVariable("USER", "bamboo"),
+                        new Configuration.EnvVariable("PASSWORD", "secret")));
+                builder.withExtraContainer(extra);
+            }
+        }
+        if (all || "dind".equals(scenario)) {
+            Configuration.ExtraContainer dind = new Configuration.ExtraContainer(
+                    "docker", "docker:20.10-dind", Configuration.ExtraContainerSize.REGULAR);
+            dind.setCommands(Arrays.asList("--mtu=1300"));
+            builder.withExtraContainer(dind);
+        }
+        if (all || "irsa".equals(scenario)) {
+            builder.withAwsRole("arn:aws:iam::123456789012:role/buildeng-pbc");
+        }
+        if (all || "arch".equals(scenario)) {
+            builder.withArchitecture("arm64");
+        }
+        if (all || "cache".equals(scenario)) {
+            builder.withFeatureFlag("ARTIFACTORY_CACHE");
+        }
+        return builder.build();
+    }
+
+    static String resource(String name) throws IOException {
+        try (InputStream is = PodSpecBenchmark.class.getResourceAsStream("/kubernetes/" + name);
+                Scanner scanner = new Scanner(is, StandardCharsets.UTF_8.name())) {
+            return scanner.useDelimiter("\\A").next();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> podCreator() {
+        return PodCreator.create(request, globalConfiguration);
+    }
+
+    @Benchmark
+    public Map<String, Object> mergeTemplate() {
+        return KubernetesPodSpecList.mergeMap(template, podDefinition);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> podSpecList() {
+        return podSpecList.createPodSpecList(request, "subject-id");
+    }
+
+    @Benchmark
+    public String yamlDump() {
+        return KubernetesPodSpecList.toYaml(specs);
+    }
+
+    /**
+     * What the agent start pays, including the temporary file kubectl reads.
+     */
+    @Benchmark
+    public long generate() throws IOException {
+        File file = podSpecList.generate(request, "subject-id");
+        long length = file.length();
+        podSpecList.cleanUp(file);
+        return length;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker;
+
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and serialisation of the per-build container configuration.
+ * {@link AccessConfiguration#forMap} is what all the other AccessConfiguration factory methods end up in,
+ * they only differ in where the map of custom configuration comes from.
+ * Run with {@code -prof gc} to get the allocation rate next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfigurationBenchmark {
+
+    /**
+     * small: one extra container without commands or environment variables, no feature flags.
+     * large: 10 extra containers with 5 commands and 10 environment variables each, 20 feature flags.
+     */
+    @Param({"small", "large"})
+    public String size;
+
+    private Configuration configuration;
+    private String json;
+    private String extraContainersJson;
+    private String featureFlagsJson;
+    private Map<String, String> customConfiguration;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        configuration = configuration("large".equals(size));
+        JsonObject root = ConfigurationPersistence.toJson(configuration);
+        root.add("featureFlags", ConfigurationPersistence.toJson(configuration.getFeatureFlags()));
+        json = root.toString();
+        extraContainersJson = ConfigurationPersistence.toJson(configuration.getExtraContainers()).toString();
+        featureFlagsJson = ConfigurationPersistence.toJson(configuration.getFeatureFlags()).toString();
+
+        customConfiguration = new HashMap<>();
+        customConfiguration.put(Configuration.ENABLED_FOR_JOB, "true");
+        customConfiguration.put(Configuration.DOCKER_IMAGE, configuration.getDockerImage());
+        customConfiguration.put(Configuration.DOCKER_IMAGE_SIZE, configuration.getSize().name());
+        customConfiguration.put(Configuration.DOCKER_EXTRA_CONTAINERS, extraContainersJson);
+        customConfiguration.put(Configuration.DOCKER_FEATURE_FLAGS, featureFlagsJson);
+        customConfiguration.put(Configuration.DOCKER_AWS_ROLE, "arn:aws:iam::123456789012:role/buildeng-pbc");
+        customConfiguration.put(Configuration.DOCKER_ARCHITECTURE, "arm64");
+        // unrelated plan configuration that is present in the same map
+        for (int i = 0; i < 30; i++) {
+            customConfiguration.put("custom.other.plugin.key" + i, "value" + i);
+        }
+    }
+
+    static Configuration configuration(boolean large) {
+        ConfigurationBuilder builder = ConfigurationBuilder.create("docker.example.com/buildeng/agent-baseagent")
+                .withImageSize(Configuration.ContainerSize.LARGE);
+        int extras = large ? 10 : 1;
+        for (int i = 0; i < extras; i++) {
+            Configuration.ExtraContainer extra = new Configuration.ExtraContainer(
+                    "extra" + i,
+                    "docker.example.com/buildeng/service" + i + ":1.0",
+                    Configuration.ExtraContainerSize.SMALL);
+            if (large) {
+                List<String> commands = new ArrayList<>();
+                for (int c = 0; c < 5; c++) {
+                    commands.add("--option" + c + "=value" + c);
+                }
+                extra.setCommands(commands);
+                List<Configuration.EnvVariable> envVariables = new ArrayList<>();
+                for (int e = 0; e < 10; e++) {
+                    envVariables.add(new Configuration.EnvVariable("VARIABLE_" + e, "some value " + e));
+                }
+                extra.setEnvVariables(envVariables);
+            }
+            builder.withExtraContainer(extra);
+        }
+        HashSet<String> flags = new HashSet<>();
+        for (int i = 0; large && i < 20; i++) {
+            flags.add("FEATURE_" + i);
+        }
+        return builder.withFeatureFlags(flags).build();
+    }
+
+    @Benchmark
+    public Configuration toConfiguration() {
+        return ConfigurationPersistence.toConfiguration(json);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return ConfigurationPersistence.toJson(configuration).toString();
+    }
+
+    @Benchmark
+    public List<Configuration.ExtraContainer> extraContainersFromJson() {
+        return ConfigurationPersistence.fromJsonStringToExtraContainers(extraContainersJson);
+    }
+
+    @Benchmark
+    public HashSet<String> featureFlagsFromJson() {
+        return ConfigurationPersistence.fromJsonStringToFeatureFlags(featureFlagsJson);
+    }
+
+    @Benchmark
+    public Configuration accessConfigurationForMap() {
+        return AccessConfiguration.forMap(customConfiguration);
+    }
+}
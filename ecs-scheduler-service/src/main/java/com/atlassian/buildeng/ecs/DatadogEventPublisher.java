@@ -16,14 +16,28 @@
 
 package com.atlassian.buildeng.ecs;
 
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.event.api.EventPublisher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
@@ -32,30 +46,127 @@ import org.apache.http.impl.client.HttpClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class DatadogEventPublisher implements EventPublisher {
+/**
+ * Sends the events to Datadog from a background thread so that publishing never waits for the network.
+ * Events are queued in a bounded queue and sent in batches, when the queue is full new events are dropped.
+ */
+@Singleton
+public class DatadogEventPublisher implements EventPublisher, Closeable {
     static final String DATADOG_API = "DATADOG_API_KEY";
+    static final String DATADOG_EVENTS_URL = "https://app.datadoghq.com/api/v1/events";
+    static final int QUEUE_CAPACITY = 1000;
+    static final int BATCH_SIZE = 50;
+    private static final int TIMEOUT_MILLIS = 5000;
     private static final Logger logger = LoggerFactory.getLogger(DatadogEventPublisher.class);
-    CloseableHttpClient httpclient = HttpClients.createDefault();
+
+    private final CloseableHttpClient httpclient = HttpClients.custom()
+            .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectTimeout(TIMEOUT_MILLIS)
+                    .setConnectionRequestTimeout(TIMEOUT_MILLIS)
+                    .setSocketTimeout(TIMEOUT_MILLIS)
+                    .build())
+            .build();
+    private final String url;
     private final String token;
+    private final BlockingQueue<Object> queue;
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("pbc-datadog-events-%d")
+            .setDaemon(true)
+            .build());
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean overflowing = new AtomicBoolean();
 
     @Inject
     public DatadogEventPublisher(@Named(DATADOG_API) String apiToken) {
+        this(DATADOG_EVENTS_URL, apiToken, QUEUE_CAPACITY);
+    }
+
+    DatadogEventPublisher(String url, String apiToken, int capacity) {
+        this.url = url;
         this.token = apiToken;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        sender.execute(this::sendEvents);
     }
 
     @Override
     public void publish(Object event) {
-        HttpPost httpPost = new HttpPost("https://app.datadoghq.com/api/v1/events?api_key=" + token);
-        httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
-        httpPost.setEntity(new StringEntity(createDDEvent(event), "UTF-8"));
-        try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
-            logger.info(
-                    "Sent Datadog event, response: {}, api_key:{}",
-                    response.getStatusLine().getStatusCode(),
-                    token.substring(0, 3) + "???" + token.substring(token.length() - 3));
-        } catch (IOException ex) {
-            logger.error("Error while sending datadog event", ex);
+        if (!sender.isShutdown() && queue.offer(event)) {
+            overflowing.set(false);
+            return;
+        }
+        dropped.incrementAndGet();
+        PbcMetrics.datadogEvents("dropped").inc();
+        if (overflowing.compareAndSet(false, true)) {
+            logger.warn("Datadog event queue is full, dropping events until it drains. Dropped: {}", event);
+        } else {
+            logger.debug("Dropped Datadog event: {}", event);
+        }
+    }
+
+    /**
+     * stop accepting events and send the ones already queued, waiting a limited time for it.
+     */
+    @Override
+    public void close() throws IOException {
+        sender.shutdownNow();
+        try {
+            if (!sender.awaitTermination(2L * TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Gave up waiting for {} queued Datadog events to be sent", queue.size());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        httpclient.close();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private void sendEvents() {
+        List<Object> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException ex) {
+                break;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            send(batch);
+            batch.clear();
+        }
+        // closing, flush what is left.
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            send(batch);
+            batch.clear();
+        }
+    }
+
+    private void send(List<Object> batch) {
+        // the events api takes a single event per request, a batch shares the wakeup and the kept alive connection.
+        int failed = 0;
+        for (Object event : batch) {
+            HttpPost httpPost = new HttpPost(url + "?api_key=" + token);
+            httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+            httpPost.setEntity(new StringEntity(createDDEvent(event), "UTF-8"));
+            try (CloseableHttpResponse response = httpclient.execute(httpPost)) {
+                int status = response.getStatusLine().getStatusCode();
+                if (status >= 300) {
+                    failed++;
+                    logger.warn("Datadog rejected event with response: {}", status);
+                }
+            } catch (IOException ex) {
+                failed++;
+                logger.error("Error while sending datadog event", ex);
+            }
         }
+        PbcMetrics.datadogEvents("sent").inc(batch.size() - failed);
+        PbcMetrics.datadogEvents("failed").inc(failed);
+        logger.info(
+                "Sent {} Datadog events, failed: {}, api_key:{}",
+                batch.size() - failed,
+                failed,
+                token.substring(0, 3) + "???" + token.substring(token.length() - 3));
     }
 
     @Override
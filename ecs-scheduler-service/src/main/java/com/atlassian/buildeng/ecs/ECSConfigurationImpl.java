@@ -17,19 +17,25 @@
 package com.atlassian.buildeng.ecs;
 
 import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
+import com.atlassian.buildeng.ecs.scheduling.HostScoring;
 import com.atlassian.buildeng.ecs.scheduling.TaskDefinitionRegistrations;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.ContainerSizeDescriptor;
 import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
 import com.google.common.base.Splitter;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
 
+// one instance for both interfaces, it holds the registrations.
+@Singleton
 public class ECSConfigurationImpl implements ECSConfiguration, TaskDefinitionRegistrations.Backend {
     static final String ECS_TASK_DEF = "ECS_TASK_DEF";
     static final String ECS_ASG = "ECS_ASG";
@@ -41,14 +47,26 @@ public class ECSConfigurationImpl implements ECSConfiguration, TaskDefinitionReg
      */
     static final String ECS_LOG_OPTIONS = "ECS_LOGOPTIONS";
 
+    /**
+     * path of the file keeping the task definition registrations over restarts, blank to keep them in memory only.
+     */
+    static final String ECS_REGISTRATIONS_FILE = "ECS_REGISTRATIONS_FILE";
+
+    /**
+     * name of the {@link HostScoring} strategy, blank for the default.
+     */
+    static final String ECS_HOST_SCORING = "ECS_HOST_SCORING";
+
     private final String cluster;
     private final String asg;
     private final String taskDefinitionName;
     private Map<String, Integer> ecsTaskMapping = new ConcurrentHashMap<>();
     private Map<Configuration, Integer> configurationMapping = new ConcurrentHashMap<>();
+    private final RegistrationFileStore registrationStore;
     private final String logDriver;
     private final Map<String, String> logOptionsMap;
     private final ContainerSizeDescriptor sizeDescriptor = new DefaultContainerSizeDescriptor();
+    private final HostScoring hostScoring;
 
     @Inject
     public ECSConfigurationImpl(
@@ -56,12 +74,24 @@ public class ECSConfigurationImpl implements ECSConfiguration, TaskDefinitionReg
             @Named(ECS_CLUSTER) String cluster,
             @Named(ECS_TASK_DEF) String taskDef,
             @Named(ECS_LOG_DRIVER) String logDriver,
-            @Named(ECS_LOG_OPTIONS) String logOptionsList) {
+            @Named(ECS_LOG_OPTIONS) String logOptionsList,
+            @Named(ECS_REGISTRATIONS_FILE) String registrationsFile,
+            @Named(ECS_HOST_SCORING) String hostScoring) {
         this.asg = asg;
         this.cluster = cluster;
         this.taskDefinitionName = taskDef;
         this.logDriver = logDriver;
         this.logOptionsMap = createLogOptionsMap(logOptionsList);
+        // an unknown name fails the startup.
+        this.hostScoring = StringUtils.isBlank(hostScoring)
+                ? HostScoring.BEST_FIT_MEMORY
+                : HostScoring.valueOf(hostScoring.trim().toUpperCase(Locale.ROOT));
+        if (StringUtils.isBlank(registrationsFile)) {
+            this.registrationStore = null;
+        } else {
+            this.registrationStore = new RegistrationFileStore(Paths.get(registrationsFile));
+            registrationStore.load(configurationMapping, ecsTaskMapping);
+        }
     }
 
     private Map<String, String> createLogOptionsMap(String logOptionsList) {
@@ -125,8 +155,22 @@ public class ECSConfigurationImpl implements ECSConfiguration, TaskDefinitionReg
         this.ecsTaskMapping = taskRequestMappings;
     }
 
+    @Override
+    public void persistRegistration(Configuration configuration, String registrationKey, int revision) {
+        configurationMapping.put(configuration, revision);
+        ecsTaskMapping.put(registrationKey, revision);
+        if (registrationStore != null) {
+            registrationStore.append(configuration, registrationKey, revision);
+        }
+    }
+
     @Override
     public ContainerSizeDescriptor getSizeDescriptor() {
         return sizeDescriptor;
     }
+
+    @Override
+    public HostScoring getHostScoring() {
+        return hostScoring;
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs;
+
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationPersistence;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task definition registrations kept in a local file, one json object per line.
+ * New registrations are appended, the file is only read when the service starts.
+ */
+class RegistrationFileStore {
+    private static final Logger logger = LoggerFactory.getLogger(RegistrationFileStore.class);
+
+    private final Path file;
+
+    RegistrationFileStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * read all the registrations in the file into the maps.
+     */
+    void load(Map<Configuration, Integer> configurationMapping, Map<String, Integer> ecsTaskMapping) {
+        List<String> lines;
+        try {
+            lines = Files.exists(file) ? Files.readAllLines(file, StandardCharsets.UTF_8) : Collections.emptyList();
+        } catch (IOException ex) {
+            logger.error("Failed to read task definition registrations from " + file, ex);
+            return;
+        }
+        for (String line : lines) {
+            try {
+                JsonObject obj = JsonParser.parseString(line).getAsJsonObject();
+                if (!obj.has("key") || !obj.has("revision") || !obj.has("configuration")) {
+                    throw new JsonParseException("Incomplete registration");
+                }
+                int revision = obj.getAsJsonPrimitive("revision").getAsInt();
+                Configuration configuration =
+                        ConfigurationPersistence.toConfiguration(obj.get("configuration").toString());
+                if (configuration != null) {
+                    configurationMapping.put(configuration, revision);
+                }
+                ecsTaskMapping.put(obj.getAsJsonPrimitive("key").getAsString(), revision);
+            } catch (JsonParseException | IllegalStateException | NumberFormatException ex) {
+                // most likely the last line, written only partially when the service stopped.
+                logger.warn("Skipping unreadable task definition registration: {}", line);
+            }
+        }
+        logger.info("Loaded {} task definition registrations from {}", ecsTaskMapping.size(), file);
+    }
+
+    synchronized void append(Configuration configuration, String registrationKey, int revision) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("key", registrationKey);
+        obj.addProperty("revision", revision);
+        obj.add("configuration", ConfigurationPersistence.toJson(configuration));
+        try {
+            Files.write(
+                    file,
+                    Collections.singletonList(obj.toString()),
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            // the registration is still kept in memory, it only has to be registered again after a restart.
+            logger.error("Failed to persist task definition registration to " + file, ex);
+        }
+    }
+}
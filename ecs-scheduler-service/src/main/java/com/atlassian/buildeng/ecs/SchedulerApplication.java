@@ -19,8 +19,9 @@ package com.atlassian.buildeng.ecs;
 import com.atlassian.buildeng.ecs.resources.HeartBeatResource;
 import com.atlassian.buildeng.ecs.resources.LogsResource;
 import com.atlassian.buildeng.ecs.resources.SchedulerResource;
+import com.atlassian.buildeng.ecs.resources.TaskEventsResource;
 import com.atlassian.buildeng.ecs.scheduling.AWSSchedulerBackend;
-import com.atlassian.buildeng.ecs.scheduling.AwsPullModelLoader;
+import com.atlassian.buildeng.ecs.scheduling.CachingModelLoader;
 import com.atlassian.buildeng.ecs.scheduling.CyclingECSScheduler;
 import com.atlassian.buildeng.ecs.scheduling.DefaultModelUpdater;
 import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
@@ -85,6 +86,15 @@ public class SchedulerApplication extends io.dropwizard.Application<Configuratio
                 if (!props.containsKey(ECSConfigurationImpl.ECS_LOG_OPTIONS)) {
                     props.put(ECSConfigurationImpl.ECS_LOG_OPTIONS, "");
                 }
+                if (!props.containsKey(ECSConfigurationImpl.ECS_REGISTRATIONS_FILE)) {
+                    props.put(ECSConfigurationImpl.ECS_REGISTRATIONS_FILE, "");
+                }
+                if (!props.containsKey(ECSConfigurationImpl.ECS_HOST_SCORING)) {
+                    props.put(ECSConfigurationImpl.ECS_HOST_SCORING, "");
+                }
+                if (!props.containsKey(TaskEventsResource.EVENTS_SECRET)) {
+                    props.put(TaskEventsResource.EVENTS_SECRET, "");
+                }
                 String ddApi = System.getenv(DatadogEventPublisher.DATADOG_API);
                 if (ddApi != null) {
                     props.put(DatadogEventPublisher.DATADOG_API, ddApi);
@@ -95,7 +105,7 @@ public class SchedulerApplication extends io.dropwizard.Application<Configuratio
                 bind(ECSConfiguration.class).to(ECSConfigurationImpl.class);
                 bind(ECSScheduler.class).to(CyclingECSScheduler.class);
                 bind(SchedulerBackend.class).to(AWSSchedulerBackend.class);
-                bind(ModelLoader.class).to(AwsPullModelLoader.class);
+                bind(ModelLoader.class).to(CachingModelLoader.class);
                 bind(ModelUpdater.class).to(DefaultModelUpdater.class);
                 bind(TaskDefinitionRegistrations.Backend.class).to(ECSConfigurationImpl.class);
 
@@ -120,5 +130,6 @@ public class SchedulerApplication extends io.dropwizard.Application<Configuratio
         environment.jersey().register(injector.getInstance(SchedulerResource.class));
         environment.jersey().register(injector.getInstance(HeartBeatResource.class));
         environment.jersey().register(injector.getInstance(LogsResource.class));
+        environment.jersey().register(injector.getInstance(TaskEventsResource.class));
     }
 }
@@ -85,6 +85,19 @@ public class Scheduler {
         throw new IllegalArgumentException("Wrong format!");
     }
 
+    /**
+     * parse a json array of scheduling requests.
+     */
+    public static List<Scheduler> listFromJson(String v) {
+        JsonElement obj = JsonParser.parseString(v);
+        if (!obj.isJsonArray()) {
+            throw new IllegalArgumentException("Wrong format!");
+        }
+        List<Scheduler> toRet = new ArrayList<>();
+        obj.getAsJsonArray().forEach((JsonElement t) -> toRet.add(fromJson(t.toString())));
+        return toRet;
+    }
+
     private final String uuid;
     private final String resultId;
     private final String bambooServer;
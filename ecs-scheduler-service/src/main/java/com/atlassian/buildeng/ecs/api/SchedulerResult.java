@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.api;
+
+import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
+
+/**
+ * The outcome of one scheduling request in a batch, either the agent result or the error that prevented scheduling.
+ */
+public class SchedulerResult {
+
+    private final String uuid;
+    private final IsolatedDockerAgentResult result;
+    private final String error;
+
+    public SchedulerResult(String uuid, IsolatedDockerAgentResult result, String error) {
+        this.uuid = uuid;
+        this.result = result;
+        this.error = error;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public IsolatedDockerAgentResult getResult() {
+        return result;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
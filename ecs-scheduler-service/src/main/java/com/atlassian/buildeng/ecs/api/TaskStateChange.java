@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlassian.buildeng.ecs.api;
+
+import com.amazonaws.services.ecs.model.Container;
+import com.amazonaws.services.ecs.model.Task;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ECS task state change events, as delivered by EventBridge. The detail of the event has the same shape
+ * as the task returned by DescribeTasks, only the parts needed to tell why a task stopped are read.
+ */
+public final class TaskStateChange {
+    static final String DETAIL_TYPE = "ECS Task State Change";
+
+    private TaskStateChange() {}
+
+    /**
+     * the tasks of all task state change events in the json, either a single event or an array of them.
+     * Other events are skipped.
+     */
+    public static List<Task> fromJson(String v) {
+        JsonElement obj = JsonParser.parseString(v);
+        List<Task> toRet = new ArrayList<>();
+        if (obj.isJsonArray()) {
+            obj.getAsJsonArray().forEach((JsonElement t) -> parseEvent(t, toRet));
+        } else {
+            parseEvent(obj, toRet);
+        }
+        return toRet;
+    }
+
+    private static void parseEvent(JsonElement element, List<Task> toRet) {
+        if (!element.isJsonObject()) {
+            throw new IllegalArgumentException("Wrong format!");
+        }
+        JsonObject event = element.getAsJsonObject();
+        JsonElement detail = event.get("detail");
+        if (!DETAIL_TYPE.equals(string(event, "detail-type")) || detail == null || !detail.isJsonObject()) {
+            return;
+        }
+        JsonObject oo = detail.getAsJsonObject();
+        String taskArn = string(oo, "taskArn");
+        String lastStatus = string(oo, "lastStatus");
+        if (taskArn == null || lastStatus == null) {
+            throw new IllegalArgumentException("Wrong format!");
+        }
+        Task task = new Task()
+                .withTaskArn(taskArn)
+                .withLastStatus(lastStatus)
+                .withClusterArn(string(oo, "clusterArn"))
+                .withContainerInstanceArn(string(oo, "containerInstanceArn"))
+                .withStoppedReason(string(oo, "stoppedReason"));
+        JsonElement version = oo.get("version");
+        if (version != null && version.isJsonPrimitive()) {
+            task.setVersion(version.getAsLong());
+        }
+        JsonElement containers = oo.get("containers");
+        if (containers != null && containers.isJsonArray()) {
+            containers.getAsJsonArray().forEach((JsonElement t) -> {
+                if (t.isJsonObject()) {
+                    task.withContainers(new Container()
+                            .withName(string(t.getAsJsonObject(), "name"))
+                            .withReason(string(t.getAsJsonObject(), "reason")));
+                }
+            });
+        }
+        toRet.add(task);
+    }
+
+    private static String string(JsonObject obj, String name) {
+        JsonElement value = obj.get(name);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
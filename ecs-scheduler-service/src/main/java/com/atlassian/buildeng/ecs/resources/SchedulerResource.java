@@ -19,6 +19,7 @@ package com.atlassian.buildeng.ecs.resources;
 import com.amazonaws.services.ecs.model.ClientException;
 import com.atlassian.buildeng.ecs.api.RestReserveFuture;
 import com.atlassian.buildeng.ecs.api.Scheduler;
+import com.atlassian.buildeng.ecs.api.SchedulerResult;
 import com.atlassian.buildeng.ecs.exceptions.ECSException;
 import com.atlassian.buildeng.ecs.scheduling.ArnStoppedState;
 import com.atlassian.buildeng.ecs.scheduling.BambooServerEnvironment;
@@ -27,16 +28,21 @@ import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
 import com.atlassian.buildeng.ecs.scheduling.ECSScheduler;
 import com.atlassian.buildeng.ecs.scheduling.ReserveRequest;
 import com.atlassian.buildeng.ecs.scheduling.SchedulerBackend;
+import com.atlassian.buildeng.ecs.scheduling.SchedulingCallback;
 import com.atlassian.buildeng.ecs.scheduling.SchedulingRequest;
+import com.atlassian.buildeng.ecs.scheduling.TaskStateTracker;
 import com.atlassian.buildeng.ecs.scheduling.TaskDefinitionRegistrations;
 import com.atlassian.buildeng.spi.isolated.docker.HostFolderMapping;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerAgentResult;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedDockerRequestCallback;
 import com.codahale.metrics.annotation.Timed;
-import java.util.Collection;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -47,6 +53,7 @@ import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
+import org.apache.commons.lang3.tuple.Pair;
 import org.glassfish.jersey.server.ManagedAsync;
 
 @Path("/rest/scheduler")
@@ -58,17 +65,20 @@ public class SchedulerResource {
     private final ECSScheduler ecsScheduler;
     private final SchedulerBackend schedulerBackend;
     private final ECSConfiguration configuration;
+    private final TaskStateTracker taskStates;
 
     @Inject
     public SchedulerResource(
             TaskDefinitionRegistrations taskDefReistrations,
             ECSScheduler ecsScheduler,
             SchedulerBackend schedulerBackend,
-            ECSConfiguration configuration) {
+            ECSConfiguration configuration,
+            TaskStateTracker taskStates) {
         this.taskDefRegistrations = taskDefReistrations;
         this.ecsScheduler = ecsScheduler;
         this.schedulerBackend = schedulerBackend;
         this.configuration = configuration;
+        this.taskStates = taskStates;
     }
 
     @ManagedAsync
@@ -76,55 +86,18 @@ public class SchedulerResource {
     @Timed
     public void schedule(final String body, @Suspended final AsyncResponse response) {
         final Scheduler s = Scheduler.fromJson(body);
-        BambooServerEnvironment env = new BambooServerEnvironment() {
-            @Override
-            public String getCurrentSidekick() {
-                return s.getSidekick();
-            }
-
-            @Override
-            public String getBambooBaseUrl() {
-                return s.getBambooServer();
-            }
-
-            @Override
-            public String getECSTaskRoleARN() {
-                return s.getTaskARN();
-            }
-
-            @Override
-            public List<HostFolderMapping> getHostFolderMappings() {
-                return s.getHostFolderMappings();
-            }
-        };
-        int revision = taskDefRegistrations.findTaskRegistrationVersion(s.getConfiguration(), env);
-        if (revision == -1) {
-            try {
-                revision = taskDefRegistrations.registerDockerImage(s.getConfiguration(), env);
-            } catch (ECSException ex) {
-                // Have to catch some of the exceptions here instead of the callback to use retries.
-                if (ex.getCause() instanceof ClientException
-                        && ex.getMessage()
-                                .contains(
-                                        "Too many concurrent attempts to create a new revision of the specified family")) {
-                    IsolatedDockerAgentResult toRet = new IsolatedDockerAgentResult();
-                    toRet.withRetryRecoverable("Hit Api limit for task revisions.");
-                    response.resume(toRet);
-                } else {
-                    response.resume(ex);
-                }
-                return;
+        int revision;
+        try {
+            revision = findOrRegisterRevision(s);
+        } catch (ECSException ex) {
+            // Have to catch some of the exceptions here instead of the callback to use retries.
+            if (isRevisionLimitHit(ex)) {
+                response.resume(revisionLimitResult());
+            } else {
+                response.resume(ex);
             }
+            return;
         }
-        SchedulingRequest request = new SchedulingRequest(
-                UUID.fromString(s.getUuid()),
-                s.getResultId(),
-                revision,
-                s.getConfiguration().getCPUTotal(configuration.getSizeDescriptor()),
-                s.getConfiguration().getMemoryTotal(configuration.getSizeDescriptor()),
-                s.getConfiguration(),
-                s.getQueueTimestamp(),
-                s.getBuildKey());
         DefaultSchedulingCallback dsc = new DefaultSchedulingCallback(
                 new IsolatedDockerRequestCallback() {
                     @Override
@@ -138,7 +111,7 @@ public class SchedulerResource {
                     }
                 },
                 s.getResultId());
-        ecsScheduler.schedule(request, dsc);
+        ecsScheduler.schedule(createRequest(s, revision), dsc);
         /* ^^ TODO: Dropwizard will :
         Once sayHello has returned, Jersey takes the Scheduler instance and looks for a provider class which can
         write Scheduler instances as application/json. Dropwizard has one such provider built in which allows for
@@ -147,6 +120,36 @@ public class SchedulerResource {
          */
     }
 
+    /**
+     * Schedule an array of requests together, responding with an array of results in the same order
+     * once all of them are known.
+     */
+    @ManagedAsync
+    @POST
+    @Path("batch")
+    @Timed
+    public void scheduleBatch(final String body, @Suspended final AsyncResponse response) {
+        final List<Scheduler> batch = Scheduler.listFromJson(body);
+        BatchResults results = new BatchResults(batch.size(), response);
+        List<Pair<SchedulingRequest, SchedulingCallback>> requests = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Scheduler s = batch.get(i);
+            IsolatedDockerRequestCallback callback = results.callback(i, s.getUuid());
+            try {
+                int revision = findOrRegisterRevision(s);
+                requests.add(
+                        Pair.of(createRequest(s, revision), new DefaultSchedulingCallback(callback, s.getResultId())));
+            } catch (ECSException ex) {
+                if (isRevisionLimitHit(ex)) {
+                    callback.handle(revisionLimitResult());
+                } else {
+                    callback.handle(new IsolatedDockerAgentException(ex));
+                }
+            }
+        }
+        ecsScheduler.scheduleAll(requests);
+    }
+
     @POST
     @Path("future")
     public void postFutureReservations(final String body) {
@@ -161,8 +164,117 @@ public class SchedulerResource {
         if (arnsList == null || arnsList.isEmpty()) {
             return new ArnStoppedState[0];
         }
-        Collection<ArnStoppedState> tasks =
-                schedulerBackend.checkStoppedTasks(configuration.getCurrentCluster(), arnsList);
+        // only the tasks that the events didn't tell about are described.
+        List<String> unknown = new ArrayList<>();
+        List<ArnStoppedState> tasks = taskStates.checkStoppedTasks(arnsList, unknown);
+        if (!unknown.isEmpty()) {
+            tasks.addAll(schedulerBackend.checkStoppedTasks(configuration.getCurrentCluster(), unknown));
+        }
         return tasks.toArray(new ArnStoppedState[0]);
     }
+
+    /**
+     * The same as the GET variant, with the task arns sent as a json array so that any number of them fits.
+     */
+    @POST
+    @Path("stopped")
+    public ArnStoppedState[] postStoppedTasks(final String body) throws ECSException {
+        JsonElement arns = JsonParser.parseString(body);
+        if (!arns.isJsonArray()) {
+            throw new IllegalArgumentException("Wrong format!");
+        }
+        List<String> arnsList = new ArrayList<>();
+        arns.getAsJsonArray().forEach((JsonElement t) -> arnsList.add(t.getAsString()));
+        return getStoppedTasks(arnsList);
+    }
+
+    private int findOrRegisterRevision(Scheduler s) throws ECSException {
+        BambooServerEnvironment env = new BambooServerEnvironment() {
+            @Override
+            public String getCurrentSidekick() {
+                return s.getSidekick();
+            }
+
+            @Override
+            public String getBambooBaseUrl() {
+                return s.getBambooServer();
+            }
+
+            @Override
+            public String getECSTaskRoleARN() {
+                return s.getTaskARN();
+            }
+
+            @Override
+            public List<HostFolderMapping> getHostFolderMappings() {
+                return s.getHostFolderMappings();
+            }
+        };
+        int revision = taskDefRegistrations.findTaskRegistrationVersion(s.getConfiguration(), env);
+        if (revision == -1) {
+            revision = taskDefRegistrations.registerDockerImage(s.getConfiguration(), env);
+        }
+        return revision;
+    }
+
+    private SchedulingRequest createRequest(Scheduler s, int revision) {
+        return new SchedulingRequest(
+                UUID.fromString(s.getUuid()),
+                s.getResultId(),
+                revision,
+                s.getConfiguration().getCPUTotal(configuration.getSizeDescriptor()),
+                s.getConfiguration().getMemoryTotal(configuration.getSizeDescriptor()),
+                s.getConfiguration(),
+                s.getQueueTimestamp(),
+                s.getBuildKey());
+    }
+
+    private static boolean isRevisionLimitHit(ECSException ex) {
+        return ex.getCause() instanceof ClientException
+                && ex.getMessage()
+                        .contains("Too many concurrent attempts to create a new revision of the specified family");
+    }
+
+    private static IsolatedDockerAgentResult revisionLimitResult() {
+        return new IsolatedDockerAgentResult().withRetryRecoverable("Hit Api limit for task revisions.");
+    }
+
+    /**
+     * Collects the results of a batch, resuming the response when the last one arrives.
+     */
+    private static final class BatchResults {
+        private final SchedulerResult[] results;
+        private final AtomicInteger remaining;
+        private final AsyncResponse response;
+
+        BatchResults(int size, AsyncResponse response) {
+            this.results = new SchedulerResult[size];
+            this.remaining = new AtomicInteger(size);
+            this.response = response;
+            if (size == 0) {
+                response.resume(results);
+            }
+        }
+
+        IsolatedDockerRequestCallback callback(int index, String uuid) {
+            return new IsolatedDockerRequestCallback() {
+                @Override
+                public void handle(IsolatedDockerAgentResult result) {
+                    complete(index, new SchedulerResult(uuid, result, null));
+                }
+
+                @Override
+                public void handle(IsolatedDockerAgentException exception) {
+                    complete(index, new SchedulerResult(uuid, null, exception.getMessage()));
+                }
+            };
+        }
+
+        private void complete(int index, SchedulerResult result) {
+            results[index] = result;
+            if (remaining.decrementAndGet() == 0) {
+                response.resume(results);
+            }
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlassian.buildeng.ecs.resources;
+
+import com.amazonaws.services.ecs.model.Task;
+import com.atlassian.buildeng.ecs.api.TaskStateChange;
+import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
+import com.atlassian.buildeng.ecs.scheduling.TaskStateTracker;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Receives the ECS task state change events, eg. from an EventBridge rule with an api destination.
+ * The api destination has to send the shared secret in the {@link #SECRET_HEADER} header (API key authorization),
+ * without a secret configured all events are rejected.
+ */
+@Path("/rest/events")
+@Consumes(MediaType.APPLICATION_JSON)
+public class TaskEventsResource {
+    public static final String EVENTS_SECRET = "ECS_EVENTS_SECRET";
+    static final String SECRET_HEADER = "X-Events-Secret";
+
+    private final TaskStateTracker taskStates;
+    private final ECSConfiguration configuration;
+    private final String secret;
+
+    @Inject
+    public TaskEventsResource(
+            TaskStateTracker taskStates, ECSConfiguration configuration, @Named(EVENTS_SECRET) String secret) {
+        this.taskStates = taskStates;
+        this.configuration = configuration;
+        this.secret = secret;
+    }
+
+    @POST
+    @Path("tasks")
+    public Response taskStateChanged(@HeaderParam(SECRET_HEADER) String providedSecret, final String body) {
+        if (!authorized(providedSecret)) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+        String cluster = configuration.getCurrentCluster();
+        TaskStateChange.fromJson(body).stream()
+                .filter((Task t) -> inCluster(t.getClusterArn(), cluster))
+                .forEach(taskStates::update);
+        return Response.noContent().build();
+    }
+
+    private boolean authorized(String providedSecret) {
+        return StringUtils.isNotBlank(secret)
+                && providedSecret != null
+                && MessageDigest.isEqual(
+                        secret.getBytes(StandardCharsets.UTF_8), providedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // the rule can forward events of other clusters as well.
+    private static boolean inCluster(String clusterArn, String cluster) {
+        return clusterArn == null || clusterArn.equals(cluster) || clusterArn.endsWith("/" + cluster);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DatadogEventPublisherTest {
+    private static final String API_KEY = "test-api-key";
+
+    // stands in for the Datadog events api.
+    private HttpServer server;
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile int status = 202;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v1/events", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        gate.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void eventsSentInBackground() throws Exception {
+        DatadogEventPublisher publisher = new DatadogEventPublisher(url(), API_KEY, 10);
+        publisher.publish("first");
+        publisher.publish("second");
+        publisher.close();
+
+        assertEquals("first", nextText());
+        assertEquals("second", nextText());
+        assertEquals(0, publisher.getDropped());
+    }
+
+    @Test
+    public void fullQueueDropsEvents() throws Exception {
+        gate = new CountDownLatch(1);
+        DatadogEventPublisher publisher = new DatadogEventPublisher(url(), API_KEY, 2);
+        publisher.publish("first");
+        // the sender is now stuck on the first event, the queue fills up.
+        assertEquals("first", nextText());
+        publisher.publish("second");
+        publisher.publish("third");
+        publisher.publish("fourth");
+        assertEquals(1, publisher.getDropped());
+
+        gate.countDown();
+        publisher.close();
+        assertEquals("second", nextText());
+        assertEquals("third", nextText());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void rejectedEventsDoNotStopSending() throws Exception {
+        status = 500;
+        DatadogEventPublisher publisher = new DatadogEventPublisher(url(), API_KEY, 10);
+        publisher.publish("first");
+        assertEquals("first", nextText());
+        status = 202;
+        publisher.publish("second");
+        assertEquals("second", nextText());
+        publisher.close();
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/v1/events";
+    }
+
+    private String nextText() throws InterruptedException {
+        String body = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(body, "event not received");
+        return JsonParser.parseString(body).getAsJsonObject().get("text").getAsString();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        assertEquals("api_key=" + API_KEY, exchange.getRequestURI().getQuery());
+        try (InputStreamReader body = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            received.add(JsonParser.parseReader(body).toString());
+        }
+        try {
+            gate.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
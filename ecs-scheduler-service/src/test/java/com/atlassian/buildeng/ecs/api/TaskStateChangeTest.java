@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlassian.buildeng.ecs.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.amazonaws.services.ecs.model.Task;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TaskStateChangeTest {
+
+    @Test
+    public void taskEventsRead() throws Exception {
+        List<Task> tasks = TaskStateChange.fromJson(resource("/task-state-change.json"));
+
+        assertEquals(1, tasks.size());
+        Task task = tasks.get(0);
+        assertEquals("arn:aws:ecs:us-east-1:111122223333:task/pbc/b99d40b3a4354ef6a1a3b8a3c0d5b5c1", task.getTaskArn());
+        assertEquals("arn:aws:ecs:us-east-1:111122223333:cluster/pbc", task.getClusterArn());
+        assertEquals("STOPPED", task.getLastStatus());
+        assertEquals("Task failed to start", task.getStoppedReason());
+        assertEquals(Long.valueOf(4), task.getVersion());
+        assertEquals(2, task.getContainers().size());
+        assertEquals("bamboo-agent", task.getContainers().get(0).getName());
+        assertNull(task.getContainers().get(1).getReason());
+    }
+
+    @Test
+    public void singleEventRead() {
+        List<Task> tasks = TaskStateChange.fromJson("{\"detail-type\":\"ECS Task State Change\","
+                + "\"detail\":{\"taskArn\":\"arn1\",\"lastStatus\":\"RUNNING\"}}");
+        assertEquals(1, tasks.size());
+        assertEquals("RUNNING", tasks.get(0).getLastStatus());
+    }
+
+    @Test
+    public void incompleteTaskEventRejected() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> TaskStateChange.fromJson(
+                        "{\"detail-type\":\"ECS Task State Change\",\"detail\":{\"taskArn\":\"arn1\"}}"));
+    }
+
+    private String resource(String name) throws IOException, URISyntaxException {
+        return new String(Files.readAllBytes(Paths.get(getClass().getResource(name).toURI())), StandardCharsets.UTF_8);
+    }
+}
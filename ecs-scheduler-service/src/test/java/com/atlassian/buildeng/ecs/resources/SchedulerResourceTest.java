@@ -0,0 +1,230 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.services.ecs.model.ClientException;
+import com.amazonaws.services.ecs.model.StartTaskResult;
+import com.amazonaws.services.ecs.model.Task;
+import com.atlassian.buildeng.ecs.api.SchedulerResult;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.atlassian.buildeng.ecs.scheduling.Constants;
+import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
+import com.atlassian.buildeng.ecs.scheduling.ECSScheduler;
+import com.atlassian.buildeng.ecs.scheduling.SchedulerBackend;
+import com.atlassian.buildeng.ecs.scheduling.SchedulingCallback;
+import com.atlassian.buildeng.ecs.scheduling.SchedulingRequest;
+import com.atlassian.buildeng.ecs.scheduling.SchedulingResult;
+import com.atlassian.buildeng.ecs.scheduling.TaskDefinitionRegistrations;
+import com.atlassian.buildeng.ecs.scheduling.TaskStateTracker;
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationPersistence;
+import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.ws.rs.container.AsyncResponse;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SchedulerResourceTest {
+    // images deciding how the mocked registrations behave.
+    private static final String REGISTERED = "registered";
+    private static final String UNREGISTERED = "unregistered";
+    private static final String BROKEN = "broken";
+    private static final String REVISION_LIMIT = "revision-limit";
+
+    @Mock
+    private TaskDefinitionRegistrations registrations;
+
+    @Mock
+    private ECSScheduler ecsScheduler;
+
+    @Mock
+    private ECSConfiguration configuration;
+
+    @Mock
+    private AsyncResponse response;
+
+    private SchedulerResource resource;
+    private final List<List<Pair<SchedulingRequest, SchedulingCallback>>> scheduled = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws ECSException {
+        Mockito.lenient().when(configuration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        Mockito.lenient()
+                .when(registrations.findTaskRegistrationVersion(any(), any()))
+                .thenAnswer(invocation -> REGISTERED.equals(dockerImage(invocation)) ? 1 : -1);
+        Mockito.lenient().when(registrations.registerDockerImage(any(), any())).thenAnswer(invocation -> {
+            String image = dockerImage(invocation);
+            if (BROKEN.equals(image)) {
+                throw new ECSException("registration failed");
+            }
+            if (REVISION_LIMIT.equals(image)) {
+                throw new ECSException(new ClientException(
+                        "Too many concurrent attempts to create a new revision of the specified family"));
+            }
+            return 2;
+        });
+        Mockito.lenient()
+                .doAnswer(invocation -> {
+                    scheduled.add(invocation.getArgument(0));
+                    return null;
+                })
+                .when(ecsScheduler)
+                .scheduleAll(anyList());
+        resource = new SchedulerResource(
+                registrations, ecsScheduler, mock(SchedulerBackend.class), configuration, new TaskStateTracker());
+    }
+
+    @Test
+    public void resultsInRequestOrder() {
+        resource.scheduleBatch(batch(REGISTERED, UNREGISTERED, REGISTERED), response);
+        assertEquals(1, scheduled.size());
+        List<Pair<SchedulingRequest, SchedulingCallback>> requests = scheduled.get(0);
+        assertEquals(3, requests.size());
+        assertEquals(1, requests.get(0).getLeft().getRevision());
+        assertEquals(2, requests.get(1).getLeft().getRevision());
+        verify(response, never()).resume(any(Object.class));
+
+        // placements complete in a different order than requested.
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            place(requests.get(i));
+        }
+
+        SchedulerResult[] results = resumed();
+        assertEquals(3, results.length);
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(uuid(i), results[i].getUuid());
+            assertNull(results[i].getError());
+            assertEquals(
+                    "task-" + uuid(i), results[i].getResult().getCustomResultData().get(Constants.RESULT_PART_TASKARN));
+        }
+    }
+
+    @Test
+    public void registrationFailuresMixedWithPlacements() {
+        resource.scheduleBatch(batch(BROKEN, REGISTERED, REVISION_LIMIT), response);
+        List<Pair<SchedulingRequest, SchedulingCallback>> requests = scheduled.get(0);
+        // only the registered one reaches the scheduler.
+        assertEquals(1, requests.size());
+        assertEquals(UUID.fromString(uuid(1)), requests.get(0).getLeft().getIdentifier());
+        verify(response, never()).resume(any(Object.class));
+
+        place(requests.get(0));
+
+        SchedulerResult[] results = resumed();
+        assertNull(results[0].getResult());
+        assertTrue(results[0].getError().contains("registration failed"));
+        assertNotNull(results[1].getResult());
+        assertNull(results[1].getError());
+        // the revision limit is retried later, not an error.
+        assertTrue(results[2].getResult().isRetryRecoverable());
+        assertNull(results[2].getError());
+    }
+
+    @Test
+    public void batchOfFailuresOnly() {
+        resource.scheduleBatch(batch(BROKEN, REVISION_LIMIT), response);
+        assertTrue(scheduled.get(0).isEmpty());
+        SchedulerResult[] results = resumed();
+        assertEquals(2, results.length);
+        assertNotNull(results[0].getError());
+        assertTrue(results[1].getResult().isRetryRecoverable());
+    }
+
+    @Test
+    public void emptyBatch() {
+        resource.scheduleBatch("[]", response);
+        assertEquals(0, resumed().length);
+        assertTrue(scheduled.get(0).isEmpty());
+    }
+
+    @Test
+    public void schedulingFailureReported() {
+        resource.scheduleBatch(batch(REGISTERED), response);
+        scheduled.get(0).get(0).getRight().handle(new ECSException("no capacity"));
+        SchedulerResult[] results = resumed();
+        assertTrue(results[0].getResult().isRetryRecoverable());
+    }
+
+    @Test
+    public void notAnArrayRejected() {
+        assertThrows(IllegalArgumentException.class, () -> resource.scheduleBatch("{}", response));
+        verify(ecsScheduler, never()).scheduleAll(anyList());
+    }
+
+    private SchedulerResult[] resumed() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(response, times(1)).resume(captor.capture());
+        verify(response, never()).resume(any(Throwable.class));
+        return (SchedulerResult[]) captor.getValue();
+    }
+
+    private static void place(Pair<SchedulingRequest, SchedulingCallback> request) {
+        String uuid = request.getLeft().getIdentifier().toString();
+        request.getRight()
+                .handle(new SchedulingResult(
+                        new StartTaskResult().withTasks(new Task().withTaskArn("task-" + uuid)), "ci", "ec2"));
+    }
+
+    private static String batch(String... images) {
+        JsonArray arr = new JsonArray();
+        for (int i = 0; i < images.length; i++) {
+            JsonObject request = new JsonObject();
+            request.addProperty("uuid", uuid(i));
+            request.addProperty("resultId", "PLAN-JOB-" + i);
+            request.addProperty("bambooServer", "http://bamboo");
+            request.addProperty("sidekick", "sidekick");
+            request.add(
+                    "configuration",
+                    ConfigurationPersistence.toJson(ConfigurationBuilder.create(images[i]).build()));
+            arr.add(request);
+        }
+        return arr.toString();
+    }
+
+    private static String dockerImage(InvocationOnMock invocation) {
+        return invocation.<Configuration>getArgument(0).getDockerImage();
+    }
+
+    private static String uuid(int index) {
+        return new UUID(0, index).toString();
+    }
+}
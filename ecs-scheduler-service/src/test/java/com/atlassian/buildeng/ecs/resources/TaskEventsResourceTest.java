@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.buildeng.ecs.scheduling.ECSConfiguration;
+import com.atlassian.buildeng.ecs.scheduling.TaskStateTracker;
+import java.util.ArrayList;
+import java.util.Collections;
+import javax.ws.rs.core.Response;
+import org.junit.jupiter.api.Test;
+
+public class TaskEventsResourceTest {
+    private static final String STOPPED_EVENT = "{\"detail-type\":\"ECS Task State Change\","
+            + "\"detail\":{\"taskArn\":\"arn1\",\"lastStatus\":\"STOPPED\",\"clusterArn\":\"cluster\"}}";
+
+    private final TaskStateTracker tracker = new TaskStateTracker();
+
+    @Test
+    public void eventWithSecretAccepted() {
+        Response response = resource("secret").taskStateChanged("secret", STOPPED_EVENT);
+        assertEquals(Response.Status.NO_CONTENT.getStatusCode(), response.getStatus());
+        assertEquals(1, stopped());
+    }
+
+    @Test
+    public void eventWithWrongSecretRejected() {
+        Response response = resource("secret").taskStateChanged("other", STOPPED_EVENT);
+        assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(), response.getStatus());
+        assertEquals(0, stopped());
+    }
+
+    @Test
+    public void eventWithoutSecretRejected() {
+        Response response = resource("secret").taskStateChanged(null, STOPPED_EVENT);
+        assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(), response.getStatus());
+        assertEquals(0, stopped());
+    }
+
+    @Test
+    public void allEventsRejectedWithoutConfiguredSecret() {
+        Response response = resource("").taskStateChanged("", STOPPED_EVENT);
+        assertEquals(Response.Status.UNAUTHORIZED.getStatusCode(), response.getStatus());
+        assertEquals(0, stopped());
+    }
+
+    private TaskEventsResource resource(String secret) {
+        ECSConfiguration configuration = mock(ECSConfiguration.class);
+        when(configuration.getCurrentCluster()).thenReturn("cluster");
+        return new TaskEventsResource(tracker, configuration, secret);
+    }
+
+    private int stopped() {
+        return tracker.checkStoppedTasks(Collections.singletonList("arn1"), new ArrayList<>())
+                .size();
+    }
+}
@@ -54,6 +54,8 @@ import com.amazonaws.services.ecs.model.TaskOverride;
 import com.amazonaws.services.ecs.model.UpdateContainerInstancesStateRequest;
 import com.atlassian.buildeng.ecs.exceptions.ECSException;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -63,39 +65,66 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 
 /**
  * class encapsulating all AWS interaction for the CyclingECSScheduler.
  */
-public class AWSSchedulerBackend implements SchedulerBackend {
+@Singleton
+public class AWSSchedulerBackend implements SchedulerBackend, DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(AWSSchedulerBackend.class);
     private final Map<String, Instance> cachedInstances = new HashMap<>();
+    // a stopped task never runs again, its state is only described once.
+    private final Cache<String, ArnStoppedState> stoppedTasks = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_STOPPED_TASKS_CACHED)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+    // runs the describe calls of a single request concurrently.
+    private final ExecutorService awsCalls = AwsCalls.newExecutor();
 
     // there seems to be a limit of 100 to the tasks that can be described in a batch
     private static final int MAXIMUM_TASKS_TO_DESCRIBE = 90;
+    private static final int MAXIMUM_STOPPED_TASKS_CACHED = 20000;
+    // instances described by a single call, the calls run concurrently
+    private static final int MAXIMUM_INSTANCES_TO_DESCRIBE = 100;
 
     @Inject
     public AWSSchedulerBackend() {}
 
+    @Override
+    public void destroy() throws Exception {
+        awsCalls.shutdownNow();
+    }
+
     @Override
     public List<ContainerInstance> getClusterContainerInstances(String cluster) throws ECSException {
         try {
             AmazonECS ecsClient = AmazonECSClientBuilder.defaultClient();
             ListContainerInstancesRequest listReq = new ListContainerInstancesRequest().withCluster(cluster);
 
-            // Get containerInstanceArns
+            // describe each page of containerInstanceArns while listing the next one
+            List<CompletableFuture<List<ContainerInstance>>> described = new ArrayList<>();
             boolean finished = false;
-            List<String> containerInstanceArns = new ArrayList<>();
             while (!finished) {
-                ListContainerInstancesResult listContainerInstancesResult = ecsClient.listContainerInstances(listReq);
-                containerInstanceArns.addAll(listContainerInstancesResult.getContainerInstanceArns());
+                ListContainerInstancesResult listContainerInstancesResult =
+                        AwsCalls.call("ecs:ListContainerInstances", () -> ecsClient.listContainerInstances(listReq));
+                for (List<String> t : Lists.partition(listContainerInstancesResult.getContainerInstanceArns(), 99)) {
+                    DescribeContainerInstancesRequest describeReq = new DescribeContainerInstancesRequest()
+                            .withCluster(cluster)
+                            .withContainerInstances(t);
+                    described.add(AwsCalls.async(awsCalls, () -> describeContainerInstances(ecsClient, describeReq)));
+                }
                 String nextToken = listContainerInstancesResult.getNextToken();
                 if (nextToken == null) {
                     finished = true;
@@ -103,24 +132,18 @@ public class AWSSchedulerBackend implements SchedulerBackend {
                     listReq.setNextToken(nextToken);
                 }
             }
-
-            if (containerInstanceArns.isEmpty()) {
-                return Collections.emptyList();
-            } else {
-                return Lists.partition(containerInstanceArns, 99).stream()
-                        .flatMap((List<String> t) -> {
-                            DescribeContainerInstancesRequest describeReq = new DescribeContainerInstancesRequest()
-                                    .withCluster(cluster)
-                                    .withContainerInstances(t);
-                            return ecsClient.describeContainerInstances(describeReq).getContainerInstances().stream();
-                        })
-                        .collect(Collectors.toList());
-            }
+            return AwsCalls.joinAll(described);
         } catch (Exception ex) {
             throw new ECSException(ex);
         }
     }
 
+    private static List<ContainerInstance> describeContainerInstances(
+            AmazonECS ecsClient, DescribeContainerInstancesRequest req) {
+        return AwsCalls.call("ecs:DescribeContainerInstances", () -> ecsClient.describeContainerInstances(req))
+                .getContainerInstances();
+    }
+
     @Override
     public List<Instance> getInstances(Collection<String> instanceIds) throws ECSException {
         // if not in instanceIds, remove from cache
@@ -136,21 +159,12 @@ public class AWSSchedulerBackend implements SchedulerBackend {
         if (!misses.isEmpty()) {
             try {
                 AmazonEC2 ec2Client = AmazonEC2ClientBuilder.defaultClient();
-                DescribeInstancesRequest req = new DescribeInstancesRequest().withInstanceIds(misses);
-                boolean finished = false;
-
-                while (!finished) {
-                    DescribeInstancesResult describeInstancesResult = ec2Client.describeInstances(req);
-                    describeInstancesResult.getReservations().stream()
-                            .flatMap(t -> t.getInstances().stream())
-                            .forEach(t -> cachedInstances.put(t.getInstanceId(), t));
-                    String nextToken = describeInstancesResult.getNextToken();
-                    if (nextToken == null) {
-                        finished = true;
-                    } else {
-                        req.setNextToken(nextToken);
-                    }
-                }
+                List<CompletableFuture<List<Instance>>> described =
+                        Lists.partition(misses, MAXIMUM_INSTANCES_TO_DESCRIBE).stream()
+                                .map((List<String> t) ->
+                                        AwsCalls.async(awsCalls, () -> describeInstances(ec2Client, t)))
+                                .collect(Collectors.toList());
+                AwsCalls.joinAll(described).forEach(t -> cachedInstances.put(t.getInstanceId(), t));
             } catch (Exception ex) {
                 throw new ECSException(ex);
             }
@@ -158,6 +172,26 @@ public class AWSSchedulerBackend implements SchedulerBackend {
         return new ArrayList<>(cachedInstances.values());
     }
 
+    private static List<Instance> describeInstances(AmazonEC2 ec2Client, List<String> instanceIds) {
+        DescribeInstancesRequest req = new DescribeInstancesRequest().withInstanceIds(instanceIds);
+        List<Instance> instances = new ArrayList<>();
+        boolean finished = false;
+        while (!finished) {
+            DescribeInstancesResult describeInstancesResult =
+                    AwsCalls.call("ec2:DescribeInstances", () -> ec2Client.describeInstances(req));
+            describeInstancesResult.getReservations().stream()
+                    .flatMap(t -> t.getInstances().stream())
+                    .forEach(instances::add);
+            String nextToken = describeInstancesResult.getNextToken();
+            if (nextToken == null) {
+                finished = true;
+            } else {
+                req.setNextToken(nextToken);
+            }
+        }
+        return instances;
+    }
+
     @Override
     public void scaleTo(int desiredCapacity, String autoScalingGroup) throws ECSException {
         logger.info("Scaling to capacity: {} in ASG: {}", desiredCapacity, autoScalingGroup);
@@ -361,23 +395,22 @@ public class AWSSchedulerBackend implements SchedulerBackend {
 
     @Override
     public Collection<ArnStoppedState> checkStoppedTasks(String cluster, List<String> taskArns) throws ECSException {
-        AmazonECS ecsClient = AmazonECSClientBuilder.defaultClient();
-        try {
-            final List<ArnStoppedState> toRet = new ArrayList<>();
-            List<List<String>> partitioned = Lists.partition(taskArns, MAXIMUM_TASKS_TO_DESCRIBE);
-            for (List<String> batch : partitioned) {
-                DescribeTasksResult res = ecsClient.describeTasks(
-                        new DescribeTasksRequest().withCluster(cluster).withTasks(batch));
-                res.getTasks().forEach((Task t) -> {
-                    if ("STOPPED".equals(t.getLastStatus())) {
-                        toRet.add(new ArnStoppedState(t.getTaskArn(), t.getContainerInstanceArn(), getError(t)));
-                    }
-                });
-                res.getFailures().forEach((Failure t) -> {
-                    // for missing items it's MISSING. do we convert to user level explanatory string?
-                    toRet.add(new ArnStoppedState(t.getArn(), "unknown", t.getReason()));
-                });
+        final List<ArnStoppedState> toRet = new ArrayList<>();
+        final List<String> unknown = new ArrayList<>();
+        taskArns.forEach((String t) -> {
+            ArnStoppedState stopped = stoppedTasks.getIfPresent(t);
+            if (stopped != null) {
+                toRet.add(stopped);
+            } else {
+                unknown.add(t);
             }
+        });
+        if (unknown.isEmpty()) {
+            return toRet;
+        }
+        try {
+            AmazonECS ecsClient = AmazonECSClientBuilder.defaultClient();
+            toRet.addAll(describeStoppedTasks(ecsClient, cluster, unknown));
             return toRet;
         } catch (Exception ex) {
             if (ex instanceof ECSException) {
@@ -388,7 +421,34 @@ public class AWSSchedulerBackend implements SchedulerBackend {
         }
     }
 
-    private String getError(Task tsk) {
+    List<ArnStoppedState> describeStoppedTasks(AmazonECS ecsClient, String cluster, List<String> taskArns) {
+        List<CompletableFuture<List<ArnStoppedState>>> described =
+                Lists.partition(taskArns, MAXIMUM_TASKS_TO_DESCRIBE).stream()
+                        .map((List<String> t) -> AwsCalls.async(awsCalls, () -> describeTasks(ecsClient, cluster, t)))
+                        .collect(Collectors.toList());
+        return AwsCalls.joinAll(described);
+    }
+
+    private List<ArnStoppedState> describeTasks(AmazonECS ecsClient, String cluster, List<String> taskArns) {
+        DescribeTasksRequest req = new DescribeTasksRequest().withCluster(cluster).withTasks(taskArns);
+        DescribeTasksResult res = AwsCalls.call("ecs:DescribeTasks", () -> ecsClient.describeTasks(req));
+        List<ArnStoppedState> toRet = new ArrayList<>();
+        res.getTasks().forEach((Task t) -> {
+            if ("STOPPED".equals(t.getLastStatus())) {
+                ArnStoppedState stopped = new ArnStoppedState(t.getTaskArn(), t.getContainerInstanceArn(), getError(t));
+                stoppedTasks.put(t.getTaskArn(), stopped);
+                toRet.add(stopped);
+            }
+        });
+        res.getFailures().forEach((Failure t) -> {
+            // for missing items it's MISSING. do we convert to user level explanatory string?
+            // not cached, a task that was just started can be missing for a moment.
+            toRet.add(new ArnStoppedState(t.getArn(), "unknown", t.getReason()));
+        });
+        return toRet;
+    }
+
+    static String getError(Task tsk) {
         StringBuilder sb = new StringBuilder();
         sb.append(tsk.getStoppedReason()).append(":");
         tsk.getContainers().stream()
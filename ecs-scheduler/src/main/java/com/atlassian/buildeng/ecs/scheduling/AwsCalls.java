@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.amazonaws.SdkBaseException;
+import com.amazonaws.retry.RetryUtils;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the duration of AWS calls and retries the throttled ones. Also creates the bounded pool that runs
+ * the describe calls of a single scheduling cycle concurrently, the backend owning it shuts it down.
+ * The client's own retries give up after a few quick attempts. The concurrent calls share the account's request
+ * rate though, so a throttled call is retried here again after a randomized, exponentially growing delay.
+ */
+final class AwsCalls {
+    private static final Logger logger = LoggerFactory.getLogger(AwsCalls.class);
+
+    static final int MAX_ATTEMPTS = 5;
+    static final Duration BASE_DELAY = Duration.ofMillis(200);
+    static final Duration MAX_DELAY = Duration.ofSeconds(5);
+
+    private static final int CONCURRENCY = 8;
+
+    private AwsCalls() {}
+
+    /**
+     * a new pool for the concurrent calls, to be shut down by the caller.
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newFixedThreadPool(
+                CONCURRENCY,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("pbc-aws-calls-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    /**
+     * invoke the call, recording its duration and retrying when AWS throttled it.
+     */
+    static <T> T call(String operation, Supplier<T> call) {
+        return call(operation, call, MAX_ATTEMPTS, BASE_DELAY);
+    }
+
+    static <T> T call(String operation, Supplier<T> call, int maxAttempts, Duration baseDelay) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                T result = call.get();
+                PbcMetrics.awsCall(operation).observeSince(start);
+                return result;
+            } catch (SdkBaseException e) {
+                PbcMetrics.awsCall(operation).observeSince(start);
+                if (attempt >= maxAttempts || !RetryUtils.isThrottlingException(e)) {
+                    throw e;
+                }
+                PbcMetrics.awsThrottled(operation).inc();
+                long cap = Math.min(MAX_DELAY.toMillis(), baseDelay.toMillis() << (attempt - 1));
+                long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+                logger.debug("{} throttled, retrying in {}ms", operation, delay);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * run the calls on the given pool.
+     */
+    static <T> CompletableFuture<T> async(ExecutorService executor, Supplier<T> calls) {
+        return CompletableFuture.supplyAsync(calls, executor);
+    }
+
+    /**
+     * wait for all the calls and concatenate their results, rethrowing the failure of any of them.
+     */
+    static <T> List<T> joinAll(List<CompletableFuture<List<T>>> calls) {
+        List<T> result = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> call : calls) {
+                result.addAll(call.join());
+            }
+        } catch (CompletionException e) {
+            calls.forEach(t -> t.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.google.common.annotations.VisibleForTesting;
+import java.time.Duration;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the cluster model between scheduling batches instead of loading it from AWS every time.
+ * The scheduler reduces the remaining resources of the hosts it places tasks on and the model updater
+ * marks the hosts it terminates, so the kept model stays correct except for tasks that finished and instances
+ * that joined the cluster in the meantime. It thus only ever underestimates the free capacity,
+ * the scheduler does a full {@link #reload} before turning requests down, everything else gets reconciled
+ * with AWS every {@link #RECONCILIATION_INTERVAL}.
+ */
+public final class CachingModelLoader implements ModelLoader {
+    private static final Logger logger = LoggerFactory.getLogger(CachingModelLoader.class);
+
+    static final Duration RECONCILIATION_INTERVAL = Duration.ofMinutes(1);
+
+    private final ModelLoader delegate;
+    private final Duration reconciliationInterval;
+
+    private DockerHosts cached;
+    private String cachedCluster;
+    private String cachedAsg;
+    private long loadedAt;
+
+    @Inject
+    public CachingModelLoader(AwsPullModelLoader delegate) {
+        this(delegate, RECONCILIATION_INTERVAL);
+    }
+
+    @VisibleForTesting
+    CachingModelLoader(ModelLoader delegate, Duration reconciliationInterval) {
+        this.delegate = delegate;
+        this.reconciliationInterval = reconciliationInterval;
+    }
+
+    @Override
+    public synchronized DockerHosts load(String clusterName, String asgName) throws ECSException {
+        if (cached == null
+                || !clusterName.equals(cachedCluster)
+                || !asgName.equals(cachedAsg)
+                || System.currentTimeMillis() - loadedAt >= reconciliationInterval.toMillis()) {
+            return reload(clusterName, asgName);
+        }
+        cached = cached.refreshed();
+        return cached;
+    }
+
+    @Override
+    public synchronized DockerHosts reload(String clusterName, String asgName) throws ECSException {
+        // on failure the next load goes to AWS again
+        cached = null;
+        DockerHosts hosts = delegate.load(clusterName, asgName);
+        logger.debug("Reloaded model of cluster {} with {} usable hosts", clusterName, hosts.getUsableSize());
+        cached = hosts;
+        cachedCluster = clusterName;
+        cachedAsg = asgName;
+        loadedAt = System.currentTimeMillis();
+        return hosts;
+    }
+}
@@ -54,6 +54,26 @@ public interface Constants {
      */
     String PROPERTY_DRAIN_DISCONNECTED = "pbc.instance.termination.policy.draining";
 
+    /**
+     * System property to place all the requests queued for a scheduling batch largest first
+     * (best fit decreasing) rather than one by one in the order they arrived.
+     * Leaves less capacity stranded on partially used instances and so scales up less.
+     */
+    String PROPERTY_BATCH_PLACEMENT = "pbc.ecs.placement.batch";
+
+    /**
+     * System property to scale up for the demand forecast from the recent and the usual arrivals at this time
+     * of day, not only after requests failed to place. Trades some idle capacity for less queueing while
+     * the instances boot.
+     */
+    String PROPERTY_PREDICTIVE_SCALING = "pbc.ecs.scaling.predictive";
+
+    /**
+     * System property to consolidate the load on fewer hosts. Tasks are packed onto the most used hosts even when
+     * demand overflows and lightly loaded hosts are drained, so that they can be terminated once their tasks finish.
+     */
+    String PROPERTY_CONSOLIDATE = "pbc.ecs.scaling.consolidate";
+
     // ECS
 
     // The name of the sidekick docker image and sidekick container
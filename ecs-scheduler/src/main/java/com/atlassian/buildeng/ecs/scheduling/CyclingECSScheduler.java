@@ -21,9 +21,13 @@ import com.atlassian.buildeng.ecs.exceptions.InstancesSmallerThanAgentException;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.google.common.annotations.VisibleForTesting;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -47,11 +51,15 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
     private long lackingCPU = 0;
     private long lackingMemory = 0;
     private final Set<UUID> consideredRequestIdentifiers = new HashSet<>();
+    // the last batch failed to start a task, the kept model may be out of date.
+    private boolean reloadModel = false;
 
     @VisibleForTesting
     final ExecutorService executor = Executors.newSingleThreadScheduledExecutor();
 
-    private final BlockingQueue<Pair<SchedulingRequest, SchedulingCallback>> requests = new LinkedBlockingQueue<>();
+    // batches are queued as one element, so that the polling thread never takes only a part of one.
+    private final BlockingQueue<List<Pair<SchedulingRequest, SchedulingCallback>>> requests =
+            new LinkedBlockingQueue<>();
 
     @VisibleForTesting
     final ConcurrentMap<String, ReserveRequest> futureReservations = new ConcurrentHashMap<>();
@@ -60,6 +68,9 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
     private final ECSConfiguration globalConfiguration;
     final ModelLoader modelLoader;
     final ModelUpdater modelUpdater;
+    private final DemandForecast demandForecast;
+    // kept over the batches, some scorers learn from the placements.
+    private final Map<HostScoring, HostScorer> scorers = new EnumMap<>(HostScoring.class);
 
     @Inject
     public CyclingECSScheduler(
@@ -67,10 +78,25 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
             ECSConfiguration globalConfiguration,
             ModelLoader modelLoader,
             ModelUpdater modelUpdater) {
+        this(
+                schedulerBackend,
+                globalConfiguration,
+                modelLoader,
+                modelUpdater,
+                new DemandForecast(System::currentTimeMillis, DemandForecast.HORIZON));
+    }
+
+    CyclingECSScheduler(
+            SchedulerBackend schedulerBackend,
+            ECSConfiguration globalConfiguration,
+            ModelLoader modelLoader,
+            ModelUpdater modelUpdater,
+            DemandForecast demandForecast) {
         this.schedulerBackend = schedulerBackend;
         this.globalConfiguration = globalConfiguration;
         this.modelLoader = modelLoader;
         this.modelUpdater = modelUpdater;
+        this.demandForecast = demandForecast;
         executor.submit(new EndlessPolling());
     }
 
@@ -78,58 +104,116 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
     // Is Nothing if there are no feasible hosts
     static Optional<DockerHost> selectHost(
             Collection<DockerHost> candidates, int requiredMemory, int requiredCpu, boolean demandOverflowing) {
-        Comparator<DockerHost> comparator = DockerHost.compareByResourcesAndAge();
-        if (demandOverflowing) {
-            // when we know that there is demand overflow, we want to spread out the
-            // scheduling, so always prefer the more empty ones. that way we keep on
-            // rotating instances until they are all full (or equally utilized)
-            comparator = comparator.reversed();
-        }
-        return candidates.stream()
-                .filter(dockerHost -> dockerHost.canRun(requiredMemory, requiredCpu))
-                .sorted(comparator)
-                .findFirst();
+        // when we know that there is demand overflow, we want to spread out the
+        // scheduling, so always prefer the more empty ones. that way we keep on
+        // rotating instances until they are all full (or equally utilized)
+        return new HostIndex(candidates).select(requiredMemory, requiredCpu, demandOverflowing);
+    }
+
+    /**
+     * Order requests by their bigger share of an instance's cpu or memory, largest first.
+     * Placing the hard to fit requests first keeps the small ones for the gaps that remain.
+     */
+    static Comparator<SchedulingRequest> largestFirst(Collection<DockerHost> hosts) {
+        double memory = hosts.stream()
+                .mapToInt(DockerHost::getRegisteredMemory)
+                .max()
+                .orElse(ECSInstance.DEFAULT_INSTANCE.getMemory());
+        double cpu = hosts.stream()
+                .mapToInt(DockerHost::getRegisteredCpu)
+                .max()
+                .orElse(ECSInstance.DEFAULT_INSTANCE.getCpu());
+        return Comparator.comparingDouble(
+                        (SchedulingRequest t) -> Math.max(t.getMemory() / memory, t.getCpu() / cpu))
+                .thenComparingDouble((SchedulingRequest t) -> t.getMemory() / memory + t.getCpu() / cpu)
+                .reversed();
     }
 
     @Override
     public void schedule(SchedulingRequest request, SchedulingCallback callback) {
-        requests.add(Pair.of(request, callback));
+        requests.add(Collections.singletonList(Pair.of(request, callback)));
     }
 
-    private void processRequests(Pair<SchedulingRequest, SchedulingCallback> pair) {
-        if (pair == null) {
+    @Override
+    public void scheduleAll(List<Pair<SchedulingRequest, SchedulingCallback>> batch) {
+        if (!batch.isEmpty()) {
+            requests.add(new ArrayList<>(batch));
+        }
+    }
+
+    private void processRequests(List<Pair<SchedulingRequest, SchedulingCallback>> first) {
+        if (first == null || first.isEmpty()) {
             return;
         }
-        SchedulingRequest request = pair.getLeft();
         String cluster = globalConfiguration.getCurrentCluster();
         String asgName = globalConfiguration.getCurrentASG();
 
         DockerHosts hosts;
         try {
-            hosts = modelLoader.load(cluster, asgName);
+            hosts = reloadModel ? modelLoader.reload(cluster, asgName) : modelLoader.load(cluster, asgName);
+            reloadModel = false;
         } catch (ECSException ex) {
             // mark all futures with exception.. and let the clients wait and retry..
-            while (pair != null) {
-                pair.getRight().handle(ex);
-                pair = requests.poll();
+            List<Pair<SchedulingRequest, SchedulingCallback>> failed = first;
+            while (failed != null) {
+                failed.forEach((Pair<SchedulingRequest, SchedulingCallback> t) -> t.getRight().handle(ex));
+                failed = requests.poll();
             }
             logger.error("Cannot query cluster " + cluster + " containers", ex);
             return;
         }
+        boolean batchPlacement = Boolean.getBoolean(Constants.PROPERTY_BATCH_PLACEMENT);
+        boolean consolidate = Boolean.getBoolean(Constants.PROPERTY_CONSOLIDATE);
+        HostScoring scoring = globalConfiguration.getHostScoring();
+        // the default is looked up in the index without scoring the hosts.
+        HostScorer scorer = scoring == null || scoring == HostScoring.BEST_FIT_MEMORY
+                ? null
+                : scorers.computeIfAbsent(scoring, HostScoring::create);
+        List<Pair<SchedulingRequest, SchedulingCallback>> batch = new ArrayList<>(first);
+        if (batchPlacement) {
+            // all that is queued now gets placed largest first, anything arriving meanwhile after that.
+            List<List<Pair<SchedulingRequest, SchedulingCallback>>> queued = new ArrayList<>();
+            requests.drainTo(queued);
+            queued.forEach(batch::addAll);
+            batch.sort(Comparator.comparing(Pair::getLeft, largestFirst(hosts.fresh())));
+        }
+        Iterator<Pair<SchedulingRequest, SchedulingCallback>> pending = batch.iterator();
+        Pair<SchedulingRequest, SchedulingCallback> pair = pending.next();
+        SchedulingRequest request = pair.getLeft();
+        PlacementReport report = new PlacementReport(batchPlacement);
+        // the hosts get reordered in place as tasks are placed on them, no sorting per request.
+        HostIndex candidates = new HostIndex(hosts.fresh());
         boolean someDiscarded = false;
         while (pair != null) {
             try {
                 logger.debug("Processing request for {}", request);
-                Optional<DockerHost> candidate = selectHost(
-                        hosts.fresh(), request.getMemory(), request.getCpu(), !consideredRequestIdentifiers.isEmpty());
+                demandForecast.arrived(request);
+                // with consolidation the lightly loaded hosts are to empty out, not to get the spread work.
+                boolean spread = !consolidate && !consideredRequestIdentifiers.isEmpty();
+                Optional<DockerHost> candidate = select(candidates, request, scorer, spread);
+                if (!candidate.isPresent() && hosts.isFromCache()) {
+                    // the kept model doesn't know about finished tasks and new instances,
+                    // only reject (and scale up) based on the actual state of the cluster.
+                    DockerHosts reloaded = modelLoader.reload(cluster, asgName);
+                    reloaded.addUsedCandidates(hosts);
+                    hosts = reloaded;
+                    candidates = new HostIndex(hosts.fresh());
+                    candidate = select(candidates, request, scorer, spread);
+                }
                 if (candidate.isPresent()) {
                     unreserveFutureCapacity(request);
                     DockerHost candidateHost = candidate.get();
                     final SchedulingResult schedulingResult = schedulerBackend.schedule(
                             candidateHost, cluster, request, globalConfiguration.getTaskDefinitionName());
                     hosts.addUsedCandidate(candidateHost);
-                    candidateHost.reduceAvailableCpuBy(request.getCpu());
-                    candidateHost.reduceAvailableMemoryBy(request.getMemory());
+                    candidates.reserve(candidateHost, request.getMemory(), request.getCpu());
+                    if (scorer != null) {
+                        scorer.placed(candidateHost, request);
+                    }
+                    report.placed(candidateHost);
+                    if (!schedulingResult.getStartTaskResult().getFailures().isEmpty()) {
+                        reloadModel = true;
+                    }
                     pair.getRight().handle(schedulingResult);
                     lackingCPU = Math.max(0, lackingCPU - request.getCpu());
                     lackingMemory = Math.max(0, lackingMemory - request.getMemory());
@@ -145,6 +229,7 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                         lackingMemory = 0;
                     }
                 } else {
+                    report.rejected();
                     if (!fitsOnAny(hosts.fresh(), request.getMemory())) {
                         // anything that wants to prevert rescheduling here needs changes in DefaultSchedulingCallback
                         // as well
@@ -163,24 +248,60 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                 }
             } catch (ECSException ex) {
                 logger.error("Scheduling failed", ex);
+                reloadModel = true;
+                report.rejected();
                 pair.getRight().handle(ex);
             }
-            pair = requests.poll();
+            if (!pending.hasNext()) {
+                List<Pair<SchedulingRequest, SchedulingCallback>> next = requests.poll();
+                if (next != null) {
+                    pending = next.iterator();
+                }
+            }
+            pair = pending.hasNext() ? pending.next() : null;
             if (pair != null) {
                 request = pair.getLeft();
             }
         }
-        Pair<Long, Long> sum = sumOfFutureReservations();
+        report.complete(
+                hosts.fresh(),
+                globalConfiguration.getSizeDescriptor().getMemory(Configuration.ContainerSize.SMALL),
+                globalConfiguration.getSizeDescriptor().getCpu(Configuration.ContainerSize.SMALL));
+        Pair<Long, Long> sum = expectedDemand();
+        if (hosts.isFromCache() && exceedsFreeCapacity(hosts.fresh(), sum)) {
+            // the kept model misses the tasks finished since, only scale up ahead for what the actual cluster lacks.
+            try {
+                DockerHosts reloaded = modelLoader.reload(cluster, asgName);
+                reloaded.addUsedCandidates(hosts);
+                hosts = reloaded;
+            } catch (ECSException ex) {
+                logger.error("Cannot query cluster " + cluster + " containers", ex);
+            }
+        }
         modelUpdater.updateModel(
                 hosts, new ModelUpdater.State(lackingCPU, lackingMemory, someDiscarded, sum.getLeft(), sum.getRight()));
     }
 
+    private static boolean exceedsFreeCapacity(List<DockerHost> fresh, Pair<Long, Long> demand) {
+        long freeMemory = fresh.stream().mapToLong(DockerHost::getRemainingMemory).sum();
+        long freeCpu = fresh.stream().mapToLong(DockerHost::getRemainingCpu).sum();
+        return freeMemory < demand.getLeft() || freeCpu < demand.getRight();
+    }
+
+    private static Optional<DockerHost> select(
+            HostIndex candidates, SchedulingRequest request, HostScorer scorer, boolean spread) {
+        return scorer == null
+                ? candidates.select(request.getMemory(), request.getCpu(), spread)
+                : candidates.select(request, scorer);
+    }
+
     private void checkScaleDown() {
         try {
             String asgName = globalConfiguration.getCurrentASG();
             String cluster = globalConfiguration.getCurrentCluster();
-            DockerHosts hosts = modelLoader.load(cluster, asgName);
-            Pair<Long, Long> sum = sumOfFutureReservations();
+            // terminating needs to know what is really running nothing.
+            DockerHosts hosts = modelLoader.reload(cluster, asgName);
+            Pair<Long, Long> sum = expectedDemand();
             modelUpdater.scaleDown(hosts, new ModelUpdater.State(sum.getLeft(), sum.getRight()));
         } catch (ECSException ex) {
             logger.error("Failed to scale down", ex);
@@ -273,6 +394,25 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
                         .sum());
     }
 
+    /**
+     * The future reservations, with predictive scaling the demand forecast for the next minutes when it's higher.
+     * The reservations are for builds expected to arrive anyway, adding them to the forecast would count them twice.
+     *
+     * @return pair of memory, cpu
+     */
+    private Pair<Long, Long> expectedDemand() {
+        Pair<Long, Long> reserved = sumOfFutureReservations();
+        if (!Boolean.getBoolean(Constants.PROPERTY_PREDICTIVE_SCALING)) {
+            return reserved;
+        }
+        Pair<Long, Long> forecast = demandForecast.forecast();
+        if (forecast.getLeft() > reserved.getLeft() || forecast.getRight() > reserved.getRight()) {
+            logger.debug("Forecast demand memory:{} cpu:{}", forecast.getLeft(), forecast.getRight());
+        }
+        return Pair.of(
+                Math.max(reserved.getLeft(), forecast.getLeft()), Math.max(reserved.getRight(), forecast.getRight()));
+    }
+
     private class EndlessPolling implements Runnable {
 
         public EndlessPolling() {}
@@ -280,10 +420,10 @@ public class CyclingECSScheduler implements ECSScheduler, DisposableBean {
         @Override
         public void run() {
             try {
-                Pair<SchedulingRequest, SchedulingCallback> pair =
+                List<Pair<SchedulingRequest, SchedulingCallback>> queued =
                         requests.poll(Constants.POLLING_INTERVAL, TimeUnit.MINUTES);
-                if (pair != null) {
-                    processRequests(pair);
+                if (queued != null) {
+                    processRequests(queued);
                 } else {
                     checkScaleDown();
                 }
@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -45,6 +46,12 @@ public class DefaultModelUpdater implements ModelUpdater {
     // of course somewhat bigger bill ensues
     private static final double SCALE_DOWN_FREE_CAP_MIN = 0.30;
 
+    // with consolidation fresh hosts using no more than this share of their cpu and memory are drained,
+    // their tasks finish but no new ones are placed there and they can be terminated afterwards.
+    static final double CONSOLIDATE_UTILIZATION_MAX = 0.25;
+    // the limit of a single UpdateContainerInstancesState call.
+    private static final int MAX_TO_DRAIN = 10;
+
     // under high load there are interminent reports of agents being disconnected
     // but these recover very fast, only want to actively kill instances
     // that have disconnected agent for at least the amount given.
@@ -64,7 +71,8 @@ public class DefaultModelUpdater implements ModelUpdater {
     @Override
     public void scaleDown(DockerHosts hosts, State req) {
         terminateDisconnectedInstances(hosts);
-        terminateInstances(selectToTerminate(hosts, req), hosts.getASGName(), true, hosts.getClusterName());
+        terminateInstances(selectToTerminate(hosts, req), hosts, true);
+        consolidate(hosts, req);
     }
 
     @Override
@@ -86,11 +94,15 @@ public class DefaultModelUpdater implements ModelUpdater {
         }
         // TODO only sums up free space, but it could be just unusable tiny pieces on
         // many instance, maybe we should ignore pieces that are smaller than SMALL agent size
-        long freeMem = computeFreeCapacityMemory(hosts.allUsable());
-        long freeCpu = computeFreeCapacityCPU(hosts.allUsable());
+        // only the fresh hosts take new tasks, the free space on draining and stale ones doesn't help future demand.
+        long freeMem = computeFreeCapacityMemory(hosts.fresh());
+        long freeCpu = computeFreeCapacityCPU(hosts.fresh());
         logger.debug("freeMem:" + freeMem + " reservedMem:" + req.getFutureReservationMemory());
         logger.debug("freeCpu:" + freeCpu + " reservedCpu:" + req.getFutureReservationCPU());
-        if (freeMem < req.getFutureReservationMemory() || freeCpu < req.getFutureReservationCPU()) {
+        // a kept model misses the tasks finished since it was loaded, its free space is too low to scale up ahead.
+        // the scheduler reloads the model when the expected demand exceeds it, only a failed reload gets here.
+        if (!hosts.isFromCache()
+                && (freeMem < req.getFutureReservationMemory() || freeCpu < req.getFutureReservationCPU())) {
             long memoryRequirements =
                     1 + (req.getFutureReservationMemory() - freeMem) / computeInstanceMemoryLimits(hosts.allUsable());
             long cpuRequirements =
@@ -107,12 +119,14 @@ public class DefaultModelUpdater implements ModelUpdater {
                     + memoryRequirements);
         }
 
-        int terminatedCount =
-                terminateInstances(selectToTerminate(hosts, req), hosts.getASGName(), true, hosts.getClusterName());
+        int terminatedCount = terminateInstances(selectToTerminate(hosts, req), hosts, true);
         desiredScaleSize = desiredScaleSize - terminatedCount;
         // we are reducing the currentSize by the terminated list because that's
         // what the terminateInstances method should reduce it to.
         currentSize = currentSize - terminatedCount;
+        if (desiredScaleSize <= currentSize) {
+            consolidate(hosts, req);
+        }
         try {
             // we need to scale up while ignoring any broken containers, eg.
             // if 3 instances are borked and 2 ok, we need to scale to 6 and not 3 as the desiredScaleSize is calculated
@@ -124,6 +138,8 @@ public class DefaultModelUpdater implements ModelUpdater {
                     && desiredScaleSize > hosts.getASG().getDesiredCapacity()) {
                 // this is only meant to scale up!
                 schedulerBackend.scaleTo(desiredScaleSize, hosts.getASGName());
+                // keep the model in sync for the schedulers that reuse it.
+                hosts.getASG().setDesiredCapacity(desiredScaleSize);
             }
         } catch (ECSException ex) {
             logger.error("Scaling of " + hosts.getASGName() + " failed", ex);
@@ -157,9 +173,10 @@ public class DefaultModelUpdater implements ModelUpdater {
         }
         if (Boolean.getBoolean(Constants.PROPERTY_DRAIN_DISCONNECTED)) {
             schedulerBackend.drainInstances(selectedToKill, hosts.getClusterName());
+            hosts.markRemoved(selectedToKill);
             return 0;
         } else {
-            return terminateInstances(selectedToKill, hosts.getASGName(), false, hosts.getClusterName());
+            return terminateInstances(selectedToKill, hosts, false);
         }
     }
 
@@ -211,13 +228,64 @@ public class DefaultModelUpdater implements ModelUpdater {
         return toTerminate;
     }
 
+    private void consolidate(DockerHosts hosts, State req) {
+        if (!Boolean.getBoolean(Constants.PROPERTY_CONSOLIDATE)) {
+            return;
+        }
+        List<DockerHost> toDrain = selectToDrain(hosts, req);
+        if (!toDrain.isEmpty()) {
+            logger.info("Draining {} lightly loaded hosts: {}", toDrain.size(), toDrain);
+            schedulerBackend.drainInstances(toDrain, hosts.getClusterName());
+            hosts.markRemoved(toDrain);
+        }
+    }
+
+    /**
+     * The lightly loaded hosts to drain, least loaded first, as long as the hosts that stay
+     * keep the free capacity ratio scaling down keeps.
+     */
+    List<DockerHost> selectToDrain(DockerHosts hosts, State req) {
+        // the unused ones get terminated at the end of their billing cycle, they don't count.
+        List<DockerHost> staying = new ArrayList<>(hosts.fresh());
+        staying.removeAll(hosts.unusedFresh());
+        List<DockerHost> candidates = staying.stream()
+                .filter((DockerHost t) -> !t.runningNothing())
+                .filter((DockerHost t) -> utilization(t) <= CONSOLIDATE_UTILIZATION_MAX)
+                .sorted(Comparator.comparingDouble(DefaultModelUpdater::utilization))
+                .collect(Collectors.toList());
+        List<DockerHost> toDrain = new ArrayList<>();
+        for (DockerHost candidate : candidates) {
+            if (toDrain.size() >= MAX_TO_DRAIN) {
+                break;
+            }
+            staying.remove(candidate);
+            if (staying.isEmpty() || freeRatio(staying, req) < SCALE_DOWN_FREE_CAP_MIN) {
+                break;
+            }
+            toDrain.add(candidate);
+        }
+        return toDrain;
+    }
+
+    private static double utilization(DockerHost host) {
+        return Math.max(
+                1 - (double) host.getRemainingMemory() / host.getRegisteredMemory(),
+                1 - (double) host.getRemainingCpu() / host.getRegisteredCpu());
+    }
+
+    private double freeRatio(Collection<DockerHost> hosts, State req) {
+        long freeMem = computeFreeCapacityMemory(hosts) - req.getFutureReservationMemory();
+        long freeCpu = computeFreeCapacityCPU(hosts) - req.getFutureReservationCPU();
+        return Math.min(
+                (double) freeMem / computeMaxCapacityMemory(hosts), (double) freeCpu / computeMaxCapacityCPU(hosts));
+    }
+
     // the return value has 2 possible meanings.
     // 1. how many instances we actually killed
     // 2. by how much the ASG size decreaesed
     // the current code is using it in both meanings, the asg drop is not calculated now and in case
     // of errors the return value is a lie as well.
-    private int terminateInstances(
-            List<DockerHost> toTerminate, String asgName, boolean decrementAsgSize, String clusterName) {
+    private int terminateInstances(List<DockerHost> toTerminate, DockerHosts hosts, boolean decrementAsgSize) {
         if (!toTerminate.isEmpty()) {
             if (toTerminate.size() > 15) {
                 // actual AWS limit is apparently 20
@@ -226,11 +294,13 @@ public class DefaultModelUpdater implements ModelUpdater {
                 toTerminate = toTerminate.subList(0, 14);
             }
             try {
-                schedulerBackend.terminateAndDetachInstances(toTerminate, asgName, decrementAsgSize, clusterName);
+                schedulerBackend.terminateAndDetachInstances(
+                        toTerminate, hosts.getASGName(), decrementAsgSize, hosts.getClusterName());
             } catch (ECSException ex) {
                 logger.error("Terminating instances failed", ex);
                 return 0;
             }
+            hosts.markRemoved(toTerminate);
         }
         return toTerminate.size();
     }
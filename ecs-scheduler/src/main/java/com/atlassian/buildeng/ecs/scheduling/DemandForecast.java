@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Forecasts the memory and cpu that the builds arriving within the horizon will ask for, usually the time
+ * an instance takes to boot. Scaling up for it ahead of time keeps the builds of a ramp from queueing
+ * until the instances requested after their rejection are up.
+ * The arrival rate is the higher of the recent rate and the rate seen at this time of day on the previous days.
+ * Only used from the scheduler's polling thread, not thread safe.
+ */
+final class DemandForecast {
+    static final Duration HORIZON = Duration.ofMinutes(5);
+    // time constant of the exponentially decaying recent arrival rate.
+    static final Duration RECENT = Duration.ofMinutes(10);
+    static final Duration SLOT = Duration.ofMinutes(15);
+    // weight of the latest day in the time of day history, the older days fade out.
+    static final double DAY_WEIGHT = 0.3;
+
+    private static final int SLOTS = (int) (Duration.ofDays(1).toMillis() / SLOT.toMillis());
+    // retried requests are counted once, retries give up well before this many new requests arrive.
+    private static final int REMEMBERED_REQUESTS = 10000;
+
+    private final LongSupplier clock;
+    private final long horizon;
+    private final long slotMillis = SLOT.toMillis();
+    private final double recentMillis = RECENT.toMillis();
+    private final Set<UUID> seen = Collections.newSetFromMap(new LinkedHashMap<UUID, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+            return size() > REMEMBERED_REQUESTS;
+        }
+    });
+
+    // per slot of the day, memory and cpu requested per millisecond.
+    private final double[] historyMemory = new double[SLOTS];
+    private final double[] historyCpu = new double[SLOTS];
+    private final boolean[] known = new boolean[SLOTS];
+    private final long firstSlot;
+    private long currentSlot;
+    private double slotMemory;
+    private double slotCpu;
+
+    // decayed sums of the requested memory and cpu, divided by the time constant they are a rate.
+    private double recentMemory;
+    private double recentCpu;
+    private long recentUpdated;
+
+    DemandForecast(LongSupplier clock, Duration horizon) {
+        this.clock = clock;
+        this.horizon = horizon.toMillis();
+        long now = clock.getAsLong();
+        this.firstSlot = now / slotMillis;
+        this.currentSlot = firstSlot;
+        this.recentUpdated = now;
+    }
+
+    /**
+     * record the request as arrived unless it was seen already.
+     */
+    void arrived(SchedulingRequest request) {
+        if (!seen.add(request.getIdentifier())) {
+            return;
+        }
+        advance(clock.getAsLong());
+        slotMemory += request.getMemory();
+        slotCpu += request.getCpu();
+        recentMemory += request.getMemory();
+        recentCpu += request.getCpu();
+    }
+
+    /**
+     * the memory and cpu expected to be requested within the horizon.
+     *
+     * @return pair of memory, cpu
+     */
+    Pair<Long, Long> forecast() {
+        long now = clock.getAsLong();
+        advance(now);
+        double memoryRate = recentMemory / recentMillis;
+        double cpuRate = recentCpu / recentMillis;
+        for (long slot = now / slotMillis; slot <= (now + horizon) / slotMillis; slot++) {
+            int index = (int) (slot % SLOTS);
+            if (known[index]) {
+                memoryRate = Math.max(memoryRate, historyMemory[index]);
+                cpuRate = Math.max(cpuRate, historyCpu[index]);
+            }
+        }
+        return Pair.of((long) (memoryRate * horizon), (long) (cpuRate * horizon));
+    }
+
+    private void advance(long now) {
+        double decay = Math.exp(-Math.max(0, now - recentUpdated) / recentMillis);
+        recentMemory *= decay;
+        recentCpu *= decay;
+        recentUpdated = now;
+        long slot = now / slotMillis;
+        if (slot <= currentSlot) {
+            return;
+        }
+        // the service started within the first slot, it saw only part of it.
+        if (currentSlot != firstSlot) {
+            remember(currentSlot, slotMemory / slotMillis, slotCpu / slotMillis);
+        }
+        // no arrivals in the skipped slots, after a gap of more than a day each slot is overwritten once.
+        for (long passed = Math.max(currentSlot + 1, slot - SLOTS); passed < slot; passed++) {
+            remember(passed, 0, 0);
+        }
+        slotMemory = 0;
+        slotCpu = 0;
+        currentSlot = slot;
+    }
+
+    private void remember(long slot, double memoryRate, double cpuRate) {
+        int index = (int) (slot % SLOTS);
+        if (known[index]) {
+            historyMemory[index] = (1 - DAY_WEIGHT) * historyMemory[index] + DAY_WEIGHT * memoryRate;
+            historyCpu[index] = (1 - DAY_WEIGHT) * historyCpu[index] + DAY_WEIGHT * cpuRate;
+        } else {
+            historyMemory[index] = memoryRate;
+            historyCpu[index] = cpuRate;
+            known[index] = true;
+        }
+    }
+}
@@ -30,6 +30,10 @@ import java.util.stream.Collectors;
 
 public final class DockerHosts {
 
+    private final Collection<DockerHost> all;
+    private final Duration stalePeriod;
+    private final boolean fromCache;
+    private final Set<DockerHost> removed = new HashSet<>();
     private final Collection<DockerHost> usable;
     private final Set<DockerHost> usedCandidates = new HashSet<>();
 
@@ -40,6 +44,18 @@ public final class DockerHosts {
     private final String clusterName;
 
     DockerHosts(Collection<DockerHost> allHosts, Duration stalePeriod, AutoScalingGroup asg, String clusterName) {
+        this(allHosts, stalePeriod, asg, clusterName, false);
+    }
+
+    private DockerHosts(
+            Collection<DockerHost> allHosts,
+            Duration stalePeriod,
+            AutoScalingGroup asg,
+            String clusterName,
+            boolean fromCache) {
+        all = allHosts;
+        this.stalePeriod = stalePeriod;
+        this.fromCache = fromCache;
         usable = allHosts.stream()
                 .filter((DockerHost t) -> t.getAgentConnected())
                 .collect(Collectors.toList());
@@ -59,6 +75,38 @@ public final class DockerHosts {
         usedCandidates.add(host);
     }
 
+    /**
+     * carry over the hosts that got work assigned in the given, older model of the same cluster.
+     */
+    void addUsedCandidates(DockerHosts previous) {
+        usedCandidates.addAll(previous.usedCandidates);
+    }
+
+    /**
+     * the hosts were terminated or drained and are not to be part of any model derived from this one.
+     */
+    void markRemoved(Collection<DockerHost> hosts) {
+        removed.addAll(hosts);
+    }
+
+    /**
+     * A new model with the same hosts (and their remaining resources as reduced by the scheduling since)
+     * minus the removed ones. Freshness, billing cycles and usage are evaluated again.
+     */
+    DockerHosts refreshed() {
+        List<DockerHost> hosts = new ArrayList<>(all);
+        hosts.removeAll(removed);
+        return new DockerHosts(hosts, stalePeriod, asg, clusterName, true);
+    }
+
+    /**
+     * true if the model was derived from an earlier one and not loaded from AWS.
+     * It doesn't know about tasks that finished or instances that joined the cluster since.
+     */
+    boolean isFromCache() {
+        return fromCache;
+    }
+
     public int getUsableSize() {
         return usable.size();
     }
@@ -34,4 +34,11 @@ public interface ECSConfiguration {
     Map<String, String> getEnvVars();
 
     ContainerSizeDescriptor getSizeDescriptor();
+
+    /**
+     * how to choose the host for a task.
+     */
+    default HostScoring getHostScoring() {
+        return HostScoring.BEST_FIT_MEMORY;
+    }
 }
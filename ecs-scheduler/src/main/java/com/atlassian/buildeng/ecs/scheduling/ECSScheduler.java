@@ -16,11 +16,20 @@
 
 package com.atlassian.buildeng.ecs.scheduling;
 
+import java.util.List;
+import org.apache.commons.lang3.tuple.Pair;
+
 public interface ECSScheduler {
 
     /* Run the given resource requirements on ECS.
      */
     void schedule(SchedulingRequest request, SchedulingCallback callback);
 
+    /* Run all the given requests on ECS, queued together so that they are placed in the same pass.
+     */
+    default void scheduleAll(List<Pair<SchedulingRequest, SchedulingCallback>> requests) {
+        requests.forEach((Pair<SchedulingRequest, SchedulingCallback> t) -> schedule(t.getLeft(), t.getRight()));
+    }
+
     void reserveFutureCapacity(ReserveRequest req);
 }
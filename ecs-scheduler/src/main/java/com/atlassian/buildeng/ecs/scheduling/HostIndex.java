@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Candidate hosts ordered by remaining memory, remaining cpu and age, the order of
+ * {@link DockerHost#compareByResourcesAndAge()}. Best fit (the first host in that order that can run the task)
+ * and worst fit (the last one) are found without looking at every host: the lookup starts at the first host with
+ * enough memory and skips over all the hosts with the same remaining memory but too little cpu at once.
+ * The hosts' remaining resources must only be reduced through {@link #reserve} while they are indexed.
+ */
+final class HostIndex {
+
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry t) -> t.memory)
+            .thenComparingInt((Entry t) -> t.cpu)
+            // lookup keys have no host and go before all hosts with the same resources.
+            .thenComparing(
+                    (Entry t) -> t.host,
+                    Comparator.nullsFirst(DockerHost.compareByResourcesAndAge()
+                            .thenComparing(
+                                    DockerHost::getContainerInstanceArn,
+                                    Comparator.nullsFirst(Comparator.naturalOrder()))));
+
+    private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+    private final Map<DockerHost, Entry> byHost = new HashMap<>();
+
+    HostIndex(Collection<DockerHost> hosts) {
+        hosts.forEach(this::add);
+    }
+
+    private void add(DockerHost host) {
+        Entry entry = new Entry(host.getRemainingMemory(), host.getRemainingCpu(), host);
+        entries.add(entry);
+        byHost.put(host, entry);
+    }
+
+    /**
+     * best fit, or worst fit when there is demand overflow and work should be spread over the hosts.
+     */
+    Optional<DockerHost> select(int requiredMemory, int requiredCpu, boolean demandOverflowing) {
+        return demandOverflowing ? worstFit(requiredMemory, requiredCpu) : bestFit(requiredMemory, requiredCpu);
+    }
+
+    /**
+     * the most utilized host (and the oldest of equally utilized ones) that can run the task.
+     */
+    Optional<DockerHost> bestFit(int requiredMemory, int requiredCpu) {
+        Entry entry = entries.ceiling(new Entry(requiredMemory, Integer.MIN_VALUE, null));
+        while (entry != null) {
+            if (entry.cpu >= requiredCpu) {
+                return Optional.of(entry.host);
+            }
+            // hosts with the same memory and enough cpu, if any, otherwise the next memory value.
+            entry = entries.ceiling(new Entry(entry.memory, requiredCpu, null));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * the least utilized host (and the youngest of equally utilized ones) that can run the task.
+     */
+    Optional<DockerHost> worstFit(int requiredMemory, int requiredCpu) {
+        Entry entry = entries.isEmpty() ? null : entries.last();
+        while (entry != null && entry.memory >= requiredMemory) {
+            if (entry.cpu >= requiredCpu) {
+                return Optional.of(entry.host);
+            }
+            // all the other hosts with this memory have even less cpu.
+            entry = entries.lower(new Entry(entry.memory, Integer.MIN_VALUE, null));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * the host with the lowest score that can run the task, the first in index order of equally scored ones.
+     * Only the hosts with enough memory are scored.
+     */
+    Optional<DockerHost> select(SchedulingRequest request, HostScorer scorer) {
+        DockerHost best = null;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (Entry entry : entries.tailSet(new Entry(request.getMemory(), Integer.MIN_VALUE, null))) {
+            if (entry.cpu >= request.getCpu()) {
+                double score = scorer.score(entry.host, request);
+                if (best == null || score < bestScore) {
+                    best = entry.host;
+                    bestScore = score;
+                }
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * reduce the host's remaining resources by the task's and move it to its new position.
+     */
+    void reserve(DockerHost host, int memory, int cpu) {
+        Entry entry = byHost.remove(host);
+        if (entry != null) {
+            entries.remove(entry);
+        }
+        host.reduceAvailableMemoryBy(memory);
+        host.reduceAvailableCpuBy(cpu);
+        if (entry != null) {
+            add(host);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final int memory;
+        private final int cpu;
+        private final DockerHost host;
+
+        Entry(int memory, int cpu, DockerHost host) {
+            this.memory = memory;
+            this.cpu = cpu;
+            this.host = host;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+/**
+ * Scores the hosts that can run a task, the host with the lowest score gets it. Hosts with equal scores
+ * are taken in the order of {@link DockerHost#compareByResourcesAndAge()}.
+ * A scorer is only used from the scheduler's polling thread.
+ */
+public interface HostScorer {
+
+    double score(DockerHost host, SchedulingRequest request);
+
+    /**
+     * the task was placed on the host.
+     */
+    default void placed(DockerHost host, SchedulingRequest request) {}
+}
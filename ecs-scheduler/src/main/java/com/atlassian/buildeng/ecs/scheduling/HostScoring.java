@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The built-in host scoring strategies, selected with {@link ECSConfiguration#getHostScoring()}.
+ */
+public enum HostScoring {
+    /**
+     * The most utilized host by memory, then by cpu. When demand overflows the least utilized one, spreading
+     * the tasks over the hosts until new ones join. The default, looked up in {@link HostIndex} without scoring
+     * every host.
+     */
+    BEST_FIT_MEMORY {
+        @Override
+        HostScorer create() {
+            return (DockerHost host, SchedulingRequest request) -> host.getRemainingMemory();
+        }
+    },
+    /**
+     * The most utilized host by cpu, for clusters that run out of cpu first.
+     */
+    BEST_FIT_CPU {
+        @Override
+        HostScorer create() {
+            return (DockerHost host, SchedulingRequest request) -> host.getRemainingCpu();
+        }
+    },
+    /**
+     * The host that has the least left of its more plentiful resource once the task runs there. Packs both
+     * resources, the host chosen for a task is the one where its shape fits best.
+     */
+    DOMINANT_RESOURCE {
+        @Override
+        HostScorer create() {
+            return (DockerHost host, SchedulingRequest request) -> Math.max(
+                    (double) (host.getRemainingMemory() - request.getMemory()) / host.getRegisteredMemory(),
+                    (double) (host.getRemainingCpu() - request.getCpu()) / host.getRegisteredCpu());
+        }
+    },
+    /**
+     * The least utilized host, always. Tasks share hosts as little as possible, at the cost of more hosts.
+     */
+    SPREAD {
+        @Override
+        HostScorer create() {
+            return (DockerHost host, SchedulingRequest request) -> -Math.min(
+                    (double) host.getRemainingMemory() / host.getRegisteredMemory(),
+                    (double) host.getRemainingCpu() / host.getRegisteredCpu());
+        }
+    },
+    /**
+     * A host that recently started a task with the same image, it likely has the image pulled already.
+     * The most utilized by memory among those, or among all hosts when none did.
+     */
+    IMAGE_LOCALITY {
+        @Override
+        HostScorer create() {
+            return new ImageLocality();
+        }
+    };
+
+    abstract HostScorer create();
+
+    private static final class ImageLocality implements HostScorer {
+        private static final int IMAGES_PER_HOST = 20;
+        private static final int MAXIMUM_HOSTS = 5000;
+
+        // container instance arn to the images most recently started there, least recent first.
+        private final Cache<String, Set<String>> images = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_HOSTS)
+                .expireAfterAccess(12, TimeUnit.HOURS)
+                .build();
+
+        @Override
+        public double score(DockerHost host, SchedulingRequest request) {
+            Set<String> started = images.getIfPresent(host.getContainerInstanceArn());
+            boolean local = started != null && started.contains(image(request));
+            // the memory score is below 1 for every host.
+            return (local ? 0 : 1) + (double) host.getRemainingMemory() / (host.getRegisteredMemory() + 1);
+        }
+
+        @Override
+        public void placed(DockerHost host, SchedulingRequest request) {
+            String image = image(request);
+            if (image == null) {
+                return;
+            }
+            Set<String> started = images.asMap()
+                    .computeIfAbsent(
+                            host.getContainerInstanceArn(),
+                            (String t) -> Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+                                @Override
+                                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                                    return size() > IMAGES_PER_HOST;
+                                }
+                            }));
+            started.remove(image);
+            started.add(image);
+        }
+
+        private static String image(SchedulingRequest request) {
+            return request.getConfiguration() == null ? null : request.getConfiguration().getDockerImage();
+        }
+    }
+}
@@ -21,4 +21,12 @@ import com.atlassian.buildeng.ecs.exceptions.ECSException;
 public interface ModelLoader {
 
     DockerHosts load(String clusterName, String asgName) throws ECSException;
+
+    /**
+     * load the model from AWS, ignoring any state kept from previous loads.
+     * Loaders that always talk to AWS don't need to implement it.
+     */
+    default DockerHosts reload(String clusterName, String asgName) throws ECSException {
+        return load(clusterName, asgName);
+    }
 }
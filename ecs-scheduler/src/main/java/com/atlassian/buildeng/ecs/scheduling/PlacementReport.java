@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Placement quality of a single scheduling batch. Besides the placed and rejected requests it measures how much
+ * of the free capacity is stranded, left on instances that cannot run even the smallest agent anymore.
+ * Capacity stranded that way is what makes the cluster scale up while plenty of it is free in total.
+ */
+final class PlacementReport {
+    private static final Logger logger = LoggerFactory.getLogger(PlacementReport.class);
+
+    private final boolean batch;
+    private final Set<String> usedHosts = new HashSet<>();
+    private int placed;
+    private int rejected;
+    private double strandedMemory;
+    private double strandedCpu;
+
+    PlacementReport(boolean batch) {
+        this.batch = batch;
+    }
+
+    void placed(DockerHost host) {
+        placed++;
+        usedHosts.add(host.getContainerInstanceArn());
+    }
+
+    void rejected() {
+        rejected++;
+    }
+
+    /**
+     * compute the stranded capacity of the hosts after placing the batch and record it.
+     */
+    void complete(Collection<DockerHost> hosts, int smallestMemory, int smallestCpu) {
+        long freeMemory = 0;
+        long freeCpu = 0;
+        long unusableMemory = 0;
+        long unusableCpu = 0;
+        for (DockerHost host : hosts) {
+            freeMemory += host.getRemainingMemory();
+            freeCpu += host.getRemainingCpu();
+            if (!host.canRun(smallestMemory, smallestCpu)) {
+                unusableMemory += host.getRemainingMemory();
+                unusableCpu += host.getRemainingCpu();
+            }
+        }
+        strandedMemory = freeMemory == 0 ? 0 : (double) unusableMemory / freeMemory;
+        strandedCpu = freeCpu == 0 ? 0 : (double) unusableCpu / freeCpu;
+
+        PbcMetrics.ecsPlacements("placed").inc(placed);
+        PbcMetrics.ecsPlacements("rejected").inc(rejected);
+        PbcMetrics.ecsStrandedCapacity("memory").observe(strandedMemory);
+        PbcMetrics.ecsStrandedCapacity("cpu").observe(strandedCpu);
+        logger.debug(
+                "{} placement: {} placed on {} hosts, {} rejected, stranded {}% of free memory and {}% of free cpu",
+                batch ? "Batch" : "Greedy",
+                placed,
+                usedHosts.size(),
+                rejected,
+                Math.round(strandedMemory * 100),
+                Math.round(strandedCpu * 100));
+    }
+
+    int getPlaced() {
+        return placed;
+    }
+
+    int getRejected() {
+        return rejected;
+    }
+
+    int getUsedHosts() {
+        return usedHosts.size();
+    }
+
+    double getStrandedMemory() {
+        return strandedMemory;
+    }
+
+    double getStrandedCpu() {
+        return strandedCpu;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Counts how often configurations were scheduled by each server within the current and the previous window,
+ * older usage is forgotten.
+ */
+final class RecentConfigurations {
+    private final long windowMillis;
+    private final LongSupplier clock;
+
+    private volatile ConcurrentMap<ServerConfiguration, LongAdder> current = new ConcurrentHashMap<>();
+    private volatile Map<ServerConfiguration, LongAdder> previous = new HashMap<>();
+    private volatile long windowStart;
+
+    RecentConfigurations(Duration window, LongSupplier clock) {
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        this.windowStart = clock.getAsLong();
+    }
+
+    void seen(String server, Configuration configuration) {
+        rotate();
+        ServerConfiguration key = new ServerConfiguration(server, configuration);
+        current.computeIfAbsent(key, (ServerConfiguration t) -> new LongAdder()).increment();
+    }
+
+    /**
+     * the configurations the given server used most often, most frequent first.
+     */
+    List<Configuration> mostSeen(String server, int limit) {
+        rotate();
+        Map<Configuration, Long> counts = new HashMap<>();
+        BiConsumer<ServerConfiguration, LongAdder> count = (ServerConfiguration t, LongAdder u) -> {
+            if (Objects.equals(server, t.getServer())) {
+                counts.merge(t.getConfiguration(), u.sum(), Long::sum);
+            }
+        };
+        previous.forEach(count);
+        current.forEach(count);
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Configuration, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void rotate() {
+        long now = clock.getAsLong();
+        if (now - windowStart >= windowMillis) {
+            synchronized (this) {
+                if (now - windowStart >= windowMillis) {
+                    // nothing seen for two windows, forget it all
+                    previous = now - windowStart >= 2 * windowMillis ? new HashMap<>() : current;
+                    current = new ConcurrentHashMap<>();
+                    windowStart = now;
+                }
+            }
+        }
+    }
+}
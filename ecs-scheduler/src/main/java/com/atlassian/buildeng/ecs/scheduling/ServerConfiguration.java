@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import java.util.Objects;
+
+/**
+ * A configuration as used by one Bamboo server, several servers can share the scheduler.
+ */
+final class ServerConfiguration {
+    private final String server;
+    private final Configuration configuration;
+
+    ServerConfiguration(String server, Configuration configuration) {
+        this.server = server;
+        this.configuration = configuration;
+    }
+
+    String getServer() {
+        return server;
+    }
+
+    Configuration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ServerConfiguration that = (ServerConfiguration) o;
+        return Objects.equals(server, that.server) && configuration.equals(that.configuration);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(server, configuration);
+    }
+}
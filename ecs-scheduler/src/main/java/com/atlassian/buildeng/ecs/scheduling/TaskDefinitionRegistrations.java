@@ -38,18 +38,33 @@ import com.atlassian.buildeng.spi.isolated.docker.ContainerSizeDescriptor;
 import com.atlassian.buildeng.spi.isolated.docker.HostFolderMapping;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import org.apache.commons.fileupload.util.Streams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 
-public class TaskDefinitionRegistrations {
+@Singleton
+public class TaskDefinitionRegistrations implements DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(TaskDefinitionRegistrations.class);
 
     public static boolean isDockerInDockerImage(String image) {
@@ -64,10 +79,44 @@ public class TaskDefinitionRegistrations {
 
         void persistDockerMappingsConfiguration(
                 Map<Configuration, Integer> dockerMappings, Map<String, Integer> taskRequestMappings);
+
+        /**
+         * Persist a single new registration. By default all the mappings are read and written again,
+         * backends with a store that can be appended to should only write the new one.
+         */
+        default void persistRegistration(Configuration configuration, String registrationKey, int revision) {
+            Map<Configuration, Integer> dockerMappings = getAllRegistrations();
+            Map<String, Integer> registrationMappings = getAllECSTaskRegistrations();
+            dockerMappings.put(configuration, revision);
+            registrationMappings.put(registrationKey, revision);
+            persistDockerMappingsConfiguration(dockerMappings, registrationMappings);
+        }
     }
 
+    private static final Pattern REGISTRATION_KEY = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * how many of the recently most used configurations get registered ahead when the environment changes.
+     */
+    static final int PRE_REGISTRATION_LIMIT = 20;
+
+    static final Duration RECENT_WINDOW = Duration.ofHours(1);
+
+    private final ExecutorService preRegistrationExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("pbc-ecs-preregistration-%d")
+                    .setDaemon(true)
+                    .build());
+
     private final Backend backend;
     private final ECSConfiguration ecsConfiguration;
+    // keyed by the server as well, the sidekick, role and host mappings of the servers sharing the scheduler differ.
+    private final ConcurrentMap<ServerConfiguration, KeyedRequest> keys = new ConcurrentHashMap<>();
+    private volatile ConcurrentMap<String, Integer> revisions;
+    // registrations in progress, concurrent requests for the same one wait for it instead of registering again.
+    private final ConcurrentMap<String, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+    private final RecentConfigurations recent = new RecentConfigurations(RECENT_WINDOW, System::currentTimeMillis);
+    private final AtomicBoolean preRegistering = new AtomicBoolean(false);
 
     @Inject
     public TaskDefinitionRegistrations(Backend backend, ECSConfiguration ecsConfiguration) {
@@ -75,6 +124,11 @@ public class TaskDefinitionRegistrations {
         this.ecsConfiguration = ecsConfiguration;
     }
 
+    @Override
+    public void destroy() throws Exception {
+        preRegistrationExecutor.shutdownNow();
+    }
+
     private static ContainerDefinition withGlobalEnvVars(ContainerDefinition def, ECSConfiguration configuration) {
         configuration.getEnvVars().forEach((String key, String val) -> {
             def.withEnvironment(new KeyValuePair().withName(key).withValue(val));
@@ -137,8 +191,10 @@ public class TaskDefinitionRegistrations {
                 new RegisterTaskDefinitionRequest()
                         .withContainerDefinitions(
                                 main,
-                                Constants.SIDEKICK_DEFINITION.withImage(
-                                        env.getCurrentSidekick())) // , Constants.METADATA_DEFINITION)
+                                // a copy, the kept requests must not change when the sidekick does.
+                                Constants.SIDEKICK_DEFINITION
+                                        .clone()
+                                        .withImage(env.getCurrentSidekick())) // , Constants.METADATA_DEFINITION)
                         .withFamily(globalConfiguration.getTaskDefinitionName())
                         .withVolumes(new Volume().withName(Constants.BUILD_DIR_VOLUME_NAME)),
                 env);
@@ -185,21 +241,63 @@ public class TaskDefinitionRegistrations {
         return req;
     }
 
-    private static String createRegisterTaskDefinitionString(
-            Configuration configuration, ECSConfiguration globalConfiguration, BambooServerEnvironment env) {
+    private static String createRegisterTaskDefinitionString(RegisterTaskDefinitionRequest request) {
         RegisterTaskDefinitionRequestProtocolMarshaller rtdm = new RegisterTaskDefinitionRequestProtocolMarshaller(
                 new com.amazonaws.protocol.json.SdkJsonProtocolFactory(new JsonClientMetadata()
                         .withProtocolVersion("1.1")
                         .withSupportsCbor(false)
                         .withSupportsIon(false)));
-        Request<RegisterTaskDefinitionRequest> rr =
-                rtdm.marshall(taskDefinitionRequest(configuration, globalConfiguration, env));
+        Request<RegisterTaskDefinitionRequest> rr = rtdm.marshall(request);
         try {
             return Streams.asString(rr.getContent(), "UTF-8");
         } catch (IOException ex) {
-            logger.error("No way to turn Registration Task to string", ex);
-            return null;
+            throw new IllegalStateException("No way to turn Registration Task to string", ex);
+        }
+    }
+
+    /**
+     * The key of a registration, a hash of the marshalled task definition request.
+     * Mappings persisted with the marshalled request itself as the key are converted.
+     */
+    static String registrationKey(String persistedKey) {
+        if (REGISTRATION_KEY.matcher(persistedKey).matches()) {
+            return persistedKey;
+        }
+        return Hashing.sha256().hashString(persistedKey, StandardCharsets.UTF_8).toString();
+    }
+
+    private String registrationKey(Configuration configuration, BambooServerEnvironment env) {
+        // building the request is cheap, marshalling it is not. Only marshal when it differs from the last one.
+        RegisterTaskDefinitionRequest request = taskDefinitionRequest(configuration, ecsConfiguration, env);
+        ServerConfiguration serverConfiguration = new ServerConfiguration(env.getBambooBaseUrl(), configuration);
+        KeyedRequest known = keys.get(serverConfiguration);
+        if (known != null && known.request.equals(request)) {
+            return known.key;
+        }
+        String key = registrationKey(createRegisterTaskDefinitionString(request));
+        keys.put(serverConfiguration, new KeyedRequest(request, key));
+        if (known != null && !known.key.equals(key)) {
+            // the same configuration needs a new task definition on the same server, likely the sidekick changed.
+            // the other configurations that server uses will need new ones as well.
+            preRegister(env, PRE_REGISTRATION_LIMIT);
+        }
+        return key;
+    }
+
+    private ConcurrentMap<String, Integer> revisions() {
+        ConcurrentMap<String, Integer> result = revisions;
+        if (result == null) {
+            synchronized (this) {
+                if (revisions == null) {
+                    ConcurrentMap<String, Integer> loaded = new ConcurrentHashMap<>();
+                    backend.getAllECSTaskRegistrations()
+                            .forEach((String key, Integer revision) -> loaded.put(registrationKey(key), revision));
+                    revisions = loaded;
+                }
+                result = revisions;
+            }
         }
+        return result;
     }
 
     /**
@@ -208,23 +306,86 @@ public class TaskDefinitionRegistrations {
      * @param configuration The configuration to register
      * @return The internal identifier for the registered image.
      */
-    private static final Object registerLock = new Object();
+    private static final Object persistLock = new Object();
 
     public int registerDockerImage(Configuration configuration, BambooServerEnvironment env) throws ECSException {
-        synchronized (registerLock) {
-            Map<String, Integer> registrationMappings = backend.getAllECSTaskRegistrations();
-            String newReg = createRegisterTaskDefinitionString(configuration, ecsConfiguration, env);
-            if (registrationMappings.containsKey(newReg)) {
-                return registrationMappings.get(newReg);
+        String key = registrationKey(configuration, env);
+        Integer existing = revisions().get(key);
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<Integer> registration = new CompletableFuture<>();
+        CompletableFuture<Integer> running = inFlight.putIfAbsent(key, registration);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            // registered while this one was looking up the key
+            Integer revision = revisions().get(key);
+            if (revision == null) {
+                revision = registerDockerImageECS(configuration, env);
+                synchronized (persistLock) {
+                    backend.persistRegistration(configuration, key, revision);
+                }
+                revisions().put(key, revision);
             }
-
-            Map<Configuration, Integer> dockerMappings = backend.getAllRegistrations();
-            Integer revision = registerDockerImageECS(configuration, env);
-            dockerMappings.put(configuration, revision);
-            registrationMappings.put(newReg, revision);
-            backend.persistDockerMappingsConfiguration(dockerMappings, registrationMappings);
+            registration.complete(revision);
             return revision;
+        } catch (ECSException | RuntimeException ex) {
+            registration.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, registration);
+        }
+    }
+
+    private static int await(CompletableFuture<Integer> registration) throws ECSException {
+        try {
+            return registration.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof ECSException) {
+                throw (ECSException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ECSException(ex);
+        }
+    }
+
+    /**
+     * Register the configurations the server of the environment used most often recently in the background,
+     * one at a time. Does nothing when a pre registration is running already or the component was destroyed.
+     *
+     * @return completes when all the configurations are registered, with the number of those that failed
+     */
+    public CompletableFuture<Integer> preRegister(BambooServerEnvironment env, int limit) {
+        if (preRegistrationExecutor.isShutdown() || !preRegistering.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(0);
         }
+        List<Configuration> configurations = recent.mostSeen(env.getBambooBaseUrl(), limit);
+        logger.info(
+                "Registering task definitions for {} recently used configurations of {}",
+                configurations.size(),
+                env.getBambooBaseUrl());
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    int failed = 0;
+                    try {
+                        for (Configuration configuration : configurations) {
+                            try {
+                                registerDockerImage(configuration, env);
+                            } catch (ECSException | RuntimeException ex) {
+                                failed++;
+                                logger.warn("Failed to register task definition ahead for {}", configuration, ex);
+                            }
+                        }
+                    } finally {
+                        preRegistering.set(false);
+                    }
+                    return failed;
+                },
+                preRegistrationExecutor);
     }
 
     private Integer registerDockerImageECS(Configuration configuration, BambooServerEnvironment env)
@@ -246,9 +407,8 @@ public class TaskDefinitionRegistrations {
      * @return either the revision or -1 when not found
      */
     public int findTaskRegistrationVersion(Configuration configuration, BambooServerEnvironment env) {
-        String reg = createRegisterTaskDefinitionString(configuration, ecsConfiguration, env);
-
-        Integer val = backend.getAllECSTaskRegistrations().get(reg);
+        recent.seen(env.getBambooBaseUrl(), configuration);
+        Integer val = revisions().get(registrationKey(configuration, env));
         return val != null ? val : -1;
     }
 
@@ -327,4 +487,14 @@ public class TaskDefinitionRegistrations {
     public static String sanitizeImageName(String image) {
         return image.trim();
     }
+
+    private static final class KeyedRequest {
+        private final RegisterTaskDefinitionRequest request;
+        private final String key;
+
+        KeyedRequest(RegisterTaskDefinitionRequest request, String key) {
+            this.request = request;
+            this.key = key;
+        }
+    }
 }
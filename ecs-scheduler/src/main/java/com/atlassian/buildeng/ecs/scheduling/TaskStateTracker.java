@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import com.amazonaws.services.ecs.model.Task;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * The last known state of ECS tasks, kept from the task state change events that ECS sends to the scheduler service.
+ * Tasks stopped according to the events don't need to be described. A pending or running state is only trusted
+ * shortly after its event, a lost STOPPED event would otherwise hide the stopped task for good.
+ */
+@Singleton
+public class TaskStateTracker {
+    // how long a task not stopped according to its last event is not described again.
+    static final Duration NOT_STOPPED_TRUSTED = Duration.ofMinutes(2);
+    private static final int MAXIMUM_TASKS_TRACKED = 50000;
+
+    private final LongSupplier clock;
+    private final Cache<String, TrackedTask> tasks = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_TASKS_TRACKED)
+            .expireAfterWrite(12, TimeUnit.HOURS)
+            .build();
+
+    @Inject
+    public TaskStateTracker() {
+        this(System::currentTimeMillis);
+    }
+
+    TaskStateTracker(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * record the state of a task as reported by a task state change event.
+     * Events can arrive out of order, one older than the known state is ignored.
+     */
+    public void update(Task task) {
+        PbcMetrics.ecsTaskEvents(String.valueOf(task.getLastStatus())).inc();
+        tasks.asMap()
+                .merge(
+                        task.getTaskArn(),
+                        new TrackedTask(task, clock.getAsLong()),
+                        (TrackedTask old, TrackedTask t) -> version(t.task) >= version(old.task) ? t : old);
+    }
+
+    /**
+     * the stopped states of the given tasks, as far as they are known from the events.
+     *
+     * @param unknown filled with the tasks whose state has to be described
+     */
+    public List<ArnStoppedState> checkStoppedTasks(List<String> taskArns, List<String> unknown) {
+        long now = clock.getAsLong();
+        List<ArnStoppedState> toRet = new ArrayList<>();
+        for (String arn : taskArns) {
+            TrackedTask tracked = tasks.getIfPresent(arn);
+            if (tracked != null && "STOPPED".equals(tracked.task.getLastStatus())) {
+                Task task = tracked.task;
+                toRet.add(new ArnStoppedState(arn, task.getContainerInstanceArn(), AWSSchedulerBackend.getError(task)));
+            } else if (tracked == null || now - tracked.received >= NOT_STOPPED_TRUSTED.toMillis()) {
+                unknown.add(arn);
+            }
+        }
+        return toRet;
+    }
+
+    private static long version(Task task) {
+        return task.getVersion() == null ? 0 : task.getVersion();
+    }
+
+    private static final class TrackedTask {
+        private final Task task;
+        private final long received;
+
+        TrackedTask(Task task, long received) {
+            this.task = task;
+            this.received = received;
+        }
+    }
+}
@@ -17,14 +17,24 @@
 package com.atlassian.buildeng.ecs.scheduling;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.DescribeTasksResult;
+import com.amazonaws.services.ecs.model.Failure;
+import com.amazonaws.services.ecs.model.Task;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration.ExtraContainer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
@@ -103,6 +113,33 @@ public class AWSSchedulerBackendTest {
                 Arrays.asList("--storage-driver=overlay"), AWSSchedulerBackend.adjustCommands(t, mockHost("overlay")));
     }
 
+    @Test
+    public void stoppedTasksDescribedOnce() throws Exception {
+        AmazonECS ecs = Mockito.mock(AmazonECS.class);
+        when(ecs.describeTasks(any()))
+                .thenReturn(new DescribeTasksResult()
+                        .withTasks(
+                                new Task()
+                                        .withTaskArn("arn1")
+                                        .withContainerInstanceArn("ci1")
+                                        .withLastStatus("STOPPED")
+                                        .withStoppedReason("Essential container in task exited"),
+                                new Task().withTaskArn("arn2").withLastStatus("RUNNING"))
+                        .withFailures(new Failure().withArn("arn3").withReason("MISSING")));
+        AWSSchedulerBackend backend = new AWSSchedulerBackend();
+        List<ArnStoppedState> described =
+                backend.describeStoppedTasks(ecs, "cluster", Arrays.asList("arn1", "arn2", "arn3"));
+        assertEquals(
+                Arrays.asList("arn1", "arn3"),
+                described.stream().map(ArnStoppedState::getArn).collect(Collectors.toList()));
+
+        // known to be stopped, not described again.
+        Collection<ArnStoppedState> stopped = backend.checkStoppedTasks("cluster", Collections.singletonList("arn1"));
+        assertEquals(1, stopped.size());
+        assertEquals("ci1", stopped.iterator().next().getContainerArn());
+        verify(ecs, times(1)).describeTasks(any());
+    }
+
     DockerHost mockHost(String value) {
         DockerHost host = Mockito.mock(DockerHost.class);
         when(host.getContainerAttribute(eq(Constants.STORAGE_DRIVER_PROPERTY))).thenReturn(value);
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.amazonaws.AmazonServiceException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class AwsCallsTest {
+    private final ExecutorService executor = AwsCalls.newExecutor();
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void throttledCallRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        String result = AwsCalls.call(
+                "test",
+                () -> {
+                    if (calls.incrementAndGet() < 3) {
+                        throw exception("ThrottlingException");
+                    }
+                    return "done";
+                },
+                5,
+                Duration.ofMillis(1));
+        assertEquals("done", result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void throttledCallGivesUp() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(
+                AmazonServiceException.class,
+                () -> AwsCalls.call(
+                        "test",
+                        () -> {
+                            calls.incrementAndGet();
+                            throw exception("RequestLimitExceeded");
+                        },
+                        3,
+                        Duration.ofMillis(1)));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void otherFailuresNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(
+                AmazonServiceException.class,
+                () -> AwsCalls.call(
+                        "test",
+                        () -> {
+                            calls.incrementAndGet();
+                            throw exception("ClusterNotFoundException");
+                        },
+                        5,
+                        Duration.ofMillis(1)));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void joinAllKeepsOrder() {
+        List<CompletableFuture<List<String>>> calls = Arrays.asList(
+                AwsCalls.async(executor, () -> Arrays.asList("a", "b")),
+                AwsCalls.async(executor, () -> Collections.<String>emptyList()),
+                AwsCalls.async(executor, () -> Collections.singletonList("c")));
+        assertEquals(Arrays.asList("a", "b", "c"), AwsCalls.joinAll(calls));
+    }
+
+    @Test
+    public void joinAllRethrowsFailure() {
+        AmazonServiceException failure = exception("AccessDeniedException");
+        CompletableFuture<List<String>> failed = AwsCalls.async(executor, () -> {
+            throw failure;
+        });
+        List<CompletableFuture<List<String>>> calls =
+                Arrays.asList(AwsCalls.async(executor, () -> Collections.singletonList("a")), failed);
+        assertSame(failure, assertThrows(AmazonServiceException.class, () -> AwsCalls.joinAll(calls)));
+    }
+
+    private static AmazonServiceException exception(String errorCode) {
+        AmazonServiceException ex = new AmazonServiceException(errorCode);
+        ex.setErrorCode(errorCode);
+        ex.setStatusCode(400);
+        return ex;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.cpu;
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.mem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.google.common.collect.Lists;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+public class CachingModelLoaderTest {
+
+    @Test
+    public void keepsModelWithinInterval() throws Exception {
+        ModelLoader delegate = delegate();
+        CachingModelLoader loader = new CachingModelLoader(delegate, Duration.ofHours(1));
+        DockerHosts first = loader.load("cluster", "asg");
+        assertFalse(first.isFromCache());
+        DockerHost host = first.fresh().get(0);
+        host.reduceAvailableMemoryBy(mem(20));
+        host.reduceAvailableCpuBy(cpu(20));
+
+        DockerHosts second = loader.load("cluster", "asg");
+        assertTrue(second.isFromCache());
+        assertEquals(2, second.getUsableSize());
+        assertEquals(mem(90) - mem(20), second.fresh().get(0).getRemainingMemory());
+        verify(delegate, times(1)).load("cluster", "asg");
+    }
+
+    @Test
+    public void reconcilesAfterInterval() throws Exception {
+        ModelLoader delegate = delegate();
+        CachingModelLoader loader = new CachingModelLoader(delegate, Duration.ZERO);
+        loader.load("cluster", "asg");
+        assertFalse(loader.load("cluster", "asg").isFromCache());
+        verify(delegate, times(2)).load("cluster", "asg");
+    }
+
+    @Test
+    public void reloadAlwaysLoads() throws Exception {
+        ModelLoader delegate = delegate();
+        CachingModelLoader loader = new CachingModelLoader(delegate, Duration.ofHours(1));
+        loader.load("cluster", "asg");
+        assertFalse(loader.reload("cluster", "asg").isFromCache());
+        verify(delegate, times(2)).load("cluster", "asg");
+    }
+
+    @Test
+    public void removedHostsNotKept() throws Exception {
+        ModelLoader delegate = delegate();
+        CachingModelLoader loader = new CachingModelLoader(delegate, Duration.ofHours(1));
+        DockerHosts first = loader.load("cluster", "asg");
+        DockerHost removed = first.fresh().get(1);
+        first.markRemoved(Collections.singletonList(removed));
+
+        DockerHosts second = loader.load("cluster", "asg");
+        assertEquals(1, second.getUsableSize());
+        assertFalse(second.allUsable().contains(removed));
+    }
+
+    @Test
+    public void failedLoadNotCached() throws Exception {
+        ModelLoader delegate = delegate();
+        CachingModelLoader loader = new CachingModelLoader(delegate, Duration.ofHours(1));
+        loader.load("cluster", "asg");
+        when(delegate.load("cluster", "asg"))
+                .thenThrow(new ECSException("error"))
+                .thenAnswer(invocation -> hosts());
+        assertThrows(ECSException.class, () -> loader.reload("cluster", "asg"));
+        assertFalse(loader.load("cluster", "asg").isFromCache());
+    }
+
+    private ModelLoader delegate() throws ECSException {
+        ModelLoader delegate = mock(ModelLoader.class);
+        when(delegate.load("cluster", "asg")).thenAnswer(invocation -> hosts());
+        return delegate;
+    }
+
+    private static DockerHosts hosts() throws ECSException {
+        DockerHost dh1 = new DockerHost(
+                CyclingECSSchedulerTest.ci("id1", "arn1", true, 10, 10),
+                CyclingECSSchedulerTest.ec2("id1", new Date()),
+                true);
+        DockerHost dh2 = new DockerHost(
+                CyclingECSSchedulerTest.ci("id2", "arn2", true, 50, 50),
+                CyclingECSSchedulerTest.ec2("id2", new Date()),
+                true);
+        return new DockerHosts(
+                Lists.newArrayList(dh1, dh2), Duration.ofDays(7), new AutoScalingGroup(), "cluster");
+    }
+}
@@ -36,6 +36,7 @@ import com.pholser.junit.quickcheck.From;
 import com.pholser.junit.quickcheck.Property;
 import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
 import java.time.Duration;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -83,6 +84,29 @@ public class CyclingECSSchedulerQuickTest {
         }
     }
 
+    @Property
+    public void hostIndexMatchesSortedCandidates(
+            LinkedList<@From(DockerHostGenerator.class) DockerHost> candidates,
+            Integer requiredMemory,
+            Integer requiredCpu,
+            boolean demandOverflowing) {
+        assumeThat(requiredMemory, greaterThan(0));
+        assumeThat(requiredCpu, greaterThan(0));
+        Comparator<DockerHost> comparator = DockerHost.compareByResourcesAndAge();
+        if (demandOverflowing) {
+            comparator = comparator.reversed();
+        }
+        Optional<DockerHost> expected = candidates.stream()
+                .filter(dockerHost -> dockerHost.canRun(requiredMemory, requiredCpu))
+                .sorted(comparator)
+                .findFirst();
+        Optional<DockerHost> result = selectHost(candidates, requiredMemory, requiredCpu, demandOverflowing);
+        assertEquals(expected.isPresent(), result.isPresent());
+        if (result.isPresent()) {
+            assertEquals(0, comparator.compare(expected.get(), result.get()));
+        }
+    }
+
     @Property
     public void selectToTerminateTest(LinkedList<@From(DockerHostGenerator.class) DockerHost> allHosts) {
         final AWSSchedulerBackend awsSchedulerBackend = new AWSSchedulerBackend();
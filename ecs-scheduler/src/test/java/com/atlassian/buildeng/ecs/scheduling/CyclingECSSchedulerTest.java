@@ -17,6 +17,7 @@
 package com.atlassian.buildeng.ecs.scheduling;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
@@ -43,18 +44,23 @@ import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor
 import com.atlassian.event.api.EventPublisher;
 import com.google.common.collect.Sets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentMatcher;
@@ -767,6 +773,261 @@ public class CyclingECSSchedulerTest {
         verify(eventPublisher, times(1)).publish(any(DockerAgentEcsStaleAsgInstanceEvent.class));
     }
 
+    @Test
+    public void cachedModelReloadedBeforeRejecting() throws Exception {
+        SchedulerBackend schedulerBackend = mockBackend(
+                Collections.singletonList(ci("id1", "arn1", true, 60, 60)),
+                Collections.singletonList(ec2("id1", new Date())));
+        final ECSConfiguration globalConfig = mockGlobalConfig();
+        final EventPublisher eventPublisher = mock(EventPublisher.class);
+        CachingModelLoader loader = new CachingModelLoader(
+                new AwsPullModelLoader(schedulerBackend, eventPublisher, globalConfig), Duration.ofHours(1));
+        CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                schedulerBackend, globalConfig, loader, new DefaultModelUpdater(schedulerBackend, eventPublisher));
+        AtomicReference<String> arn = new AtomicReference<>();
+        SchedulingCallback callback = new SchedulingCallback() {
+            @Override
+            public void handle(SchedulingResult result) {
+                arn.set(result.getContainerArn());
+            }
+
+            @Override
+            public void handle(ECSException exception) {}
+        };
+        scheduler.schedule(
+                new SchedulingRequest(UUID.randomUUID(), "a1", 1, cpu(30), mem(30), null, -1, null), callback);
+        Thread.sleep(100);
+        assertEquals("arn1", arn.get());
+        // the first task finished meanwhile, the kept model still thinks the instance is 90% used
+        when(schedulerBackend.getClusterContainerInstances(anyString()))
+                .thenReturn(Collections.singletonList(ci("id1", "arn1", true, 0, 0)));
+        arn.set(null);
+        scheduler.schedule(
+                new SchedulingRequest(UUID.randomUUID(), "a2", 1, cpu(50), mem(50), null, -1, null), callback);
+        awaitProcessing(scheduler);
+        assertEquals("arn1", arn.get());
+        verify(schedulerBackend, times(2)).getClusterContainerInstances(anyString());
+        verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+    }
+
+    @Test
+    public void predictiveScalingReloadsCachedModel() throws Exception {
+        SchedulerBackend schedulerBackend = mockBackend(
+                Collections.singletonList(ci("id1", "arn1", true, 20, 20)),
+                Collections.singletonList(ec2("id1", new Date())));
+        final ECSConfiguration globalConfig = mockGlobalConfig();
+        final EventPublisher eventPublisher = mock(EventPublisher.class);
+        CachingModelLoader loader = new CachingModelLoader(
+                new AwsPullModelLoader(schedulerBackend, eventPublisher, globalConfig), Duration.ofHours(1));
+        System.setProperty(Constants.PROPERTY_PREDICTIVE_SCALING, "true");
+        try {
+            // with the clock standing still the forecast is all that arrived so far.
+            CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                    schedulerBackend,
+                    globalConfig,
+                    loader,
+                    new DefaultModelUpdater(schedulerBackend, eventPublisher),
+                    new DemandForecast(() -> 0, DemandForecast.RECENT));
+            AtomicReference<String> arn = new AtomicReference<>();
+            SchedulingCallback callback = new SchedulingCallback() {
+                @Override
+                public void handle(SchedulingResult result) {
+                    arn.set(result.getContainerArn());
+                }
+
+                @Override
+                public void handle(ECSException exception) {}
+            };
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "a1", 1, cpu(30), mem(30), null, -1, null), callback);
+            Thread.sleep(100);
+            assertEquals("arn1", arn.get());
+            verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+            // both tasks keep running, the forecast of 70% exceeds what is left on the instance.
+            when(schedulerBackend.getClusterContainerInstances(anyString()))
+                    .thenReturn(Collections.singletonList(ci("id1", "arn1", true, 90, 90)));
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "a2", 1, cpu(40), mem(40), null, -1, null), callback);
+            awaitProcessing(scheduler);
+            assertEquals("arn1", arn.get());
+            // placed on the kept model, reloaded only to scale up ahead.
+            verify(schedulerBackend, times(2)).getClusterContainerInstances(anyString());
+            verify(schedulerBackend).scaleTo(eq(2), anyString());
+        } finally {
+            System.clearProperty(Constants.PROPERTY_PREDICTIVE_SCALING);
+        }
+    }
+
+    @Test
+    public void batchPlacementLargestFirst() throws Exception {
+        // in arrival order the first 30% would go to id2 and leave no room for the 40% one
+        SchedulerBackend schedulerBackend = mockBackend(
+                Arrays.asList(ci("id1", "arn1", true, 40, 40), ci("id2", "arn2", true, 60, 60)),
+                Arrays.asList(ec2("id1", new Date()), ec2("id2", new Date())));
+        final ECSConfiguration globalConfig = mockGlobalConfig();
+        // hold the batch until all the requests are queued
+        CountDownLatch queued = new CountDownLatch(1);
+        Mockito.lenient().when(globalConfig.getCurrentCluster()).thenAnswer(invocation -> {
+            queued.await(1, TimeUnit.SECONDS);
+            return "cluster";
+        });
+        final EventPublisher eventPublisher = mock(EventPublisher.class);
+        System.setProperty(Constants.PROPERTY_BATCH_PLACEMENT, "true");
+        try {
+            CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                    schedulerBackend,
+                    globalConfig,
+                    new AwsPullModelLoader(schedulerBackend, eventPublisher, globalConfig),
+                    new DefaultModelUpdater(schedulerBackend, eventPublisher));
+            List<String> arns = Collections.synchronizedList(new ArrayList<>());
+            AtomicBoolean thrown = new AtomicBoolean(false);
+            SchedulingCallback callback = new SchedulingCallback() {
+                @Override
+                public void handle(SchedulingResult result) {
+                    arns.add(result.getContainerArn());
+                }
+
+                @Override
+                public void handle(ECSException exception) {
+                    thrown.set(true);
+                }
+            };
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "a1", 1, cpu(30), mem(30), null, -1, null), callback);
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "a2", 1, cpu(30), mem(30), null, -1, null), callback);
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "a3", 1, cpu(40), mem(40), null, -1, null), callback);
+            queued.countDown();
+            awaitProcessing(scheduler);
+            assertFalse(thrown.get(), "all requests fit when placed largest first");
+            assertEquals(Arrays.asList("arn2", "arn1", "arn1"), arns);
+            verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+        } finally {
+            System.clearProperty(Constants.PROPERTY_BATCH_PLACEMENT);
+        }
+    }
+
+    @Test
+    public void scheduleAllPlacesBatchTogether() throws Exception {
+        SchedulerBackend schedulerBackend = mockBackend(
+                Arrays.asList(ci("id1", "arn1", true, 40, 40), ci("id2", "arn2", true, 60, 60)),
+                Arrays.asList(ec2("id1", new Date()), ec2("id2", new Date())));
+        final ECSConfiguration globalConfig = mockGlobalConfig();
+        final EventPublisher eventPublisher = mock(EventPublisher.class);
+        System.setProperty(Constants.PROPERTY_BATCH_PLACEMENT, "true");
+        try {
+            CyclingECSScheduler scheduler = new CyclingECSScheduler(
+                    schedulerBackend,
+                    globalConfig,
+                    new AwsPullModelLoader(schedulerBackend, eventPublisher, globalConfig),
+                    new DefaultModelUpdater(schedulerBackend, eventPublisher));
+            Map<String, String> placed = new ConcurrentHashMap<>();
+            List<Pair<SchedulingRequest, SchedulingCallback>> batch = new ArrayList<>();
+            for (String resultId : Arrays.asList("a1", "a2", "a3")) {
+                int size = "a3".equals(resultId) ? 40 : 30;
+                batch.add(Pair.of(
+                        new SchedulingRequest(UUID.randomUUID(), resultId, 1, cpu(size), mem(size), null, -1, null),
+                        new SchedulingCallback() {
+                            @Override
+                            public void handle(SchedulingResult result) {
+                                placed.put(resultId, result.getContainerArn());
+                            }
+
+                            @Override
+                            public void handle(ECSException exception) {
+                                placed.put(resultId, "failed");
+                            }
+                        }));
+            }
+            scheduler.scheduleAll(batch);
+            awaitProcessing(scheduler);
+            // the whole batch is placed largest first, in arrival order a3 would not fit anywhere.
+            assertEquals("arn2", placed.get("a3"));
+            assertEquals("arn1", placed.get("a1"));
+            assertEquals("arn1", placed.get("a2"));
+            verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+        } finally {
+            System.clearProperty(Constants.PROPERTY_BATCH_PLACEMENT);
+        }
+    }
+
+    @Test
+    public void consolidationDrainsLightlyLoaded() throws Exception {
+        SchedulerBackend schedulerBackend = mockBackend(
+                Arrays.asList(
+                        ci("id1", "arn1", true, 10, 10),
+                        ci("id2", "arn2", true, 60, 60),
+                        ci("id3", "arn3", true, 60, 60),
+                        ci("id4", "arn4", true, 15, 5)),
+                Arrays.asList(
+                        ec2("id1", new Date()),
+                        ec2("id2", new Date()),
+                        ec2("id3", new Date()),
+                        ec2("id4", new Date())));
+        List<String> drained = scheduleConsolidating(schedulerBackend, "arn2");
+        // id2 and id3 keep 35% free
+        assertEquals(Arrays.asList("arn1", "arn4"), drained);
+        verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+    }
+
+    @Test
+    public void consolidationKeepsFreeCapacity() throws Exception {
+        SchedulerBackend schedulerBackend = mockBackend(
+                Arrays.asList(
+                        ci("id1", "arn1", true, 10, 10),
+                        ci("id2", "arn2", true, 80, 80),
+                        ci("id3", "arn3", true, 80, 80)),
+                Arrays.asList(ec2("id1", new Date()), ec2("id2", new Date()), ec2("id3", new Date())));
+        scheduleConsolidating(schedulerBackend, "arn2");
+        verify(schedulerBackend, never()).drainInstances(anyList(), anyString());
+    }
+
+    private List<String> scheduleConsolidating(SchedulerBackend schedulerBackend, String expectedArn)
+            throws Exception {
+        List<String> drained = new ArrayList<>();
+        Mockito.lenient()
+                .doAnswer(invocation -> {
+                    List<DockerHost> hosts = invocation.getArgument(0);
+                    hosts.forEach((DockerHost t) -> drained.add(t.getContainerInstanceArn()));
+                    return null;
+                })
+                .when(schedulerBackend)
+                .drainInstances(anyList(), anyString());
+        System.setProperty(Constants.PROPERTY_CONSOLIDATE, "true");
+        try {
+            CyclingECSScheduler scheduler = create(schedulerBackend, mockGlobalConfig(), mock(EventPublisher.class));
+            AtomicReference<String> arn = new AtomicReference<>();
+            scheduler.schedule(
+                    new SchedulingRequest(UUID.randomUUID(), "a1", 1, cpu(10), mem(10), null, -1, null),
+                    new SchedulingCallback() {
+                        @Override
+                        public void handle(SchedulingResult result) {
+                            arn.set(result.getContainerArn());
+                        }
+
+                        @Override
+                        public void handle(ECSException exception) {}
+                    });
+            awaitProcessing(scheduler);
+            assertEquals(expectedArn, arn.get());
+        } finally {
+            System.clearProperty(Constants.PROPERTY_CONSOLIDATE);
+        }
+        return drained;
+    }
+
+    @Test
+    public void largestFirstByBiggerShare() {
+        SchedulingRequest memoryHeavy =
+                new SchedulingRequest(UUID.randomUUID(), "a1", 1, cpu(10), mem(50), null, -1, null);
+        SchedulingRequest cpuHeavy = new SchedulingRequest(UUID.randomUUID(), "a2", 1, cpu(60), mem(5), null, -1, null);
+        SchedulingRequest small = new SchedulingRequest(UUID.randomUUID(), "a3", 1, cpu(20), mem(20), null, -1, null);
+        List<SchedulingRequest> ordered = new ArrayList<>(Arrays.asList(small, memoryHeavy, cpuHeavy));
+        ordered.sort(CyclingECSScheduler.largestFirst(Collections.emptyList()));
+        assertEquals(Arrays.asList(cpuHeavy, memoryHeavy, small), ordered);
+    }
+
     @Test
     public void futureReservationGetsReset() {
         final EventPublisher eventPublisher = mock(EventPublisher.class);
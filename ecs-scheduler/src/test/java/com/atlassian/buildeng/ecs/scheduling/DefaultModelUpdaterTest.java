@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.ci;
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.cpu;
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.ec2;
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.mem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.amazonaws.services.autoscaling.model.AutoScalingGroup;
+import com.amazonaws.services.ecs.model.ContainerInstance;
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import com.atlassian.buildeng.ecs.exceptions.ECSException;
+import com.atlassian.event.api.EventPublisher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class DefaultModelUpdaterTest {
+
+    @Test
+    public void futureDemandAfterConsolidationScalesUp() throws Exception {
+        SchedulerBackend schedulerBackend = mock(SchedulerBackend.class);
+        List<String> drained = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+                    List<DockerHost> hosts = invocation.getArgument(0);
+                    hosts.forEach((DockerHost t) -> drained.add(t.getContainerInstanceArn()));
+                    return null;
+                })
+                .when(schedulerBackend)
+                .drainInstances(anyList(), anyString());
+        DefaultModelUpdater updater = new DefaultModelUpdater(schedulerBackend, mock(EventPublisher.class));
+        String active = ContainerInstanceStatus.ACTIVE.toString();
+        System.setProperty(Constants.PROPERTY_CONSOLIDATE, "true");
+        try {
+            updater.updateModel(
+                    hosts(
+                            ci("id1", "arn1", true, 10, 10),
+                            ci("id2", "arn2", true, 60, 60),
+                            ci("id3", "arn3", true, 60, 60),
+                            ci("id4", "arn4", true, 15, 5)),
+                    new ModelUpdater.State(0, 0));
+        } finally {
+            System.clearProperty(Constants.PROPERTY_CONSOLIDATE);
+        }
+        assertEquals(Arrays.asList("arn1", "arn4"), drained);
+        verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+
+        // the next model still has the drained hosts with their free space, but no new task goes there.
+        String draining = ContainerInstanceStatus.DRAINING.toString();
+        updater.updateModel(
+                hosts(
+                        ci("id1", "arn1", true, 10, 10, draining),
+                        ci("id2", "arn2", true, 60, 60, active),
+                        ci("id3", "arn3", true, 60, 60, active),
+                        ci("id4", "arn4", true, 15, 5, draining)),
+                new ModelUpdater.State(mem(100), cpu(100)));
+        verify(schedulerBackend).scaleTo(5, "test-asg");
+    }
+
+    @Test
+    public void futureDemandFittingFreshHostsDoesNotScale() throws Exception {
+        SchedulerBackend schedulerBackend = mock(SchedulerBackend.class);
+        DefaultModelUpdater updater = new DefaultModelUpdater(schedulerBackend, mock(EventPublisher.class));
+        updater.updateModel(
+                hosts(ci("id1", "arn1", true, 10, 10), ci("id2", "arn2", true, 60, 60)),
+                new ModelUpdater.State(mem(100), cpu(100)));
+        verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+    }
+
+    @Test
+    public void futureDemandScalesUpOnlyOnReloadedModel() throws Exception {
+        SchedulerBackend schedulerBackend = mock(SchedulerBackend.class);
+        DefaultModelUpdater updater = new DefaultModelUpdater(schedulerBackend, mock(EventPublisher.class));
+        DockerHosts loaded = hosts(ci("id1", "arn1", true, 80, 80), ci("id2", "arn2", true, 80, 80));
+        updater.updateModel(loaded.refreshed(), new ModelUpdater.State(mem(100), cpu(100)));
+        verify(schedulerBackend, never()).scaleTo(anyInt(), anyString());
+
+        updater.updateModel(loaded, new ModelUpdater.State(mem(100), cpu(100)));
+        verify(schedulerBackend).scaleTo(3, "test-asg");
+    }
+
+    private static DockerHosts hosts(ContainerInstance... instances) throws ECSException {
+        List<DockerHost> hosts = new ArrayList<>();
+        for (ContainerInstance instance : instances) {
+            hosts.add(new DockerHost(instance, ec2(instance.getEc2InstanceId(), new Date()), true));
+        }
+        AutoScalingGroup asg = new AutoScalingGroup();
+        asg.setMaxSize(50);
+        asg.setDesiredCapacity(hosts.size());
+        asg.setAutoScalingGroupName("test-asg");
+        return new DockerHosts(hosts, AwsPullModelLoader.DEFAULT_STALE_PERIOD, asg, "cluster");
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+
+public class DemandForecastTest {
+    // started shortly before the first arrivals, earlier slots without arrivals would count as quiet ones.
+    private final AtomicLong clock = new AtomicLong(Duration.ofHours(7).plusMinutes(50).toMillis());
+    private final DemandForecast forecast = new DemandForecast(clock::get, Duration.ofMinutes(5));
+
+    @Test
+    public void nothingArrived() {
+        assertForecast(0, 0);
+    }
+
+    @Test
+    public void recentArrivalsForecast() {
+        for (int i = 0; i < 10; i++) {
+            forecast.arrived(request(UUID.randomUUID()));
+        }
+        // 10 requests within the 10 minute time constant, half of them expected within the 5 minute horizon.
+        assertForecast(5000, 2500);
+        clock.addAndGet(Duration.ofMinutes(10).toMillis());
+        assertForecast(5000 / Math.E, 2500 / Math.E);
+    }
+
+    @Test
+    public void retriedRequestCountedOnce() {
+        UUID identifier = UUID.randomUUID();
+        forecast.arrived(request(identifier));
+        forecast.arrived(request(identifier));
+        assertForecast(500, 250);
+    }
+
+    @Test
+    public void usualRampAnticipated() {
+        // 30 requests arrive between 8:00 and 8:15 on the first day.
+        clock.set(Duration.ofHours(8).toMillis());
+        for (int i = 0; i < 30; i++) {
+            forecast.arrived(request(UUID.randomUUID()));
+            clock.addAndGet(Duration.ofSeconds(30).toMillis());
+        }
+        clock.set(Duration.ofDays(1).plusHours(7).plusMinutes(56).toMillis());
+        // 2 requests a minute expected from 8:00 on the next day, the horizon reaches past it.
+        assertForecast(10000, 5000);
+        clock.set(Duration.ofDays(1).plusHours(12).toMillis());
+        assertForecast(0, 0);
+    }
+
+    @Test
+    public void quietDayFadesHistory() {
+        clock.set(Duration.ofHours(8).toMillis());
+        for (int i = 0; i < 30; i++) {
+            forecast.arrived(request(UUID.randomUUID()));
+            clock.addAndGet(Duration.ofSeconds(30).toMillis());
+        }
+        clock.set(Duration.ofDays(2).plusHours(7).plusMinutes(56).toMillis());
+        // no requests on the second day.
+        assertForecast(10000 * (1 - DemandForecast.DAY_WEIGHT), 5000 * (1 - DemandForecast.DAY_WEIGHT));
+    }
+
+    private void assertForecast(double memory, double cpu) {
+        Pair<Long, Long> result = forecast.forecast();
+        assertEquals(memory, result.getLeft(), 1, "memory");
+        assertEquals(cpu, result.getRight(), 1, "cpu");
+    }
+
+    private static SchedulingRequest request(UUID identifier) {
+        return new SchedulingRequest(identifier, "a1", 1, 500, 1000, null, -1, null);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.cpu;
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.mem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+public class HostIndexTest {
+
+    @Test
+    public void bestFitSkipsHostsWithoutEnoughCpu() {
+        HostIndex index = new HostIndex(Arrays.asList(
+                host("id1", mem(20), cpu(5), 0),
+                host("id2", mem(20), cpu(30), 0),
+                host("id3", mem(40), cpu(10), 0),
+                host("id4", mem(60), cpu(60), 0)));
+        assertEquals("id2", index.bestFit(mem(10), cpu(20)).get().getInstanceId());
+        assertEquals("id4", index.bestFit(mem(30), cpu(20)).get().getInstanceId());
+        assertFalse(index.bestFit(mem(70), cpu(10)).isPresent());
+    }
+
+    @Test
+    public void worstFitSkipsHostsWithoutEnoughCpu() {
+        HostIndex index = new HostIndex(Arrays.asList(
+                host("id1", mem(20), cpu(30), 0),
+                host("id2", mem(60), cpu(5), 0),
+                host("id3", mem(60), cpu(10), 0),
+                host("id4", mem(40), cpu(15), 0)));
+        assertEquals("id3", index.worstFit(mem(10), cpu(10)).get().getInstanceId());
+        assertEquals("id1", index.worstFit(mem(10), cpu(20)).get().getInstanceId());
+        assertFalse(index.worstFit(mem(50), cpu(20)).isPresent());
+    }
+
+    @Test
+    public void equalResourcesPreferOlderForBestFit() {
+        HostIndex index = new HostIndex(
+                Arrays.asList(host("young", mem(50), cpu(50), 1), host("old", mem(50), cpu(50), 5)));
+        assertEquals("old", index.bestFit(mem(10), cpu(10)).get().getInstanceId());
+        assertEquals("young", index.worstFit(mem(10), cpu(10)).get().getInstanceId());
+    }
+
+    @Test
+    public void reserveMovesHost() {
+        DockerHost full = host("id1", mem(30), cpu(30), 0);
+        DockerHost empty = host("id2", mem(100), cpu(100), 0);
+        HostIndex index = new HostIndex(Arrays.asList(full, empty));
+        assertEquals("id2", index.worstFit(mem(10), cpu(10)).get().getInstanceId());
+
+        index.reserve(empty, mem(80), cpu(80));
+        assertEquals(mem(100) - mem(80), empty.getRemainingMemory());
+        assertEquals("id1", index.worstFit(mem(10), cpu(10)).get().getInstanceId());
+        assertEquals("id2", index.bestFit(mem(10), cpu(10)).get().getInstanceId());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void bestFitCpuScoresHostsWithEnoughMemory() {
+        HostIndex index = new HostIndex(Arrays.asList(
+                host("id1", mem(5), cpu(15), 0),
+                host("id2", mem(20), cpu(60), 0),
+                host("id3", mem(40), cpu(30), 0),
+                host("id4", mem(60), cpu(10), 0)));
+        HostScorer scorer = HostScoring.BEST_FIT_CPU.create();
+        assertEquals("id3", index.select(request(mem(10), cpu(20), "image"), scorer).get().getInstanceId());
+        assertFalse(index.select(request(mem(70), cpu(10), "image"), scorer).isPresent());
+    }
+
+    @Test
+    public void dominantResourceFitsShape() {
+        HostIndex index = new HostIndex(
+                Arrays.asList(host("memoryLeft", mem(20), cpu(90), 0), host("balanced", mem(50), cpu(50), 0)));
+        SchedulingRequest request = request(mem(10), cpu(10), "image");
+        assertEquals("memoryLeft", index.bestFit(request.getMemory(), request.getCpu()).get().getInstanceId());
+        assertEquals("balanced", index.select(request, HostScoring.DOMINANT_RESOURCE.create()).get().getInstanceId());
+    }
+
+    @Test
+    public void spreadPicksLeastUtilized() {
+        HostIndex index = new HostIndex(
+                Arrays.asList(host("cpuBusy", mem(90), cpu(30), 0), host("balanced", mem(50), cpu(50), 0)));
+        SchedulingRequest request = request(mem(10), cpu(10), "image");
+        assertEquals("cpuBusy", index.worstFit(request.getMemory(), request.getCpu()).get().getInstanceId());
+        assertEquals("balanced", index.select(request, HostScoring.SPREAD.create()).get().getInstanceId());
+    }
+
+    @Test
+    public void imageLocalityPrefersHostThatStartedImage() {
+        DockerHost young = host("young", mem(50), cpu(50), 1);
+        HostIndex index = new HostIndex(Arrays.asList(young, host("old", mem(50), cpu(50), 5)));
+        HostScorer scorer = HostScoring.IMAGE_LOCALITY.create();
+        scorer.placed(young, request(mem(10), cpu(10), "maven"));
+        assertEquals("young", index.select(request(mem(10), cpu(10), "maven"), scorer).get().getInstanceId());
+        assertEquals("old", index.select(request(mem(10), cpu(10), "node"), scorer).get().getInstanceId());
+    }
+
+    private static SchedulingRequest request(int memory, int cpu, String image) {
+        return new SchedulingRequest(
+                UUID.randomUUID(), "a1", 1, cpu, memory, ConfigurationBuilder.create(image).build(), -1, null);
+    }
+
+    private static DockerHost host(String id, int remainingMemory, int remainingCpu, int ageInDays) {
+        return new DockerHost(
+                remainingMemory,
+                remainingCpu,
+                ECSInstance.DEFAULT_INSTANCE.getMemory(),
+                ECSInstance.DEFAULT_INSTANCE.getCpu(),
+                "arn-" + id,
+                id,
+                ContainerInstanceStatus.ACTIVE.toString(),
+                new Date(System.currentTimeMillis() - Duration.ofDays(ageInDays).toMillis()),
+                true,
+                ECSInstance.DEFAULT_INSTANCE.getName());
+    }
+}
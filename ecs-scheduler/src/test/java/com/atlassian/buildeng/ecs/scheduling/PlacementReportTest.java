@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.cpu;
+import static com.atlassian.buildeng.ecs.scheduling.CyclingECSSchedulerTest.mem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.amazonaws.services.ecs.model.ContainerInstanceStatus;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+public class PlacementReportTest {
+
+    @Test
+    public void strandedCapacityOnHostsTooFullForSmallestAgent() {
+        DockerHost stranded = host("id1", mem(10), cpu(40));
+        DockerHost usable = host("id2", mem(30), cpu(40));
+        PlacementReport report = new PlacementReport(true);
+        report.placed(stranded);
+        report.placed(stranded);
+        report.placed(usable);
+        report.rejected();
+        report.complete(Arrays.asList(stranded, usable), mem(20), cpu(20));
+
+        assertEquals(3, report.getPlaced());
+        assertEquals(1, report.getRejected());
+        assertEquals(2, report.getUsedHosts());
+        assertEquals(0.25, report.getStrandedMemory(), 0.01);
+        assertEquals(0.5, report.getStrandedCpu(), 0.01);
+    }
+
+    @Test
+    public void nothingStrandedWithoutFreeCapacity() {
+        PlacementReport report = new PlacementReport(false);
+        report.complete(Collections.singletonList(host("id1", 0, 0)), mem(20), cpu(20));
+        assertEquals(0, report.getStrandedMemory());
+        assertEquals(0, report.getStrandedCpu());
+    }
+
+    private static DockerHost host(String id, int remainingMemory, int remainingCpu) {
+        return new DockerHost(
+                remainingMemory,
+                remainingCpu,
+                ECSInstance.DEFAULT_INSTANCE.getMemory(),
+                ECSInstance.DEFAULT_INSTANCE.getCpu(),
+                "arn-" + id,
+                id,
+                ContainerInstanceStatus.ACTIVE.toString(),
+                new Date(),
+                true,
+                ECSInstance.DEFAULT_INSTANCE.getName());
+    }
+}
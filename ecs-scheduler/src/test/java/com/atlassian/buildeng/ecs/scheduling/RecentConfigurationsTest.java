@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.atlassian.buildeng.spi.isolated.docker.Configuration;
+import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class RecentConfigurationsTest {
+    private static final String SERVER = "https://bamboo.example.com";
+
+    private final Configuration a = ConfigurationBuilder.create("a").build();
+    private final Configuration b = ConfigurationBuilder.create("b").build();
+    private final Configuration c = ConfigurationBuilder.create("c").build();
+
+    @Test
+    public void mostSeenFirst() {
+        RecentConfigurations recent = new RecentConfigurations(Duration.ofMinutes(10), () -> 0);
+        recent.seen(SERVER, a);
+        recent.seen(SERVER, b);
+        recent.seen(SERVER, b);
+        recent.seen(SERVER, c);
+        recent.seen(SERVER, c);
+        recent.seen(SERVER, c);
+        assertEquals(Arrays.asList(c, b), recent.mostSeen(SERVER, 2));
+    }
+
+    @Test
+    public void previousWindowCounted() {
+        AtomicLong now = new AtomicLong();
+        RecentConfigurations recent = new RecentConfigurations(Duration.ofMillis(10), now::get);
+        recent.seen(SERVER, a);
+        recent.seen(SERVER, a);
+        now.set(15);
+        recent.seen(SERVER, b);
+        assertEquals(Arrays.asList(a, b), recent.mostSeen(SERVER, 5));
+        now.set(25);
+        assertEquals(Collections.singletonList(b), recent.mostSeen(SERVER, 5));
+    }
+
+    @Test
+    public void forgottenAfterTwoWindows() {
+        AtomicLong now = new AtomicLong();
+        RecentConfigurations recent = new RecentConfigurations(Duration.ofMillis(10), now::get);
+        recent.seen(SERVER, a);
+        now.set(20);
+        assertEquals(Collections.emptyList(), recent.mostSeen(SERVER, 5));
+    }
+
+    @Test
+    public void countedPerServer() {
+        RecentConfigurations recent = new RecentConfigurations(Duration.ofMinutes(10), () -> 0);
+        recent.seen(SERVER, a);
+        recent.seen("https://other.example.com", b);
+        recent.seen("https://other.example.com", b);
+        assertEquals(Collections.singletonList(a), recent.mostSeen(SERVER, 5));
+        assertEquals(Collections.singletonList(b), recent.mostSeen("https://other.example.com", 5));
+    }
+}
@@ -18,22 +18,38 @@ package com.atlassian.buildeng.ecs.scheduling;
 
 import static com.atlassian.buildeng.ecs.scheduling.TaskDefinitionRegistrations.sanitizeImageName;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.amazonaws.services.ecs.AmazonECS;
+import com.amazonaws.services.ecs.model.ClientException;
 import com.amazonaws.services.ecs.model.RegisterTaskDefinitionResult;
 import com.amazonaws.services.ecs.model.TaskDefinition;
 import com.atlassian.buildeng.ecs.exceptions.ECSException;
 import com.atlassian.buildeng.spi.isolated.docker.Configuration;
 import com.atlassian.buildeng.spi.isolated.docker.ConfigurationBuilder;
 import com.atlassian.buildeng.spi.isolated.docker.DefaultContainerSizeDescriptor;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -57,11 +73,9 @@ public class TaskDefinitionRegistrationsTest {
 
     @Test
     public void registerTaskDefinition() {
-        Map<Configuration, Integer> dock = new HashMap<>();
         Map<String, Integer> task = new HashMap<>();
         when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
         when(backend.getAllECSTaskRegistrations()).thenReturn(task);
-        when(backend.getAllRegistrations()).thenReturn(dock);
         BambooServerEnvironment env = mock(BambooServerEnvironment.class);
 
         when(regs.ecsClient.registerTaskDefinition(any()))
@@ -86,14 +100,179 @@ public class TaskDefinitionRegistrationsTest {
         } catch (ECSException ex) {
             fail(ex.getMessage());
         }
+        verify(regs.ecsClient, times(1)).registerTaskDefinition(any());
+        verify(backend, times(1)).persistRegistration(eq(c), anyString(), eq(4));
+    }
+
+    @Test
+    public void legacyMappingsFound() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        BambooServerEnvironment env = mock(BambooServerEnvironment.class);
+        Configuration c = ConfigurationBuilder.create("image").build();
+        // mappings used to be keyed by the marshalled request
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        TaskDefinitionRegistrationsSubclass first = new TaskDefinitionRegistrationsSubclass(backend, ecsConfiguration);
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        when(first.ecsClient.registerTaskDefinition(any()))
+                .thenReturn(
+                        new RegisterTaskDefinitionResult().withTaskDefinition(new TaskDefinition().withRevision(7)));
+        first.registerDockerImage(c, env);
+        verify(backend).persistRegistration(eq(c), key.capture(), eq(7));
+        assertEquals(key.getValue(), TaskDefinitionRegistrations.registrationKey(key.getValue()));
+
+        Map<String, Integer> legacy = new HashMap<>();
+        legacy.put("{\"family\":\"legacy\"}", 3);
+        when(backend.getAllECSTaskRegistrations()).thenReturn(legacy);
+        TaskDefinitionRegistrationsSubclass second = new TaskDefinitionRegistrationsSubclass(backend, ecsConfiguration);
+        assertEquals(-1, second.findTaskRegistrationVersion(c, env));
+        legacy.put(key.getValue(), 7);
+        TaskDefinitionRegistrationsSubclass third = new TaskDefinitionRegistrationsSubclass(backend, ecsConfiguration);
+        assertEquals(7, third.findTaskRegistrationVersion(c, env));
+    }
+
+    @Test
+    public void concurrentRegistrationsOfSameConfiguration() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        when(regs.ecsClient.registerTaskDefinition(any())).then(invocation -> {
+            Thread.sleep(50);
+            return new RegisterTaskDefinitionResult().withTaskDefinition(new TaskDefinition().withRevision(5));
+        });
+        BambooServerEnvironment env = mock(BambooServerEnvironment.class);
+        Configuration c = ConfigurationBuilder.create("image").build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> regs.registerDockerImage(c, env)));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(5, result.get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        verify(regs.ecsClient, times(1)).registerTaskDefinition(any());
+    }
+
+    @Test
+    public void failedRegistrationRetried() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        when(regs.ecsClient.registerTaskDefinition(any()))
+                .thenThrow(new ClientException("Too many concurrent attempts"))
+                .thenReturn(
+                        new RegisterTaskDefinitionResult().withTaskDefinition(new TaskDefinition().withRevision(2)));
+        BambooServerEnvironment env = mock(BambooServerEnvironment.class);
+        Configuration c = ConfigurationBuilder.create("image").build();
+        ECSException ex = assertThrows(ECSException.class, () -> regs.registerDockerImage(c, env));
+        assertTrue(ex.getCause() instanceof ClientException);
+        assertEquals(2, regs.registerDockerImage(c, env));
+    }
+
+    @Test
+    public void preRegisterMostSeen() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        when(regs.ecsClient.registerTaskDefinition(any()))
+                .thenReturn(
+                        new RegisterTaskDefinitionResult().withTaskDefinition(new TaskDefinition().withRevision(3)));
+        BambooServerEnvironment env = mock(BambooServerEnvironment.class);
+        Configuration often = ConfigurationBuilder.create("often").build();
+        Configuration rarely = ConfigurationBuilder.create("rarely").build();
+        regs.findTaskRegistrationVersion(often, env);
+        regs.findTaskRegistrationVersion(often, env);
+        regs.findTaskRegistrationVersion(rarely, env);
+
+        assertEquals(0, regs.preRegister(env, 1).get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(3, regs.findTaskRegistrationVersion(often, env));
+        assertEquals(-1, regs.findTaskRegistrationVersion(rarely, env));
+        verify(regs.ecsClient, times(1)).registerTaskDefinition(any());
+    }
+
+    @Test
+    public void preRegisterOnlyConfigurationsOfServer() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        when(regs.ecsClient.registerTaskDefinition(any()))
+                .thenReturn(
+                        new RegisterTaskDefinitionResult().withTaskDefinition(new TaskDefinition().withRevision(3)));
+        BambooServerEnvironment one = mock(BambooServerEnvironment.class);
+        when(one.getBambooBaseUrl()).thenReturn("https://one.example.com");
+        BambooServerEnvironment two = mock(BambooServerEnvironment.class);
+        when(two.getBambooBaseUrl()).thenReturn("https://two.example.com");
+        Configuration mine = of("mine");
+        Configuration theirs = of("theirs");
+        regs.findTaskRegistrationVersion(mine, one);
+        regs.findTaskRegistrationVersion(theirs, two);
+        regs.findTaskRegistrationVersion(theirs, two);
+
+        assertEquals(0, regs.preRegister(one, 5).get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(3, regs.findTaskRegistrationVersion(mine, one));
+        assertEquals(-1, regs.findTaskRegistrationVersion(theirs, one));
+        verify(regs.ecsClient, times(1)).registerTaskDefinition(any());
+    }
+
+    @Test
+    public void noPreRegistrationAfterDestroy() throws Exception {
+        BambooServerEnvironment env = mock(BambooServerEnvironment.class);
+        regs.findTaskRegistrationVersion(ConfigurationBuilder.create("often").build(), env);
+        regs.destroy();
+
+        assertEquals(0, regs.preRegister(env, 1).get(5, TimeUnit.SECONDS).intValue());
+        verify(regs.ecsClient, never()).registerTaskDefinition(any());
+    }
+
+    @Test
+    public void changedEnvironmentPreRegisters() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        when(regs.ecsClient.registerTaskDefinition(any()))
+                .thenReturn(
+                        new RegisterTaskDefinitionResult().withTaskDefinition(new TaskDefinition().withRevision(1)));
+        BambooServerEnvironment before = mock(BambooServerEnvironment.class);
+        when(before.getCurrentSidekick()).thenReturn("sidekick:1");
+        BambooServerEnvironment after = mock(BambooServerEnvironment.class);
+        when(after.getCurrentSidekick()).thenReturn("sidekick:2");
+        Configuration first = ConfigurationBuilder.create("first").build();
+        Configuration second = ConfigurationBuilder.create("second").build();
+        regs.findTaskRegistrationVersion(first, before);
+        regs.findTaskRegistrationVersion(second, before);
+        regs.registerDockerImage(first, before);
+        regs.registerDockerImage(second, before);
+
+        // the new sidekick is first seen with the first configuration, the second one gets registered ahead
+        regs.findTaskRegistrationVersion(first, after);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (regs.findTaskRegistrationVersion(second, after) == -1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, regs.findTaskRegistrationVersion(second, after));
+    }
+
+    @Test
+    public void serversSharingSchedulerDoNotPreRegister() throws Exception {
+        when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
+        when(backend.getAllECSTaskRegistrations()).thenReturn(new HashMap<>());
+        BambooServerEnvironment one = mock(BambooServerEnvironment.class);
+        when(one.getBambooBaseUrl()).thenReturn("https://one.example.com");
+        when(one.getCurrentSidekick()).thenReturn("sidekick:1");
+        BambooServerEnvironment two = mock(BambooServerEnvironment.class);
+        when(two.getBambooBaseUrl()).thenReturn("https://two.example.com");
+        when(two.getCurrentSidekick()).thenReturn("sidekick:2");
+        Configuration configuration = of("shared");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(-1, regs.findTaskRegistrationVersion(configuration, one));
+            assertEquals(-1, regs.findTaskRegistrationVersion(configuration, two));
+        }
+        verify(regs.ecsClient, after(200).never()).registerTaskDefinition(any());
     }
 
     @Test
     public void serializeTest() throws Exception {
-        Map<Configuration, Integer> dock = new HashMap<>();
         Map<String, Integer> task = new HashMap<>();
         when(backend.getAllECSTaskRegistrations()).thenReturn(task);
-        when(backend.getAllRegistrations()).thenReturn(dock);
         when(ecsConfiguration.getSizeDescriptor()).thenReturn(new DefaultContainerSizeDescriptor());
 
         when(regs.ecsClient.registerTaskDefinition(any())).then(invocation -> new RegisterTaskDefinitionResult()
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.ecs.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.amazonaws.services.ecs.model.Container;
+import com.amazonaws.services.ecs.model.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class TaskStateTrackerTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final TaskStateTracker tracker = new TaskStateTracker(now::get);
+
+    @Test
+    public void stoppedTaskFromEvent() {
+        tracker.update(task("arn1", "STOPPED", 3)
+                .withContainerInstanceArn("ci1")
+                .withStoppedReason("Task failed to start")
+                .withContainers(new Container().withName("bamboo-agent").withReason("CannotPullContainerError")));
+        List<String> unknown = new ArrayList<>();
+        List<ArnStoppedState> stopped = tracker.checkStoppedTasks(Collections.singletonList("arn1"), unknown);
+
+        assertEquals(1, stopped.size());
+        assertEquals("ci1", stopped.get(0).getContainerArn());
+        assertEquals("Task failed to start:bamboo-agent[CannotPullContainerError],", stopped.get(0).getReason());
+        assertTrue(unknown.isEmpty());
+    }
+
+    @Test
+    public void runningTaskTrustedShortly() {
+        tracker.update(task("arn1", "RUNNING", 2));
+        List<String> unknown = new ArrayList<>();
+        assertTrue(tracker.checkStoppedTasks(Arrays.asList("arn1", "arn2"), unknown).isEmpty());
+        assertEquals(Collections.singletonList("arn2"), unknown);
+
+        // the STOPPED event might have been lost.
+        now.addAndGet(TaskStateTracker.NOT_STOPPED_TRUSTED.toMillis());
+        unknown.clear();
+        tracker.checkStoppedTasks(Arrays.asList("arn1", "arn2"), unknown);
+        assertEquals(Arrays.asList("arn1", "arn2"), unknown);
+    }
+
+    @Test
+    public void runningTaskNotTrustedWhileOtherEventsArrive() {
+        tracker.update(task("arn1", "RUNNING", 2));
+        now.addAndGet(TaskStateTracker.NOT_STOPPED_TRUSTED.toMillis());
+        tracker.update(task("arn2", "RUNNING", 2));
+        List<String> unknown = new ArrayList<>();
+        tracker.checkStoppedTasks(Arrays.asList("arn1", "arn2"), unknown);
+        assertEquals(Collections.singletonList("arn1"), unknown);
+    }
+
+    @Test
+    public void stoppedTaskTrustedLater() {
+        tracker.update(task("arn1", "STOPPED", 3));
+        now.addAndGet(TaskStateTracker.NOT_STOPPED_TRUSTED.toMillis() * 10);
+        List<String> unknown = new ArrayList<>();
+        assertEquals(1, tracker.checkStoppedTasks(Collections.singletonList("arn1"), unknown).size());
+        assertTrue(unknown.isEmpty());
+    }
+
+    @Test
+    public void olderEventIgnored() {
+        tracker.update(task("arn1", "STOPPED", 3));
+        tracker.update(task("arn1", "RUNNING", 2));
+        assertEquals(
+                1, tracker.checkStoppedTasks(Collections.singletonList("arn1"), new ArrayList<>()).size());
+    }
+
+    @Test
+    public void nothingTrustedWithoutEvents() {
+        List<String> unknown = new ArrayList<>();
+        tracker.checkStoppedTasks(Collections.singletonList("arn1"), unknown);
+        assertEquals(Collections.singletonList("arn1"), unknown);
+    }
+
+    private static Task task(String arn, String status, long version) {
+        return new Task().withTaskArn(arn).withLastStatus(status).withVersion(version);
+    }
+}
@@ -30,6 +30,7 @@ import com.atlassian.buildeng.spi.isolated.docker.DockerAgentBuildQueue;
 import com.atlassian.buildeng.spi.isolated.docker.IsolatedAgentService;
 import com.atlassian.buildeng.spi.isolated.docker.RetryAgentStartupEvent;
 import com.atlassian.buildeng.spi.isolated.docker.WatchdogJob;
+import com.atlassian.buildeng.spi.isolated.docker.metrics.PbcMetrics;
 import com.atlassian.event.api.EventPublisher;
 import java.net.URL;
 import java.time.Duration;
@@ -61,6 +62,7 @@ public abstract class AbstractWatchdogJob extends WatchdogJob {
 
     @Override
     public void execute(JobExecutionContext context) throws JobExecutionException {
+        long start = System.nanoTime();
         try {
             executeImpl(context.getJobDetail().getJobDataMap());
         } catch (Throwable t) {
@@ -68,6 +70,8 @@ public abstract class AbstractWatchdogJob extends WatchdogJob {
             // These are not Exception subclasses and actually
             // thowing something here will stop rescheduling the job forever (until next redeploy)
             logger.error("Exception catched and swallowed to preserve rescheduling of the task", t);
+        } finally {
+            PbcMetrics.watchdogCycle("ecs").observeSince(start);
         }
     }
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Histogram with fixed upper bounds, following the Prometheus histogram semantics.
+ * Observations are lock free.
+ */
+public final class Histogram {
+    /**
+     * Bounds in seconds for calls that take milliseconds up to a minute.
+     */
+    public static final double[] CALL_BUCKETS = {0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60};
+
+    /**
+     * Bounds in seconds for waits that take seconds up to an hour.
+     */
+    public static final double[] WAIT_BUCKETS = {1, 5, 10, 20, 30, 60, 120, 300, 600, 1200, 1800, 3600};
+
+    /**
+     * Bounds for small counts, like the number of retries.
+     */
+    public static final double[] COUNT_BUCKETS = {0, 1, 2, 3, 5, 10, 20, 50, 100};
+
+    /**
+     * Bounds for shares between 0 and 1.
+     */
+    public static final double[] RATIO_BUCKETS = {0.05, 0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.9, 1};
+
+    private final double[] bounds;
+    // the last slot counts the observations above the largest bound.
+    private final AtomicLongArray buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] bounds) {
+        this.bounds = Arrays.copyOf(bounds, bounds.length);
+        Arrays.sort(this.bounds);
+        this.buckets = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        buckets.incrementAndGet(index >= 0 ? index : -index - 1);
+        sum.add(value);
+    }
+
+    public void observe(Duration duration) {
+        observe(duration.toNanos() / 1e9);
+    }
+
+    /**
+     * Observe the time elapsed since the given {@link System#nanoTime()} value.
+     */
+    public void observeSince(long startNanos) {
+        observe((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    double[] getBounds() {
+        return Arrays.copyOf(bounds, bounds.length);
+    }
+
+    /**
+     * Cumulative counts for each bound, the last item being the total count.
+     */
+    long[] getCumulativeCounts() {
+        long[] toRet = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < toRet.length; i++) {
+            total += buckets.get(i);
+            toRet[i] = total;
+        }
+        return toRet;
+    }
+
+    double getSum() {
+        return sum.sum();
+    }
+}
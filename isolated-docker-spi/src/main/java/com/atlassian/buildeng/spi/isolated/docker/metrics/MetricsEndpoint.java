@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import com.atlassian.bamboo.security.BambooPermissionManager;
+import com.atlassian.bamboo.security.acegi.acls.BambooPermission;
+
+/**
+ * The metrics endpoint shared by the REST resources of the backend plugins.
+ * The metrics reveal the load of the build infrastructure, only Bamboo administrators get to scrape them.
+ */
+public final class MetricsEndpoint {
+    private final BambooPermissionManager bambooPermissionManager;
+    private final MetricsRegistry registry;
+
+    public MetricsEndpoint(BambooPermissionManager bambooPermissionManager) {
+        this(bambooPermissionManager, MetricsRegistry.shared());
+    }
+
+    MetricsEndpoint(BambooPermissionManager bambooPermissionManager, MetricsRegistry registry) {
+        this.bambooPermissionManager = bambooPermissionManager;
+        this.registry = registry;
+    }
+
+    /**
+     * true if the current user is a Bamboo administrator.
+     */
+    public boolean isPermitted() {
+        return bambooPermissionManager.hasGlobalPermission(BambooPermission.ADMINISTRATION);
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format, see {@link MetricsRegistry#CONTENT_TYPE}.
+     */
+    public String scrape() {
+        return registry.scrape();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of PBC internal metrics, exported in the Prometheus text format.
+ * The shared instance lives in the spi bundle, so metrics recorded by any of the PBC plugins
+ * are visible to the metrics endpoint of each backend plugin.
+ * Labels are passed as name and value pairs.
+ */
+public final class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Family<?>> families = new ConcurrentSkipListMap<>();
+
+    MetricsRegistry() {}
+
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get or create the histogram of the given name and labels. Bounds only apply when the histogram is created.
+     */
+    public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+        return family(name, help, "histogram", Histogram.class).get(labels, () -> new Histogram(bounds));
+    }
+
+    /**
+     * Get or create the counter of the given name and labels, by convention the name ends with _total.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, "counter", Counter.class).get(labels, Counter::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Family<T> family(String name, String help, String type, Class<T> clazz) {
+        Family<?> family = families.computeIfAbsent(name, (String n) -> new Family<>(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+        }
+        return (Family<T>) family;
+    }
+
+    /**
+     * Render all metrics in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        for (Family<?> family : families.values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, ?> child : family.children.entrySet()) {
+                if (child.getValue() instanceof Counter) {
+                    sample(sb, family.name, child.getKey(), null, ((Counter) child.getValue()).get());
+                } else if (child.getValue() instanceof Histogram) {
+                    writeHistogram(sb, family.name, child.getKey(), (Histogram) child.getValue());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void writeHistogram(StringBuilder sb, String name, String labels, Histogram histogram) {
+        double[] bounds = histogram.getBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            sample(sb, name + "_bucket", labels, "le=\"" + format(bounds[i]) + "\"", counts[i]);
+        }
+        long total = counts[counts.length - 1];
+        sample(sb, name + "_bucket", labels, "le=\"+Inf\"", total);
+        sb.append(name).append("_sum").append(labels).append(' ');
+        sb.append(format(histogram.getSum())).append('\n');
+        sample(sb, name + "_count", labels, null, total);
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, String extraLabel, long value) {
+        sb.append(name);
+        if (extraLabel == null) {
+            sb.append(labels);
+        } else if (labels.isEmpty()) {
+            sb.append('{').append(extraLabel).append('}');
+        } else {
+            sb.append(labels, 0, labels.length() - 1).append(',').append(extraLabel).append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value)
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+
+    static String labels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels have to be name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            sb.append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class Family<T> {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, T> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        T get(String[] labels, Supplier<T> factory) {
+            return children.computeIfAbsent(labels(labels), (String l) -> factory.get());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+/**
+ * The metrics recorded by the PBC plugins, kept in one place so that names and buckets stay consistent.
+ */
+public final class PbcMetrics {
+
+    private PbcMetrics() {}
+
+    /**
+     * Time from the job being queued until its agent registered with the server.
+     */
+    public static Histogram queueToAgent() {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_queue_to_agent_seconds",
+                        "Time from queueing a job until its agent registered.",
+                        Histogram.WAIT_BUCKETS);
+    }
+
+    /**
+     * Number of retries needed to get an agent scheduled.
+     */
+    public static Histogram agentStartRetries() {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_agent_start_retries",
+                        "Retries needed before the agent of a job was scheduled.",
+                        Histogram.COUNT_BUCKETS);
+    }
+
+    /**
+     * Agent startup attempts that were rescheduled.
+     */
+    public static Counter agentStartRescheduled(String reason) {
+        return MetricsRegistry.shared()
+                .counter(
+                        "pbc_agent_start_rescheduled_total",
+                        "Agent startup attempts that were rescheduled.",
+                        "reason",
+                        reason);
+    }
+
+    /**
+     * Duration of a kubectl invocation.
+     */
+    public static Histogram kubectl(String verb) {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_kubectl_duration_seconds",
+                        "Duration of kubectl invocations.",
+                        Histogram.CALL_BUCKETS,
+                        "verb",
+                        verb);
+    }
+
+    /**
+     * Time spent generating the pod specification.
+     */
+    public static Histogram podSpecGeneration() {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_pod_spec_generation_seconds",
+                        "Time spent generating pod specifications.",
+                        Histogram.CALL_BUCKETS);
+    }
+
+    /**
+     * Duration of a single watchdog run.
+     */
+    public static Histogram watchdogCycle(String backend) {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_watchdog_cycle_seconds",
+                        "Duration of a single watchdog run.",
+                        Histogram.CALL_BUCKETS,
+                        "backend",
+                        backend);
+    }
+
+    /**
+     * Duration of a scheduling request to ECS.
+     */
+    public static Histogram ecsScheduling() {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_ecs_scheduling_seconds",
+                        "Duration of scheduling requests to the ECS scheduler.",
+                        Histogram.CALL_BUCKETS);
+    }
+
+    /**
+     * Share of the free ECS cluster capacity left on instances that cannot run even the smallest agent.
+     */
+    public static Histogram ecsStrandedCapacity(String resource) {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_ecs_stranded_capacity_ratio",
+                        "Share of free capacity on ECS instances too full for the smallest agent, after a batch.",
+                        Histogram.RATIO_BUCKETS,
+                        "resource",
+                        resource);
+    }
+
+    /**
+     * Scheduling requests handled by the ECS scheduler, by outcome.
+     */
+    public static Counter ecsPlacements(String result) {
+        return MetricsRegistry.shared()
+                .counter(
+                        "pbc_ecs_placements_total",
+                        "Scheduling requests placed on or rejected by the ECS cluster.",
+                        "result",
+                        result);
+    }
+
+    /**
+     * Duration of a single AWS api call, including the failed ones.
+     */
+    public static Histogram awsCall(String operation) {
+        return MetricsRegistry.shared()
+                .histogram(
+                        "pbc_aws_call_duration_seconds",
+                        "Duration of AWS api calls.",
+                        Histogram.CALL_BUCKETS,
+                        "operation",
+                        operation);
+    }
+
+    /**
+     * ECS task state change events received by the scheduler service, by the reported task status.
+     */
+    public static Counter ecsTaskEvents(String status) {
+        return MetricsRegistry.shared()
+                .counter(
+                        "pbc_ecs_task_events_total",
+                        "ECS task state change events received by the scheduler service.",
+                        "status",
+                        status);
+    }
+
+    /**
+     * AWS api calls retried because they were throttled.
+     */
+    public static Counter awsThrottled(String operation) {
+        return MetricsRegistry.shared()
+                .counter(
+                        "pbc_aws_throttled_total",
+                        "AWS api calls that were throttled and retried.",
+                        "operation",
+                        operation);
+    }
+
+    /**
+     * Events of the ECS scheduler service handed to Datadog, by outcome.
+     */
+    public static Counter datadogEvents(String result) {
+        return MetricsRegistry.shared()
+                .counter(
+                        "pbc_datadog_events_total",
+                        "Scheduler events sent to Datadog, failed to send or dropped because the queue was full.",
+                        "result",
+                        result);
+    }
+}
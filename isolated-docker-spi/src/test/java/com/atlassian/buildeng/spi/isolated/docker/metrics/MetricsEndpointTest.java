@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.atlassian.bamboo.security.BambooPermissionManager;
+import com.atlassian.bamboo.security.acegi.acls.BambooPermission;
+import org.junit.jupiter.api.Test;
+
+public class MetricsEndpointTest {
+
+    @Test
+    public void onlyAdministratorsPermitted() {
+        BambooPermissionManager permissionManager = mock(BambooPermissionManager.class);
+        MetricsEndpoint endpoint = new MetricsEndpoint(permissionManager, new MetricsRegistry());
+        assertFalse(endpoint.isPermitted());
+
+        when(permissionManager.hasGlobalPermission(BambooPermission.ADMINISTRATION)).thenReturn(true);
+        assertTrue(endpoint.isPermitted());
+    }
+
+    @Test
+    public void scrapesTheRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_total", "Test.").inc();
+        MetricsEndpoint endpoint = new MetricsEndpoint(mock(BambooPermissionManager.class), registry);
+        assertTrue(endpoint.scrape().contains("test_total 1\n"), endpoint.scrape());
+    }
+}
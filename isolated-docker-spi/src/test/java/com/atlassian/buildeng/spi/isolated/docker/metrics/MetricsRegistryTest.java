@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.spi.isolated.docker.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void histogramBucketsAreCumulative() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("test_seconds", "Test.", new double[] {1, 5}, "verb", "get");
+        histogram.observe(0.5);
+        histogram.observe(1);
+        histogram.observe(3);
+        histogram.observe(10);
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("# TYPE test_seconds histogram\n"), scrape);
+        assertTrue(scrape.contains("test_seconds_bucket{verb=\"get\",le=\"1\"} 2\n"), scrape);
+        assertTrue(scrape.contains("test_seconds_bucket{verb=\"get\",le=\"5\"} 3\n"), scrape);
+        assertTrue(scrape.contains("test_seconds_bucket{verb=\"get\",le=\"+Inf\"} 4\n"), scrape);
+        assertTrue(scrape.contains("test_seconds_sum{verb=\"get\"} 14.5\n"), scrape);
+        assertTrue(scrape.contains("test_seconds_count{verb=\"get\"} 4\n"), scrape);
+    }
+
+    @Test
+    public void sameNameAndLabelsReturnSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter first = registry.counter("test_total", "Test.", "reason", "a");
+        assertSame(first, registry.counter("test_total", "Test.", "reason", "a"));
+        registry.counter("test_total", "Test.", "reason", "b").inc(2);
+        first.inc();
+
+        String scrape = registry.scrape();
+        assertTrue(scrape.contains("test_total{reason=\"a\"} 1\n"), scrape);
+        assertTrue(scrape.contains("test_total{reason=\"b\"} 2\n"), scrape);
+    }
+
+    @Test
+    public void typeMismatchIsRejected() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_total", "Test.");
+        assertThrows(
+                IllegalArgumentException.class, () -> registry.histogram("test_total", "Test.", new double[] {1}));
+    }
+
+    @Test
+    public void labelValuesAreEscaped() {
+        assertEquals("{a=\"x\\\"y\"}", MetricsRegistry.labels("a", "x\"y"));
+        assertEquals("", MetricsRegistry.labels());
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 Atlassian Pty Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.atlassian.buildeng.metrics.shared;
+
+import com.atlassian.bamboo.artifact.Artifact;
+import com.atlassian.bamboo.build.artifact.ArtifactHandlerPublishingResult;
+import com.atlassian.bamboo.build.artifact.ArtifactManager;
+import com.atlassian.bamboo.build.logger.BuildLogger;
+import com.atlassian.bamboo.plan.PlanResultKey;
+import com.atlassian.bamboo.plan.artifact.ArtifactDefinitionContextImpl;
+import com.atlassian.bamboo.plan.artifact.ArtifactPublishingResult;
+import com.atlassian.bamboo.security.SecureToken;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Publishes metrics files as artifacts. Usable both from the agent side build processors
+ * and from server side components that have no BuildContext at hand.
+ */
+public final class MetricsArtifactPublisher {
+
+    private MetricsArtifactPublisher() {}
+
+    /**
+     * Publish a single file from the metrics folder of the given directory.
+     *
+     * @return the key of the artifact handler that stored the artifact, to be recorded
+     *     under {@link MetricsBuildProcessor#ARTIFACT_TYPE_BUILD_DATA_KEY}
+     */
+    public static String publish(
+            ArtifactManager artifactManager,
+            String name,
+            String fileExtension,
+            SecureToken secureToken,
+            BuildLogger buildLogger,
+            File workingDirectory,
+            Map<String, String> artifactHandlerConfiguration,
+            PlanResultKey planResultKey) {
+        ArtifactDefinitionContextImpl artifact = new ArtifactDefinitionContextImpl(
+                MetricsBuildProcessor.ARTIFACT_PREFIX + name, false, secureToken);
+        artifact.setCopyPattern(name + fileExtension);
+        artifact.setLocation(MetricsBuildProcessor.METRICS_FOLDER);
+        final ArtifactPublishingResult publishingResult = artifactManager.publish(
+                buildLogger, planResultKey, workingDirectory, artifact, artifactHandlerConfiguration, 0);
+        return publishingResult.getSuccessfulPublishingResults().stream()
+                .findAny()
+                .map(ArtifactHandlerPublishingResult::getArtifactHandlerKey)
+                .orElse(Artifact.SYSTEM_LINK_TYPE);
+    }
+}
@@ -16,14 +16,10 @@
 
 package com.atlassian.buildeng.metrics.shared;
 
-import com.atlassian.bamboo.artifact.Artifact;
 import com.atlassian.bamboo.build.BuildLoggerManager;
 import com.atlassian.bamboo.build.CustomBuildProcessor;
-import com.atlassian.bamboo.build.artifact.ArtifactHandlerPublishingResult;
 import com.atlassian.bamboo.build.artifact.ArtifactManager;
 import com.atlassian.bamboo.build.logger.BuildLogger;
-import com.atlassian.bamboo.plan.artifact.ArtifactDefinitionContextImpl;
-import com.atlassian.bamboo.plan.artifact.ArtifactPublishingResult;
 import com.atlassian.bamboo.security.SecureToken;
 import com.atlassian.bamboo.v2.build.BuildContext;
 import com.atlassian.buildeng.spi.isolated.docker.AccessConfiguration;
@@ -37,7 +33,7 @@ import org.jetbrains.annotations.NotNull;
  */
 public abstract class MetricsBuildProcessor implements CustomBuildProcessor {
     protected static final String RESULT_PREFIX = "result.isolated.docker.";
-    protected static final String METRICS_FOLDER = ".pbc-metrics";
+    public static final String METRICS_FOLDER = ".pbc-metrics";
     public static final String ARTIFACT_TYPE_BUILD_DATA_KEY = "metrics_artifacts_type";
     public static final String ARTIFACT_PREFIX = "pbc-metrics-";
 
@@ -76,26 +72,20 @@ public abstract class MetricsBuildProcessor implements CustomBuildProcessor {
             File buildWorkingDirectory,
             final Map<String, String> artifactHandlerConfiguration,
             BuildContext buildContext) {
-        ArtifactDefinitionContextImpl artifact =
-                new ArtifactDefinitionContextImpl(ARTIFACT_PREFIX + name, false, secureToken);
-        artifact.setCopyPattern(name + fileExtension);
-        artifact.setLocation(METRICS_FOLDER);
-        final ArtifactPublishingResult publishingResult = artifactManager.publish(
-                buildLogger,
-                buildContext.getPlanResultKey(),
-                buildWorkingDirectory,
-                artifact,
-                artifactHandlerConfiguration,
-                0);
         buildContext
                 .getCurrentResult()
                 .getCustomBuildData()
                 .put(
                         ARTIFACT_TYPE_BUILD_DATA_KEY,
-                        publishingResult.getSuccessfulPublishingResults().stream()
-                                .findAny()
-                                .map(ArtifactHandlerPublishingResult::getArtifactHandlerKey)
-                                .orElse(Artifact.SYSTEM_LINK_TYPE));
+                        MetricsArtifactPublisher.publish(
+                                artifactManager,
+                                name,
+                                fileExtension,
+                                secureToken,
+                                buildLogger,
+                                buildWorkingDirectory,
+                                artifactHandlerConfiguration,
+                                buildContext.getPlanResultKey()));
     }
 
     protected abstract void generateMetricsGraphs(
@@ -18,6 +18,7 @@ package com.atlassian.buildeng.metrics.shared;
 
 import com.atlassian.bamboo.chains.StageExecution;
 import com.atlassian.bamboo.chains.plugins.PreJobAction;
+import com.atlassian.bamboo.security.SecureToken;
 import com.atlassian.bamboo.security.SecureTokenService;
 import com.atlassian.bamboo.v2.build.BuildContext;
 import com.atlassian.spring.container.ContainerManager;
@@ -31,11 +32,18 @@ public class PreJobActionImpl implements PreJobAction {
 
     @Override
     public void execute(StageExecution stageExecution, BuildContext buildContext) {
+        String token = generateSecureToken(buildContext).getToken();
+        buildContext.getBuildResult().getCustomBuildData().put(SECURE_TOKEN, token);
+    }
+
+    /**
+     * Generate a token that allows publishing artifacts for the given job.
+     */
+    public static SecureToken generateSecureToken(BuildContext buildContext) {
         // secureTokenService not available for plugins via injection
         // but still used by ArtifactDownloaderRuntimeDataProvider in plugin.
         SecureTokenService secureTokenService =
                 ContainerManager.getComponent("secureTokenService", SecureTokenService.class);
-        String token = secureTokenService.generate(buildContext.getBuildKey()).getToken();
-        buildContext.getBuildResult().getCustomBuildData().put(SECURE_TOKEN, token);
+        return secureTokenService.generate(buildContext.getBuildKey());
     }
 }